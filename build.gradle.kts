@@ -67,6 +67,8 @@ dependencies {
 
     compileOnly(libs.cthingAnnots)
 
+    testImplementation(libs.arrowMemoryCore)
+    testImplementation(libs.arrowVector)
     testImplementation(libs.assertJ)
     testImplementation(libs.assertJGradle)
     testImplementation(libs.commonsIO)
@@ -83,6 +85,7 @@ dependencies {
     testImplementation(libs.xmlPlaceholders)
     testImplementation(libs.xmlUnit)
 
+    testRuntimeOnly(libs.arrowMemoryUnsafe)
     testRuntimeOnly(libs.junitEngine)
     testRuntimeOnly(libs.junitLauncher)
 
@@ -181,11 +184,27 @@ tasks {
         }
     }
 
+    register<Test>("configurationBenchmark") {
+        description = "Measures configuration time and memory when applying the plugin to builds with many projects."
+        group = "verification"
+        testClassesDirs = sourceSets.test.get().output.classesDirs
+        classpath = sourceSets.test.get().runtimeClasspath
+        filter {
+            includeTestsMatching("*Benchmark")
+        }
+        systemProperty("locc.benchmark", "true")
+        providers.gradleProperty("benchmarkSizes").orNull?.let { systemProperty("locc.benchmark.sizes", it) }
+        outputs.upToDateWhen { false }
+    }
+
     withType<Test> {
         useJUnitPlatform()
 
         systemProperty("projectDir", projectDir)
         systemProperty("buildDir", layout.buildDirectory.get().asFile)
+
+        // Required by the Arrow library used to read the Arrow reports.
+        jvmArgs("--add-opens=java.base/java.nio=ALL-UNNAMED")
     }
 
     withType<GenerateModuleMetadata> {
@@ -0,0 +1,25 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.cthing.gradle.plugins.locc;
+
+/**
+ * Specifies how the counts of a physical file that is reachable through more than one path (e.g. through a
+ * symbolic link or a hard link) are attributed in the reports. Regardless of the attribution, the file is only
+ * read and counted once.
+ */
+public enum AliasAttribution {
+    /**
+     * The counts are attributed to the first path to the file in path order. The other paths do not appear in
+     * the reports.
+     */
+    FIRST,
+
+    /**
+     * The counts are attributed to every path to the file. Each path appears in the reports with the counts of
+     * the file.
+     */
+    ALL
+}
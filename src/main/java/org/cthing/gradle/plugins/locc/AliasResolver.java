@@ -0,0 +1,136 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.cthing.gradle.plugins.locc;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.cthing.locc4j.Counts;
+import org.cthing.locc4j.Language;
+
+
+/**
+ * Finds paths that refer to the same physical file, such as paths through symbolically linked directories or
+ * hard links. Files are identified using their {@link BasicFileAttributes#fileKey() file key}, which is obtained
+ * from the same attributes read needed to determine the file size. On platforms that do not provide a file key,
+ * the real path of the file is used to identify it.
+ */
+final class AliasResolver {
+
+    private AliasResolver() {
+    }
+
+    /**
+     * Groups the specified paths by the physical file they refer to.
+     *
+     * @param files Paths to examine
+     * @return Groups of paths that refer to the same physical file keyed by the first path in each group in path
+     *      order. Each group contains all paths to the file, including the key, in path order. Paths that are
+     *      the only path to their file do not appear in any group.
+     * @throws IOException if there was a problem reading the attributes of a file
+     */
+    static Map<Path, Set<Path>> findAliases(final Collection<Path> files) throws IOException {
+        final Map<Object, Set<Path>> byKey = new HashMap<>();
+        for (final Path file : files) {
+            final BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+            final Object fileKey = attrs.fileKey();
+            byKey.computeIfAbsent(fileKey == null ? file.toRealPath() : fileKey, key -> new TreeSet<>()).add(file);
+        }
+
+        final Map<Path, Set<Path>> aliases = new TreeMap<>();
+        for (final Set<Path> group : byKey.values()) {
+            if (group.size() > 1) {
+                aliases.put(group.iterator().next(), group);
+            }
+        }
+        return aliases;
+    }
+
+    /**
+     * Merges groups of paths that share members. This is used to combine the paths to the same physical file
+     * with the groups of files that have identical content.
+     *
+     * @param groups1 First set of groups, keyed by the first path in each group
+     * @param groups2 Second set of groups, keyed by the first path in each group
+     * @return Merged groups keyed by the first path in each group in path order.
+     */
+    static Map<Path, Set<Path>> mergeGroups(final Map<Path, Set<Path>> groups1, final Map<Path, Set<Path>> groups2) {
+        final Map<Path, Set<Path>> memberToGroup = new HashMap<>();
+        for (final Set<Path> group : groups1.values()) {
+            addGroup(memberToGroup, group);
+        }
+        for (final Set<Path> group : groups2.values()) {
+            addGroup(memberToGroup, group);
+        }
+
+        final Map<Path, Set<Path>> merged = new TreeMap<>();
+        for (final Set<Path> group : memberToGroup.values()) {
+            merged.putIfAbsent(group.iterator().next(), group);
+        }
+        return merged;
+    }
+
+    /**
+     * Attributes the counts of each physical file reachable through more than one path.
+     *
+     * @param attribution How the counts are attributed
+     * @param counts Counts for each file. The counts for the first path in each alias group must be present. With
+     *      {@link AliasAttribution#ALL}, the counts are added for the other paths in each group.
+     * @param aliases Groups of paths to the same physical file, keyed by the first path in each group
+     * @param duplicates Groups of files with identical content, keyed by the first file in each group
+     * @param deduplicate {@code true} if files with identical content are counted once
+     * @return Groups of files with identical content to report. With {@link AliasAttribution#ALL} and
+     *      deduplication, the paths to the same physical file are merged into the groups.
+     */
+    static Map<Path, Set<Path>> attribute(final AliasAttribution attribution,
+                                          final Map<Path, Map<Language, Counts>> counts,
+                                          final Map<Path, Set<Path>> aliases,
+                                          final Map<Path, Set<Path>> duplicates,
+                                          final boolean deduplicate) {
+        if (attribution != AliasAttribution.ALL) {
+            return duplicates;
+        }
+
+        expandGroups(counts, aliases);
+        return deduplicate ? mergeGroups(duplicates, aliases) : duplicates;
+    }
+
+    /**
+     * Assigns the counts of the first file in each group to every file in the group.
+     *
+     * @param counts Counts for each file. The counts for the first file in each group must be present.
+     * @param groups Groups of files keyed by the first file in each group
+     */
+    static void expandGroups(final Map<Path, Map<Language, Counts>> counts, final Map<Path, Set<Path>> groups) {
+        groups.forEach((first, group) -> {
+            final Map<Language, Counts> firstCounts = counts.get(first);
+            if (firstCounts != null) {
+                group.forEach(path -> counts.put(path, firstCounts));
+            }
+        });
+    }
+
+    private static void addGroup(final Map<Path, Set<Path>> memberToGroup, final Set<Path> group) {
+        final Set<Path> combined = new TreeSet<>(group);
+        for (final Path member : group) {
+            final Set<Path> existing = memberToGroup.get(member);
+            if (existing != null) {
+                combined.addAll(existing);
+            }
+        }
+        for (final Path member : combined) {
+            memberToGroup.put(member, combined);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.cthing.gradle.plugins.locc;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+
+/**
+ * Provides the entries of zip format archives (e.g. sources jars) as paths that can be read directly by the
+ * line counter. Each archive is opened as a zip {@link FileSystem} so that entries are streamed from the
+ * archive without being extracted. Because paths from different file systems cannot be compared, the entries are
+ * reported using a path of the form {@code archive!/entry} on the default file system. The archives remain open
+ * until this object is closed.
+ */
+final class ArchiveEntries implements Closeable {
+
+    static final String ENTRY_SEPARATOR = "!/";
+
+    private final List<FileSystem> fileSystems = new ArrayList<>();
+    private final Map<Path, Path> entryToDisplayPath = new HashMap<>();
+
+    /**
+     * Opens the specified archive and adds its file entries.
+     *
+     * @param archive Zip format archive to open
+     * @param filter Filter applied to the entry display paths relative to the specified directory
+     * @param filterBase Directory relative to which the display paths are matched against the filter
+     * @throws IOException if there was a problem reading the archive
+     */
+    void add(final Path archive, final PathFilter filter, final Path filterBase) throws IOException {
+        final FileSystem fileSystem = FileSystems.newFileSystem(archive, (ClassLoader)null);
+        this.fileSystems.add(fileSystem);
+
+        for (final Path root : fileSystem.getRootDirectories()) {
+            try (Stream<Path> entries = Files.walk(root)) {
+                entries.filter(Files::isRegularFile).forEach(entry -> {
+                    final String entryName = root.relativize(entry).toString();
+                    final Path displayPath = Path.of(archive + ENTRY_SEPARATOR + entryName);
+                    if (filter.isEmpty() || filter.acceptFile(toFilterPath(filterBase, archive, entryName))) {
+                        this.entryToDisplayPath.put(entry, displayPath);
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Obtains the archive entries that can be read by the line counter.
+     *
+     * @return Paths to the archive entries.
+     */
+    List<Path> getEntries() {
+        return List.copyOf(this.entryToDisplayPath.keySet());
+    }
+
+    /**
+     * Obtains the path by which the specified entry is reported.
+     *
+     * @param entry Path to an archive entry as returned by {@link #getEntries()}
+     * @return Path of the form {@code archive!/entry} on the default file system.
+     */
+    Path getDisplayPath(final Path entry) {
+        final Path displayPath = this.entryToDisplayPath.get(entry);
+        if (displayPath == null) {
+            throw new IllegalArgumentException("Unknown archive entry " + entry);
+        }
+        return displayPath;
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (final FileSystem fileSystem : this.fileSystems) {
+            try {
+                fileSystem.close();
+            } catch (final IOException ex) {
+                failure = ex;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static String toFilterPath(final Path filterBase, final Path archive, final String entryName) {
+        final Path archivePath = archive.startsWith(filterBase) ? filterBase.relativize(archive) : archive;
+        return RepositoryScanner.toUnixPath(archivePath) + ENTRY_SEPARATOR + entryName;
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.cthing.gradle.plugins.locc;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.cthing.locc4j.Counts;
+import org.cthing.locc4j.Language;
+import org.jspecify.annotations.Nullable;
+
+
+/**
+ * Compares the current line counts with those in a baseline report or counts artifact and writes the differences
+ * in the same CSV formats as the {@link DiffReport diff reports}. The baseline is joined with the current counts by
+ * a sorted merge on the pathnames. A baseline report is streamed, so it is never loaded into memory. A counts
+ * artifact is compact, so it is read in full and its files sorted. Pathnames in the baseline are matched relative
+ * to the root project directory.
+ */
+final class BaselineComparison {
+
+    /**
+     * Summary of the differences from the baseline.
+     *
+     * @param added Number of files not in the baseline
+     * @param removed Number of baseline files no longer present
+     * @param changed Number of files whose counts differ from the baseline
+     * @param totalBefore Total counts of the baseline
+     * @param totalAfter Total counts of the current files
+     */
+    record Summary(int added, int removed, int changed, Counts totalBefore, Counts totalAfter) {
+    }
+
+    private record FileCounts(Path path, Map<Language, Counts> counts) {
+    }
+
+    private final Path rootPath;
+    private final List<FileCounts> currentCounts = new ArrayList<>();
+
+    /**
+     * Constructs the comparison.
+     *
+     * @param pathCounts Current counts for each file
+     * @param rootPath Root project directory relative to which pathnames are matched
+     */
+    BaselineComparison(final Map<Path, Map<Language, Counts>> pathCounts, final Path rootPath) {
+        this.rootPath = rootPath;
+        pathCounts.forEach((path, counts) -> this.currentCounts.add(new FileCounts(relativize(path), counts)));
+        this.currentCounts.sort(Comparator.comparing(FileCounts::path));
+    }
+
+    /**
+     * Compares the current counts with the specified baseline and writes the differences.
+     *
+     * @param baseline Line count report in JSON or XML format, or counts artifact, containing the baseline counts.
+     *      The files in a report must be sorted by pathname, as they are in reports generated by the plugin.
+     * @param filesReport File to which the per-file differences are written, or {@code null} to not write them.
+     *      Only files that were added, removed or whose counts changed are written.
+     * @param languagesReport File to which the per-language and total counts before and after are written, or
+     *      {@code null} to not write them
+     * @return Summary of the differences.
+     * @throws IOException if there was a problem reading the baseline or writing the reports
+     */
+    Summary compare(final Path baseline, @Nullable final File filesReport, @Nullable final File languagesReport)
+            throws IOException {
+        final Merger merger;
+        try (Writer writer = (filesReport == null) ? Writer.nullWriter() : DiffReport.newWriter(filesReport)) {
+            DiffReport.writeln(writer, DiffReport.FILES_HEADER);
+            merger = new Merger(writer);
+            LoccReportReader.read(baseline, merger);
+            merger.finish();
+        }
+
+        if (languagesReport != null) {
+            merger.writeLanguages(languagesReport);
+        }
+
+        return new Summary(merger.added, merger.removed, merger.changed, merger.totalBefore, merger.totalAfter);
+    }
+
+    private Path relativize(final Path path) {
+        return (path.isAbsolute() && path.startsWith(this.rootPath)) ? this.rootPath.relativize(path) : path;
+    }
+
+    /**
+     * Performs the sorted merge of the baseline files with the current files.
+     */
+    private final class Merger implements LoccReportHandler {
+
+        private final Writer writer;
+        private final Map<Language, Counts> langBefore = new EnumMap<>(Language.class);
+        private final Map<Language, Counts> langAfter = new EnumMap<>(Language.class);
+        private final Map<Language, Integer> filesBefore = new EnumMap<>(Language.class);
+        private final Map<Language, Integer> filesAfter = new EnumMap<>(Language.class);
+        private int index;
+        private int numBefore;
+        private int added;
+        private int removed;
+        private int changed;
+        private Counts totalBefore = Counts.ZERO;
+        private Counts totalAfter = Counts.ZERO;
+        private @Nullable Path previous;
+
+        Merger(final Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void file(final String pathname, final Map<Language, Counts> counts) throws IOException {
+            final Path path = relativize(Path.of(pathname));
+            if (this.previous != null && path.compareTo(this.previous) <= 0) {
+                throw new IOException("Files are not sorted by pathname at '" + pathname + "'");
+            }
+            this.previous = path;
+
+            accumulate(counts, this.langBefore, this.filesBefore);
+            this.numBefore++;
+            this.totalBefore = CountsCache.plus(this.totalBefore, sum(counts));
+
+            while (this.index < currentCounts.size() && currentCounts.get(this.index).path().compareTo(path) < 0) {
+                addCurrent(currentCounts.get(this.index++), true);
+            }
+
+            if (this.index < currentCounts.size() && currentCounts.get(this.index).path().equals(path)) {
+                final FileCounts current = currentCounts.get(this.index++);
+                addCurrent(current, false);
+                if (!CountsCache.sameCounts(current.counts(), counts)) {
+                    this.changed++;
+                    writeFile(path, 'M', counts, current.counts());
+                }
+            } else {
+                this.removed++;
+                writeFile(path, 'D', counts, Map.of());
+            }
+        }
+
+        void finish() throws IOException {
+            while (this.index < currentCounts.size()) {
+                addCurrent(currentCounts.get(this.index++), true);
+            }
+        }
+
+        void writeLanguages(final File destination) throws IOException {
+            final Set<Language> languages = EnumSet.noneOf(Language.class);
+            languages.addAll(this.langBefore.keySet());
+            languages.addAll(this.langAfter.keySet());
+            final List<Language> sortedLanguages = new ArrayList<>(languages);
+            sortedLanguages.sort(Comparator.comparing(Language::getDisplayName));
+
+            try (Writer languagesWriter = DiffReport.newWriter(destination)) {
+                DiffReport.writeln(languagesWriter, DiffReport.LANGUAGES_HEADER);
+                DiffReport.writeln(languagesWriter, "ALL,All," + this.numBefore + "," + currentCounts.size() + ","
+                        + DiffReport.formatCounts(this.totalBefore, this.totalAfter));
+                for (final Language language : sortedLanguages) {
+                    DiffReport.writeln(languagesWriter, DiffReport.escape(language.name()) + ","
+                            + DiffReport.escape(language.getDisplayName()) + ","
+                            + this.filesBefore.getOrDefault(language, 0) + ","
+                            + this.filesAfter.getOrDefault(language, 0) + ","
+                            + DiffReport.formatCounts(this.langBefore.get(language), this.langAfter.get(language)));
+                }
+            }
+        }
+
+        private void addCurrent(final FileCounts current, final boolean isAdded) throws IOException {
+            accumulate(current.counts(), this.langAfter, this.filesAfter);
+            this.totalAfter = CountsCache.plus(this.totalAfter, sum(current.counts()));
+            if (isAdded) {
+                this.added++;
+                writeFile(current.path(), 'A', Map.of(), current.counts());
+            }
+        }
+
+        private void writeFile(final Path path, final char status, final Map<Language, Counts> before,
+                               final Map<Language, Counts> after) throws IOException {
+            final Set<Language> languages = EnumSet.noneOf(Language.class);
+            languages.addAll(before.keySet());
+            languages.addAll(after.keySet());
+
+            final String prefix = DiffReport.escape(RepositoryScanner.toUnixPath(path)) + "," + status + ",";
+            if (languages.isEmpty()) {
+                DiffReport.writeln(this.writer, prefix + "," + DiffReport.formatCounts(null, null));
+            } else {
+                final List<Language> sortedLanguages = new ArrayList<>(languages);
+                sortedLanguages.sort(Comparator.comparing(Language::getDisplayName));
+                for (final Language language : sortedLanguages) {
+                    DiffReport.writeln(this.writer, prefix + DiffReport.escape(language.name()) + ","
+                            + DiffReport.formatCounts(before.get(language), after.get(language)));
+                }
+            }
+        }
+
+        private static void accumulate(final Map<Language, Counts> counts, final Map<Language, Counts> langCounts,
+                                       final Map<Language, Integer> langFiles) {
+            counts.forEach((language, langCount) -> {
+                langCounts.merge(language, langCount, CountsCache::plus);
+                langFiles.merge(language, 1, Integer::sum);
+            });
+        }
+
+        private static Counts sum(final Map<Language, Counts> counts) {
+            Counts total = Counts.ZERO;
+            for (final Counts langCount : counts.values()) {
+                total = CountsCache.plus(total, langCount);
+            }
+            return total;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.cthing.gradle.plugins.locc;
+
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+import org.cthing.locc4j.Counter;
+import org.cthing.locc4j.Counts;
+import org.cthing.locc4j.Language;
+
+
+/**
+ * Counts the lines in file contents that are held in memory, such as the contents of git blobs, rather than
+ * in a file. The language of the contents is determined from the extension of the file name.
+ */
+final class BlobCounter {
+
+    private final boolean countDocStrings;
+
+    /**
+     * Constructs the counter.
+     *
+     * @param countDocStrings {@code true} to count documentation strings as comments
+     */
+    BlobCounter(final boolean countDocStrings) {
+        this.countDocStrings = countDocStrings;
+    }
+
+    /**
+     * Counts the lines in the specified contents.
+     *
+     * @param pathname Pathname of the file whose contents are counted. Only the file name extension is used.
+     * @param contents Contents of the file, assumed to be encoded using UTF-8
+     * @return Counts for each language in the contents. If the language of the file cannot be determined, an
+     *      empty map is returned, which marks the file as unrecognized.
+     */
+    Map<Language, Counts> count(final String pathname, final byte[] contents) {
+        final Optional<Language> language = languageOf(pathname);
+        if (language.isEmpty()) {
+            return new EnumMap<>(Language.class);
+        }
+
+        final Counter counter = new Counter(language.get());
+        counter.countDocStrings(this.countDocStrings);
+        return counter.count(new String(contents, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Determines the language of a file from its name in the same way as the locc4j {@code FileCounter}. The
+     * complete filename is tried first so that files such as {@code Makefile}, {@code Dockerfile} and
+     * {@code CMakeLists.txt} are recognized, followed by the extension of the filename.
+     *
+     * @param pathname Pathname of the file
+     * @return Language of the file, if it can be determined.
+     */
+    static Optional<Language> languageOf(final String pathname) {
+        final int nameStart = Math.max(pathname.lastIndexOf('/'), pathname.lastIndexOf('\\')) + 1;
+        final String filename = pathname.substring(nameStart);
+        final Optional<Language> language = Language.fromFilename(filename);
+        if (language.isPresent()) {
+            return language;
+        }
+
+        final int extStart = filename.lastIndexOf('.');
+        if (extStart <= 0) {
+            return Optional.empty();
+        }
+        return Language.fromFileExtension(filename.substring(extStart + 1).toLowerCase(Locale.ROOT));
+    }
+}
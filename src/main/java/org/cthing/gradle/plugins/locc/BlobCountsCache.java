@@ -0,0 +1,206 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.cthing.gradle.plugins.locc;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.cthing.locc4j.Counts;
+import org.cthing.locc4j.Language;
+import org.jspecify.annotations.Nullable;
+
+
+/**
+ * Persistent cache of line counts keyed by git blob id. Because git has already hashed the contents of every
+ * tracked file, the counts of a tracked file that is unmodified in the working tree can be found using the blob
+ * id recorded in the index without reading the file. Only modified and untracked files need to be hashed. Since
+ * the language of a file can depend on its name, the name of the file is part of the key.
+ *
+ * <p>The cache is stored in a binary file. If the file was written using different counting options, or cannot
+ * be read, the cache starts empty.</p>
+ */
+final class BlobCountsCache {
+
+    /** Maximum number of entries retained in the cache file in addition to those used by the latest count. */
+    static final int MAX_ENTRIES = 100_000;
+
+    private static final int MAGIC = 0x4C424C43;      // "LBLC"
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Map<String, Map<Language, Counts>> entries;
+    private final Set<String> used = new HashSet<>();
+    private final String options;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    @Nullable
+    private MessageDigest digest;
+
+    private BlobCountsCache(final String options, final Map<String, Map<Language, Counts>> entries) {
+        this.options = options;
+        this.entries = entries;
+    }
+
+    /**
+     * Reads the cache from the specified file.
+     *
+     * @param cacheFile File containing the cache. If the file does not exist, an empty cache is created.
+     * @param options Fingerprint of the counting options. If the cache was written with different options, an
+     *      empty cache is created.
+     * @return Cache read from the file.
+     */
+    static BlobCountsCache read(final Path cacheFile, final String options) {
+        final Map<String, Map<Language, Counts>> entries = new HashMap<>();
+        try (DataInputStream ins = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile)))) {
+            if (ins.readInt() == MAGIC && ins.readInt() == VERSION && ins.readUTF().equals(options)) {
+                final int numEntries = ins.readInt();
+                for (int i = 0; i < numEntries; i++) {
+                    final String key = ins.readUTF();
+                    final int numLanguages = ins.readUnsignedShort();
+                    final Map<Language, Counts> counts = new EnumMap<>(Language.class);
+                    for (int j = 0; j < numLanguages; j++) {
+                        final Language language = Language.valueOf(ins.readUTF());
+                        counts.put(language, new Counts(ins.readInt(), ins.readInt(), ins.readInt()));
+                    }
+                    entries.put(key, counts);
+                }
+            }
+        } catch (final IOException | IllegalArgumentException ex) {
+            // A missing or corrupt cache, or one written with a different set of languages, starts empty.
+            return new BlobCountsCache(options, new HashMap<>());
+        }
+        return new BlobCountsCache(options, entries);
+    }
+
+    /**
+     * Writes the cache to the specified file. The entries used since the cache was read are always written.
+     * Unused entries are retained up to {@link #MAX_ENTRIES} so that switching between branches does not discard
+     * the counts for the other branch.
+     *
+     * @param cacheFile File to write
+     * @throws IOException if there was a problem writing the file
+     */
+    void write(final Path cacheFile) throws IOException {
+        final Map<String, Map<Language, Counts>> retained = new LinkedHashMap<>();
+        this.used.forEach(key -> retained.put(key, this.entries.get(key)));
+        for (final Map.Entry<String, Map<Language, Counts>> entry : this.entries.entrySet()) {
+            if (retained.size() >= this.used.size() + MAX_ENTRIES) {
+                break;
+            }
+            retained.putIfAbsent(entry.getKey(), entry.getValue());
+        }
+
+        final Path parent = cacheFile.getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (DataOutputStream outs =
+                     new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(cacheFile)))) {
+            outs.writeInt(MAGIC);
+            outs.writeInt(VERSION);
+            outs.writeUTF(this.options);
+            outs.writeInt(retained.size());
+            for (final Map.Entry<String, Map<Language, Counts>> entry : retained.entrySet()) {
+                outs.writeUTF(entry.getKey());
+                outs.writeShort(entry.getValue().size());
+                for (final Map.Entry<Language, Counts> langEntry : entry.getValue().entrySet()) {
+                    final Counts counts = langEntry.getValue();
+                    outs.writeUTF(langEntry.getKey().name());
+                    outs.writeInt(counts.getCodeLines());
+                    outs.writeInt(counts.getCommentLines());
+                    outs.writeInt(counts.getBlankLines());
+                }
+            }
+        }
+    }
+
+    /**
+     * Obtains the number of entries in the cache.
+     *
+     * @return Number of cached entries.
+     */
+    int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * Obtains the counts for the specified blob.
+     *
+     * @param blobId Git blob id of the file contents
+     * @param file File with the contents
+     * @return Counts for the file or {@code null} if the blob is not in the cache.
+     */
+    @Nullable
+    Map<Language, Counts> get(final String blobId, final Path file) {
+        final String key = key(blobId, file);
+        final Map<Language, Counts> counts = this.entries.get(key);
+        if (counts != null) {
+            this.used.add(key);
+        }
+        return counts;
+    }
+
+    /**
+     * Adds the counts for the specified blob.
+     *
+     * @param blobId Git blob id of the file contents
+     * @param file File with the contents
+     * @param counts Counts for the file
+     */
+    void put(final String blobId, final Path file, final Map<Language, Counts> counts) {
+        final String key = key(blobId, file);
+        this.entries.put(key, counts);
+        this.used.add(key);
+    }
+
+    /**
+     * Calculates the git blob id of the specified file's contents. The id is calculated in the same way as
+     * {@code git hash-object} without applying any content filters.
+     *
+     * @param file File to hash
+     * @return Blob id of the file contents.
+     * @throws IOException if there was a problem reading the file
+     */
+    String hash(final Path file) throws IOException {
+        if (this.digest == null) {
+            try {
+                this.digest = MessageDigest.getInstance("SHA-1");
+            } catch (final NoSuchAlgorithmException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+
+        this.digest.reset();
+        this.digest.update(("blob " + Files.size(file) + "\0").getBytes(StandardCharsets.US_ASCII));
+        try (InputStream ins = Files.newInputStream(file)) {
+            int count;
+            while ((count = ins.read(this.buffer)) > 0) {
+                this.digest.update(this.buffer, 0, count);
+            }
+        }
+        return HexFormat.of().formatHex(this.digest.digest());
+    }
+
+    private static String key(final String blobId, final Path file) {
+        final Path fileName = file.getFileName();
+        return blobId + '/' + (fileName == null ? "" : fileName.toString());
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.cthing.gradle.plugins.locc;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.cthing.locc4j.Counts;
+import org.cthing.locc4j.FileCounter;
+import org.cthing.locc4j.Language;
+import org.jspecify.annotations.Nullable;
+
+
+/**
+ * Counts files, reusing the counts of files that have not changed since they were last counted. The counts are
+ * held in a size bounded map from which the least recently used entries are evicted. A cached entry is used only
+ * if the size and modification time of the file, and the options used to count it, are unchanged.
+ */
+final class CachedFileCounter {
+
+    /**
+     * Cached counts of a file.
+     *
+     * @param size Size of the file when it was counted
+     * @param modified Modification time of the file in nanoseconds when it was counted
+     * @param options Fingerprint of the options used to count the file
+     * @param counts Counts for the file or {@code null} if the counter did not produce counts for the file
+     */
+    private record Entry(long size, long modified, String options, @Nullable Map<Language, Counts> counts) {
+    }
+
+    /**
+     * Results of counting files.
+     *
+     * @param counts Counts for each file
+     * @param hits Number of files whose counts were obtained from the cache
+     * @param misses Number of files that were read and counted
+     */
+    record Result(Map<Path, Map<Language, Counts>> counts, int hits, int misses) {
+    }
+
+    private final Map<Path, Entry> entries;
+    private int maxEntries;
+
+    /**
+     * Constructs the counter.
+     *
+     * @param maxEntries Maximum number of files whose counts are cached
+     */
+    CachedFileCounter(final int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Changes the maximum number of files whose counts are cached. If the cache holds more entries than the
+     * new maximum, the least recently used entries are evicted.
+     *
+     * @param maxEntries Maximum number of files whose counts are cached
+     */
+    synchronized void setMaxEntries(final int maxEntries) {
+        this.maxEntries = maxEntries;
+        evict();
+    }
+
+    /**
+     * Obtains the number of files whose counts are cached.
+     *
+     * @return Number of cached entries.
+     */
+    synchronized int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * Counts the specified files. Only files that are not in the cache, or that have changed since they were
+     * cached, are read.
+     *
+     * @param counter Counter used to count files that are not in the cache
+     * @param options Fingerprint of the options configured on the counter
+     * @param files Files to count
+     * @return Counts for the files and the cache statistics.
+     * @throws IOException if there was a problem reading a file
+     */
+    Result count(final FileCounter counter, final String options, final Collection<Path> files) throws IOException {
+        final Map<Path, Map<Language, Counts>> counts = new HashMap<>();
+        final Map<Path, BasicFileAttributes> missed = new LinkedHashMap<>();
+
+        for (final Path file : files) {
+            final BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+            final Entry entry = get(file);
+            if (entry != null && entry.size == attrs.size() && entry.modified == modified(attrs)
+                    && entry.options.equals(options)) {
+                if (entry.counts != null) {
+                    counts.put(file, entry.counts);
+                }
+            } else {
+                missed.put(file, attrs);
+            }
+        }
+
+        if (!missed.isEmpty()) {
+            final Map<Path, Map<Language, Counts>> counted = counter.count(List.copyOf(missed.keySet()));
+            counts.putAll(counted);
+            synchronized (this) {
+                missed.forEach((file, attrs) -> this.entries.put(file, new Entry(attrs.size(), modified(attrs),
+                                                                                 options, counted.get(file))));
+                evict();
+            }
+        }
+
+        return new Result(counts, files.size() - missed.size(), missed.size());
+    }
+
+    @Nullable
+    private synchronized Entry get(final Path file) {
+        return this.entries.get(file);
+    }
+
+    /**
+     * Removes the least recently used entries until the cache holds no more than the maximum number of entries.
+     * The caller must hold the lock on this object.
+     */
+    private void evict() {
+        final Iterator<Map.Entry<Path, Entry>> iter = this.entries.entrySet().iterator();
+        while (this.entries.size() > this.maxEntries && iter.hasNext()) {
+            iter.next();
+            iter.remove();
+        }
+    }
+
+    private static long modified(final BasicFileAttributes attrs) {
+        return attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.cthing.gradle.plugins.locc;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.cthing.locc4j.Counts;
+import org.cthing.locc4j.Language;
+
+
+/**
+ * Reads and writes the binary counts artifact, which contains the per-file line counts of a count run. The
+ * artifact consists of a header, a table of the languages, a table of the file pathnames whose indices serve as
+ * file ids, the counts as parallel columns of file ids, language ids and code, comment and blank line counts,
+ * and the groups of duplicated files as lists of file ids. Languages are identified by name in the language table
+ * so that an artifact can be read by a different version of the line counter. Pathnames within the root project
+ * directory are stored relative to it using forward slashes, so an artifact written on one machine can be read
+ * on another machine with a different checkout location.
+ */
+final class CountsArtifact {
+
+    /**
+     * Contents of an artifact.
+     *
+     * @param shard Shard of the files counted
+     * @param options Options used to count the files
+     * @param pathCounts Counts for each file
+     * @param duplicateGroups Groups of files with identical content keyed by the first file in each group
+     */
+    record Contents(Shard shard, String options, Map<Path, Map<Language, Counts>> pathCounts,
+                    Map<Path, Set<Path>> duplicateGroups) {
+    }
+
+    private static final int MAGIC = 0x4C4F4341;
+    private static final int VERSION = 1;
+
+    private CountsArtifact() {
+    }
+
+    /**
+     * Writes an artifact.
+     *
+     * @param artifactFile File to write. The parent directories are created if necessary.
+     * @param rootPath Root project directory relative to which pathnames are stored
+     * @param contents Contents to write
+     * @throws IOException if there was a problem writing the file
+     */
+    static void write(final Path artifactFile, final Path rootPath, final Contents contents) throws IOException {
+        final List<Path> paths = new ArrayList<>(contents.pathCounts().keySet());
+        paths.sort(Path::compareTo);
+        final Map<Path, Integer> fileIds = new HashMap<>();
+        for (int i = 0; i < paths.size(); i++) {
+            fileIds.put(paths.get(i), i);
+        }
+
+        final List<Language> languages = new ArrayList<>();
+        final Map<Language, Integer> languageIds = new EnumMap<>(Language.class);
+        int numRecords = 0;
+        for (final Map<Language, Counts> counts : contents.pathCounts().values()) {
+            for (final Language language : counts.keySet()) {
+                if (!languageIds.containsKey(language)) {
+                    languageIds.put(language, languages.size());
+                    languages.add(language);
+                }
+            }
+            numRecords += counts.size();
+        }
+
+        final Path parent = artifactFile.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+
+        try (DataOutputStream outs = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(artifactFile)))) {
+            outs.writeInt(MAGIC);
+            outs.writeInt(VERSION);
+            outs.writeUTF(contents.options());
+            outs.writeInt(contents.shard().index());
+            outs.writeInt(contents.shard().count());
+
+            outs.writeInt(languages.size());
+            for (final Language language : languages) {
+                outs.writeUTF(language.name());
+            }
+
+            outs.writeInt(paths.size());
+            for (final Path path : paths) {
+                outs.writeUTF(toPathname(rootPath, path));
+            }
+
+            // Each column is written in turn so that a reader can load it into a primitive array.
+            final int[] fileColumn = new int[numRecords];
+            final int[] languageColumn = new int[numRecords];
+            final int[] codeColumn = new int[numRecords];
+            final int[] commentColumn = new int[numRecords];
+            final int[] blankColumn = new int[numRecords];
+            int record = 0;
+            for (int fileId = 0; fileId < paths.size(); fileId++) {
+                for (final Map.Entry<Language, Counts> entry : contents.pathCounts().get(paths.get(fileId))
+                                                                       .entrySet()) {
+                    fileColumn[record] = fileId;
+                    languageColumn[record] = languageIds.get(entry.getKey());
+                    codeColumn[record] = entry.getValue().getCodeLines();
+                    commentColumn[record] = entry.getValue().getCommentLines();
+                    blankColumn[record] = entry.getValue().getBlankLines();
+                    record++;
+                }
+            }
+            outs.writeInt(numRecords);
+            writeColumn(outs, fileColumn);
+            writeColumn(outs, languageColumn);
+            writeColumn(outs, codeColumn);
+            writeColumn(outs, commentColumn);
+            writeColumn(outs, blankColumn);
+
+            outs.writeInt(contents.duplicateGroups().size());
+            for (final Set<Path> group : contents.duplicateGroups().values()) {
+                outs.writeInt(group.size());
+                for (final Path path : group) {
+                    final Integer fileId = fileIds.get(path);
+                    if (fileId == null) {
+                        throw new IOException("Duplicate " + path + " was not counted");
+                    }
+                    outs.writeInt(fileId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Determines whether the specified file is an artifact from its content.
+     *
+     * @param file File to examine
+     * @return {@code true} if the file starts with the artifact magic number.
+     * @throws IOException if there was a problem reading the file
+     */
+    static boolean isArtifact(final Path file) throws IOException {
+        try (DataInputStream ins = new DataInputStream(Files.newInputStream(file))) {
+            return ins.readInt() == MAGIC;
+        } catch (final EOFException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Reads an artifact.
+     *
+     * @param artifactFile File to read
+     * @param rootPath Root project directory against which relative pathnames are resolved
+     * @return Contents of the artifact.
+     * @throws IOException if there was a problem reading the file or it is not a valid artifact
+     */
+    static Contents read(final Path artifactFile, final Path rootPath) throws IOException {
+        try (DataInputStream ins = new DataInputStream(new BufferedInputStream(Files.newInputStream(artifactFile)))) {
+            if (ins.readInt() != MAGIC) {
+                throw new IOException(artifactFile + " is not a line counts artifact");
+            }
+            final int version = ins.readInt();
+            if (version != VERSION) {
+                throw new IOException(artifactFile + " has unsupported version " + version);
+            }
+            final String options = ins.readUTF();
+            final Shard shard = new Shard(ins.readInt(), ins.readInt());
+
+            final Language[] languages = new Language[ins.readInt()];
+            for (int i = 0; i < languages.length; i++) {
+                final String name = ins.readUTF();
+                try {
+                    languages[i] = Language.valueOf(name);
+                } catch (final IllegalArgumentException ex) {
+                    throw new IOException(artifactFile + " contains unknown language '" + name + "'", ex);
+                }
+            }
+
+            final Path[] paths = new Path[ins.readInt()];
+            final Map<Path, Map<Language, Counts>> pathCounts = new HashMap<>();
+            for (int i = 0; i < paths.length; i++) {
+                paths[i] = rootPath.resolve(ins.readUTF());
+                pathCounts.put(paths[i], new EnumMap<>(Language.class));
+            }
+
+            final int numRecords = ins.readInt();
+            final int[] fileColumn = readColumn(ins, numRecords);
+            final int[] languageColumn = readColumn(ins, numRecords);
+            final int[] codeColumn = readColumn(ins, numRecords);
+            final int[] commentColumn = readColumn(ins, numRecords);
+            final int[] blankColumn = readColumn(ins, numRecords);
+            for (int i = 0; i < numRecords; i++) {
+                pathCounts.get(paths[fileColumn[i]]).put(languages[languageColumn[i]],
+                                                          new Counts(codeColumn[i], commentColumn[i],
+                                                                     blankColumn[i]));
+            }
+
+            final int numGroups = ins.readInt();
+            final Map<Path, Set<Path>> duplicateGroups = new HashMap<>();
+            for (int i = 0; i < numGroups; i++) {
+                final Set<Path> group = new TreeSet<>();
+                final int groupSize = ins.readInt();
+                for (int j = 0; j < groupSize; j++) {
+                    group.add(paths[ins.readInt()]);
+                }
+                if (!group.isEmpty()) {
+                    duplicateGroups.put(group.iterator().next(), group);
+                }
+            }
+
+            return new Contents(shard, options, pathCounts, duplicateGroups);
+        } catch (final IndexOutOfBoundsException | NegativeArraySizeException | IllegalArgumentException ex) {
+            throw new IOException(artifactFile + " is corrupt", ex);
+        }
+    }
+
+    /**
+     * Combines the contents of the artifacts of all shards of a count run.
+     *
+     * @param parts Contents of the artifact of each shard
+     * @return Combined contents.
+     * @throws IOException if the artifacts are not the complete set of shards of a single count run
+     */
+    static Contents merge(final List<Contents> parts) throws IOException {
+        if (parts.isEmpty()) {
+            throw new IOException("No counts artifacts to merge");
+        }
+
+        final Contents first = parts.get(0);
+        final int shardCount = first.shard().count();
+        final boolean[] seen = new boolean[shardCount];
+        final Map<Path, Map<Language, Counts>> pathCounts = new HashMap<>();
+        final Map<Path, Set<Path>> duplicateGroups = new HashMap<>();
+        for (final Contents part : parts) {
+            if (part.shard().count() != shardCount) {
+                throw new IOException("Artifacts have different shard counts " + shardCount + " and "
+                                              + part.shard().count());
+            }
+            if (!part.options().equals(first.options())) {
+                throw new IOException("Artifacts were counted with different options '" + first.options()
+                                              + "' and '" + part.options() + "'");
+            }
+            if (seen[part.shard().index()]) {
+                throw new IOException("Shard " + part.shard().index() + " appears more than once");
+            }
+            seen[part.shard().index()] = true;
+
+            for (final Map.Entry<Path, Map<Language, Counts>> entry : part.pathCounts().entrySet()) {
+                if (pathCounts.put(entry.getKey(), entry.getValue()) != null) {
+                    throw new IOException(entry.getKey() + " appears in more than one shard");
+                }
+            }
+            duplicateGroups.putAll(part.duplicateGroups());
+        }
+
+        for (int i = 0; i < shardCount; i++) {
+            if (!seen[i]) {
+                throw new IOException("Shard " + i + " of " + shardCount + " is missing");
+            }
+        }
+
+        return new Contents(Shard.ALL, first.options(), pathCounts, duplicateGroups);
+    }
+
+    private static String toPathname(final Path rootPath, final Path path) {
+        return RepositoryScanner.toUnixPath(path.startsWith(rootPath) ? rootPath.relativize(path) : path);
+    }
+
+    private static void writeColumn(final DataOutputStream outs, final int[] column) throws IOException {
+        for (final int value : column) {
+            outs.writeInt(value);
+        }
+    }
+
+    private static int[] readColumn(final DataInputStream ins, final int length) throws IOException {
+        final int[] column = new int[length];
+        for (int i = 0; i < length; i++) {
+            column[i] = ins.readInt();
+        }
+        return column;
+    }
+}
@@ -6,8 +6,14 @@
 package org.cthing.gradle.plugins.locc;
 
 import java.nio.file.Path;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 import org.cthing.locc4j.CountUtils;
 import org.cthing.locc4j.Counts;
@@ -22,7 +28,17 @@ import org.jspecify.annotations.Nullable;
 @SuppressWarnings("AssignmentOrReturnOfFieldWithMutableType")
 public class CountsCache {
 
+    /**
+     * Describes the effect of an update on the counts.
+     *
+     * @param files {@code true} if a file was added or removed, or the counts of a file changed
+     * @param languages {@code true} if the counts or number of files of a language changed
+     */
+    record Changes(boolean files, boolean languages) {
+    }
+
     private final Map<Path, Map<Language, Counts>> pathCounts;
+    private Map<Path, Set<Path>> duplicateGroups;
     @Nullable
     private Set<Language> languages;
     @Nullable
@@ -35,9 +51,93 @@ public class CountsCache {
     private Map<Path, Counts> fileCounts;
     @Nullable
     private Set<Path> unrecognized;
+    @Nullable
+    private Counts uniqueTotalCounts;
 
     CountsCache(final Map<Path, Map<Language, Counts>> pathCounts) {
+        this(pathCounts, Map.of());
+    }
+
+    /**
+     * Constructs a cache for files that may include copies of the same content.
+     *
+     * @param pathCounts Counts for languages in each file. Every copy of a duplicated file must be present.
+     * @param duplicateGroups Groups of files with identical content keyed by the first file in each group. Each
+     *      group contains all files with the content, including the key.
+     */
+    CountsCache(final Map<Path, Map<Language, Counts>> pathCounts, final Map<Path, Set<Path>> duplicateGroups) {
         this.pathCounts = pathCounts;
+        this.duplicateGroups = duplicateGroups;
+    }
+
+    /**
+     * Updates the counts for the specified files. Rather than recalculating the aggregate counts from all files,
+     * the previous counts of each changed file are subtracted from the aggregates and its new counts are added.
+     * Changed files are removed from the duplicate groups because their content may no longer be identical.
+     *
+     * @param changedCounts New counts for files that were added or changed. The map may include files whose
+     *      counts are unchanged.
+     * @param removedPaths Files that are no longer counted
+     * @return Description of what changed.
+     */
+    Changes update(final Map<Path, Map<Language, Counts>> changedCounts, final Collection<Path> removedPaths) {
+        // Ensure the aggregates exist in a form that can be updated.
+        this.totalCounts = getTotalCounts();
+        this.languageCounts = new HashMap<>(getLanguageCounts());
+        final Map<Language, Set<Path>> langPaths = new HashMap<>();
+        getLanguagePathCounts().forEach((language, paths) -> langPaths.put(language, new TreeSet<>(paths)));
+        this.languagePathCounts = langPaths;
+        this.fileCounts = new HashMap<>(getFileCounts());
+        this.unrecognized = new HashSet<>(getUnrecognized());
+
+        boolean filesChanged = false;
+        boolean languagesChanged = false;
+        final Set<Path> touched = new HashSet<>();
+
+        for (final Path path : removedPaths) {
+            final Map<Language, Counts> oldCounts = this.pathCounts.remove(path);
+            if (oldCounts != null) {
+                subtract(path, oldCounts);
+                filesChanged = true;
+                languagesChanged |= !oldCounts.isEmpty();
+                touched.add(path);
+            }
+        }
+
+        for (final Map.Entry<Path, Map<Language, Counts>> entry : changedCounts.entrySet()) {
+            final Path path = entry.getKey();
+            final Map<Language, Counts> newCounts = entry.getValue();
+            final Map<Language, Counts> oldCounts = this.pathCounts.put(path, newCounts);
+            if (oldCounts == null || !sameCounts(oldCounts, newCounts)) {
+                if (oldCounts != null) {
+                    subtract(path, oldCounts);
+                    languagesChanged |= !oldCounts.isEmpty();
+                }
+                add(path, newCounts);
+                filesChanged = true;
+                languagesChanged |= !newCounts.isEmpty();
+                touched.add(path);
+            }
+        }
+
+        this.languages = this.languageCounts.isEmpty() ? Set.of() : EnumSet.copyOf(this.languageCounts.keySet());
+
+        if (!touched.isEmpty() && !this.duplicateGroups.isEmpty()) {
+            final Map<Path, Set<Path>> groups = new TreeMap<>();
+            this.duplicateGroups.values().forEach(group -> {
+                final Set<Path> remaining = new TreeSet<>(group);
+                remaining.removeAll(touched);
+                if (remaining.size() > 1) {
+                    groups.put(remaining.iterator().next(), remaining);
+                }
+            });
+            this.duplicateGroups = groups;
+            this.uniqueTotalCounts = null;
+        } else if (filesChanged) {
+            this.uniqueTotalCounts = null;
+        }
+
+        return new Changes(filesChanged, languagesChanged);
     }
 
     /**
@@ -109,6 +209,111 @@ public class CountsCache {
         return this.fileCounts;
     }
 
+    /**
+     * Obtains the groups of files with identical content. Groups are only available if duplicate detection was
+     * requested.
+     *
+     * @return Groups of files with identical content keyed by the first file in each group in path order. Each
+     *      group contains all files with the content, including the key, in path order. If duplicate detection
+     *      was not requested or no duplicates were found, an empty map is returned.
+     */
+    public Map<Path, Set<Path>> getDuplicateGroups() {
+        return this.duplicateGroups;
+    }
+
+    /**
+     * Calculates the total line counts for all counted files with each duplicated content counted only once.
+     *
+     * @return Total line count for all files and languages with each duplicated content counted once. If there
+     *      are no duplicates, this is the same as {@link #getTotalCounts()}.
+     */
+    public Counts getUniqueTotalCounts() {
+        if (this.uniqueTotalCounts == null) {
+            if (this.duplicateGroups.isEmpty()) {
+                this.uniqueTotalCounts = getTotalCounts();
+            } else {
+                final Map<Path, Map<Language, Counts>> uniqueCounts = new HashMap<>(this.pathCounts);
+                this.duplicateGroups.forEach((first, group) -> group.forEach(path -> {
+                    if (!path.equals(first)) {
+                        uniqueCounts.remove(path);
+                    }
+                }));
+                this.uniqueTotalCounts = CountUtils.total(uniqueCounts);
+            }
+        }
+        return this.uniqueTotalCounts;
+    }
+
+    private void add(final Path path, final Map<Language, Counts> counts) {
+        if (counts.isEmpty()) {
+            this.unrecognized.add(path);
+            return;
+        }
+
+        Counts fileTotal = Counts.ZERO;
+        for (final Map.Entry<Language, Counts> entry : counts.entrySet()) {
+            final Language language = entry.getKey();
+            final Counts langCounts = entry.getValue();
+            this.languageCounts.merge(language, langCounts, CountsCache::plus);
+            this.languagePathCounts.computeIfAbsent(language, lang -> new TreeSet<>()).add(path);
+            fileTotal = plus(fileTotal, langCounts);
+        }
+        this.fileCounts.put(path, fileTotal);
+        this.totalCounts = plus(this.totalCounts, fileTotal);
+    }
+
+    private void subtract(final Path path, final Map<Language, Counts> counts) {
+        if (counts.isEmpty()) {
+            this.unrecognized.remove(path);
+            return;
+        }
+
+        for (final Map.Entry<Language, Counts> entry : counts.entrySet()) {
+            final Language language = entry.getKey();
+            final Set<Path> paths = this.languagePathCounts.get(language);
+            if (paths != null) {
+                paths.remove(path);
+                if (paths.isEmpty()) {
+                    this.languagePathCounts.remove(language);
+                    this.languageCounts.remove(language);
+                    continue;
+                }
+            }
+            this.languageCounts.computeIfPresent(language, (lang, langCounts) -> minus(langCounts,
+                                                                                        entry.getValue()));
+        }
+
+        final Counts fileTotal = this.fileCounts.remove(path);
+        if (fileTotal != null) {
+            this.totalCounts = minus(this.totalCounts, fileTotal);
+        }
+    }
+
+    static boolean sameCounts(final Map<Language, Counts> counts1, final Map<Language, Counts> counts2) {
+        if (!counts1.keySet().equals(counts2.keySet())) {
+            return false;
+        }
+        for (final Map.Entry<Language, Counts> entry : counts1.entrySet()) {
+            final Counts c1 = entry.getValue();
+            final Counts c2 = counts2.get(entry.getKey());
+            if (c1.getCodeLines() != c2.getCodeLines() || c1.getCommentLines() != c2.getCommentLines()
+                    || c1.getBlankLines() != c2.getBlankLines()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static Counts plus(final Counts c1, final Counts c2) {
+        return new Counts(c1.getCodeLines() + c2.getCodeLines(), c1.getCommentLines() + c2.getCommentLines(),
+                          c1.getBlankLines() + c2.getBlankLines());
+    }
+
+    static Counts minus(final Counts c1, final Counts c2) {
+        return new Counts(c1.getCodeLines() - c2.getCodeLines(), c1.getCommentLines() - c2.getCommentLines(),
+                          c1.getBlankLines() - c2.getBlankLines());
+    }
+
     /**
      * Obtains the files that were not recognized and therefore produced no counts.
      *
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.cthing.gradle.plugins.locc;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.cthing.escapers.CsvEscaper;
+import org.cthing.locc4j.CountUtils;
+import org.cthing.locc4j.Counts;
+import org.cthing.locc4j.Language;
+import org.jspecify.annotations.Nullable;
+
+
+/**
+ * Writes the before and after line counts of changed files in CSV format. One report contains a row for each
+ * language in each changed file, and the other contains a row for each language across all changed files.
+ */
+final class DiffReport {
+
+    static final String FILES_HEADER = "Pathname,Status,Language,Code Lines Before,Code Lines After,"
+            + "Comment Lines Before,Comment Lines After,Blank Lines Before,Blank Lines After";
+    static final String LANGUAGES_HEADER = "ID,Name,Files Before,Files After,Code Lines Before,Code Lines After,"
+            + "Comment Lines Before,Comment Lines After,Blank Lines Before,Blank Lines After";
+
+    private final List<GitDiffCounter.FileDiff> diffs;
+    private final Map<Path, Map<Language, Counts>> beforeCounts = new HashMap<>();
+    private final Map<Path, Map<Language, Counts>> afterCounts = new HashMap<>();
+
+    /**
+     * Constructs the report.
+     *
+     * @param diffs Counts for the changed files
+     */
+    DiffReport(final List<GitDiffCounter.FileDiff> diffs) {
+        this.diffs = diffs;
+        for (final GitDiffCounter.FileDiff diff : diffs) {
+            final Path path = Path.of(diff.path());
+            if (diff.status() != 'A') {
+                this.beforeCounts.put(path, diff.before());
+            }
+            if (diff.status() != 'D') {
+                this.afterCounts.put(path, diff.after());
+            }
+        }
+    }
+
+    /**
+     * Obtains the total counts of the changed files before the changes.
+     *
+     * @return Total counts before the changes.
+     */
+    Counts getTotalBefore() {
+        return CountUtils.total(this.beforeCounts);
+    }
+
+    /**
+     * Obtains the total counts of the changed files after the changes.
+     *
+     * @return Total counts after the changes.
+     */
+    Counts getTotalAfter() {
+        return CountUtils.total(this.afterCounts);
+    }
+
+    /**
+     * Writes the per-file report.
+     *
+     * @param destination File to write
+     * @throws IOException if there was a problem writing the file
+     */
+    void writeFiles(final File destination) throws IOException {
+        try (BufferedWriter writer = newWriter(destination)) {
+            writeln(writer, FILES_HEADER);
+
+            final List<GitDiffCounter.FileDiff> sortedDiffs = new ArrayList<>(this.diffs);
+            sortedDiffs.sort(Comparator.comparing(GitDiffCounter.FileDiff::path));
+            for (final GitDiffCounter.FileDiff diff : sortedDiffs) {
+                final Set<Language> languages = EnumSet.noneOf(Language.class);
+                languages.addAll(diff.before().keySet());
+                languages.addAll(diff.after().keySet());
+
+                final String prefix = escape(diff.path()) + "," + diff.status() + ",";
+                if (languages.isEmpty()) {
+                    writeln(writer, prefix + "," + formatCounts(null, null));
+                } else {
+                    final List<Language> sortedLanguages = new ArrayList<>(languages);
+                    sortedLanguages.sort(Comparator.comparing(Language::getDisplayName));
+                    for (final Language language : sortedLanguages) {
+                        writeln(writer, prefix + escape(language.name()) + ","
+                                + formatCounts(diff.before().get(language), diff.after().get(language)));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the per-language report.
+     *
+     * @param destination File to write
+     * @throws IOException if there was a problem writing the file
+     */
+    void writeLanguages(final File destination) throws IOException {
+        final Map<Language, Counts> langBefore = CountUtils.byLanguage(this.beforeCounts);
+        final Map<Language, Counts> langAfter = CountUtils.byLanguage(this.afterCounts);
+        final Map<Language, Set<Path>> filesBefore = CountUtils.byLanguageGroupedFile(this.beforeCounts);
+        final Map<Language, Set<Path>> filesAfter = CountUtils.byLanguageGroupedFile(this.afterCounts);
+
+        try (BufferedWriter writer = newWriter(destination)) {
+            writeln(writer, LANGUAGES_HEADER);
+            writeln(writer, "ALL,All," + this.beforeCounts.size() + "," + this.afterCounts.size() + ","
+                    + formatCounts(getTotalBefore(), getTotalAfter()));
+
+            final Set<Language> languages = EnumSet.noneOf(Language.class);
+            languages.addAll(langBefore.keySet());
+            languages.addAll(langAfter.keySet());
+            final List<Language> sortedLanguages = new ArrayList<>(languages);
+            sortedLanguages.sort(Comparator.comparing(Language::getDisplayName));
+            for (final Language language : sortedLanguages) {
+                writeln(writer, escape(language.name()) + "," + escape(language.getDisplayName()) + ","
+                        + filesBefore.getOrDefault(language, Set.of()).size() + ","
+                        + filesAfter.getOrDefault(language, Set.of()).size() + ","
+                        + formatCounts(langBefore.get(language), langAfter.get(language)));
+            }
+        }
+    }
+
+    static String formatCounts(@Nullable final Counts before, @Nullable final Counts after) {
+        final Counts b = (before == null) ? Counts.ZERO : before;
+        final Counts a = (after == null) ? Counts.ZERO : after;
+        return b.getCodeLines() + "," + a.getCodeLines() + "," + b.getCommentLines() + "," + a.getCommentLines()
+                + "," + b.getBlankLines() + "," + a.getBlankLines();
+    }
+
+    static BufferedWriter newWriter(final File destination) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(destination.toPath()),
+                                                         StandardCharsets.UTF_8));
+    }
+
+    static void writeln(final Writer writer, final String str) throws IOException {
+        writer.write(str);
+        writer.write("\r\n");
+    }
+
+    static String escape(final String str) {
+        final String escaped = CsvEscaper.escape(str);
+        return (escaped == null) ? "" : escaped;
+    }
+}
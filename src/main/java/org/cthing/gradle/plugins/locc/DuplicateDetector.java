@@ -0,0 +1,105 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.cthing.gradle.plugins.locc;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.cthing.locc4j.Language;
+import org.jspecify.annotations.Nullable;
+
+
+/**
+ * Finds files with identical content. To avoid reading every file, files are first grouped by size and only
+ * files that share a size with at least one other file have their content hashed. Since the language of a file
+ * is determined from its name as well as its content, files with identical content are only grouped when they
+ * are also detected as the same language, so that each file in a group has the same counts.
+ */
+final class DuplicateDetector {
+
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private final MessageDigest digest;
+
+    DuplicateDetector() {
+        try {
+            this.digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (final NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Finds the groups of files with identical content.
+     *
+     * @param files Files to examine
+     * @return Groups of files with identical content and language keyed by the first file in each group in path
+     *      order. Each group contains all files with the content and language, including the key, in path order.
+     *      Files whose content and language are unique do not appear in any group.
+     * @throws IOException if there was a problem reading a file
+     */
+    Map<Path, Set<Path>> findDuplicates(final Collection<Path> files) throws IOException {
+        final Map<Long, List<Path>> bySize = new HashMap<>();
+        for (final Path file : files) {
+            bySize.computeIfAbsent(Files.size(file), size -> new ArrayList<>(1)).add(file);
+        }
+
+        final Map<Path, Set<Path>> groups = new TreeMap<>();
+        for (final Map.Entry<Long, List<Path>> sizeEntry : bySize.entrySet()) {
+            final List<Path> candidates = sizeEntry.getValue();
+            if (candidates.size() < 2) {
+                continue;
+            }
+
+            final Map<ContentKey, Set<Path>> byContent = new HashMap<>();
+            for (final Path candidate : candidates) {
+                final ContentKey key = new ContentKey(hash(candidate), Language.fromFile(candidate).orElse(null));
+                byContent.computeIfAbsent(key, k -> new TreeSet<>()).add(candidate);
+            }
+            for (final Set<Path> group : byContent.values()) {
+                if (group.size() > 1) {
+                    groups.put(group.iterator().next(), group);
+                }
+            }
+        }
+        return groups;
+    }
+
+    private ByteBuffer hash(final Path file) throws IOException {
+        this.digest.reset();
+        try (InputStream ins = Files.newInputStream(file)) {
+            int count;
+            while ((count = ins.read(this.buffer)) > 0) {
+                this.digest.update(this.buffer, 0, count);
+            }
+        }
+        return ByteBuffer.wrap(this.digest.digest());
+    }
+
+    /**
+     * Identifies the files that are counted identically.
+     *
+     * @param hash Digest of the file content
+     * @param language Language detected for the file, or {@code null} if the file is not recognized
+     */
+    private record ContentKey(ByteBuffer hash, @Nullable Language language) {
+    }
+}
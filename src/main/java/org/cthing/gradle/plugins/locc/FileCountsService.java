@@ -0,0 +1,65 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.cthing.gradle.plugins.locc;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+
+import org.cthing.locc4j.FileCounter;
+import org.gradle.api.provider.Property;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+
+/**
+ * Shared build service providing the per-file line counts cache. The cache is held for the life of the Gradle
+ * daemon so that files that have not changed since a previous build are not read again.
+ */
+public abstract class FileCountsService implements BuildService<FileCountsService.Params> {
+
+    /** Name under which the service is registered. */
+    public static final String NAME = "loccFileCounts";
+
+    /** Default maximum number of files whose counts are cached. */
+    public static final int DEFAULT_MAX_ENTRIES = 100_000;
+
+    /**
+     * The cache outlives the service instance, which Gradle creates for each build.
+     */
+    private static final CachedFileCounter COUNTER = new CachedFileCounter(DEFAULT_MAX_ENTRIES);
+
+    /**
+     * Parameters for the service.
+     */
+    public interface Params extends BuildServiceParameters {
+        /**
+         * Obtains the maximum number of files whose counts are cached.
+         *
+         * @return Maximum number of cached files.
+         */
+        Property<Integer> getMaxEntries();
+    }
+
+    public FileCountsService() {
+        COUNTER.setMaxEntries(getParameters().getMaxEntries().getOrElse(DEFAULT_MAX_ENTRIES));
+    }
+
+    /**
+     * Counts the specified files, reading only those files that are not in the cache or that have changed since
+     * they were cached.
+     *
+     * @param counter Counter used to count files that are not in the cache
+     * @param options Fingerprint of the options configured on the counter
+     * @param files Files to count
+     * @return Counts for the files and the cache statistics.
+     * @throws IOException if there was a problem reading a file
+     */
+    CachedFileCounter.Result count(final FileCounter counter, final String options, final Collection<Path> files)
+            throws IOException {
+        return COUNTER.count(counter, options, files);
+    }
+}
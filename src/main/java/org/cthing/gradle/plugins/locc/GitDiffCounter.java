@@ -0,0 +1,92 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.cthing.gradle.plugins.locc;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import org.cthing.locc4j.Counts;
+import org.cthing.locc4j.Language;
+
+
+/**
+ * Counts the lines in the files changed between a base revision and {@code HEAD}. Both the old and new contents
+ * of each changed file are read from the git object database, so the working tree is not read and no other
+ * files are counted.
+ */
+final class GitDiffCounter {
+
+    /**
+     * Counts for a changed file before and after the change.
+     *
+     * @param path Path of the file relative to the root of the working tree using forward slashes
+     * @param status Status of the change as reported by {@link GitRepository#diff(String, String)}
+     * @param before Counts for the file at the base revision. Empty if the file was added or is unrecognized.
+     * @param after Counts for the file at {@code HEAD}. Empty if the file was deleted or is unrecognized.
+     */
+    record FileDiff(String path, char status, Map<Language, Counts> before, Map<Language, Counts> after) {
+    }
+
+    private final GitRepository repository;
+    private final BlobCounter counter;
+
+    /**
+     * Constructs the counter.
+     *
+     * @param repository Repository whose changes are counted
+     * @param counter Counter for the file contents
+     */
+    GitDiffCounter(final GitRepository repository, final BlobCounter counter) {
+        this.repository = repository;
+        this.counter = counter;
+    }
+
+    /**
+     * Counts the files changed since the specified revision. The changes are those made on {@code HEAD} since
+     * it diverged from the base revision (i.e. the changes since the merge base of the revisions), which are the
+     * changes made by a pull request.
+     *
+     * @param baseRevision Base revision (e.g. {@code origin/main})
+     * @param accept Predicate selecting the changed files to count based on their paths relative to the root of
+     *      the working tree
+     * @return Counts for the changed files in the order reported by git.
+     * @throws IOException if there was a problem reading the repository
+     */
+    List<FileDiff> count(final String baseRevision, final Predicate<String> accept) throws IOException {
+        final String head = this.repository.resolveCommit("HEAD");
+        final String base = this.repository.mergeBase(this.repository.resolveCommit(baseRevision), head);
+
+        final List<FileDiff> diffs = new ArrayList<>();
+        try (GitRepository.ObjectReader reader = this.repository.openObjectReader()) {
+            for (final GitRepository.Change change : this.repository.diff(base, head)) {
+                final String path = change.path();
+                if (!accept.test(path)) {
+                    continue;
+                }
+
+                final Map<Language, Counts> before = countBlob(reader, base, path, change.status() != 'A');
+                final Map<Language, Counts> after = countBlob(reader, head, path, change.status() != 'D');
+                diffs.add(new FileDiff(path, change.status(), before, after));
+            }
+        }
+        return diffs;
+    }
+
+    private Map<Language, Counts> countBlob(final GitRepository.ObjectReader reader, final String commit,
+                                            final String path, final boolean exists) throws IOException {
+        if (exists) {
+            final byte[] contents = reader.read(commit + ":" + path);
+            if (contents != null) {
+                return this.counter.count(path, contents);
+            }
+        }
+        return new EnumMap<>(Language.class);
+    }
+}
@@ -0,0 +1,394 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.cthing.gradle.plugins.locc;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import org.jspecify.annotations.Nullable;
+
+
+/**
+ * Reads a local git repository by running the {@code git} command line tool. Only local operations are
+ * performed, so no network access is required.
+ */
+final class GitRepository {
+
+    /**
+     * A file changed between two commits.
+     *
+     * @param status Status of the change: {@code 'A'} for added, {@code 'M'} for modified, {@code 'D'} for deleted
+     *      and {@code 'T'} for a change in file type
+     * @param path Path of the file relative to the root of the working tree using forward slashes
+     */
+    record Change(char status, String path) {
+    }
+
+    /**
+     * A commit in the history of the repository.
+     *
+     * @param id Object id of the commit
+     * @param timestamp Commit time in seconds since the epoch
+     */
+    record Commit(String id, long timestamp) {
+    }
+
+    /**
+     * A regular file in the tree of a commit.
+     *
+     * @param blobId Object id of the file contents
+     * @param path Path of the file relative to the root of the tree using forward slashes
+     */
+    record TreeEntry(String blobId, String path) {
+    }
+
+    /**
+     * A change to a path between the trees of two commits.
+     *
+     * @param path Path of the file relative to the root of the tree using forward slashes
+     * @param blobId Object id of the file contents after the change, or {@code null} if the path is not a regular
+     *      file after the change (e.g. it was deleted or replaced by a symbolic link)
+     */
+    record TreeChange(String path, @Nullable String blobId) {
+    }
+
+    private final Path workTree;
+
+    private GitRepository(final Path workTree) {
+        this.workTree = workTree;
+    }
+
+    /**
+     * Opens the repository containing the specified directory.
+     *
+     * @param dir Directory within the working tree of a repository
+     * @return Repository containing the directory.
+     * @throws IOException if the directory is not within a git repository or git could not be run
+     */
+    static GitRepository open(final Path dir) throws IOException {
+        final String topLevel = new String(run(dir, "rev-parse", "--show-toplevel"), StandardCharsets.UTF_8).trim();
+        return new GitRepository(Path.of(topLevel).toAbsolutePath());
+    }
+
+    /**
+     * Obtains the root directory of the working tree.
+     *
+     * @return Root of the working tree.
+     */
+    Path getWorkTree() {
+        return this.workTree;
+    }
+
+    /**
+     * Resolves the specified revision to the full object id of a commit.
+     *
+     * @param revision Revision to resolve (e.g. {@code origin/main}, {@code HEAD~3})
+     * @return Object id of the commit.
+     * @throws IOException if the revision does not identify a commit
+     */
+    String resolveCommit(final String revision) throws IOException {
+        try {
+            return runString("rev-parse", "--verify", "--quiet", revision + "^{commit}");
+        } catch (final IOException ex) {
+            throw new IOException("Revision '" + revision + "' does not identify a commit in " + this.workTree, ex);
+        }
+    }
+
+    /**
+     * Finds the best common ancestor of the specified commits.
+     *
+     * @param commit1 First commit
+     * @param commit2 Second commit
+     * @return Object id of the common ancestor commit.
+     * @throws IOException if the commits have no common ancestor
+     */
+    String mergeBase(final String commit1, final String commit2) throws IOException {
+        return runString("merge-base", commit1, commit2);
+    }
+
+    /**
+     * Obtains the files changed between the specified commits. Renames are reported as a deletion and an
+     * addition.
+     *
+     * @param fromCommit Commit before the changes
+     * @param toCommit Commit after the changes
+     * @return Changed files.
+     * @throws IOException if git could not be run
+     */
+    List<Change> diff(final String fromCommit, final String toCommit) throws IOException {
+        final String output = new String(run("diff", "-z", "--name-status", "--no-renames", fromCommit, toCommit),
+                                         StandardCharsets.UTF_8);
+        final String[] fields = output.split("\0");
+        final List<Change> changes = new ArrayList<>();
+        for (int i = 0; i + 1 < fields.length; i += 2) {
+            changes.add(new Change(fields[i].charAt(0), fields[i + 1]));
+        }
+        return changes;
+    }
+
+    /**
+     * Obtains the most recent commits reachable from the specified revision following only the first parent of
+     * merge commits, which is the history of the branch.
+     *
+     * @param revision Revision whose history is obtained
+     * @param maxCount Maximum number of commits to obtain
+     * @return Commits starting with the most recent.
+     * @throws IOException if git could not be run
+     */
+    List<Commit> log(final String revision, final int maxCount) throws IOException {
+        final String output = new String(run("log", "--first-parent", "--max-count=" + maxCount,
+                                             "--format=%H %ct", revision, "--"), StandardCharsets.UTF_8);
+        final List<Commit> commits = new ArrayList<>();
+        for (final String line : output.split("\n")) {
+            final int space = line.indexOf(' ');
+            if (space > 0) {
+                commits.add(new Commit(line.substring(0, space), Long.parseLong(line.substring(space + 1).trim())));
+            }
+        }
+        return commits;
+    }
+
+    /**
+     * Obtains the regular files in the tree of the specified commit. Symbolic links and submodules are not
+     * included.
+     *
+     * @param commit Commit whose tree is listed
+     * @return Files in the tree.
+     * @throws IOException if git could not be run
+     */
+    List<TreeEntry> listTree(final String commit) throws IOException {
+        final String output = new String(run("ls-tree", "-r", "-z", "--full-tree", commit), StandardCharsets.UTF_8);
+        final List<TreeEntry> entries = new ArrayList<>();
+        for (final String entry : output.split("\0")) {
+            // Format: <mode> SP <type> SP <object> TAB <path>
+            final int tab = entry.indexOf('\t');
+            if (tab < 0) {
+                continue;
+            }
+            final String[] fields = entry.substring(0, tab).split(" ");
+            if (fields.length == 3 && "blob".equals(fields[1]) && fields[0].startsWith("100")) {
+                entries.add(new TreeEntry(fields[2], entry.substring(tab + 1)));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Obtains the changes between the trees of the specified commits. Applying the changes to the regular files
+     * in the tree of the first commit, as obtained by {@link #listTree(String)}, yields the regular files in the
+     * tree of the second commit. This is far cheaper than listing the tree of the second commit when the
+     * commits are close in history. Renames are reported as a deletion and an addition.
+     *
+     * @param fromCommit Commit whose tree is the starting point
+     * @param toCommit Commit whose tree is the result
+     * @return Changed paths.
+     * @throws IOException if git could not be run
+     */
+    List<TreeChange> diffTree(final String fromCommit, final String toCommit) throws IOException {
+        final String output = new String(run("diff-tree", "-r", "-z", "--no-renames", fromCommit, toCommit),
+                                         StandardCharsets.UTF_8);
+        final String[] fields = output.split("\0");
+        final List<TreeChange> changes = new ArrayList<>();
+        for (int i = 0; i + 1 < fields.length; i += 2) {
+            // Format: : <old mode> SP <new mode> SP <old object> SP <new object> SP <status> NUL <path> NUL
+            final String[] meta = fields[i].split(" ");
+            if (meta.length != 5) {
+                continue;
+            }
+            final boolean regularFile = meta[1].startsWith("100") && meta[4].charAt(0) != 'D';
+            changes.add(new TreeChange(fields[i + 1], regularFile ? meta[3] : null));
+        }
+        return changes;
+    }
+
+    /**
+     * Obtains the blob ids recorded in the index for the tracked regular files. Symbolic links, submodules and
+     * files with unresolved merge conflicts are not included.
+     *
+     * @return Blob id of each tracked file keyed by its path relative to the root of the working tree using
+     *      forward slashes.
+     * @throws IOException if git could not be run
+     */
+    Map<String, String> indexBlobIds() throws IOException {
+        final String output = new String(run("ls-files", "-s", "-z"), StandardCharsets.UTF_8);
+        final Map<String, String> blobIds = new HashMap<>();
+        for (final String entry : output.split("\0")) {
+            // Format: <mode> SP <object> SP <stage> TAB <path>
+            final int tab = entry.indexOf('\t');
+            if (tab < 0) {
+                continue;
+            }
+            final String[] fields = entry.substring(0, tab).split(" ");
+            if (fields.length == 3 && "0".equals(fields[2]) && fields[0].startsWith("100")) {
+                blobIds.put(entry.substring(tab + 1), fields[1]);
+            }
+        }
+        return blobIds;
+    }
+
+    /**
+     * Obtains the tracked files whose working tree contents differ from the index. This relies on the file
+     * status information cached in the index, so unchanged files are generally not read.
+     *
+     * @return Paths of the modified files relative to the root of the working tree using forward slashes.
+     * @throws IOException if git could not be run
+     */
+    Set<String> modifiedPaths() throws IOException {
+        final String output = new String(run("status", "--porcelain=v1", "-z", "--no-renames",
+                                             "--untracked-files=no"), StandardCharsets.UTF_8);
+        final Set<String> paths = new HashSet<>();
+        for (final String entry : output.split("\0")) {
+            // Format: <index status><working tree status> SP <path>
+            if (entry.length() > 3 && entry.charAt(1) != ' ') {
+                paths.add(entry.substring(3));
+            }
+        }
+        return paths;
+    }
+
+    /**
+     * Starts a reader of object contents from the repository's object database.
+     *
+     * @return Object reader, which must be closed when no longer needed.
+     * @throws IOException if git could not be run
+     */
+    ObjectReader openObjectReader() throws IOException {
+        return new ObjectReader(this.workTree);
+    }
+
+    /**
+     * Runs git in the working tree with the specified arguments.
+     *
+     * @param args Arguments to git
+     * @return Standard output of the command.
+     * @throws IOException if git could not be run or exited with an error
+     */
+    byte[] run(final String... args) throws IOException {
+        return run(this.workTree, args);
+    }
+
+    private String runString(final String... args) throws IOException {
+        return new String(run(args), StandardCharsets.UTF_8).trim();
+    }
+
+    private static byte[] run(final Path dir, final String... args) throws IOException {
+        final List<String> command = new ArrayList<>(args.length + 3);
+        command.add("git");
+        command.add("-C");
+        command.add(dir.toString());
+        command.addAll(List.of(args));
+
+        final Process process = new ProcessBuilder(command).start();
+        process.getOutputStream().close();
+        final CompletableFuture<byte[]> errors = CompletableFuture.supplyAsync(() -> {
+            try (InputStream ins = process.getErrorStream()) {
+                return ins.readAllBytes();
+            } catch (final IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+
+        final byte[] output;
+        try (InputStream ins = process.getInputStream()) {
+            output = ins.readAllBytes();
+        }
+
+        try {
+            final int exitCode = process.waitFor();
+            if (exitCode != 0) {
+                throw new IOException("Command '" + String.join(" ", command) + "' failed with exit code "
+                                              + exitCode + ": "
+                                              + new String(errors.join(), StandardCharsets.UTF_8).trim());
+            }
+        } catch (final InterruptedException ex) {
+            process.destroy();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while running git", ex);
+        }
+        return output;
+    }
+
+    /**
+     * Reads the contents of objects using a single long-running {@code git cat-file --batch} process, which
+     * avoids starting a process for each object.
+     */
+    static final class ObjectReader implements Closeable {
+
+        private final Process process;
+        private final OutputStream requests;
+        private final InputStream responses;
+
+        private ObjectReader(final Path workTree) throws IOException {
+            this.process = new ProcessBuilder("git", "-C", workTree.toString(), "cat-file", "--batch")
+                    .redirectError(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            this.requests = this.process.getOutputStream();
+            this.responses = new BufferedInputStream(this.process.getInputStream());
+        }
+
+        /**
+         * Reads the contents of the specified blob.
+         *
+         * @param spec Blob to read, either an object id or a revision and path (e.g. {@code HEAD:src/App.java})
+         * @return Contents of the blob or {@code null} if the object does not exist or is not a blob (e.g. a
+         *      submodule commit).
+         * @throws IOException if there was a problem communicating with git
+         */
+        byte @Nullable [] read(final String spec) throws IOException {
+            this.requests.write((spec + "\n").getBytes(StandardCharsets.UTF_8));
+            this.requests.flush();
+
+            final String header = readLine();
+            if (header.endsWith(" missing") || header.endsWith(" ambiguous")) {
+                return null;
+            }
+
+            final String[] fields = header.split(" ");
+            if (fields.length != 3) {
+                throw new IOException("Unexpected response from git cat-file: " + header);
+            }
+            final int size = Integer.parseInt(fields[2]);
+            final byte[] contents = this.responses.readNBytes(size);
+            if (contents.length != size || this.responses.read() != '\n') {
+                throw new IOException("Truncated response from git cat-file for " + spec);
+            }
+            return "blob".equals(fields[1]) ? contents : null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.requests.close();
+            this.responses.close();
+            this.process.destroy();
+        }
+
+        private String readLine() throws IOException {
+            final ByteArrayOutputStream line = new ByteArrayOutputStream();
+            int ch;
+            while ((ch = this.responses.read()) != '\n') {
+                if (ch < 0) {
+                    throw new IOException("Unexpected end of output from git cat-file");
+                }
+                line.write(ch);
+            }
+            return line.toString(StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.cthing.gradle.plugins.locc;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+
+import org.cthing.locc4j.Counts;
+import org.cthing.locc4j.Language;
+
+
+/**
+ * Counts the lines in the trees of historical commits without checking them out. File contents are read from the
+ * git object database, and the counts of each unique blob are calculated only once regardless of how many
+ * commits contain it. Commits are counted in parallel, with each worker counting a contiguous range of history.
+ * The complete tree is only listed for the first commit in each range. The trees of the other commits are
+ * obtained by applying the changes from the previously counted commit.
+ */
+final class HistoryCounter {
+
+    /**
+     * Per-language totals for a commit.
+     *
+     * @param commit Commit that was counted
+     * @param counts Total counts for each language in the commit's tree
+     * @param files Number of files containing each language in the commit's tree
+     * @param numFiles Number of files counted in the commit's tree. A file containing more than one language, such
+     *      as an HTML file with embedded CSS, is counted once.
+     */
+    record Point(GitRepository.Commit commit, Map<Language, Counts> counts, Map<Language, Integer> files,
+                 int numFiles) {
+    }
+
+    private final GitRepository repository;
+    private final BlobCounter counter;
+    private final Predicate<String> accept;
+    private final int parallelism;
+    private final Map<String, Map<Language, Counts>> blobCounts = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs the counter.
+     *
+     * @param repository Repository whose history is counted
+     * @param counter Counter for the file contents
+     * @param accept Predicate selecting the files to count based on their paths relative to the root of the
+     *      tree. The predicate must be thread safe.
+     * @param parallelism Maximum number of commits to count concurrently
+     */
+    HistoryCounter(final GitRepository repository, final BlobCounter counter, final Predicate<String> accept,
+                   final int parallelism) {
+        this.repository = repository;
+        this.counter = counter;
+        this.accept = accept;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Counts the specified commits.
+     *
+     * @param commits Commits to count
+     * @return Per-language totals for each commit in the order specified.
+     * @throws IOException if there was a problem reading the repository
+     */
+    List<Point> count(final List<GitRepository.Commit> commits) throws IOException {
+        final int numWorkers = Math.min(this.parallelism, Math.max(1, commits.size()));
+        final int rangeSize = (commits.size() + numWorkers - 1) / numWorkers;
+        final ExecutorService executor = Executors.newFixedThreadPool(numWorkers);
+        try {
+            final List<Future<List<Point>>> futures = new ArrayList<>(numWorkers);
+            for (int start = 0; start < commits.size(); start += rangeSize) {
+                final List<GitRepository.Commit> range =
+                        commits.subList(start, Math.min(start + rangeSize, commits.size()));
+                futures.add(executor.submit(() -> countRange(range)));
+            }
+
+            final List<Point> points = new ArrayList<>(commits.size());
+            for (final Future<List<Point>> future : futures) {
+                points.addAll(future.get());
+            }
+            return points;
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while counting history", ex);
+        } catch (final ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof IOException ioEx) {
+                throw ioEx;
+            }
+            throw new IllegalStateException(cause);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Obtains the number of unique blobs that were counted.
+     *
+     * @return Number of blobs counted.
+     */
+    int getBlobsCounted() {
+        return this.blobCounts.size();
+    }
+
+    /**
+     * Counts a contiguous range of commits.
+     *
+     * @param commits Commits to count, each adjacent to the next in history
+     * @return Per-language totals for each commit in the order specified.
+     * @throws IOException if there was a problem reading the repository
+     */
+    private List<Point> countRange(final List<GitRepository.Commit> commits) throws IOException {
+        final List<Point> points = new ArrayList<>(commits.size());
+        final Map<String, String> tree = new HashMap<>();
+        try (GitRepository.ObjectReader reader = this.repository.openObjectReader()) {
+            GitRepository.Commit previous = null;
+            for (final GitRepository.Commit commit : commits) {
+                if (previous == null) {
+                    for (final GitRepository.TreeEntry entry : this.repository.listTree(commit.id())) {
+                        if (isCounted(entry.path())) {
+                            tree.put(entry.path(), entry.blobId());
+                        }
+                    }
+                } else {
+                    for (final GitRepository.TreeChange change
+                            : this.repository.diffTree(previous.id(), commit.id())) {
+                        if (change.blobId() == null || !isCounted(change.path())) {
+                            tree.remove(change.path());
+                        } else {
+                            tree.put(change.path(), change.blobId());
+                        }
+                    }
+                }
+                points.add(countCommit(reader, commit, tree));
+                previous = commit;
+            }
+        }
+        return points;
+    }
+
+    private boolean isCounted(final String path) {
+        return BlobCounter.languageOf(path).isPresent() && this.accept.test(path);
+    }
+
+    private Point countCommit(final GitRepository.ObjectReader reader, final GitRepository.Commit commit,
+                              final Map<String, String> tree) throws IOException {
+        final Map<Language, Counts> counts = new EnumMap<>(Language.class);
+        final Map<Language, Integer> files = new EnumMap<>(Language.class);
+        int numFiles = 0;
+
+        for (final Map.Entry<String, String> entry : tree.entrySet()) {
+            final String path = entry.getKey();
+            final String blobId = entry.getValue();
+            final Optional<Language> language = BlobCounter.languageOf(path);
+            if (language.isEmpty()) {
+                continue;
+            }
+            numFiles++;
+
+            // The language is part of the key because the same contents can be named with different extensions.
+            // The blob is read outside of the map so that other workers are not blocked while git is queried.
+            // Two workers may occasionally count the same blob, in which case the first counts are kept.
+            final String key = blobId + '/' + language.get().name();
+            Map<Language, Counts> fileCounts = this.blobCounts.get(key);
+            if (fileCounts == null) {
+                final byte[] contents = reader.read(blobId);
+                final Map<Language, Counts> blobCounts = (contents == null) ? Map.of()
+                                                                            : this.counter.count(path, contents);
+                fileCounts = this.blobCounts.putIfAbsent(key, blobCounts);
+                if (fileCounts == null) {
+                    fileCounts = blobCounts;
+                }
+            }
+
+            fileCounts.forEach((lang, langCounts) -> {
+                counts.merge(lang, langCounts, CountsCache::plus);
+                files.merge(lang, 1, Integer::sum);
+            });
+        }
+
+        return new Point(commit, counts, files, numFiles);
+    }
+}
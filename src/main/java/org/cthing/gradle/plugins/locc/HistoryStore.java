@@ -0,0 +1,302 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.cthing.gradle.plugins.locc;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import org.cthing.locc4j.Counts;
+
+
+/**
+ * Append-only binary store of the aggregate line counts of each run. The store consists of a data file, to which
+ * a variable length record is appended for each run, and an index file containing a fixed length entry with the
+ * offset and timestamp of each record. The index allows the most recent records to be located without reading
+ * the data file from the beginning, so reading a trend remains fast as the store grows.
+ *
+ * <p>Counts are written as variable length integers, so a record typically occupies a few bytes per language
+ * and project. Records are appended to the data file before their index entry, so an interrupted append leaves
+ * an unindexed record that is ignored.</p>
+ */
+final class HistoryStore {
+
+    /**
+     * Counts for a language, project or all files.
+     *
+     * @param name Name of the language or path of the project. Empty for all files.
+     * @param files Number of files
+     * @param counts Line counts
+     */
+    record Aggregate(String name, int files, Counts counts) {
+    }
+
+    /**
+     * Aggregate counts of a run.
+     *
+     * @param timestamp Time of the run in milliseconds since the epoch
+     * @param label Label for the run (e.g. the project version or a commit id)
+     * @param total Counts for all files
+     * @param languages Counts for each language
+     * @param projects Counts for each project
+     */
+    record Entry(long timestamp, String label, Aggregate total, List<Aggregate> languages,
+                 List<Aggregate> projects) {
+    }
+
+    static final String INDEX_EXTENSION = ".idx";
+
+    private static final int MAGIC = 0x4C4F4348;         // "LOCH"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int INDEX_ENTRY_SIZE = 16;
+
+    private HistoryStore() {
+    }
+
+    /**
+     * Appends a record to the store, creating the store if it does not exist.
+     *
+     * @param dataFile Data file of the store. The index file is the same pathname with {@code .idx} appended.
+     * @param entry Record to append
+     * @throws IOException if there was a problem writing the store
+     */
+    static void append(final Path dataFile, final Entry entry) throws IOException {
+        final Path parent = dataFile.getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream outs = new DataOutputStream(bytes)) {
+            outs.writeLong(entry.timestamp());
+            outs.writeUTF(entry.label());
+            writeAggregate(outs, entry.total());
+            writeAggregates(outs, entry.languages());
+            writeAggregates(outs, entry.projects());
+        }
+
+        final long offset;
+        try (FileChannel data = FileChannel.open(dataFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            offset = Math.max(data.size(), HEADER_SIZE);
+            if (data.size() < HEADER_SIZE) {
+                writeFully(data, header(), 0);
+            }
+            writeFully(data, ByteBuffer.wrap(bytes.toByteArray()), offset);
+        }
+
+        try (FileChannel index = FileChannel.open(indexFile(dataFile), StandardOpenOption.CREATE,
+                                                  StandardOpenOption.WRITE)) {
+            long indexSize = index.size();
+            if (indexSize < HEADER_SIZE) {
+                writeFully(index, header(), 0);
+                indexSize = HEADER_SIZE;
+            }
+            // A partially written index entry from an interrupted append is overwritten.
+            final long position = HEADER_SIZE + (indexSize - HEADER_SIZE) / INDEX_ENTRY_SIZE * INDEX_ENTRY_SIZE;
+            final ByteBuffer indexEntry = ByteBuffer.allocate(INDEX_ENTRY_SIZE);
+            indexEntry.putLong(offset).putLong(entry.timestamp()).flip();
+            writeFully(index, indexEntry, position);
+        }
+    }
+
+    /**
+     * Obtains the number of records in the store.
+     *
+     * @param dataFile Data file of the store
+     * @return Number of records. If the store does not exist, zero is returned.
+     * @throws IOException if there was a problem reading the index
+     */
+    static int size(final Path dataFile) throws IOException {
+        final Path indexFile = indexFile(dataFile);
+        if (!Files.exists(indexFile)) {
+            return 0;
+        }
+        return (int)((Files.size(indexFile) - HEADER_SIZE) / INDEX_ENTRY_SIZE);
+    }
+
+    /**
+     * Reads the most recent records from the store.
+     *
+     * @param dataFile Data file of the store
+     * @param maxEntries Maximum number of records to read
+     * @return Most recent records in the order they were appended.
+     * @throws IOException if there was a problem reading the store or it is not a history store
+     */
+    static List<Entry> read(final Path dataFile, final int maxEntries) throws IOException {
+        final int numEntries = size(dataFile);
+        final int first = Math.max(0, numEntries - maxEntries);
+        final int count = numEntries - first;
+        if (count <= 0) {
+            return List.of();
+        }
+
+        final ByteBuffer indexBytes = ByteBuffer.allocate(count * INDEX_ENTRY_SIZE);
+        try (FileChannel index = FileChannel.open(indexFile(dataFile), StandardOpenOption.READ)) {
+            checkHeader(index, dataFile);
+            readFully(index, indexBytes, HEADER_SIZE + (long)first * INDEX_ENTRY_SIZE);
+        }
+
+        final long[] offsets = new long[count + 1];
+        for (int i = 0; i < count; i++) {
+            offsets[i] = indexBytes.getLong(i * INDEX_ENTRY_SIZE);
+        }
+
+        final List<Entry> entries = new ArrayList<>(count);
+        try (FileChannel data = FileChannel.open(dataFile, StandardOpenOption.READ)) {
+            checkHeader(data, dataFile);
+            offsets[count] = data.size();
+
+            // Each record is read separately at its offset, which is kept as a long so that the data file can
+            // exceed 2GB. A record read this way may be followed by an unindexed record from an interrupted append.
+            for (int i = 0; i < count; i++) {
+                final long recordLength = offsets[i + 1] - offsets[i];
+                if (recordLength <= 0 || recordLength > Integer.MAX_VALUE) {
+                    throw new IOException(dataFile + " contains a malformed record at offset " + offsets[i]);
+                }
+                final ByteBuffer record = ByteBuffer.allocate((int)recordLength);
+                readFully(data, record, offsets[i]);
+                try (DataInputStream ins = new DataInputStream(new ByteArrayInputStream(record.array()))) {
+                    final long timestamp = ins.readLong();
+                    final String label = ins.readUTF();
+                    final Aggregate total = readAggregate(ins);
+                    entries.add(new Entry(timestamp, label, total, readAggregates(ins), readAggregates(ins)));
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Creates a record containing the aggregates of the specified counts.
+     *
+     * @param countsCache Counts to aggregate
+     * @param projectDirs Directories of the projects keyed by project path. Each file is attributed to the
+     *      project with the most specific directory containing it. Files outside all project directories are not
+     *      attributed to any project.
+     * @param timestamp Time of the run in milliseconds since the epoch
+     * @param label Label for the run
+     * @return Record for the counts.
+     */
+    static Entry createEntry(final CountsCache countsCache, final Map<String, Path> projectDirs,
+                             final long timestamp, final String label) {
+        final LoccSummary summary = LoccSummary.create(countsCache, projectDirs);
+        final Aggregate total = new Aggregate("", summary.total().files(), summary.total().counts());
+
+        final List<Aggregate> languages = new ArrayList<>();
+        summary.languages().forEach((language, aggregate) ->
+                languages.add(new Aggregate(language.name(), aggregate.files(), aggregate.counts())));
+        languages.sort(Comparator.comparing(Aggregate::name));
+
+        final List<Aggregate> projects = new ArrayList<>();
+        summary.projects().forEach((projectPath, aggregate) ->
+                projects.add(new Aggregate(projectPath, aggregate.files(), aggregate.counts())));
+
+        return new Entry(timestamp, label, total, languages, projects);
+    }
+
+    static Path indexFile(final Path dataFile) {
+        return dataFile.resolveSibling(dataFile.getFileName() + INDEX_EXTENSION);
+    }
+
+    private static ByteBuffer header() {
+        return ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).flip();
+    }
+
+    private static void checkHeader(final FileChannel channel, final Path dataFile) throws IOException {
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(channel, header, 0);
+        header.flip();
+        if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+            throw new IOException(dataFile + " is not a line count history store");
+        }
+    }
+
+    private static void writeAggregates(final DataOutputStream outs, final List<Aggregate> aggregates)
+            throws IOException {
+        writeVarInt(outs, aggregates.size());
+        for (final Aggregate aggregate : aggregates) {
+            outs.writeUTF(aggregate.name());
+            writeAggregate(outs, aggregate);
+        }
+    }
+
+    private static void writeAggregate(final DataOutputStream outs, final Aggregate aggregate) throws IOException {
+        writeVarInt(outs, aggregate.files());
+        writeVarInt(outs, aggregate.counts().getCodeLines());
+        writeVarInt(outs, aggregate.counts().getCommentLines());
+        writeVarInt(outs, aggregate.counts().getBlankLines());
+    }
+
+    private static List<Aggregate> readAggregates(final DataInputStream ins) throws IOException {
+        final int size = readVarInt(ins);
+        final List<Aggregate> aggregates = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            final String name = ins.readUTF();
+            final Aggregate aggregate = readAggregate(ins);
+            aggregates.add(new Aggregate(name, aggregate.files(), aggregate.counts()));
+        }
+        return aggregates;
+    }
+
+    private static Aggregate readAggregate(final DataInputStream ins) throws IOException {
+        final int files = readVarInt(ins);
+        return new Aggregate("", files, new Counts(readVarInt(ins), readVarInt(ins), readVarInt(ins)));
+    }
+
+    private static void writeVarInt(final DataOutputStream outs, final int value) throws IOException {
+        int remaining = value;
+        while ((remaining & ~0x7F) != 0) {
+            outs.writeByte((remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+        outs.writeByte(remaining);
+    }
+
+    private static int readVarInt(final DataInputStream ins) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            final int b = ins.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable length integer");
+    }
+
+    private static void writeFully(final FileChannel channel, final ByteBuffer buffer, final long position)
+            throws IOException {
+        long pos = position;
+        while (buffer.hasRemaining()) {
+            pos += channel.write(buffer, pos);
+        }
+    }
+
+    private static void readFully(final FileChannel channel, final ByteBuffer buffer, final long position)
+            throws IOException {
+        long pos = position;
+        while (buffer.hasRemaining()) {
+            final int count = channel.read(buffer, pos);
+            if (count < 0) {
+                throw new EOFException("Unexpected end of history store");
+            }
+            pos += count;
+        }
+    }
+}
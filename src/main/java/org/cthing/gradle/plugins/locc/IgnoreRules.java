@@ -0,0 +1,266 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.cthing.gradle.plugins.locc;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.regex.Pattern;
+
+import org.jspecify.annotations.Nullable;
+
+
+/**
+ * Compiled form of the patterns in a single <a href="https://git-scm.com/docs/gitignore">gitignore</a> format
+ * file. Each pattern is translated into a regular expression. In addition, all patterns are combined into a
+ * single regular expression so that the common case of a path not matching any pattern is determined with a
+ * single match operation.
+ */
+final class IgnoreRules {
+
+    /**
+     * Result of matching a path against the rules.
+     */
+    enum Match {
+        /** The path matches a pattern and should be ignored. */
+        IGNORED,
+
+        /** The path matches a negated pattern and must not be ignored. */
+        INCLUDED,
+
+        /** The path does not match any pattern. */
+        NONE
+    }
+
+    private record Rule(Pattern pattern, boolean negated, boolean directoryOnly) {
+    }
+
+    private final Path baseDir;
+    private final List<Rule> rules;
+    @Nullable
+    private final Pattern anyRule;
+
+    private IgnoreRules(final Path baseDir, final List<Rule> rules) {
+        this.baseDir = baseDir;
+        this.rules = rules;
+
+        if (rules.isEmpty()) {
+            this.anyRule = null;
+        } else {
+            final StringJoiner joiner = new StringJoiner("|");
+            rules.forEach(rule -> joiner.add(rule.pattern.pattern()));
+            this.anyRule = Pattern.compile(joiner.toString());
+        }
+    }
+
+    /**
+     * Reads and compiles the specified ignore file.
+     *
+     * @param baseDir Directory relative to which the patterns are matched. This is normally the directory
+     *      containing the ignore file.
+     * @param ignoreFile Ignore file to read
+     * @return Compiled rules from the ignore file.
+     * @throws IOException if there was a problem reading the file.
+     */
+    static IgnoreRules read(final Path baseDir, final Path ignoreFile) throws IOException {
+        // Ignore files are not required to be UTF-8, so malformed input is replaced rather than rejected.
+        final String content = new String(Files.readAllBytes(ignoreFile), StandardCharsets.UTF_8);
+        return parse(baseDir, content.lines().toList());
+    }
+
+    /**
+     * Compiles the specified ignore patterns.
+     *
+     * @param baseDir Directory relative to which the patterns are matched
+     * @param lines Lines of an ignore file
+     * @return Compiled rules.
+     */
+    static IgnoreRules parse(final Path baseDir, final List<String> lines) {
+        final List<Rule> rules = new ArrayList<>();
+        for (final String line : lines) {
+            final Rule rule = compile(line);
+            if (rule != null) {
+                rules.add(rule);
+            }
+        }
+        return new IgnoreRules(baseDir, rules);
+    }
+
+    /**
+     * Obtains the directory relative to which the patterns are matched.
+     *
+     * @return Base directory for the patterns.
+     */
+    Path getBaseDir() {
+        return this.baseDir;
+    }
+
+    /**
+     * Indicates whether any patterns were compiled.
+     *
+     * @return {@code true} if there are no patterns.
+     */
+    boolean isEmpty() {
+        return this.rules.isEmpty();
+    }
+
+    /**
+     * Matches the specified path against the rules. As with git, the last matching pattern determines
+     * the result.
+     *
+     * @param relativePath Path relative to the base directory using forward slashes as the separator
+     * @param directory {@code true} if the path represents a directory
+     * @return Result of the match.
+     */
+    Match match(final String relativePath, final boolean directory) {
+        if (this.anyRule == null || !this.anyRule.matcher(relativePath).matches()) {
+            return Match.NONE;
+        }
+
+        for (int i = this.rules.size() - 1; i >= 0; i--) {
+            final Rule rule = this.rules.get(i);
+            if ((directory || !rule.directoryOnly) && rule.pattern.matcher(relativePath).matches()) {
+                return rule.negated ? Match.INCLUDED : Match.IGNORED;
+            }
+        }
+        return Match.NONE;
+    }
+
+    @Nullable
+    private static Rule compile(final String line) {
+        String pattern = trimTrailingSpaces(line);
+        if (pattern.isEmpty() || pattern.startsWith("#")) {
+            return null;
+        }
+
+        boolean negated = false;
+        if (pattern.startsWith("!")) {
+            negated = true;
+            pattern = pattern.substring(1);
+        } else if (pattern.startsWith("\\!") || pattern.startsWith("\\#")) {
+            pattern = pattern.substring(1);
+        }
+
+        boolean directoryOnly = false;
+        if (pattern.endsWith("/")) {
+            directoryOnly = true;
+            pattern = pattern.substring(0, pattern.length() - 1);
+        }
+        if (pattern.isEmpty()) {
+            return null;
+        }
+
+        // A pattern containing a separator is relative to the base directory. Otherwise, it can match at any level.
+        final boolean anchored = pattern.indexOf('/') >= 0;
+        if (pattern.startsWith("/")) {
+            pattern = pattern.substring(1);
+        }
+
+        final StringBuilder regex = new StringBuilder();
+        if (!anchored) {
+            regex.append("(?:.*/)?");
+        }
+        translate(pattern, regex);
+        return new Rule(Pattern.compile(regex.toString()), negated, directoryOnly);
+    }
+
+    private static void translate(final String pattern, final StringBuilder regex) {
+        final int length = pattern.length();
+        int i = 0;
+        while (i < length) {
+            final char ch = pattern.charAt(i);
+            if (ch == '*' && i + 1 < length && pattern.charAt(i + 1) == '*') {
+                final boolean segmentStart = i == 0 || pattern.charAt(i - 1) == '/';
+                final boolean segmentEnd = i + 2 == length || pattern.charAt(i + 2) == '/';
+                if (segmentStart && segmentEnd) {
+                    if (i + 2 == length) {
+                        regex.append(".*");
+                        i += 2;
+                    } else {
+                        regex.append("(?:.*/)?");
+                        i += 3;
+                    }
+                } else {
+                    regex.append("[^/]*");
+                    i += 2;
+                }
+            } else if (ch == '*') {
+                regex.append("[^/]*");
+                i++;
+            } else if (ch == '?') {
+                regex.append("[^/]");
+                i++;
+            } else if (ch == '[') {
+                i = translateBracket(pattern, i, regex);
+            } else if (ch == '\\' && i + 1 < length) {
+                regex.append(Pattern.quote(String.valueOf(pattern.charAt(i + 1))));
+                i += 2;
+            } else {
+                regex.append(Pattern.quote(String.valueOf(ch)));
+                i++;
+            }
+        }
+    }
+
+    /**
+     * Translates a bracket expression. As with git, a {@code ]} immediately following the opening {@code [} or
+     * {@code [!} is a literal rather than the end of the expression, and a backslash escapes the following
+     * character. A {@code [} without a closing {@code ]} is a literal.
+     */
+    private static int translateBracket(final String pattern, final int start, final StringBuilder regex) {
+        final int length = pattern.length();
+        int first = start + 1;
+        final boolean negated = first < length && (pattern.charAt(first) == '!' || pattern.charAt(first) == '^');
+        if (negated) {
+            first++;
+        }
+
+        int end = -1;
+        for (int i = first; i < length; i++) {
+            final char ch = pattern.charAt(i);
+            if (ch == '\\' && i + 1 < length) {
+                i++;
+            } else if (ch == ']' && i > first) {
+                end = i;
+                break;
+            }
+        }
+        if (end < 0) {
+            regex.append("\\[");
+            return start + 1;
+        }
+
+        regex.append(negated ? "[^" : "[");
+        for (int i = first; i < end; i++) {
+            char ch = pattern.charAt(i);
+            if (ch == '-' && i > first && i + 1 < end) {
+                regex.append(ch);
+                continue;
+            }
+            if (ch == '\\') {
+                ch = pattern.charAt(++i);
+            }
+            if (!Character.isLetterOrDigit(ch)) {
+                regex.append('\\');
+            }
+            regex.append(ch);
+        }
+        regex.append(']');
+        return end + 1;
+    }
+
+    private static String trimTrailingSpaces(final String line) {
+        int end = line.length();
+        while (end > 0 && line.charAt(end - 1) == ' ' && (end < 2 || line.charAt(end - 2) != '\\')) {
+            end--;
+        }
+        return line.substring(0, end);
+    }
+}
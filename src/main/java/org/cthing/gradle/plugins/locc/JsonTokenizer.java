@@ -0,0 +1,247 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.cthing.gradle.plugins.locc;
+
+import java.io.IOException;
+import java.io.Reader;
+
+
+/**
+ * Minimal pull tokenizer for JSON documents. Values are read one at a time from the underlying reader so that
+ * documents of any size can be processed in constant memory. Objects are read as follows:
+ * <pre>
+ * tokenizer.beginObject();
+ * while (tokenizer.hasNext()) {
+ *     final String name = tokenizer.nextName();
+ *     ...read or skip the value...
+ * }
+ * tokenizer.endObject();
+ * </pre>
+ * Arrays are read in the same manner using {@link #beginArray()} and {@link #endArray()}.
+ */
+final class JsonTokenizer {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private long offset;
+
+    /**
+     * Constructs a tokenizer for the specified reader. The reader is not closed by the tokenizer.
+     *
+     * @param reader Source of the JSON document
+     */
+    JsonTokenizer(final Reader reader) {
+        this.reader = reader;
+    }
+
+    void beginObject() throws IOException {
+        expect('{');
+    }
+
+    void endObject() throws IOException {
+        expect('}');
+    }
+
+    void beginArray() throws IOException {
+        expect('[');
+    }
+
+    void endArray() throws IOException {
+        expect(']');
+    }
+
+    /**
+     * Indicates whether the current object or array has another member or element, consuming the separating
+     * comma, if any.
+     *
+     * @return {@code true} if there is another member or element.
+     * @throws IOException if there was a problem reading the document
+     */
+    boolean hasNext() throws IOException {
+        final int ch = peek();
+        if (ch == ',') {
+            this.position++;
+            return true;
+        }
+        return ch != '}' && ch != ']' && ch != -1;
+    }
+
+    /**
+     * Reads the name of the next object member and its separating colon.
+     *
+     * @return Member name.
+     * @throws IOException if there was a problem reading the document
+     */
+    String nextName() throws IOException {
+        final String name = nextString();
+        expect(':');
+        return name;
+    }
+
+    /**
+     * Reads a string value.
+     *
+     * @return String value.
+     * @throws IOException if there was a problem reading the document
+     */
+    String nextString() throws IOException {
+        expect('"');
+        final StringBuilder builder = new StringBuilder();
+        while (true) {
+            final int ch = read();
+            if (ch == '"') {
+                return builder.toString();
+            }
+            if (ch == '\\') {
+                final int escaped = read();
+                switch (escaped) {
+                    case '"', '\\', '/' -> builder.append((char)escaped);
+                    case 'b' -> builder.append('\b');
+                    case 'f' -> builder.append('\f');
+                    case 'n' -> builder.append('\n');
+                    case 'r' -> builder.append('\r');
+                    case 't' -> builder.append('\t');
+                    case 'u' -> {
+                        int code = 0;
+                        for (int i = 0; i < 4; i++) {
+                            final int digit = Character.digit(read(), 16);
+                            if (digit < 0) {
+                                throw syntaxError("Invalid unicode escape");
+                            }
+                            code = (code << 4) | digit;
+                        }
+                        builder.append((char)code);
+                    }
+                    default -> throw syntaxError("Invalid escape sequence");
+                }
+            } else if (ch == -1) {
+                throw syntaxError("Unterminated string");
+            } else {
+                builder.append((char)ch);
+            }
+        }
+    }
+
+    /**
+     * Reads an integer value.
+     *
+     * @return Integer value.
+     * @throws IOException if there was a problem reading the document or the value is not an integer
+     */
+    long nextLong() throws IOException {
+        final String number = nextLiteral();
+        try {
+            return Long.parseLong(number);
+        } catch (final NumberFormatException ex) {
+            throw syntaxError("Invalid integer '" + number + "'");
+        }
+    }
+
+    /**
+     * Reads and discards the next value, including all nested values.
+     *
+     * @throws IOException if there was a problem reading the document
+     */
+    void skipValue() throws IOException {
+        final int ch = peek();
+        if (ch == '{') {
+            beginObject();
+            while (hasNext()) {
+                nextName();
+                skipValue();
+            }
+            endObject();
+        } else if (ch == '[') {
+            beginArray();
+            while (hasNext()) {
+                skipValue();
+            }
+            endArray();
+        } else if (ch == '"') {
+            nextString();
+        } else {
+            nextLiteral();
+        }
+    }
+
+    /**
+     * Reads a number, boolean or null literal.
+     *
+     * @return Text of the literal.
+     * @throws IOException if there was a problem reading the document
+     */
+    private String nextLiteral() throws IOException {
+        peek();
+        final StringBuilder builder = new StringBuilder();
+        while (true) {
+            if (this.position == this.limit && !fill()) {
+                break;
+            }
+            final char ch = this.buffer[this.position];
+            if (Character.isLetterOrDigit(ch) || ch == '-' || ch == '+' || ch == '.') {
+                builder.append(ch);
+                this.position++;
+            } else {
+                break;
+            }
+        }
+        if (builder.isEmpty()) {
+            throw syntaxError("Expected a value");
+        }
+        return builder.toString();
+    }
+
+    private void expect(final char expected) throws IOException {
+        if (peek() != expected) {
+            throw syntaxError("Expected '" + expected + "'");
+        }
+        this.position++;
+    }
+
+    /**
+     * Skips whitespace and returns the next character without consuming it.
+     *
+     * @return Next character or -1 at the end of the document.
+     * @throws IOException if there was a problem reading the document
+     */
+    private int peek() throws IOException {
+        while (this.position < this.limit || fill()) {
+            final char ch = this.buffer[this.position];
+            if (ch != ' ' && ch != '\t' && ch != '\n' && ch != '\r') {
+                return ch;
+            }
+            this.position++;
+        }
+        return -1;
+    }
+
+    private int read() throws IOException {
+        if (this.position == this.limit && !fill()) {
+            return -1;
+        }
+        return this.buffer[this.position++];
+    }
+
+    private boolean fill() throws IOException {
+        this.offset += this.limit;
+        this.position = 0;
+        this.limit = 0;
+        final int count = this.reader.read(this.buffer);
+        if (count <= 0) {
+            return false;
+        }
+        this.limit = count;
+        return true;
+    }
+
+    private IOException syntaxError(final String message) {
+        return new IOException(message + " at offset " + (this.offset + this.position));
+    }
+}
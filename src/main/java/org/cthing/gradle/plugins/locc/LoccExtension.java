@@ -7,6 +7,7 @@ package org.cthing.gradle.plugins.locc;
 
 import org.gradle.api.Project;
 import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.model.ObjectFactory;
 import org.gradle.api.provider.Property;
 import org.gradle.api.reporting.ReportingExtension;
@@ -19,12 +20,24 @@ public class LoccExtension {
 
     private final Property<Boolean> includeTestSources;
     private final Property<Boolean> countDocStrings;
+    private final Property<Boolean> scanRepository;
+    private final Property<Boolean> deduplicateContent;
+    private final Property<AliasAttribution> aliasAttribution;
+    private final Property<Integer> countsCacheSize;
+    private final Property<Boolean> gitBlobCache;
+    private final RegularFileProperty historyFile;
     private final DirectoryProperty reportsDir;
 
     public LoccExtension(final Project project) {
         final ObjectFactory objects = project.getObjects();
         this.includeTestSources = objects.property(Boolean.class).convention(Boolean.TRUE);
         this.countDocStrings = objects.property(Boolean.class).convention(Boolean.TRUE);
+        this.scanRepository = objects.property(Boolean.class).convention(Boolean.FALSE);
+        this.deduplicateContent = objects.property(Boolean.class).convention(Boolean.FALSE);
+        this.aliasAttribution = objects.property(AliasAttribution.class).convention(AliasAttribution.ALL);
+        this.countsCacheSize = objects.property(Integer.class).convention(FileCountsService.DEFAULT_MAX_ENTRIES);
+        this.gitBlobCache = objects.property(Boolean.class).convention(Boolean.FALSE);
+        this.historyFile = objects.fileProperty();
 
         final DirectoryProperty baseReportsDir = project.getExtensions().getByType(ReportingExtension.class).getBaseDirectory();
         this.reportsDir = objects.directoryProperty().convention(baseReportsDir.map(base -> base.dir("locc")));
@@ -50,6 +63,74 @@ public class LoccExtension {
         return this.countDocStrings;
     }
 
+    /**
+     * Obtains the flag indicating whether all files in the root project directory tree should be counted in
+     * addition to the source files. Files and directories ignored by {@code .gitignore} and {@code .locc-ignore}
+     * files are not counted. The default is {@code false}, which only counts source files.
+     *
+     * @return Flag indicating whether the entire repository should be counted.
+     */
+    public Property<Boolean> getScanRepository() {
+        return this.scanRepository;
+    }
+
+    /**
+     * Obtains the flag indicating whether files with identical content, such as vendored copies of third party
+     * sources, should only be counted once. Each copy still appears in the reports. The default is
+     * {@code false}, which counts every file.
+     *
+     * @return Flag indicating whether to count identical content once.
+     */
+    public Property<Boolean> getDeduplicateContent() {
+        return this.deduplicateContent;
+    }
+
+    /**
+     * Obtains how the counts of a file reachable through multiple paths, such as through symbolically linked
+     * directories or hard links, are attributed in the reports. Such a file is always read and counted only once.
+     * The default is {@link AliasAttribution#ALL}, which reports the counts for every path to the file.
+     *
+     * @return Attribution of counts for files reachable through multiple paths.
+     */
+    public Property<AliasAttribution> getAliasAttribution() {
+        return this.aliasAttribution;
+    }
+
+    /**
+     * Obtains the maximum number of files whose line counts are kept in memory between builds run by the same
+     * Gradle daemon. A file whose size and modification time are unchanged since it was last counted is not read
+     * again. The least recently counted files are evicted when the maximum is exceeded. Specify zero to disable
+     * the cache. Because the cache is shared by all projects in the build, the value from the first project to
+     * apply the plugin is used. The default is {@value FileCountsService#DEFAULT_MAX_ENTRIES} files.
+     *
+     * @return Maximum number of files whose counts are cached.
+     */
+    public Property<Integer> getCountsCacheSize() {
+        return this.countsCacheSize;
+    }
+
+    /**
+     * Obtains the flag indicating whether line counts are cached by git blob id between builds. A tracked file
+     * that is unmodified in the working tree is then looked up using the blob id recorded in the git index
+     * without reading the file. The default is {@code false}.
+     *
+     * @return Flag indicating whether to cache counts by git blob id.
+     */
+    public Property<Boolean> getGitBlobCache() {
+        return this.gitBlobCache;
+    }
+
+    /**
+     * Obtains the file in which the aggregate counts of each run are recorded. Each run appends the totals for
+     * the build, for each language and for each project to the file, from which the trend reports are generated.
+     * The file is not set by default, and no history is recorded.
+     *
+     * @return File in which the aggregate counts of each run are recorded.
+     */
+    public RegularFileProperty getHistoryFile() {
+        return this.historyFile;
+    }
+
     /**
      * Obtains the directory into which count reports are written. The default is {@code build/reports/locc}.
      *
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.cthing.gradle.plugins.locc;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+import org.cthing.locc4j.Counts;
+import org.cthing.locc4j.Language;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.TaskExecutionException;
+
+
+/**
+ * Counts the lines of code in historical commits to produce a time series of per-language totals. The trees of
+ * the commits are read directly from the local git repository, so no commits are checked out. The contents of
+ * each unique file are counted only once across all commits.
+ */
+public abstract class LoccHistoryTask extends DefaultTask {
+
+    private final File rootDir;
+
+    public LoccHistoryTask() {
+        this.rootDir = getProject().getRootProject().getProjectDir();
+
+        // The history of the revision is not known until the task executes.
+        getOutputs().upToDateWhen(task -> false);
+    }
+
+    /**
+     * Obtains the revision whose history is counted. The history follows only the first parent of merge commits.
+     * The default is {@code HEAD}.
+     *
+     * @return Revision whose history is counted.
+     */
+    @Input
+    public abstract Property<String> getRevision();
+
+    /**
+     * Obtains the maximum number of commits to count, starting with the most recent. The default is 2000.
+     *
+     * @return Maximum number of commits to count.
+     */
+    @Input
+    public abstract Property<Integer> getMaxCommits();
+
+    /**
+     * Obtains the maximum number of commits counted concurrently. The default is the number of available
+     * processors.
+     *
+     * @return Maximum number of commits counted concurrently.
+     */
+    @Internal
+    public abstract Property<Integer> getParallelism();
+
+    /**
+     * Obtains the flag indicating whether to count documentation string as comments or ignore them. The default
+     * is {@code true} to count documentation strings as comments.
+     *
+     * @return Flag indicating whether to count documentation strings as comments.
+     */
+    @Input
+    public abstract Property<Boolean> getCountDocStrings();
+
+    /**
+     * Obtains the Ant style patterns for the files to count. The patterns are matched against pathnames relative
+     * to the root project directory using forward slashes as the separator. If no patterns are specified, all
+     * files not excluded are counted.
+     *
+     * @return Patterns for the files to count.
+     */
+    @Input
+    public abstract ListProperty<String> getPathIncludes();
+
+    /**
+     * Obtains the Ant style patterns for the files to exclude from counting. The patterns are matched against
+     * pathnames relative to the root project directory using forward slashes as the separator.
+     *
+     * @return Patterns for the files to exclude.
+     */
+    @Input
+    public abstract ListProperty<String> getPathExcludes();
+
+    /**
+     * Obtains the CSV file to which the time series is written. The default is {@code locc-history.csv} in the
+     * reports directory.
+     *
+     * @return Time series output file.
+     */
+    @OutputFile
+    public abstract RegularFileProperty getOutputFile();
+
+    /**
+     * Performs the work of counting the history.
+     */
+    @TaskAction
+    public void backfill() {
+        try {
+            final Path rootPath = this.rootDir.toPath();
+            final GitRepository repository = GitRepository.open(rootPath);
+            final List<GitRepository.Commit> commits = repository.log(getRevision().get(), getMaxCommits().get());
+
+            final HistoryCounter counter = new HistoryCounter(repository,
+                                                              new BlobCounter(getCountDocStrings().get()),
+                                                              createFilter(repository.getWorkTree(), rootPath),
+                                                              getParallelism().get());
+            final List<HistoryCounter.Point> points = new ArrayList<>(counter.count(commits));
+            getLogger().info("Counted {} commits containing {} unique files", points.size(),
+                             counter.getBlobsCounted());
+
+            points.sort(Comparator.comparingLong(point -> point.commit().timestamp()));
+            writeTimeSeries(points, getOutputFile().get().getAsFile());
+        } catch (final IOException ex) {
+            throw new TaskExecutionException(this, ex);
+        }
+    }
+
+    /**
+     * Creates a thread safe predicate that accepts the paths within the root project directory that match the
+     * include and exclude patterns.
+     *
+     * @param workTree Root of the repository working tree
+     * @param rootPath Root project directory
+     * @return Predicate accepting paths relative to the root of the working tree.
+     * @throws IOException if there was a problem resolving the directories
+     */
+    private Predicate<String> createFilter(final Path workTree, final Path rootPath) throws IOException {
+        final Path realRootPath = rootPath.toRealPath();
+        final Path realWorkTree = workTree.toRealPath();
+        final String relativeRoot = RepositoryScanner.toUnixPath(realWorkTree.relativize(realRootPath));
+        final String prefix = relativeRoot.isEmpty() ? "" : relativeRoot + "/";
+
+        final PathFilter filter = new PathFilter(getPathIncludes().get(), getPathExcludes().get());
+        if (filter.isEmpty()) {
+            return path -> path.startsWith(prefix);
+        }
+
+        // The filter is not thread safe, so its results are memoized and evaluated under a lock.
+        final Map<String, Boolean> accepted = new ConcurrentHashMap<>();
+        return path -> path.startsWith(prefix) && accepted.computeIfAbsent(path, p -> {
+            synchronized (filter) {
+                return filter.acceptFile(p.substring(prefix.length()));
+            }
+        });
+    }
+
+    /**
+     * Writes the per-language totals for each commit in CSV format. Each commit has a row for all languages
+     * followed by a row for each language it contains.
+     *
+     * @param points Per-language totals for each commit in time order
+     * @param destination File to write
+     * @throws IOException if there was a problem writing the file
+     */
+    private static void writeTimeSeries(final List<HistoryCounter.Point> points, final File destination)
+            throws IOException {
+        try (BufferedWriter writer =
+                     new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(destination.toPath()),
+                                                               StandardCharsets.UTF_8))) {
+            writeln(writer, "Commit,Date,Language,Files,Code Lines,Comment Lines,Blank Lines");
+            for (final HistoryCounter.Point point : points) {
+                final String prefix = point.commit().id() + ","
+                        + Instant.ofEpochSecond(point.commit().timestamp()) + ",";
+
+                Counts total = Counts.ZERO;
+                for (final Counts counts : point.counts().values()) {
+                    total = CountsCache.plus(total, counts);
+                }
+                writeln(writer, prefix + "ALL," + point.numFiles() + "," + formatCounts(total));
+
+                final List<Language> languages = new ArrayList<>(point.counts().keySet());
+                languages.sort(Comparator.comparing(Language::name));
+                for (final Language language : languages) {
+                    writeln(writer, prefix + language.name() + "," + point.files().get(language) + ","
+                            + formatCounts(point.counts().get(language)));
+                }
+            }
+        }
+    }
+
+    private static String formatCounts(final Counts counts) {
+        return counts.getCodeLines() + "," + counts.getCommentLines() + "," + counts.getBlankLines();
+    }
+
+    private static void writeln(final Writer writer, final String str) throws IOException {
+        writer.write(str);
+        writer.write("\r\n");
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.cthing.gradle.plugins.locc;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.gradle.api.Action;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.reporting.Reporting;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Nested;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.TaskExecutionException;
+
+import groovy.lang.Closure;
+
+
+/**
+ * Combines the counts artifacts written by {@link LoccTask#getShardCount() sharded} count runs, such as on
+ * separate CI agents, and generates the line count reports for all files.
+ */
+public abstract class LoccMergeTask extends DefaultTask implements Reporting<LoccReports> {
+
+    private final LoccReports reports;
+    private final File rootDir;
+
+    public LoccMergeTask() {
+        this.reports = new LoccReports(this, getReportsDir());
+        this.rootDir = getProject().getRootProject().getProjectDir();
+    }
+
+    /**
+     * Obtains the counts artifacts of the shards to combine. The artifacts of all shards of a count run must be
+     * specified.
+     *
+     * @return Counts artifacts to combine.
+     */
+    @InputFiles
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract ConfigurableFileCollection getArtifacts();
+
+    /**
+     * Obtains the line count report directory. The default is {@code build/reports/locc-merged}, which is separate
+     * from the report directory of the count task.
+     *
+     * @return Line count report directory
+     */
+    @Internal
+    public abstract DirectoryProperty getReportsDir();
+
+    @Nested
+    @Override
+    public LoccReports getReports() {
+        return this.reports;
+    }
+
+    @Override
+    public LoccReports reports(final Action<? super LoccReports> configureAction) {
+        configureAction.execute(this.reports);
+        return this.reports;
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public LoccReports reports(final Closure closure) {
+        final Closure cl = (Closure)closure.clone();
+        cl.setResolveStrategy(Closure.DELEGATE_FIRST);
+        cl.setDelegate(this.reports);
+        cl.call(this.reports);
+        return this.reports;
+    }
+
+    /**
+     * Performs the work of combining the artifacts and generating the reports.
+     */
+    @TaskAction
+    public void merge() {
+        try {
+            final Path rootPath = this.rootDir.toPath();
+            final List<CountsArtifact.Contents> parts = new ArrayList<>();
+            for (final File artifact : getArtifacts().getFiles()) {
+                parts.add(CountsArtifact.read(artifact.toPath(), rootPath));
+            }
+
+            final CountsArtifact.Contents merged = CountsArtifact.merge(parts);
+            getLogger().info("Merged {} shards containing {} files", parts.size(), merged.pathCounts().size());
+
+            final CountsCache countsCache = new CountsCache(merged.pathCounts(), merged.duplicateGroups());
+            MultiplexedReportWriter.write(countsCache, this.reports.getEnabled(), List.of());
+        } catch (final IOException ex) {
+            throw new TaskExecutionException(this, ex);
+        }
+    }
+}
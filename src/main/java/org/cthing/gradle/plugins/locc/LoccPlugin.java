@@ -6,16 +6,25 @@
 package org.cthing.gradle.plugins.locc;
 
 import java.io.File;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
 import java.util.concurrent.Callable;
 
+import org.cthing.gradle.plugins.locc.reports.LoccReport;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
+import org.gradle.api.attributes.Usage;
+import org.gradle.api.file.Directory;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileCollection;
 import org.gradle.api.plugins.ReportingBasePlugin;
+import org.gradle.api.reporting.ReportingExtension;
+import org.gradle.api.provider.Provider;
 import org.gradle.api.tasks.SourceSet;
 import org.gradle.api.tasks.SourceSetContainer;
+import org.gradle.api.tasks.TaskProvider;
 import org.gradle.language.cpp.CppApplication;
 import org.gradle.language.cpp.CppComponent;
 import org.gradle.language.cpp.CppLibrary;
@@ -33,6 +42,13 @@ public class LoccPlugin implements Plugin<Project> {
 
     public static final String EXTENSION_NAME = "locc";
     public static final String TASK_NAME = "countCodeLines";
+    public static final String HISTORY_TASK_NAME = "countCodeLinesHistory";
+    public static final String TREND_TASK_NAME = "codeLinesTrend";
+    public static final String MERGE_TASK_NAME = "mergeCodeLines";
+    public static final String MERGED_REPORTS_DIR_NAME = "locc-merged";
+    public static final String COUNTS_CONFIGURATION_NAME = "loccCounts";
+    public static final String COUNTS_USAGE = "locc-counts";
+    public static final String REPORT_TASK_NAME = "codeLinesReports";
 
     @Override
     public void apply(final Project project) {
@@ -40,12 +56,44 @@ public class LoccPlugin implements Plugin<Project> {
 
         final LoccExtension extension = project.getExtensions().create(EXTENSION_NAME, LoccExtension.class, project);
 
-        project.getTasks().register(TASK_NAME, LoccTask.class, loccTask -> {
+        final Provider<FileCountsService> countsService =
+                project.getGradle().getSharedServices().registerIfAbsent(FileCountsService.NAME,
+                                                                         FileCountsService.class, spec ->
+                        spec.getParameters().getMaxEntries().convention(extension.getCountsCacheSize()));
+
+        // The paths and directories of the projects are fixed by the settings, so they are collected when the
+        // plugin is applied rather than by accessing the model of the other projects when the task is configured.
+        final Map<String, File> projectDirs = new HashMap<>();
+        project.getAllprojects().forEach(proj -> projectDirs.put(proj.getPath(), proj.getProjectDir()));
+
+        final TaskProvider<LoccTask> countTask = project.getTasks().register(TASK_NAME, LoccTask.class, loccTask -> {
+            loccTask.getCountsService().convention(countsService);
+            loccTask.usesService(countsService);
             loccTask.getCountDocStrings().convention(extension.getCountDocStrings());
+            loccTask.getDeduplicateContent().convention(extension.getDeduplicateContent());
+            loccTask.getAliasAttribution().convention(extension.getAliasAttribution());
             loccTask.getReportsDir().convention(extension.getReportsDir());
-
-            final Callable<Set<File>> filesProvider = () -> {
-                final Set<File> files = new HashSet<>();
+            loccTask.getGitBlobCache().convention(extension.getGitBlobCache());
+            loccTask.getBlobCacheFile().convention(project.getLayout().getBuildDirectory()
+                                                          .file("locc/blob-counts.bin"));
+            loccTask.getDiffFilesReport().convention(extension.getReportsDir().file("locc-diff-files.csv"));
+            loccTask.getDiffLanguagesReport().convention(extension.getReportsDir().file("locc-diff-languages.csv"));
+            loccTask.getBaselineFilesReport().convention(extension.getReportsDir().file("locc-baseline-files.csv"));
+            loccTask.getBaselineLanguagesReport()
+                    .convention(extension.getReportsDir().file("locc-baseline-languages.csv"));
+            loccTask.getCountsArtifact().convention(project.getLayout().getBuildDirectory()
+                                                           .file("locc/locc-counts.bin"));
+            loccTask.getHistoryFile().convention(extension.getHistoryFile());
+            loccTask.getHistoryLabel().convention(project.provider(() -> project.getVersion().toString()));
+            loccTask.getProjectDirs().convention(projectDirs);
+
+            final Directory rootDir = project.getRootProject().getLayout().getProjectDirectory();
+            loccTask.getScanRoot().convention(extension.getScanRepository().map(scan -> scan ? rootDir : null));
+
+            // The source file collections are provided rather than their files so that Gradle can fingerprint
+            // the source trees directly without walking them an additional time to build an intermediate set.
+            final Callable<List<FileCollection>> filesProvider = () -> {
+                final List<FileCollection> files = new ArrayList<>();
 
                 for (final Project proj : project.getAllprojects()) {
                     final SourceSetContainer sourceSets = proj.getExtensions().findByType(SourceSetContainer.class);
@@ -53,7 +101,7 @@ public class LoccPlugin implements Plugin<Project> {
                         for (final SourceSet sourceSet : sourceSets) {
                             if (!SourceSet.TEST_SOURCE_SET_NAME.equals(sourceSet.getName())
                                     || extension.getIncludeTestSources().get()) {
-                                files.addAll(sourceSet.getAllSource().getFiles());
+                                files.add(sourceSet.getAllSource());
                             }
                         }
                     }
@@ -61,28 +109,28 @@ public class LoccPlugin implements Plugin<Project> {
                     List.of(CppApplication.class, CppLibrary.class).forEach(clazz -> {
                         final CppComponent cppComponent = proj.getExtensions().findByType(clazz);
                         if (cppComponent != null) {
-                            files.addAll(cppComponent.getCppSource().getFiles());
-                            files.addAll(cppComponent.getHeaderFiles().getFiles());
+                            files.add(cppComponent.getCppSource());
+                            files.add(cppComponent.getHeaderFiles());
                         }
                     });
 
                     List.of(SwiftApplication.class, SwiftLibrary.class).forEach(clazz -> {
                         final SwiftComponent swiftComponent = proj.getExtensions().findByType(clazz);
                         if (swiftComponent != null) {
-                            files.addAll(swiftComponent.getSwiftSource().getFiles());
+                            files.add(swiftComponent.getSwiftSource());
                         }
                     });
 
                     if (extension.getIncludeTestSources().get()) {
                         final CppComponent cppComponent = proj.getExtensions().findByType(CppTestSuite.class);
                         if (cppComponent != null) {
-                            files.addAll(cppComponent.getCppSource().getFiles());
-                            files.addAll(cppComponent.getHeaderFiles().getFiles());
+                            files.add(cppComponent.getCppSource());
+                            files.add(cppComponent.getHeaderFiles());
                         }
 
                         final SwiftComponent swiftComponent = proj.getExtensions().findByType(SwiftXCTestSuite.class);
                         if (swiftComponent != null) {
-                            files.addAll(swiftComponent.getSwiftSource().getFiles());
+                            files.add(swiftComponent.getSwiftSource());
                         }
                     }
                 }
@@ -92,5 +140,63 @@ public class LoccPlugin implements Plugin<Project> {
 
             loccTask.setSource(filesProvider);
         });
+
+        // The reports are generated from the counts artifact by a separate task, so that changing the configuration
+        // of a report does not count the files again. The reports continue to be configured on the count task.
+        final TaskProvider<LoccReportTask> reportTask =
+                project.getTasks().register(REPORT_TASK_NAME, LoccReportTask.class, task -> {
+                    task.setDescription("Generates the line count reports.");
+                    task.getCountsArtifact().convention(countTask.flatMap(LoccTask::getCountsArtifact));
+                    task.getReportsDir().convention(extension.getReportsDir());
+
+                    for (final String reportName : LoccReports.REPORT_NAMES) {
+                        final Provider<LoccReport> countReport =
+                                countTask.map(loccTask -> loccTask.getReports().getByName(reportName));
+                        final LoccReport report = task.getReports().getByName(reportName);
+                        report.getRequired().set(countReport.flatMap(LoccReport::getRequired));
+                        report.getShowRelativePaths().set(countReport.flatMap(LoccReport::getShowRelativePaths));
+                        report.getCompact().set(countReport.flatMap(LoccReport::getCompact));
+                        report.getCompressed().set(countReport.flatMap(LoccReport::getCompressed));
+                        report.getOutputLocation().set(countReport.flatMap(LoccReport::getOutputLocation));
+                        report.getProjectName().set(countReport.flatMap(LoccReport::getProjectName));
+                        report.getProjectVersion().set(countReport.flatMap(LoccReport::getProjectVersion));
+                    }
+                });
+        countTask.configure(loccTask -> loccTask.finalizedBy(reportTask));
+
+        // The counts artifact is published so that other projects can consume the counts without parsing a report.
+        // The artifact is produced by the count task, which Gradle infers from the task output property.
+        project.getConfigurations().create(COUNTS_CONFIGURATION_NAME, configuration -> {
+            configuration.setDescription("Binary line counts artifact written by the " + TASK_NAME + " task.");
+            configuration.setCanBeConsumed(true);
+            configuration.setCanBeResolved(false);
+            configuration.getAttributes().attribute(Usage.USAGE_ATTRIBUTE,
+                                                    project.getObjects().named(Usage.class, COUNTS_USAGE));
+            configuration.getOutgoing().artifact(countTask.flatMap(LoccTask::getCountsArtifact));
+        });
+
+        project.getTasks().register(HISTORY_TASK_NAME, LoccHistoryTask.class, historyTask -> {
+            historyTask.getRevision().convention("HEAD");
+            historyTask.getMaxCommits().convention(2000);
+            historyTask.getParallelism().convention(Runtime.getRuntime().availableProcessors());
+            historyTask.getCountDocStrings().convention(extension.getCountDocStrings());
+            historyTask.getOutputFile().convention(extension.getReportsDir().file("locc-history.csv"));
+        });
+
+        // The merged reports are written to their own directory so that they do not overlap the outputs of the
+        // count task.
+        final DirectoryProperty baseReportsDir =
+                project.getExtensions().getByType(ReportingExtension.class).getBaseDirectory();
+        project.getTasks().register(MERGE_TASK_NAME, LoccMergeTask.class,
+                                    mergeTask -> mergeTask.getReportsDir()
+                                                          .convention(baseReportsDir.dir(MERGED_REPORTS_DIR_NAME)));
+
+        project.getTasks().register(TREND_TASK_NAME, LoccTrendTask.class, trendTask -> {
+            trendTask.getHistoryFile().convention(extension.getHistoryFile());
+            trendTask.getMaxEntries().convention(LoccTrendTask.DEFAULT_MAX_ENTRIES);
+            trendTask.getProjectName().convention(project.getName());
+            trendTask.getHtmlReport().convention(extension.getReportsDir().file("locc-trend.html"));
+            trendTask.getCsvReport().convention(extension.getReportsDir().file("locc-trend.csv"));
+        });
     }
 }
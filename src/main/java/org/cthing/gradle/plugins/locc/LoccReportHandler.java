@@ -0,0 +1,30 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.cthing.gradle.plugins.locc;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.cthing.locc4j.Counts;
+import org.cthing.locc4j.Language;
+
+
+/**
+ * Receives the counts of each file as a line count report is read by a {@link LoccReportReader}.
+ */
+@FunctionalInterface
+public interface LoccReportHandler {
+
+    /**
+     * Called for each file in the order the files appear in the report.
+     *
+     * @param pathname Pathname of the file as written in the report
+     * @param counts Counts for each language in the file. The map is empty for an unrecognized file. The map
+     *      is owned by the handler.
+     * @throws IOException to abort reading the report
+     */
+    void file(String pathname, Map<Language, Counts> counts) throws IOException;
+}
@@ -0,0 +1,309 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.cthing.gradle.plugins.locc;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.cthing.locc4j.Counts;
+import org.cthing.locc4j.Language;
+import org.jspecify.annotations.Nullable;
+
+
+/**
+ * Reads line count reports in the JSON ({@code locc-1.json}) and XML ({@code locc-1.xsd}) formats written by the
+ * plugin. The format of a report, and whether it is compressed using gzip, is determined from its content. Reports
+ * are streamed rather than loaded into a document tree, so the per-file counts can be
+ * {@link #read(Path, LoccReportHandler) processed one at a time} in constant memory, or {@link #read(Path) collected}
+ * into a {@link CountsCache}. Only the per-file counts are read, because all other counts in a report are derived
+ * from them. The binary counts artifact written by the count task can be {@link #readArtifact(Path, Path) read} as
+ * well. An artifact is also accepted wherever a report is read, in which case its pathnames are relative to the
+ * root project directory of the build that wrote it and its files are provided in pathname order.
+ */
+public final class LoccReportReader {
+
+    private static final int SNIFF_LIMIT = 1024;
+
+    private LoccReportReader() {
+    }
+
+    /**
+     * Reads the specified report into a counts cache. The pathnames in the cache are as written in the report.
+     *
+     * @param report Line count report in JSON or XML format, or a counts artifact
+     * @return Counts read from the report.
+     * @throws IOException if there was a problem reading or parsing the report
+     */
+    public static CountsCache read(final Path report) throws IOException {
+        final Map<Path, Map<Language, Counts>> pathCounts = new HashMap<>();
+        read(report, (pathname, counts) -> pathCounts.put(Path.of(pathname), counts));
+        return new CountsCache(pathCounts);
+    }
+
+    /**
+     * Reads the specified report, passing the counts of each file to the specified handler as it is read. A report
+     * is streamed, whereas a counts artifact, which is far smaller than a report, is read in full and its files are
+     * then passed to the handler sorted by pathname.
+     *
+     * @param report Line count report in JSON or XML format, or a counts artifact
+     * @param handler Receives the counts of each file
+     * @throws IOException if there was a problem reading or parsing the report, or the handler threw an exception
+     */
+    public static void read(final Path report, final LoccReportHandler handler) throws IOException {
+        try {
+            if (CountsArtifact.isArtifact(report)) {
+                readArtifact(report, handler);
+                return;
+            }
+
+            try (BufferedReader reader = openReport(report)) {
+                if (isXml(reader)) {
+                    readXml(reader, handler);
+                } else {
+                    readJson(reader, handler);
+                }
+            }
+        } catch (final IOException ex) {
+            throw new IOException("Could not read line count report " + report + ": " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Reads the specified counts artifact written by the {@link LoccTask#getCountsArtifact() count task} into a
+     * counts cache. Reading an artifact is much faster than reading a report because the counts are stored in
+     * binary columns and no text needs to be parsed.
+     *
+     * @param artifact Counts artifact to read
+     * @param rootDir Directory against which the relative pathnames in the artifact are resolved, typically the
+     *      root project directory of the build that wrote the artifact
+     * @return Counts read from the artifact, including the groups of files with identical content.
+     * @throws IOException if there was a problem reading the artifact or it is not a valid counts artifact
+     */
+    public static CountsCache readArtifact(final Path artifact, final Path rootDir) throws IOException {
+        final CountsArtifact.Contents contents = CountsArtifact.read(artifact, rootDir);
+        return new CountsCache(contents.pathCounts(), contents.duplicateGroups());
+    }
+
+    /**
+     * Reads the specified counts artifact, passing the counts of each file to the specified handler in pathname
+     * order. The pathnames are left relative to the root project directory of the build that wrote the artifact.
+     *
+     * @param artifact Counts artifact to read
+     * @param handler Receives the counts of each file
+     * @throws IOException if there was a problem reading the artifact, or the handler threw an exception
+     */
+    private static void readArtifact(final Path artifact, final LoccReportHandler handler) throws IOException {
+        final Map<Path, Map<Language, Counts>> pathCounts = CountsArtifact.read(artifact, Path.of("")).pathCounts();
+        final List<Path> paths = new ArrayList<>(pathCounts.keySet());
+        Collections.sort(paths);
+        for (final Path path : paths) {
+            handler.file(RepositoryScanner.toUnixPath(path), pathCounts.get(path));
+        }
+    }
+
+    /**
+     * Opens the specified report for reading. A report compressed using gzip is detected from its content and
+     * decompressed as it is read.
+     *
+     * @param report Report to open
+     * @return Reader for the content of the report.
+     * @throws IOException if the report could not be opened
+     */
+    private static BufferedReader openReport(final Path report) throws IOException {
+        final InputStream in = new BufferedInputStream(Files.newInputStream(report));
+        try {
+            in.mark(2);
+            final int magic = in.read() | (in.read() << 8);
+            in.reset();
+            final InputStream content = (magic == GZIPInputStream.GZIP_MAGIC) ? new GZIPInputStream(in) : in;
+            return new BufferedReader(new InputStreamReader(content, StandardCharsets.UTF_8));
+        } catch (final IOException ex) {
+            in.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Determines whether the document is in XML format from its first non-whitespace character. The reader is
+     * reset to the start of the document.
+     *
+     * @param reader Document to examine
+     * @return {@code true} if the document is in XML format.
+     * @throws IOException if there was a problem reading the document
+     */
+    private static boolean isXml(final BufferedReader reader) throws IOException {
+        reader.mark(SNIFF_LIMIT);
+        try {
+            for (int i = 0; i < SNIFF_LIMIT; i++) {
+                final int ch = reader.read();
+                if (ch == -1 || (!Character.isWhitespace(ch) && ch != '\uFEFF')) {
+                    return ch == '<';
+                }
+            }
+            return false;
+        } finally {
+            reader.reset();
+        }
+    }
+
+    private static void readJson(final Reader reader, final LoccReportHandler handler) throws IOException {
+        final JsonTokenizer tokenizer = new JsonTokenizer(reader);
+        tokenizer.beginObject();
+        while (tokenizer.hasNext()) {
+            if ("files".equals(tokenizer.nextName())) {
+                tokenizer.beginArray();
+                while (tokenizer.hasNext()) {
+                    readJsonFile(tokenizer, handler);
+                }
+                tokenizer.endArray();
+            } else {
+                tokenizer.skipValue();
+            }
+        }
+        tokenizer.endObject();
+    }
+
+    private static void readJsonFile(final JsonTokenizer tokenizer, final LoccReportHandler handler)
+            throws IOException {
+        String pathname = null;
+        final Map<Language, Counts> counts = new EnumMap<>(Language.class);
+
+        tokenizer.beginObject();
+        while (tokenizer.hasNext()) {
+            switch (tokenizer.nextName()) {
+                case "pathname" -> pathname = tokenizer.nextString();
+                case "languages" -> {
+                    tokenizer.beginArray();
+                    while (tokenizer.hasNext()) {
+                        readJsonLanguage(tokenizer, counts);
+                    }
+                    tokenizer.endArray();
+                }
+                default -> tokenizer.skipValue();
+            }
+        }
+        tokenizer.endObject();
+
+        if (pathname == null) {
+            throw new IOException("File without a pathname");
+        }
+        handler.file(pathname, counts);
+    }
+
+    private static void readJsonLanguage(final JsonTokenizer tokenizer, final Map<Language, Counts> counts)
+            throws IOException {
+        String name = null;
+        int codeLines = 0;
+        int commentLines = 0;
+        int blankLines = 0;
+
+        tokenizer.beginObject();
+        while (tokenizer.hasNext()) {
+            switch (tokenizer.nextName()) {
+                case "name" -> name = tokenizer.nextString();
+                case "codeLines" -> codeLines = (int)tokenizer.nextLong();
+                case "commentLines" -> commentLines = (int)tokenizer.nextLong();
+                case "blankLines" -> blankLines = (int)tokenizer.nextLong();
+                default -> tokenizer.skipValue();
+            }
+        }
+        tokenizer.endObject();
+
+        counts.put(toLanguage(name), new Counts(codeLines, commentLines, blankLines));
+    }
+
+    private static void readXml(final Reader reader, final LoccReportHandler handler) throws IOException {
+        final XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+
+        XMLStreamReader xmlReader = null;
+        try {
+            xmlReader = factory.createXMLStreamReader(reader);
+
+            String pathname = null;
+            Map<Language, Counts> counts = null;
+            while (xmlReader.hasNext()) {
+                final int event = xmlReader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    final String element = xmlReader.getLocalName();
+                    if ("file".equals(element)) {
+                        pathname = xmlReader.getAttributeValue(null, "pathname");
+                        if (pathname == null) {
+                            throw new IOException("File without a pathname at line "
+                                                          + xmlReader.getLocation().getLineNumber());
+                        }
+                        counts = new EnumMap<>(Language.class);
+                    } else if ("language".equals(element) && counts != null) {
+                        counts.put(toLanguage(xmlReader.getAttributeValue(null, "name")),
+                                   new Counts(intAttribute(xmlReader, "codeLines"),
+                                              intAttribute(xmlReader, "commentLines"),
+                                              intAttribute(xmlReader, "blankLines")));
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT && counts != null
+                        && "file".equals(xmlReader.getLocalName())) {
+                    assert pathname != null;
+                    handler.file(pathname, counts);
+                    pathname = null;
+                    counts = null;
+                }
+            }
+        } catch (final XMLStreamException ex) {
+            throw new IOException(ex.getMessage(), ex);
+        } finally {
+            if (xmlReader != null) {
+                try {
+                    xmlReader.close();
+                } catch (final XMLStreamException ignore) {
+                    // Nothing can be done and the underlying reader is closed by the caller.
+                }
+            }
+        }
+    }
+
+    private static int intAttribute(final XMLStreamReader xmlReader, final String name) throws IOException {
+        final String value = xmlReader.getAttributeValue(null, name);
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (final NumberFormatException ex) {
+            throw new IOException("Invalid " + name + " '" + value + "' at line "
+                                          + xmlReader.getLocation().getLineNumber(), ex);
+        }
+    }
+
+    private static Language toLanguage(@Nullable final String name) throws IOException {
+        if (name == null) {
+            throw new IOException("Language without a name");
+        }
+        try {
+            return Language.valueOf(name);
+        } catch (final IllegalArgumentException ex) {
+            throw new IOException("Unknown language '" + name + "'", ex);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.cthing.gradle.plugins.locc;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.cthing.gradle.plugins.locc.reports.LoccReportVisitor;
+import org.gradle.api.Action;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.reporting.Reporting;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Nested;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.TaskExecutionException;
+
+import groovy.lang.Closure;
+
+
+/**
+ * Generates the line count reports from the counts artifact written by the {@link LoccTask line count task}. The
+ * enabled built-in reports and the registered {@link #getVisitors() custom reports} are all written in a single
+ * traversal of the counts, so the artifact is read once regardless of the number of reports. The reports are not
+ * generated by the line count task, so that changing the configuration of a report does not count the files again.
+ */
+@CacheableTask
+public abstract class LoccReportTask extends DefaultTask implements Reporting<LoccReports> {
+
+    private final LoccReports reports;
+    private final File rootDir;
+
+    public LoccReportTask() {
+        this.reports = new LoccReports(this, getReportsDir());
+        this.rootDir = getProject().getRootProject().getProjectDir();
+
+        onlyIf("Reports are required", task -> !this.reports.getEnabled().isEmpty() || !getVisitors().get().isEmpty());
+        onlyIf("Counts artifact exists", task -> getCountsArtifact().get().getAsFile().isFile());
+
+        // The console report is not written to a file, and the files written by custom reports are not known to
+        // the task, so in either case the reports must be generated every time they are requested.
+        getOutputs().upToDateWhen(task -> !isConsoleRequired() && getVisitors().get().isEmpty());
+        getOutputs().doNotCacheIf("Console report is not written to a file", task -> isConsoleRequired());
+        getOutputs().doNotCacheIf("Custom reports are registered", task -> !getVisitors().get().isEmpty());
+
+        // Absolute pathnames depend on the location of the project, which is not an input of the task.
+        getOutputs().doNotCacheIf("Absolute pathnames are reported",
+                                  task -> this.reports.getEnabled()
+                                                      .stream()
+                                                      .anyMatch(report -> !report.getShowRelativePaths().get()));
+    }
+
+    /**
+     * Obtains the counts artifact from which the reports are generated. The default is the
+     * {@link LoccTask#getCountsArtifact() counts artifact} of the line count task. If the artifact does not exist,
+     * such as when there are no files to count, the task is skipped.
+     *
+     * @return Counts artifact file.
+     */
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getCountsArtifact();
+
+    /**
+     * Obtains the line count report directory.
+     *
+     * @return Line count report directory
+     */
+    @Internal
+    public abstract DirectoryProperty getReportsDir();
+
+    /**
+     * Obtains the visitors that generate custom reports. The visitors receive the counts in the same traversal
+     * that writes the built-in reports. When visitors are registered, the task is never up-to-date and its outputs
+     * are not cached. By default, there are no visitors.
+     *
+     * @return Visitors generating custom reports.
+     */
+    @Internal
+    public abstract ListProperty<LoccReportVisitor> getVisitors();
+
+    /**
+     * Obtains the configuration of the reports. By default, each report is configured by the report with the same
+     * name on the line count task.
+     *
+     * @return Report configuration.
+     */
+    @Nested
+    @Override
+    public LoccReports getReports() {
+        return this.reports;
+    }
+
+    @Override
+    public LoccReports reports(final Action<? super LoccReports> configureAction) {
+        configureAction.execute(this.reports);
+        return this.reports;
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public LoccReports reports(final Closure closure) {
+        final Closure cl = (Closure)closure.clone();
+        cl.setResolveStrategy(Closure.DELEGATE_FIRST);
+        cl.setDelegate(this.reports);
+        cl.call(this.reports);
+        return this.reports;
+    }
+
+    /**
+     * Performs the work of generating the reports.
+     */
+    @TaskAction
+    public void generate() {
+        try {
+            final File artifact = getCountsArtifact().get().getAsFile();
+            final CountsCache countsCache = LoccReportReader.readArtifact(artifact.toPath(), this.rootDir.toPath());
+            MultiplexedReportWriter.write(countsCache, this.reports.getEnabled(), getVisitors().get());
+        } catch (final IOException ex) {
+            throw new TaskExecutionException(this, ex);
+        }
+    }
+
+    private boolean isConsoleRequired() {
+        return this.reports.getConsole().getRequired().get();
+    }
+}
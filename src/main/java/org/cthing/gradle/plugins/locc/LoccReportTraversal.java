@@ -0,0 +1,106 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.cthing.gradle.plugins.locc;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.cthing.gradle.plugins.locc.reports.LoccReportVisitor;
+import org.cthing.locc4j.Counts;
+import org.cthing.locc4j.Language;
+
+
+/**
+ * Walks the counts once, delivering each language, file and group of duplicated files to any number of
+ * {@link LoccReportVisitor report visitors}. The sorting of the languages and files, and the lookups of the file
+ * totals and unrecognized files are performed once regardless of the number of visitors.
+ */
+public final class LoccReportTraversal {
+
+    private LoccReportTraversal() {
+    }
+
+    /**
+     * Delivers the specified counts to the specified visitors. Each event is delivered to all visitors, in the
+     * order they are specified, before the next event.
+     *
+     * @param countsCache Counts to traverse
+     * @param visitors Visitors to receive the counts
+     * @throws IOException if a visitor could not write its report
+     */
+    public static void traverse(final CountsCache countsCache, final List<? extends LoccReportVisitor> visitors)
+            throws IOException {
+        if (visitors.isEmpty()) {
+            return;
+        }
+
+        final Map<Language, Counts> langCounts = countsCache.getLanguageCounts();
+        final Map<Language, Set<Path>> langPaths = countsCache.getLanguagePathCounts();
+        final LoccReportVisitor.Summary summary =
+                new LoccReportVisitor.Summary(countsCache.getPathCounts().size(), countsCache.getUnrecognized().size(),
+                                              langCounts.size(), countsCache.getDuplicateGroups().size(),
+                                              countsCache.getTotalCounts(), countsCache.getUniqueTotalCounts());
+        for (final LoccReportVisitor visitor : visitors) {
+            visitor.start(summary);
+        }
+
+        final List<Language> languages = new ArrayList<>(langCounts.keySet());
+        languages.sort(Comparator.comparing(Language::getDisplayName));
+        for (final Language language : languages) {
+            final Set<Path> paths = langPaths.get(language);
+            final int numFiles = (paths == null) ? 0 : paths.size();
+            final Counts counts = langCounts.get(language);
+            for (final LoccReportVisitor visitor : visitors) {
+                visitor.language(language, numFiles, counts);
+            }
+        }
+
+        final Map<Path, Map<Language, Counts>> pathCounts = countsCache.getPathCounts();
+        final Map<Path, Counts> pathTotals = countsCache.getFileCounts();
+        final Set<Path> unrecognized = countsCache.getUnrecognized();
+        final List<Path> paths = new ArrayList<>(pathCounts.keySet());
+        paths.sort(Path::compareTo);
+        for (final Path path : paths) {
+            final boolean isUnrecognized = unrecognized.contains(path);
+            final Counts total = pathTotals.getOrDefault(path, Counts.ZERO);
+            final Map<Language, Counts> counts = sortLanguages(pathCounts.get(path));
+            for (final LoccReportVisitor visitor : visitors) {
+                visitor.file(path, isUnrecognized, total, counts);
+            }
+        }
+
+        for (final Map.Entry<Path, Set<Path>> entry : countsCache.getDuplicateGroups().entrySet()) {
+            final Counts counts = pathTotals.getOrDefault(entry.getKey(), Counts.ZERO);
+            for (final LoccReportVisitor visitor : visitors) {
+                visitor.duplicates(Collections.unmodifiableSet(entry.getValue()), counts);
+            }
+        }
+
+        for (final LoccReportVisitor visitor : visitors) {
+            visitor.end();
+        }
+    }
+
+    private static Map<Language, Counts> sortLanguages(final Map<Language, Counts> counts) {
+        if (counts.size() < 2) {
+            return Collections.unmodifiableMap(counts);
+        }
+        final List<Language> languages = new ArrayList<>(counts.keySet());
+        languages.sort(Comparator.comparing(Language::getDisplayName));
+        final Map<Language, Counts> sorted = new LinkedHashMap<>();
+        for (final Language language : languages) {
+            sorted.put(language, counts.get(language));
+        }
+        return Collections.unmodifiableMap(sorted);
+    }
+}
@@ -13,11 +13,14 @@ import java.util.Set;
 import java.util.SortedMap;
 import java.util.SortedSet;
 
+import org.cthing.gradle.plugins.locc.reports.ArrowReport;
 import org.cthing.gradle.plugins.locc.reports.ConsoleReport;
 import org.cthing.gradle.plugins.locc.reports.CsvReport;
+import org.cthing.gradle.plugins.locc.reports.FileCsvReport;
 import org.cthing.gradle.plugins.locc.reports.HtmlReport;
 import org.cthing.gradle.plugins.locc.reports.JsonReport;
 import org.cthing.gradle.plugins.locc.reports.LoccReport;
+import org.cthing.gradle.plugins.locc.reports.NdjsonReport;
 import org.cthing.gradle.plugins.locc.reports.TextReport;
 import org.cthing.gradle.plugins.locc.reports.XmlReport;
 import org.cthing.gradle.plugins.locc.reports.YamlReport;
@@ -47,6 +50,12 @@ import groovy.lang.GroovyObjectSupport;
  */
 public class LoccReports extends GroovyObjectSupport implements ReportContainer<LoccReport> {
 
+    /**
+     * Names of the reports in the order in which they are generated.
+     */
+    public static final List<String> REPORT_NAMES = List.of("xml", "html", "yaml", "json", "ndjson", "csv", "fileCsv",
+                                                            "arrow", "text", "console");
+
     private final NamedDomainObjectSet<LoccReport> reports;
     private final NamedDomainObjectSet<LoccReport> enabled;
 
@@ -54,13 +63,34 @@ public class LoccReports extends GroovyObjectSupport implements ReportContainer<
         this.reports = task.getProject().getObjects().namedDomainObjectSet(LoccReport.class);
         this.enabled = this.reports.matching(report -> report.getRequired().get());
 
-        this.reports.add(new XmlReport(task, reportsDir));
-        this.reports.add(new HtmlReport(task, reportsDir));
-        this.reports.add(new YamlReport(task, reportsDir));
-        this.reports.add(new JsonReport(task, reportsDir));
-        this.reports.add(new CsvReport(task, reportsDir));
-        this.reports.add(new TextReport(task, reportsDir));
-        this.reports.add(new ConsoleReport(task, reportsDir));
+        for (final String name : REPORT_NAMES) {
+            this.reports.add(createReport(task, reportsDir, name));
+        }
+    }
+
+    /**
+     * Creates the report with the specified name.
+     *
+     * @param task Task generating the report
+     * @param reportsDir Directory in which the report file is written
+     * @param name Name of the report (e.g. {@code html})
+     * @return Newly created report.
+     * @throws IllegalArgumentException if there is no report with the specified name
+     */
+    private static LoccReport createReport(final Task task, final DirectoryProperty reportsDir, final String name) {
+        return switch (name) {
+            case "xml" -> new XmlReport(task, reportsDir);
+            case "html" -> new HtmlReport(task, reportsDir);
+            case "yaml" -> new YamlReport(task, reportsDir);
+            case "json" -> new JsonReport(task, reportsDir);
+            case "ndjson" -> new NdjsonReport(task, reportsDir);
+            case "csv" -> new CsvReport(task, reportsDir);
+            case "fileCsv" -> new FileCsvReport(task, reportsDir);
+            case "arrow" -> new ArrowReport(task, reportsDir);
+            case "text" -> new TextReport(task, reportsDir);
+            case "console" -> new ConsoleReport(task, reportsDir);
+            default -> throw new IllegalArgumentException("Unknown report '" + name + "'");
+        };
     }
 
     @Internal
@@ -83,11 +113,26 @@ public class LoccReports extends GroovyObjectSupport implements ReportContainer<
         return getByName("json");
     }
 
+    @Internal
+    public LoccReport getNdjson() {
+        return getByName("ndjson");
+    }
+
     @Internal
     public LoccReport getCsv() {
         return getByName("csv");
     }
 
+    @Internal
+    public LoccReport getFileCsv() {
+        return getByName("fileCsv");
+    }
+
+    @Internal
+    public LoccReport getArrow() {
+        return getByName("arrow");
+    }
+
     @Internal
     public LoccReport getText() {
         return getByName("text");
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.cthing.gradle.plugins.locc;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.cthing.locc4j.Counts;
+import org.cthing.locc4j.Language;
+
+
+/**
+ * Summary of the line counts of a count run, consisting of the counts for all files, for each language and for
+ * each project. A summary is obtained from the {@link LoccTask#getSummary() summary provider} of the line count
+ * task, which allows other tasks to use the counts without parsing a report.
+ *
+ * @param total Counts for all files
+ * @param languages Counts for each language
+ * @param projects Counts for each project keyed by project path (e.g. {@code :app}). Each file is attributed to
+ *      the project with the most specific directory containing it.
+ */
+public record LoccSummary(Aggregate total, Map<Language, Aggregate> languages, Map<String, Aggregate> projects) {
+
+    /**
+     * Counts for a language, project or all files.
+     *
+     * @param files Number of files
+     * @param counts Line counts
+     */
+    public record Aggregate(int files, Counts counts) {
+    }
+
+    /**
+     * Creates a summary of the specified counts.
+     *
+     * @param countsCache Counts to summarize
+     * @param projectDirs Directories of the projects keyed by project path. Files outside all project directories
+     *      are not attributed to any project.
+     * @return Summary of the counts.
+     */
+    static LoccSummary create(final CountsCache countsCache, final Map<String, Path> projectDirs) {
+        final Aggregate total = new Aggregate(countsCache.getPathCounts().size(), countsCache.getTotalCounts());
+
+        final Map<Language, Set<Path>> languageFiles = countsCache.getLanguagePathCounts();
+        final Map<Language, Aggregate> languages = new EnumMap<>(Language.class);
+        countsCache.getLanguageCounts().forEach((language, counts) -> {
+            final Set<Path> files = languageFiles.get(language);
+            languages.put(language, new Aggregate((files == null) ? 0 : files.size(), counts));
+        });
+
+        final List<Map.Entry<String, Path>> dirs = new ArrayList<>(projectDirs.entrySet());
+        dirs.sort(Comparator.comparing((Map.Entry<String, Path> e) -> e.getValue().getNameCount()).reversed());
+        final Map<String, Aggregate> projects = new TreeMap<>();
+        final Map<Path, Counts> fileCounts = countsCache.getFileCounts();
+        for (final Path path : countsCache.getPathCounts().keySet()) {
+            for (final Map.Entry<String, Path> dir : dirs) {
+                if (path.startsWith(dir.getValue())) {
+                    final Counts counts = fileCounts.getOrDefault(path, Counts.ZERO);
+                    projects.merge(dir.getKey(), new Aggregate(1, counts),
+                                   (a1, a2) -> new Aggregate(a1.files() + a2.files(),
+                                                             CountsCache.plus(a1.counts(), a2.counts())));
+                    break;
+                }
+            }
+        }
+
+        return new LoccSummary(total, Collections.unmodifiableMap(languages),
+                               Collections.unmodifiableMap(projects));
+    }
+
+    /**
+     * Reads the specified counts artifact and summarizes its counts. The artifact does not exist when the line
+     * count task was skipped because there were no files to count, or when it counted changes, in which case
+     * the summary contains no files.
+     *
+     * @param artifact Counts artifact written by the line count task
+     * @param rootDir Root project directory against which the pathnames in the artifact are resolved
+     * @param projectDirs Directories of the projects keyed by project path
+     * @return Summary of the counts in the artifact.
+     * @throws IOException if there was a problem reading the artifact
+     */
+    static LoccSummary read(final Path artifact, final Path rootDir, final Map<String, Path> projectDirs)
+            throws IOException {
+        if (Files.notExists(artifact)) {
+            return create(new CountsCache(Map.of()), projectDirs);
+        }
+        return create(LoccReportReader.readArtifact(artifact, rootDir), projectDirs);
+    }
+}
@@ -7,25 +7,54 @@ package org.cthing.gradle.plugins.locc;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 import org.cthing.gradle.plugins.locc.reports.LoccReport;
 import org.cthing.locc4j.Counts;
 import org.cthing.locc4j.FileCounter;
 import org.cthing.locc4j.Language;
 import org.gradle.api.Action;
+import org.gradle.api.file.ConfigurableFileCollection;
 import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.logging.LogLevel;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.MapProperty;
 import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
 import org.gradle.api.reporting.Reporting;
 import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.IgnoreEmptyDirectories;
+import org.gradle.api.tasks.InputFiles;
 import org.gradle.api.tasks.Internal;
-import org.gradle.api.tasks.Nested;
+import org.gradle.api.tasks.LocalState;
 import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.SkipWhenEmpty;
 import org.gradle.api.tasks.SourceTask;
 import org.gradle.api.tasks.TaskAction;
 import org.gradle.api.tasks.TaskExecutionException;
+import org.gradle.api.tasks.options.Option;
+import org.jspecify.annotations.Nullable;
 
 import groovy.lang.Closure;
 
@@ -36,10 +65,29 @@ import groovy.lang.Closure;
 @SuppressWarnings("AssignmentOrReturnOfFieldWithMutableType")
 public abstract class LoccTask extends SourceTask implements Reporting<LoccReports> {
 
+    private static final long WATCH_DEBOUNCE_MILLIS = 300;
+
     private final LoccReports reports;
+    private final File rootDir;
+    private final ConfigurableFileCollection scannedFiles;
+    private final Map<String, String> extensionChanges = new TreeMap<>();
 
     public LoccTask() {
         this.reports = new LoccReports(this, getReportsDir());
+        this.rootDir = getProject().getRootProject().getProjectDir();
+
+        final Provider<List<File>> scan = getProject().getProviders().of(RepositoryScanSource.class, spec -> {
+            final RepositoryScanSource.Parameters parameters = spec.getParameters();
+            parameters.getScanRoot().set(getScanRoot());
+            parameters.getFilterBase().set(this.rootDir);
+            parameters.getPathIncludes().set(getPathIncludes());
+            parameters.getPathExcludes().set(getPathExcludes());
+        });
+        this.scannedFiles = getProject().getObjects().fileCollection().from(scan);
+
+        getOutputs().upToDateWhen(task -> !getWatch().getOrElse(Boolean.FALSE));
+        getOutputs().upToDateWhen(task -> !getDiffBase().isPresent());
+        getOutputs().upToDateWhen(task -> !getHistoryFile().isPresent());
     }
 
     /**
@@ -50,6 +98,72 @@ public abstract class LoccTask extends SourceTask implements Reporting<LoccRepor
     @Internal
     public abstract DirectoryProperty getReportsDir();
 
+    /**
+     * Obtains the root of the directory tree to scan for files to count in addition to the task's source files.
+     * The tree is walked when the task is executed and files and directories ignored by {@code .gitignore} and
+     * {@code .locc-ignore} files are skipped. Ignored directories are not entered. By default, the directory
+     * is not set and no scan is performed.
+     *
+     * @return Root of the directory tree to scan.
+     * @see #getScannedFiles()
+     */
+    @Internal
+    @Optional
+    public abstract DirectoryProperty getScanRoot();
+
+    /**
+     * Obtains the files found by scanning the {@link #getScanRoot() scan root}. The scan is performed when the
+     * task's inputs are fingerprinted, so the task is up to date when no file has been added, removed or changed
+     * in the scanned tree, and is not skipped for lack of source when the scan finds files.
+     *
+     * @return Files found by scanning the scan root.
+     */
+    @InputFiles
+    @SkipWhenEmpty
+    @IgnoreEmptyDirectories
+    @PathSensitive(PathSensitivity.ABSOLUTE)
+    public FileCollection getScannedFiles() {
+        return this.scannedFiles;
+    }
+
+    /**
+     * Obtains the zip format archives (e.g. sources jars) whose entries are counted in addition to the task's
+     * source files. The entries are read directly from the archives without extracting them, and appear in the
+     * reports as {@code archive!/entry}. The include and exclude patterns are applied to the entries using that
+     * form of pathname (e.g. <code>build/libs/app-sources.jar!/com/example/App.java</code>). The task is not
+     * skipped for lack of source files when archives are specified. By default, no archives are counted.
+     *
+     * @return Archives whose entries are counted.
+     */
+    @InputFiles
+    @SkipWhenEmpty
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract ConfigurableFileCollection getArchives();
+
+    /**
+     * Obtains the Ant style patterns (e.g. {@code src/main/**}) for the files to count. The patterns are
+     * matched against pathnames relative to the root project directory using forward slashes as the separator.
+     * The patterns are applied in addition to any source patterns configured on the task, and are also applied
+     * when scanning the repository. If no patterns are specified, all files not excluded are counted.
+     *
+     * @return Patterns for the files to count.
+     */
+    @Input
+    public abstract ListProperty<String> getPathIncludes();
+
+    /**
+     * Obtains the Ant style patterns (e.g. <code>**&#47;generated/**</code>) for the files to exclude from
+     * counting. The patterns are matched against pathnames relative to the root project directory using forward
+     * slashes as the separator. All patterns are compiled into a single matcher so that specifying a large number
+     * of patterns does not significantly increase the time needed to filter the files. When scanning the
+     * repository, directories whose entire contents are excluded are not entered. The number of files removed by
+     * each pattern is logged at the info level.
+     *
+     * @return Patterns for the files to exclude.
+     */
+    @Input
+    public abstract ListProperty<String> getPathExcludes();
+
     /**
      * Obtains the flag indicating whether to count documentation string as comments or ignore them. The default
      * is {@code true} to count documentation strings as comments.
@@ -60,6 +174,222 @@ public abstract class LoccTask extends SourceTask implements Reporting<LoccRepor
     @Optional
     public abstract Property<Boolean> getCountDocStrings();
 
+    /**
+     * Obtains the flag indicating whether files with identical content should only be counted once. When
+     * enabled, the content of files with the same size is compared and each distinct content is counted once.
+     * Every copy still appears in the reports with the counts of its content, and reports that support it
+     * show the groups of duplicated files and the total lines with each duplicated content counted once.
+     * The default is {@code false}.
+     *
+     * @return Flag indicating whether to detect files with identical content.
+     */
+    @Input
+    @Optional
+    public abstract Property<Boolean> getDeduplicateContent();
+
+    /**
+     * Obtains how the counts of a file reachable through multiple paths, such as through symbolic links or hard
+     * links, are attributed in the reports. Regardless of this setting, such a file is only read and counted
+     * once. The default is {@link AliasAttribution#ALL}, which reports the counts for every path to the file.
+     *
+     * @return Attribution of counts for files reachable through multiple paths.
+     */
+    @Input
+    @Optional
+    public abstract Property<AliasAttribution> getAliasAttribution();
+
+    /**
+     * Obtains the flag indicating whether the task continues to run after counting, watching the directories
+     * containing the counted files for changes. When changes are detected, only the changed files are counted
+     * again and only the reports whose content is affected are regenerated. The task runs until the build is
+     * cancelled (e.g. by pressing Ctrl-C). Files reachable through more than one path and files with identical
+     * content are counted separately when watching, regardless of the {@link #getAliasAttribution() alias
+     * attribution} and {@link #getDeduplicateContent() deduplication} settings. The default is {@code false}.
+     *
+     * @return Flag indicating whether to watch for changes.
+     */
+    @Internal
+    @Option(option = "watch", description = "Watches the counted files for changes and updates the reports.")
+    public abstract Property<Boolean> getWatch();
+
+    /**
+     * Obtains the git revision (e.g. {@code origin/main}) against which changes are counted. When set, only the
+     * files changed on {@code HEAD} since it diverged from the revision are counted. A changed file is only counted
+     * if it is one of the files counted when the revision is not set, which are determined by the task source,
+     * the include and exclude patterns, and the repository scan. A deleted file is counted if it was within one
+     * of the source trees, or within the scanned directory, and is accepted by the path patterns. The old and new
+     * contents of each changed file are read from the local git repository, and their counts are written to the
+     * {@link #getDiffFilesReport() per-file} and {@link #getDiffLanguagesReport() per-language} diff reports.
+     * No {@link #getCountsArtifact() counts artifact} is written, so the other reports are not generated. By
+     * default, the revision is not set and all files are counted.
+     *
+     * @return Revision against which changes are counted.
+     */
+    @Input
+    @Optional
+    @Option(option = "diff-base", description = "Counts only the files changed since the specified git revision.")
+    public abstract Property<String> getDiffBase();
+
+    /**
+     * Obtains the CSV file to which the before and after counts of each changed file are written when
+     * {@link #getDiffBase() counting changes}. The default is {@code locc-diff-files.csv} in the reports
+     * directory.
+     *
+     * @return Per-file diff report.
+     */
+    @OutputFile
+    @Optional
+    public abstract RegularFileProperty getDiffFilesReport();
+
+    /**
+     * Obtains the CSV file to which the before and after counts of each language in the changed files are
+     * written when {@link #getDiffBase() counting changes}. The default is {@code locc-diff-languages.csv} in
+     * the reports directory.
+     *
+     * @return Per-language diff report.
+     */
+    @OutputFile
+    @Optional
+    public abstract RegularFileProperty getDiffLanguagesReport();
+
+    /**
+     * Obtains the zero based index of the shard of files counted by this task. Together with the
+     * {@link #getShardCount() shard count}, the index allows the files to be counted by multiple machines, each
+     * counting a different shard. Files are assigned to shards by a hash of their pathname relative to the root
+     * project directory, so the assignment is the same on every machine. By default, all files are counted.
+     *
+     * @return Index of the shard to count.
+     */
+    @Input
+    @Optional
+    public abstract Property<Integer> getShardIndex();
+
+    /**
+     * Obtains the total number of shards into which the files are partitioned. When set, only the files in the
+     * {@link #getShardIndex() shard} are counted and their counts are also written to the
+     * {@link #getCountsArtifact() counts artifact}, which is combined with the artifacts of the other shards by
+     * the {@link LoccMergeTask merge task}. Files with identical content are only detected within a shard. By
+     * default, the files are not sharded.
+     *
+     * @return Number of shards.
+     */
+    @Input
+    @Optional
+    public abstract Property<Integer> getShardCount();
+
+    /**
+     * Obtains the binary file to which the per-file counts are written. The counts artifact is a compact, versioned
+     * form of the counts that is much faster to load than a report, and from which the
+     * {@link LoccReportTask report task} generates the reports. It is published to other projects through the
+     * {@value LoccPlugin#COUNTS_CONFIGURATION_NAME} configuration and can be read using
+     * {@link LoccReportReader#readArtifact(Path, Path)}. When the files are sharded, the artifact contains the
+     * counts of the shard. When {@link #getDiffBase() counting changes}, the artifact is not written and an
+     * existing artifact is deleted. The default is {@code build/locc/locc-counts.bin}.
+     *
+     * @return Counts artifact file.
+     */
+    @OutputFile
+    public abstract RegularFileProperty getCountsArtifact();
+
+    /**
+     * Obtains the line count report in JSON or XML format, or the {@link #getCountsArtifact() counts artifact}, with
+     * which the counts are compared, such as the report or artifact from a build of the main branch. The format of
+     * the baseline is determined from its content. When set, the differences from the baseline are written to the
+     * {@link #getBaselineFilesReport() per-file} and {@link #getBaselineLanguagesReport() per-language} baseline
+     * reports. Pathnames in the baseline are matched relative to the root project directory. By default, no
+     * baseline is set.
+     *
+     * @return Baseline line count report or counts artifact.
+     */
+    @InputFile
+    @Optional
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getBaseline();
+
+    /**
+     * Obtains the CSV file to which the before and after counts of each file added, removed or changed since the
+     * {@link #getBaseline() baseline} are written. The default is {@code locc-baseline-files.csv} in the reports
+     * directory.
+     *
+     * @return Per-file baseline report.
+     */
+    @OutputFile
+    @Optional
+    public abstract RegularFileProperty getBaselineFilesReport();
+
+    /**
+     * Obtains the CSV file to which the total counts and the counts of each language in the
+     * {@link #getBaseline() baseline} and in the current files are written. The default is
+     * {@code locc-baseline-languages.csv} in the reports directory.
+     *
+     * @return Per-language baseline report.
+     */
+    @OutputFile
+    @Optional
+    public abstract RegularFileProperty getBaselineLanguagesReport();
+
+    /**
+     * Obtains the flag indicating whether line counts are cached by git blob id. When enabled, the counts of a
+     * tracked file that is unmodified in the working tree are found using the blob id recorded in the git index,
+     * so the file is neither read nor hashed. Only modified and untracked files are hashed, and only files
+     * whose contents are not in the cache are counted. The cache is stored in the
+     * {@link #getBlobCacheFile() blob cache file}. The default is {@code false}.
+     *
+     * @return Flag indicating whether to cache counts by git blob id.
+     */
+    @Input
+    @Optional
+    public abstract Property<Boolean> getGitBlobCache();
+
+    /**
+     * Obtains the file in which line counts keyed by git blob id are stored. The default is
+     * {@code build/locc/blob-counts.bin}.
+     *
+     * @return File storing the blob counts cache.
+     */
+    @LocalState
+    public abstract RegularFileProperty getBlobCacheFile();
+
+    /**
+     * Obtains the history store to which the aggregate counts of each run are appended. The store is a compact
+     * binary file with an accompanying index file ({@code .idx} appended to the pathname), from which the
+     * {@link LoccTrendTask trend task} generates its reports. By default, the file is not set and no history is
+     * recorded.
+     *
+     * @return History store file.
+     */
+    @Internal
+    @Optional
+    public abstract RegularFileProperty getHistoryFile();
+
+    /**
+     * Obtains the label recorded with each run in the history store. The default is the project version.
+     *
+     * @return Label for the run.
+     */
+    @Internal
+    public abstract Property<String> getHistoryLabel();
+
+    /**
+     * Obtains the directories of the projects whose aggregate counts are recorded in the history store and
+     * reported in the {@link #getSummary() summary}, keyed by project path. The default is all projects in the
+     * build.
+     *
+     * @return Project directories keyed by project path.
+     */
+    @Internal
+    public abstract MapProperty<String, File> getProjectDirs();
+
+    /**
+     * Obtains the service providing the line counts cache shared by builds run in the same Gradle daemon. If the
+     * service is not set, all files are read and counted.
+     *
+     * @return Line counts cache service.
+     */
+    @Internal
+    @Optional
+    public abstract Property<FileCountsService> getCountsService();
+
     /**
      * Adds the specified file extension to specified language's list of extensions. If an extension already
      * maps to a language, it is replaced.
@@ -69,6 +399,7 @@ public abstract class LoccTask extends SourceTask implements Reporting<LoccRepor
      */
     public void addExtension(final String fileExtension, final Language language) {
         Language.addExtension(fileExtension, language);
+        this.extensionChanges.put(fileExtension.toLowerCase(Locale.ROOT), language.name());
     }
 
     /**
@@ -78,9 +409,42 @@ public abstract class LoccTask extends SourceTask implements Reporting<LoccRepor
      */
     public void removeExtension(final String fileExtension) {
         Language.removeExtension(fileExtension);
+        this.extensionChanges.put(fileExtension.toLowerCase(Locale.ROOT), "");
     }
 
-    @Nested
+    /**
+     * Obtains a summary of the counts for all files, for each language and for each project. The summary is read
+     * from the {@link #getCountsArtifact() counts artifact} when the provider is queried, so it can be wired into
+     * the properties of other tasks, which then depend on this task. Because the summary is derived from the
+     * task's output, it is available when the task is up-to-date, is restored from the build cache or the
+     * configuration cache is used. Files are attributed to the {@link #getProjectDirs() projects}. If the task
+     * did not write the artifact, such as when there were no files to count, the summary contains no files.
+     *
+     * @return Provider of the summary of the counts.
+     */
+    @Internal
+    public Provider<LoccSummary> getSummary() {
+        final File root = this.rootDir;
+        return getCountsArtifact().zip(getProjectDirs(), (artifact, projectDirs) -> {
+            final Map<String, Path> projectPaths = new HashMap<>();
+            projectDirs.forEach((projectPath, dir) -> projectPaths.put(projectPath, dir.toPath()));
+            try {
+                return LoccSummary.read(artifact.getAsFile().toPath(), root.toPath(), projectPaths);
+            } catch (final IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+    }
+
+    /**
+     * Obtains the configuration of the reports. The reports are generated from the
+     * {@link #getCountsArtifact() counts artifact} by the {@link LoccReportTask report task}, whose reports are
+     * configured by these reports. Changing the configuration of a report therefore does not count the files again.
+     * The reports are only generated by this task when {@link #getWatch() watching} for changes.
+     *
+     * @return Report configuration.
+     */
+    @Internal
     @Override
     public LoccReports getReports() {
         return this.reports;
@@ -107,32 +471,633 @@ public abstract class LoccTask extends SourceTask implements Reporting<LoccRepor
      */
     @TaskAction
     public void count() {
-        final List<Path> files = getSource().getFiles().stream().map(File::toPath).toList();
-
-        final FileCounter counter = new FileCounter();
-        counter.countDocStrings(getCountDocStrings().get());
         try {
-            final Map<Path, Map<Language, Counts>> counts = counter.count(files);
-            generateReports(counts);
+            final Path rootPath = this.rootDir.toPath();
+            final PathFilter filter = new PathFilter(getPathIncludes().get(), getPathExcludes().get());
+            if (getDiffBase().isPresent()) {
+                countChanges(filter, rootPath);
+                return;
+            }
+
+            final Shard shard = getShard();
+            final Set<Path> files = collectFiles(filter, rootPath, false);
+            if (shard.count() > 1) {
+                files.removeIf(file -> !shard.accepts(relativePathname(rootPath, file)));
+                getLogger().info("Counting {} files in shard {} of {}", files.size(), shard.index(),
+                                 shard.count());
+            }
+
+            // Paths to the same physical file, such as through symbolic links, are only read and counted once.
+            // When watching, changed files are counted individually, so the groups of paths to the same physical
+            // file and of files with identical content are not maintained.
+            final boolean watch = getWatch().getOrElse(Boolean.FALSE);
+            final Map<Path, Set<Path>> aliases = watch ? Map.of() : AliasResolver.findAliases(files);
+            final Set<Path> physicalFiles = removeCopies(files, aliases);
+            if (!aliases.isEmpty()) {
+                getLogger().info("Found {} files reachable through multiple paths", aliases.size());
+            }
+
+            Map<Path, Set<Path>> duplicates = Map.of();
+            Set<Path> uniqueFiles = physicalFiles;
+            final boolean deduplicate = !watch && getDeduplicateContent().getOrElse(Boolean.FALSE);
+            if (deduplicate) {
+                duplicates = new DuplicateDetector().findDuplicates(physicalFiles);
+                uniqueFiles = removeCopies(physicalFiles, duplicates);
+                getLogger().info("Found {} groups of files with identical content containing {} copies",
+                                 duplicates.size(), physicalFiles.size() - uniqueFiles.size());
+            }
+
+            final FileCounter counter = new FileCounter();
+            counter.countDocStrings(getCountDocStrings().get());
+            final Map<Path, Map<Language, Counts>> counts = countFiles(counter, uniqueFiles);
+            countArchives(counter, counts, filter, shard, rootPath);
+
+            if (!filter.isEmpty()) {
+                filter.getRemoved().forEach((pattern, removed) ->
+                        getLogger().info("Pattern '{}' removed {} files and {} directories", pattern,
+                                         removed.files(), removed.directories()));
+            }
+
+            AliasResolver.expandGroups(counts, duplicates);
+            duplicates = AliasResolver.attribute(getAliasAttribution().getOrElse(AliasAttribution.ALL), counts,
+                                                 aliases, duplicates, deduplicate);
+
+            final CountsCache countsCache = new CountsCache(counts, duplicates);
+            compareBaseline(countsCache, rootPath);
+            writeCountsArtifact(countsCache, shard, rootPath);
+            recordHistory(countsCache);
+
+            if (watch) {
+                generateReports(countsCache, new CountsCache.Changes(true, true));
+                watch(counter, countsCache, files, shard, rootPath);
+            }
         } catch (final IOException ex) {
             throw new TaskExecutionException(this, ex);
         }
     }
 
-    private void generateReports(final Map<Path, Map<Language, Counts>> counts) {
-        final CountsCache countsCache = new CountsCache(counts);
-        generateReport(this.reports.getXml(), countsCache);
-        generateReport(this.reports.getHtml(), countsCache);
-        generateReport(this.reports.getYaml(), countsCache);
-        generateReport(this.reports.getJson(), countsCache);
-        generateReport(this.reports.getCsv(), countsCache);
-        generateReport(this.reports.getText(), countsCache);
-        generateReport(this.reports.getConsole(), countsCache);
+    /**
+     * Obtains the shard of files to count.
+     *
+     * @return Shard to count.
+     * @throws IOException if the shard properties are invalid
+     */
+    private Shard getShard() throws IOException {
+        if (!getShardCount().isPresent()) {
+            return Shard.ALL;
+        }
+        try {
+            return new Shard(getShardIndex().getOrElse(0), getShardCount().get());
+        } catch (final IllegalArgumentException ex) {
+            throw new IOException(ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Compares the counts with the baseline report, if specified, and writes the baseline reports.
+     *
+     * @param countsCache Counts to compare
+     * @param rootPath Root project directory relative to which the pathnames are matched
+     * @throws IOException if there was a problem reading the baseline or writing the reports
+     */
+    private void compareBaseline(final CountsCache countsCache, final Path rootPath) throws IOException {
+        if (!getBaseline().isPresent()) {
+            return;
+        }
+
+        final Path baseline = getBaseline().get().getAsFile().toPath();
+        final BaselineComparison comparison = new BaselineComparison(countsCache.getPathCounts(), rootPath);
+        final BaselineComparison.Summary summary =
+                comparison.compare(baseline,
+                                   getBaselineFilesReport().isPresent()
+                                   ? getBaselineFilesReport().get().getAsFile() : null,
+                                   getBaselineLanguagesReport().isPresent()
+                                   ? getBaselineLanguagesReport().get().getAsFile() : null);
+        getLogger().lifecycle("{} files added, {} removed and {} changed since the baseline, code lines {} before "
+                                      + "and {} after", summary.added(), summary.removed(), summary.changed(),
+                              summary.totalBefore().getCodeLines(), summary.totalAfter().getCodeLines());
+    }
+
+    /**
+     * Writes the per-file counts to the counts artifact.
+     *
+     * @param countsCache Counts to write
+     * @param shard Shard of the files that were counted
+     * @param rootPath Root project directory relative to which the pathnames are written
+     * @throws IOException if there was a problem writing the artifact
+     */
+    private void writeCountsArtifact(final CountsCache countsCache, final Shard shard, final Path rootPath)
+            throws IOException {
+        CountsArtifact.write(getCountsArtifact().get().getAsFile().toPath(), rootPath,
+                             new CountsArtifact.Contents(shard, countingOptions(), countsCache.getPathCounts(),
+                                                         countsCache.getDuplicateGroups()));
+    }
+
+    /**
+     * Appends the aggregate counts to the history store, if requested.
+     *
+     * @param countsCache Counts to record
+     * @throws IOException if there was a problem writing the history store
+     */
+    private void recordHistory(final CountsCache countsCache) throws IOException {
+        if (!getHistoryFile().isPresent()) {
+            return;
+        }
+
+        final Map<String, Path> projectDirs = new HashMap<>();
+        getProjectDirs().get().forEach((projectPath, dir) -> projectDirs.put(projectPath, dir.toPath()));
+        final HistoryStore.Entry entry = HistoryStore.createEntry(countsCache, projectDirs, System.currentTimeMillis(),
+                                                                  getHistoryLabel().getOrElse(""));
+        final Path historyFile = getHistoryFile().get().getAsFile().toPath();
+        HistoryStore.append(historyFile, entry);
+        getLogger().info("Recorded run {} in {}", HistoryStore.size(historyFile), historyFile);
+    }
+
+    /**
+     * Counts the files changed since the diff base revision. Only the changed files that are counted when the diff
+     * base is not set, and the deleted files within the source trees that are accepted by the path patterns, are
+     * counted.
+     *
+     * @param filter Include and exclude patterns to apply
+     * @param rootPath Root project directory relative to which the patterns are matched
+     * @throws IOException if there was a problem reading the repository or writing the reports
+     */
+    private void countChanges(final PathFilter filter, final Path rootPath) throws IOException {
+        final String diffBase = getDiffBase().get();
+        final GitRepository repository = GitRepository.open(rootPath);
+        final Path realRootPath = rootPath.toRealPath();
+        final Path workTree = repository.getWorkTree().toRealPath();
+
+        // Changed files are matched using their real paths, because the paths of the working tree are resolved.
+        final Function<Path, Path> toRealPath = file -> file.startsWith(rootPath)
+                                                        ? realRootPath.resolve(rootPath.relativize(file))
+                                                        : file;
+        final Set<Path> sourceFiles = new HashSet<>();
+        collectFiles(filter, rootPath, false).forEach(file -> sourceFiles.add(toRealPath.apply(file)));
+        final Set<Path> sourceRoots = new HashSet<>();
+        collectSourceRoots().forEach(root -> sourceRoots.add(toRealPath.apply(root)));
+        if (getScanRoot().isPresent()) {
+            sourceRoots.add(toRealPath.apply(getScanRoot().get().getAsFile().toPath()));
+        }
+
+        final GitDiffCounter diffCounter = new GitDiffCounter(repository, new BlobCounter(getCountDocStrings().get()));
+        final List<GitDiffCounter.FileDiff> diffs = diffCounter.count(diffBase, path -> {
+            final Path file = workTree.resolve(path);
+            if (Files.exists(file, LinkOption.NOFOLLOW_LINKS)) {
+                return sourceFiles.contains(file);
+            }
+            return file.startsWith(realRootPath)
+                    && sourceRoots.stream().anyMatch(file::startsWith)
+                    && (filter.isEmpty() || filter.acceptFile(relativePathname(realRootPath, file)));
+        });
+
+        final DiffReport diffReport = new DiffReport(diffs);
+        if (getDiffFilesReport().isPresent()) {
+            diffReport.writeFiles(getDiffFilesReport().get().getAsFile());
+        }
+        if (getDiffLanguagesReport().isPresent()) {
+            diffReport.writeLanguages(getDiffLanguagesReport().get().getAsFile());
+        }
+        getLogger().lifecycle("{} files changed since {}, code lines {} before and {} after", diffs.size(), diffBase,
+                              diffReport.getTotalBefore().getCodeLines(), diffReport.getTotalAfter().getCodeLines());
+
+
+        // The counts of the changed files are not the counts of the project, so no counts artifact is written. An
+        // artifact from a previous run is deleted so that it is not mistaken for the result of this run.
+        Files.deleteIfExists(getCountsArtifact().get().getAsFile().toPath());
+    }
+
+    /**
+     * Watches the source trees and the directories containing the counted files and updates the counts and
+     * reports as files change. Returns when the thread is interrupted by the cancellation of the build.
+     *
+     * @param counter Line counter to use
+     * @param countsCache Counts to update
+     * @param initialFiles Files that were counted, excluding archive entries
+     * @param shard Shard of the files to count
+     * @param rootPath Root project directory relative to which the path patterns are matched
+     * @throws IOException if there was a problem watching the directories
+     */
+    private void watch(final FileCounter counter, final CountsCache countsCache, final Set<Path> initialFiles,
+                       final Shard shard, final Path rootPath) throws IOException {
+        final Set<Path> files = new HashSet<>(initialFiles);
+        final PathFilter filter = new PathFilter(getPathIncludes().get(), getPathExcludes().get());
+        final Path scanRoot = getScanRoot().isPresent() ? getScanRoot().get().getAsFile().toPath() : null;
+        final RepositoryScanner scanner = new RepositoryScanner(getLogger(), filter, rootPath);
+        final Map<Path, Set<String>> directoryExtensions = new HashMap<>();
+        final Map<Path, Set<String>> rejectedExtensions = new HashMap<>();
+        files.forEach(file -> addExtension(directoryExtensions, file));
+
+        try (SourceWatcher watcher = new SourceWatcher(collectSourceRoots(), files)) {
+            getLogger().lifecycle("Watching {} directories for changes. Press Ctrl-C to stop.", watcher.size());
+
+            while (true) {
+                final SourceWatcher.Events events = watcher.awaitEvents(WATCH_DEBOUNCE_MILLIS);
+
+                final Set<Path> removed = new HashSet<>();
+                final Set<Path> recount = new LinkedHashSet<>();
+                final Set<Path> added = new LinkedHashSet<>();
+                boolean rewalk = events.overflow() || (scanRoot != null && changesIgnoreFiles(events));
+
+                if (!rewalk) {
+                    for (final Path deleted : events.deleted()) {
+                        if (files.contains(deleted)) {
+                            removed.add(deleted);
+                        } else if (directoryExtensions.keySet().stream().anyMatch(dir -> dir != null
+                                && dir.startsWith(deleted))) {
+                            files.stream().filter(file -> file.startsWith(deleted)).forEach(removed::add);
+                        }
+                    }
+                    removed.removeIf(Files::isRegularFile);
+                    for (final Path created : events.created()) {
+                        if (files.contains(created)) {
+                            recount.add(created);
+                        } else {
+                            final Boolean counted = isCounted(created, directoryExtensions, rejectedExtensions,
+                                                              filter, shard, rootPath, scanner, scanRoot);
+                            if (counted == null) {
+                                rewalk = true;
+                                break;
+                            }
+                            if (counted) {
+                                added.add(created);
+                            }
+                        }
+                    }
+                }
+
+                if (rewalk) {
+                    // Events were lost or the created files cannot be classified without walking the source
+                    // trees, so the files to count are determined again.
+                    removed.clear();
+                    added.clear();
+                    final Set<Path> current = collectFiles(filter, rootPath, true);
+                    current.removeIf(file -> !shard.accepts(relativePathname(rootPath, file)));
+                    for (final Path file : files) {
+                        if (!current.contains(file)) {
+                            removed.add(file);
+                        }
+                    }
+                    for (final Path file : current) {
+                        if (!files.contains(file)) {
+                            added.add(file);
+                        }
+                    }
+
+                    // The walk found that these created files are not counted, so other files with the same
+                    // extension created in the same directory are not counted either.
+                    for (final Path created : events.created()) {
+                        if (!current.contains(created)) {
+                            addExtension(rejectedExtensions, created);
+                        }
+                    }
+                }
+
+                files.removeAll(removed);
+                files.addAll(added);
+                added.forEach(file -> addExtension(directoryExtensions, file));
+                watcher.register(added);
+                recount.addAll(added);
+                if (events.overflow()) {
+                    recount.addAll(files);
+                } else {
+                    events.modified().stream().filter(files::contains).forEach(recount::add);
+                }
+                recount.removeIf(file -> !Files.isRegularFile(file));
+
+                try {
+                    final CountsCache.Changes changes = countsCache.update(countFiles(counter, recount), removed);
+                    generateReports(countsCache, changes);
+                    if (changes.files()) {
+                        writeCountsArtifact(countsCache, shard, rootPath);
+                        getLogger().lifecycle("Counted {} changed files, {} files removed, {} code lines in total",
+                                              recount.size(), removed.size(),
+                                              countsCache.getTotalCounts().getCodeLines());
+                    }
+                } catch (final IOException ex) {
+                    // A file may be changed again while it is being counted, so wait for the next change.
+                    getLogger().warn("Could not count changed files: {}", ex.getMessage());
+                }
+            }
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Determines whether a file created while watching is counted, without walking the source trees. When
+     * scanning, the ignore files between the scan root and the file are consulted. Otherwise, a file is taken to
+     * be part of the task source when its directory already contains a counted file with the same extension, and
+     * not to be when a previous walk found that a file with the same extension in its directory is not counted.
+     * Any other file, such as a file with a new extension or in a new directory, requires a walk.
+     *
+     * @param file File that was created
+     * @param directoryExtensions Extensions of the counted files in each directory
+     * @param rejectedExtensions Extensions of the files in each directory that a walk found are not counted
+     * @param filter Include and exclude patterns to apply
+     * @param shard Shard of the files to count
+     * @param rootPath Root project directory relative to which the patterns are matched
+     * @param scanner Scanner used to test whether the file would be found by a scan
+     * @param scanRoot Root of the repository scan, or {@code null} if the repository is not scanned
+     * @return {@code true} if the file is counted, {@code false} if it is not, or {@code null} if the source
+     *      trees must be walked to determine whether it is counted.
+     * @throws IOException if there was a problem reading an ignore file
+     */
+    @Nullable
+    private Boolean isCounted(final Path file, final Map<Path, Set<String>> directoryExtensions,
+                              final Map<Path, Set<String>> rejectedExtensions, final PathFilter filter,
+                              final Shard shard, final Path rootPath, final RepositoryScanner scanner,
+                              @Nullable final Path scanRoot) throws IOException {
+        final String relativePathname = relativePathname(rootPath, file);
+        if (!shard.accepts(relativePathname) || !(filter.isEmpty() || filter.acceptFile(relativePathname))) {
+            return Boolean.FALSE;
+        }
+        if (scanRoot != null && scanner.accepts(scanRoot, file)) {
+            return Boolean.TRUE;
+        }
+
+        // Task level include and exclude patterns are matched relative to the roots of the source trees, which
+        // are not known here.
+        if (!getIncludes().isEmpty() || !getExcludes().isEmpty()) {
+            return null;
+        }
+        if (hasExtension(directoryExtensions, file)) {
+            return Boolean.TRUE;
+        }
+        return hasExtension(rejectedExtensions, file) ? Boolean.FALSE : null;
+    }
+
+    private static boolean changesIgnoreFiles(final SourceWatcher.Events events) {
+        return Stream.of(events.modified(), events.created(), events.deleted())
+                     .flatMap(Set::stream)
+                     .map(Path::getFileName)
+                     .anyMatch(name -> name != null
+                             && RepositoryScanner.IGNORE_FILENAMES.contains(name.toString()));
+    }
+
+    private static void addExtension(final Map<Path, Set<String>> directoryExtensions, final Path file) {
+        directoryExtensions.computeIfAbsent(file.getParent(), dir -> new HashSet<>()).add(extension(file));
+    }
+
+    private static boolean hasExtension(final Map<Path, Set<String>> directoryExtensions, final Path file) {
+        final Set<String> extensions = directoryExtensions.get(file.getParent());
+        return extensions != null && extensions.contains(extension(file));
+    }
+
+    private static String extension(final Path file) {
+        final Path name = file.getFileName();
+        final String filename = name == null ? "" : name.toString();
+        final int extStart = filename.lastIndexOf('.');
+        return extStart < 0 ? filename : filename.substring(extStart);
+    }
+
+    /**
+     * Obtains the root directories of the task source trees. A root is derived from the relative path of any file
+     * or directory visited in its tree, so the root of a tree that is empty is not found.
+     *
+     * @return Root directories of the source trees.
+     */
+    private Set<Path> collectSourceRoots() {
+        final Set<Path> roots = new LinkedHashSet<>();
+        getSource().visit(details -> {
+            Path root = details.getFile().toPath();
+            for (int i = 0; root != null && i < details.getRelativePath().getSegments().length; i++) {
+                root = root.getParent();
+            }
+            if (root != null) {
+                roots.add(root);
+            }
+        });
+        return roots;
+    }
+
+    /**
+     * Obtains the files to count from the task source and, if requested, a scan of the repository.
+     *
+     * @param filter Include and exclude patterns to apply
+     * @param rootPath Root project directory relative to which the patterns are matched
+     * @param rescan {@code true} to scan the repository again rather than use the files found when the task's
+     *      inputs were fingerprinted
+     * @return Files to count.
+     * @throws IOException if there was a problem scanning the repository
+     */
+    private Set<Path> collectFiles(final PathFilter filter, final Path rootPath, final boolean rescan)
+            throws IOException {
+        final Set<Path> files = new LinkedHashSet<>();
+        for (final File file : getSource().getFiles()) {
+            final Path path = file.toPath();
+            if (filter.isEmpty() || filter.acceptFile(relativePathname(rootPath, path))) {
+                files.add(path);
+            }
+        }
+
+        if (getScanRoot().isPresent()) {
+            final Path scanRoot = getScanRoot().get().getAsFile().toPath();
+            final List<Path> scanned = rescan
+                                       ? new RepositoryScanner(getLogger(), filter, rootPath).scan(scanRoot)
+                                       : getScannedFiles().getFiles().stream().map(File::toPath).toList();
+            getLogger().info("Found {} files scanning {}", scanned.size(), scanRoot);
+            files.addAll(scanned);
+        }
+
+        return files;
+    }
+
+    /**
+     * Counts the specified files using the git blob cache, if requested.
+     *
+     * @param counter Line counter to use
+     * @param files Files to count
+     * @return Counts for each file.
+     * @throws IOException if there was a problem reading a file
+     */
+    private Map<Path, Map<Language, Counts>> countFiles(final FileCounter counter, final Set<Path> files)
+            throws IOException {
+        if (!getGitBlobCache().getOrElse(Boolean.FALSE)) {
+            return countFilesDirectly(counter, files);
+        }
+
+        final Path rootPath = this.rootDir.toPath();
+        final GitRepository repository;
+        try {
+            repository = GitRepository.open(rootPath);
+        } catch (final IOException ex) {
+            getLogger().info("Git blob cache not used: {}", ex.getMessage());
+            return countFilesDirectly(counter, files);
+        }
+
+        final Path realRootPath = rootPath.toRealPath();
+        final Path workTree = repository.getWorkTree().toRealPath();
+        final Map<String, String> indexBlobIds = repository.indexBlobIds();
+        final Set<String> modifiedPaths = repository.modifiedPaths();
+
+        final Path cacheFile = getBlobCacheFile().get().getAsFile().toPath();
+        final BlobCountsCache blobCache = BlobCountsCache.read(cacheFile, countingOptions());
+
+        final Map<Path, Map<Language, Counts>> counts = new HashMap<>();
+        final Map<Path, String> missed = new LinkedHashMap<>();
+        int hashed = 0;
+        for (final Path file : files) {
+            String blobId = null;
+            if (file.startsWith(rootPath)) {
+                final Path realFile = realRootPath.resolve(rootPath.relativize(file));
+                if (realFile.startsWith(workTree)) {
+                    final String gitPath = RepositoryScanner.toUnixPath(workTree.relativize(realFile));
+                    if (!modifiedPaths.contains(gitPath)) {
+                        blobId = indexBlobIds.get(gitPath);
+                    }
+                }
+            }
+            if (blobId == null) {
+                blobId = blobCache.hash(file);
+                hashed++;
+            }
+
+            final Map<Language, Counts> cached = blobCache.get(blobId, file);
+            if (cached == null) {
+                missed.put(file, blobId);
+            } else {
+                counts.put(file, cached);
+            }
+        }
+
+        if (!missed.isEmpty()) {
+            final Map<Path, Map<Language, Counts>> counted = countFilesDirectly(counter, missed.keySet());
+            counted.forEach((file, fileCounts) -> {
+                counts.put(file, fileCounts);
+                final String blobId = missed.get(file);
+                if (blobId != null) {
+                    blobCache.put(blobId, file, fileCounts);
+                }
+            });
+        }
+        blobCache.write(cacheFile);
+
+        final int hits = files.size() - missed.size();
+        getLogger().log(hits > 0 ? LogLevel.LIFECYCLE : LogLevel.INFO,
+                        "Git blob cache hits: {}, misses: {}, files hashed: {}", hits, missed.size(), hashed);
+        return counts;
+    }
+
+    /**
+     * Counts the specified files using the shared line counts cache, if available.
+     *
+     * @param counter Line counter to use
+     * @param files Files to count
+     * @return Counts for each file.
+     * @throws IOException if there was a problem reading a file
+     */
+    private Map<Path, Map<Language, Counts>> countFilesDirectly(final FileCounter counter, final Set<Path> files)
+            throws IOException {
+        if (!getCountsService().isPresent()) {
+            return new HashMap<>(counter.count(List.copyOf(files)));
+        }
+
+        final CachedFileCounter.Result result = getCountsService().get().count(counter, countingOptions(), files);
+
+        // Hits only occur when the daemon is reused, so they are shown without requiring the info log level.
+        final LogLevel level = result.hits() > 0 ? LogLevel.LIFECYCLE : LogLevel.INFO;
+        getLogger().log(level, "Line counts cache hits: {}, misses: {}", result.hits(), result.misses());
+        return new HashMap<>(result.counts());
+    }
+
+    /**
+     * Provides a fingerprint of the options that affect the counts of a file.
+     *
+     * @return Fingerprint of the counting options.
+     */
+    private String countingOptions() {
+        return "countDocStrings=" + getCountDocStrings().get() + ",extensions=" + this.extensionChanges;
+    }
+
+    /**
+     * Counts the entries in the archives and adds their counts under the {@code archive!/entry} form of their
+     * pathnames.
+     *
+     * @param counter Line counter to use
+     * @param counts Counts to which the entry counts are added
+     * @param filter Include and exclude patterns to apply
+     * @param shard Shard of the entries to count
+     * @param rootPath Root project directory relative to which the patterns are matched
+     * @throws IOException if there was a problem reading an archive
+     */
+    private void countArchives(final FileCounter counter, final Map<Path, Map<Language, Counts>> counts,
+                               final PathFilter filter, final Shard shard, final Path rootPath)
+            throws IOException {
+        final Set<File> archives = getArchives().getFiles();
+        if (archives.isEmpty()) {
+            return;
+        }
+
+        try (ArchiveEntries archiveEntries = new ArchiveEntries()) {
+            for (final File archive : archives) {
+                archiveEntries.add(archive.toPath(), filter, rootPath);
+            }
+
+            final List<Path> entries = new ArrayList<>(archiveEntries.getEntries());
+            entries.removeIf(entry -> !shard.accepts(relativePathname(rootPath,
+                                                                      archiveEntries.getDisplayPath(entry))));
+            getLogger().info("Found {} entries in {} archives", entries.size(), archives.size());
+            counter.count(entries).forEach((entry, entryCounts) ->
+                    counts.put(archiveEntries.getDisplayPath(entry), entryCounts));
+        }
+    }
+
+    /**
+     * Removes all but the first file in each group from the specified files.
+     *
+     * @param files Files to process
+     * @param groups Groups of files keyed by the first file in each group
+     * @return Files with only the first file of each group retained.
+     */
+    private static Set<Path> removeCopies(final Set<Path> files, final Map<Path, Set<Path>> groups) {
+        if (groups.isEmpty()) {
+            return files;
+        }
+
+        final Set<Path> remaining = new LinkedHashSet<>(files);
+        groups.forEach((first, group) -> group.forEach(path -> {
+            if (!path.equals(first)) {
+                remaining.remove(path);
+            }
+        }));
+        return remaining;
+    }
+
+    private static String relativePathname(final Path rootPath, final Path path) {
+        return RepositoryScanner.toUnixPath(path.startsWith(rootPath) ? rootPath.relativize(path) : path);
+    }
+
+    /**
+     * Generates the reports affected by the specified changes in a single pass over the counts. The CSV and console
+     * reports only contain per-language counts, so they are not regenerated if only unrecognized files changed.
+     *
+     * @param countsCache Counts to report
+     * @param changes Changes to the counts since the reports were last generated
+     */
+    private void generateReports(final CountsCache countsCache, final CountsCache.Changes changes) {
+        final List<LoccReport> affected = new ArrayList<>();
+        addReport(affected, this.reports.getXml(), changes.files());
+        addReport(affected, this.reports.getHtml(), changes.files());
+        addReport(affected, this.reports.getYaml(), changes.files());
+        addReport(affected, this.reports.getJson(), changes.files());
+        addReport(affected, this.reports.getNdjson(), changes.files());
+        addReport(affected, this.reports.getCsv(), changes.languages());
+        addReport(affected, this.reports.getFileCsv(), changes.files());
+        addReport(affected, this.reports.getArrow(), changes.files());
+        addReport(affected, this.reports.getText(), changes.files());
+        addReport(affected, this.reports.getConsole(), changes.languages());
+
+        try {
+            MultiplexedReportWriter.write(countsCache, affected, List.of());
+        } catch (final IOException ex) {
+            throw new TaskExecutionException(this, ex);
+        }
     }
 
-    private void generateReport(final LoccReport report, final CountsCache countsCache) {
-        if (report.getRequired().get()) {
-            report.generateReport(countsCache);
+    private static void addReport(final List<LoccReport> affected, final LoccReport report, final boolean changed) {
+        if (changed && report.getRequired().get()) {
+            affected.add(report);
         }
     }
 }
@@ -0,0 +1,359 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.cthing.gradle.plugins.locc;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.cthing.escapers.CsvEscaper;
+import org.cthing.escapers.HtmlEscaper;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.TaskExecutionException;
+import org.jspecify.annotations.Nullable;
+
+
+/**
+ * Generates trend reports from the history store written by the {@link LoccTask line count task}. Only the
+ * index of the store and the most recent records are read, so the reports are generated quickly even for a
+ * store containing many runs.
+ */
+public abstract class LoccTrendTask extends DefaultTask {
+
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+
+    private static final int MAX_CHART_LANGUAGES = 8;
+    private static final int CHART_WIDTH = 800;
+    private static final int CHART_HEIGHT = 300;
+    private static final int CHART_MARGIN = 50;
+    private static final String[] CHART_COLORS = {
+        "#000000", "#1F77B4", "#FF7F0E", "#2CA02C", "#D62728", "#9467BD", "#8C564B", "#E377C2", "#17BECF",
+    };
+
+    public LoccTrendTask() {
+        onlyIf("History file exists", task -> getHistoryFile().isPresent()
+                && getHistoryFile().get().getAsFile().isFile());
+    }
+
+    /**
+     * Obtains the history store from which the reports are generated. The default is the history file specified
+     * by the {@link LoccExtension#getHistoryFile() extension}. If the store does not exist, the task is skipped.
+     *
+     * @return History store file.
+     */
+    @InputFile
+    @Optional
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getHistoryFile();
+
+    /**
+     * Obtains the maximum number of the most recent runs included in the reports. The default is
+     * {@value #DEFAULT_MAX_ENTRIES} runs.
+     *
+     * @return Maximum number of runs in the reports.
+     */
+    @Input
+    public abstract Property<Integer> getMaxEntries();
+
+    /**
+     * Obtains the name of the project that appears in the HTML report. The default is the name of the project
+     * containing the task.
+     *
+     * @return Name of the project.
+     */
+    @Input
+    public abstract Property<String> getProjectName();
+
+    /**
+     * Obtains the HTML trend report file. The default is {@code locc-trend.html} in the reports directory.
+     *
+     * @return HTML trend report file.
+     */
+    @OutputFile
+    public abstract RegularFileProperty getHtmlReport();
+
+    /**
+     * Obtains the CSV trend report file. The default is {@code locc-trend.csv} in the reports directory.
+     *
+     * @return CSV trend report file.
+     */
+    @OutputFile
+    public abstract RegularFileProperty getCsvReport();
+
+    /**
+     * Performs the work of generating the trend reports.
+     */
+    @TaskAction
+    public void report() {
+        try {
+            final Path historyFile = getHistoryFile().get().getAsFile().toPath();
+            final List<HistoryStore.Entry> entries = HistoryStore.read(historyFile, getMaxEntries().get());
+            getLogger().info("Read {} of {} runs from {}", entries.size(), HistoryStore.size(historyFile),
+                             historyFile);
+
+            writeCsv(entries, getCsvReport().get().getAsFile().toPath());
+            writeHtml(entries, getHtmlReport().get().getAsFile().toPath());
+        } catch (final IOException ex) {
+            throw new TaskExecutionException(this, ex);
+        }
+    }
+
+    /**
+     * Writes the trend in CSV format. Each run has a row for its total, followed by a row for each language and
+     * each project.
+     *
+     * @param entries Runs in the order they were recorded
+     * @param destination File to write
+     * @throws IOException if there was a problem writing the file
+     */
+    private static void writeCsv(final List<HistoryStore.Entry> entries, final Path destination) throws IOException {
+        try (Writer writer = newWriter(destination)) {
+            writeln(writer, "Date,Label,Scope,Name,Files,Code Lines,Comment Lines,Blank Lines");
+            for (final HistoryStore.Entry entry : entries) {
+                final String prefix = Instant.ofEpochMilli(entry.timestamp()) + ","
+                        + CsvEscaper.escape(entry.label()) + ",";
+                writeln(writer, prefix + "total,ALL," + formatAggregate(entry.total()));
+                for (final HistoryStore.Aggregate language : entry.languages()) {
+                    writeln(writer, prefix + "language," + CsvEscaper.escape(language.name()) + ","
+                            + formatAggregate(language));
+                }
+                for (final HistoryStore.Aggregate project : entry.projects()) {
+                    writeln(writer, prefix + "project," + CsvEscaper.escape(project.name()) + ","
+                            + formatAggregate(project));
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the trend in HTML format. The report contains a chart of the code lines for the total and the
+     * largest languages, followed by tables of the languages and projects in the most recent run.
+     *
+     * @param entries Runs in the order they were recorded
+     * @param destination File to write
+     * @throws IOException if there was a problem writing the file
+     */
+    private void writeHtml(final List<HistoryStore.Entry> entries, final Path destination) throws IOException {
+        final String projectName = HtmlEscaper.escape(getProjectName().get());
+        try (Writer writer = newWriter(destination)) {
+            writer.write("""
+                         <!DOCTYPE html>
+                         <html lang="en">
+                             <head>
+                                 <meta http-equiv="Content-Type" content="text/html; charset=utf-8"/>
+                                 <title>Line Count Trend For %s</title>
+                                 <style>
+                                     body {
+                                         margin: 40px;
+                                         padding: 0;
+                                         font-family: sans-serif;
+                                     }
+                                     table {
+                                         border: 1px solid #C3C3C3;
+                                         border-collapse: collapse;
+                                     }
+                                     td, th {
+                                         border: 1px solid #C3C3C3;
+                                         padding: 5px 15px 5px 15px;
+                                     }
+                                     .CountCell {
+                                         text-align: right;
+                                     }
+                                     .TotalCell {
+                                         font-weight: bold;
+                                     }
+                                 </style>
+                             </head>
+                             <body>
+                                 <h1>Line Count Trend For %s</h1>
+                         """.formatted(projectName, projectName));
+
+            if (entries.isEmpty()) {
+                writer.write("""
+                                     <p>No runs have been recorded.</p>
+                             """);
+            } else {
+                writeChart(writer, entries);
+
+                final HistoryStore.Entry latest = entries.get(entries.size() - 1);
+                writer.write("""
+
+                                     <h2>Latest Run</h2>
+                                     <p>%s %s</p>
+                             """.formatted(HtmlEscaper.escape(Instant.ofEpochMilli(latest.timestamp()).toString()),
+                                           HtmlEscaper.escape(latest.label())));
+                writeTable(writer, "Languages", "Language", latest.languages(), latest.total());
+                if (!latest.projects().isEmpty()) {
+                    writeTable(writer, "Projects", "Project", latest.projects(), null);
+                }
+            }
+
+            writer.write("""
+                             </body>
+                         </html>
+                         """);
+        }
+    }
+
+    /**
+     * Writes an SVG line chart of the code lines in each run for the total and the languages with the most code
+     * lines in the most recent run.
+     *
+     * @param writer Destination for the chart
+     * @param entries Runs in the order they were recorded
+     * @throws IOException if there was a problem writing the chart
+     */
+    private static void writeChart(final Writer writer, final List<HistoryStore.Entry> entries) throws IOException {
+        final List<HistoryStore.Aggregate> latestLanguages =
+                new ArrayList<>(entries.get(entries.size() - 1).languages());
+        latestLanguages.sort(Comparator.comparingInt((HistoryStore.Aggregate a) -> a.counts().getCodeLines())
+                                       .reversed());
+
+        final Map<String, int[]> series = new LinkedHashMap<>();
+        series.put("Total", new int[entries.size()]);
+        latestLanguages.stream()
+                       .limit(MAX_CHART_LANGUAGES)
+                       .forEach(language -> series.put(language.name(), new int[entries.size()]));
+
+        int maxValue = 1;
+        for (int i = 0; i < entries.size(); i++) {
+            final HistoryStore.Entry entry = entries.get(i);
+            series.get("Total")[i] = entry.total().counts().getCodeLines();
+            maxValue = Math.max(maxValue, entry.total().counts().getCodeLines());
+            for (final HistoryStore.Aggregate language : entry.languages()) {
+                final int[] values = series.get(language.name());
+                if (values != null) {
+                    values[i] = language.counts().getCodeLines();
+                }
+            }
+        }
+
+        final int plotWidth = CHART_WIDTH - 2 * CHART_MARGIN;
+        final int plotHeight = CHART_HEIGHT - 2 * CHART_MARGIN;
+        final double xStep = (entries.size() > 1) ? (double)plotWidth / (entries.size() - 1) : 0;
+
+        writer.write("""
+
+                             <h2>Code Lines</h2>
+                             <svg xmlns="http://www.w3.org/2000/svg" width="%d" height="%d" font-size="12">
+                                 <line x1="%d" y1="%d" x2="%d" y2="%d" stroke="#C3C3C3"/>
+                                 <line x1="%d" y1="%d" x2="%d" y2="%d" stroke="#C3C3C3"/>
+                                 <text x="%d" y="%d" text-anchor="end">%d</text>
+                                 <text x="%d" y="%d" text-anchor="end">0</text>
+                     """.formatted(CHART_WIDTH + 200, CHART_HEIGHT,
+                                   CHART_MARGIN, CHART_MARGIN, CHART_MARGIN, CHART_HEIGHT - CHART_MARGIN,
+                                   CHART_MARGIN, CHART_HEIGHT - CHART_MARGIN, CHART_WIDTH - CHART_MARGIN,
+                                   CHART_HEIGHT - CHART_MARGIN,
+                                   CHART_MARGIN - 5, CHART_MARGIN + 4, maxValue,
+                                   CHART_MARGIN - 5, CHART_HEIGHT - CHART_MARGIN + 4));
+
+        int seriesIndex = 0;
+        for (final Map.Entry<String, int[]> line : series.entrySet()) {
+            final String color = CHART_COLORS[seriesIndex % CHART_COLORS.length];
+            final int[] values = line.getValue();
+            final StringBuilder points = new StringBuilder();
+            for (int i = 0; i < values.length; i++) {
+                final double x = CHART_MARGIN + i * xStep;
+                final double y = CHART_HEIGHT - CHART_MARGIN - (double)values[i] * plotHeight / maxValue;
+                points.append(String.format(Locale.ROOT, "%.1f,%.1f ", x, y));
+            }
+            writer.write("""
+                                     <polyline fill="none" stroke="%s" stroke-width="2" points="%s"/>
+                                     <text x="%d" y="%d" fill="%s">%s</text>
+                         """.formatted(color, points.toString().trim(), CHART_WIDTH - CHART_MARGIN + 20,
+                                       CHART_MARGIN + seriesIndex * 18, color, HtmlEscaper.escape(line.getKey())));
+            seriesIndex++;
+        }
+
+        writer.write("""
+                             </svg>
+                     """);
+    }
+
+    private static void writeTable(final Writer writer, final String title, final String nameHeading,
+                                   final List<HistoryStore.Aggregate> aggregates,
+                                   final HistoryStore.@Nullable Aggregate total)
+            throws IOException {
+        writer.write("""
+
+                             <h2>%s</h2>
+                             <table>
+                                 <thead>
+                                     <tr>
+                                         <th>%s</th>
+                                         <th>Files</th>
+                                         <th>Total Lines</th>
+                                         <th>Code Lines</th>
+                                         <th>Comment Lines</th>
+                                         <th>Blank Lines</th>
+                                     </tr>
+                                 </thead>
+                                 <tbody>
+                     """.formatted(title, nameHeading));
+        for (final HistoryStore.Aggregate aggregate : aggregates) {
+            writeRow(writer, HtmlEscaper.escape(aggregate.name()), aggregate, "CountCell");
+        }
+        if (total != null) {
+            writeRow(writer, "Total", total, "CountCell TotalCell");
+        }
+        writer.write("""
+                                 </tbody>
+                             </table>
+                     """);
+    }
+
+    private static void writeRow(final Writer writer, final String name, final HistoryStore.Aggregate aggregate,
+                                 final String cellClass) throws IOException {
+        writer.write("""
+                                     <tr>
+                                         <td>%s</td>
+                                         <td class="%s">%d</td>
+                                         <td class="%s">%d</td>
+                                         <td class="%s">%d</td>
+                                         <td class="%s">%d</td>
+                                         <td class="%s">%d</td>
+                                     </tr>
+                     """.formatted(name, cellClass, aggregate.files(),
+                                   cellClass, aggregate.counts().getTotalLines(),
+                                   cellClass, aggregate.counts().getCodeLines(),
+                                   cellClass, aggregate.counts().getCommentLines(),
+                                   cellClass, aggregate.counts().getBlankLines()));
+    }
+
+    private static String formatAggregate(final HistoryStore.Aggregate aggregate) {
+        return aggregate.files() + "," + aggregate.counts().getCodeLines() + ","
+                + aggregate.counts().getCommentLines() + "," + aggregate.counts().getBlankLines();
+    }
+
+    private static Writer newWriter(final Path destination) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(destination), StandardCharsets.UTF_8));
+    }
+
+    private static void writeln(final Writer writer, final String str) throws IOException {
+        writer.write(str);
+        writer.write("\r\n");
+    }
+}
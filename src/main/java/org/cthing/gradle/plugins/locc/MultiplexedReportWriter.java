@@ -0,0 +1,76 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.cthing.gradle.plugins.locc;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.cthing.gradle.plugins.locc.reports.LoccReport;
+import org.cthing.gradle.plugins.locc.reports.LoccReportVisitor;
+import org.jspecify.annotations.Nullable;
+
+
+/**
+ * Writes any number of reports in a single pass over the counts. Each report provides an encoder for its format,
+ * and the files and languages are iterated once in sorted order with each record delivered to the encoders of
+ * all reports. Enabling additional report formats therefore does not add passes over the counts.
+ */
+public final class MultiplexedReportWriter {
+
+    private MultiplexedReportWriter() {
+    }
+
+    /**
+     * Writes the specified reports and delivers the counts to the specified visitors in a single traversal of the
+     * counts. The encoders of the reports and any visitors that are {@link Closeable} are closed when the
+     * traversal completes, whether or not it was successful.
+     *
+     * @param countsCache Counts to report
+     * @param reports Reports to write
+     * @param visitors Additional visitors, such as custom reports, to receive the counts
+     * @throws IOException if there was a problem writing a report
+     */
+    public static void write(final CountsCache countsCache, final Collection<? extends LoccReport> reports,
+                             final List<? extends LoccReportVisitor> visitors) throws IOException {
+        final List<LoccReportVisitor> encoders = new ArrayList<>(reports.size() + visitors.size());
+        IOException failure = null;
+        try {
+            for (final LoccReport report : reports) {
+                encoders.add(report.createEncoder());
+            }
+            encoders.addAll(visitors);
+            LoccReportTraversal.traverse(countsCache, encoders);
+        } catch (final IOException ex) {
+            failure = ex;
+        }
+
+        for (final LoccReportVisitor encoder : encoders) {
+            if (encoder instanceof Closeable closeable) {
+                failure = close(closeable, failure);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    @Nullable
+    private static IOException close(final Closeable closeable, @Nullable final IOException failure) {
+        try {
+            closeable.close();
+            return failure;
+        } catch (final IOException ex) {
+            if (failure == null) {
+                return ex;
+            }
+            failure.addSuppressed(ex);
+            return failure;
+        }
+    }
+}
@@ -0,0 +1,298 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.cthing.gradle.plugins.locc;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.jspecify.annotations.Nullable;
+
+
+/**
+ * Filters pathnames using Ant style include and exclude patterns (e.g. <code>**&#47;generated/**</code>).
+ * Rather than evaluating each pattern in turn, all patterns are compiled into a trie over the path segments,
+ * which is evaluated as a nondeterministic automaton. Each pathname is therefore matched against all patterns
+ * in a single pass over its segments. Directories can be tested before they are entered so that a directory
+ * whose entire contents are excluded, or cannot be included, is pruned. The number of files and directories
+ * removed by each pattern is recorded.
+ *
+ * <p>A pathname is accepted if it matches at least one include pattern, or there are no include patterns, and it
+ * does not match any exclude pattern. Pathnames are relative and use forward slashes as the separator. A pattern
+ * ending in a slash is treated as if {@code **} were appended to it.</p>
+ */
+final class PathFilter {
+
+    /** Name under which files removed because they did not match any include pattern are recorded. */
+    static final String NOT_INCLUDED = "(not included)";
+
+    /**
+     * Node in the pattern trie. Each node represents a pattern segment.
+     */
+    private static final class Node {
+        final Map<String, Node> literals = new HashMap<>();
+        final List<Map.Entry<Pattern, Node>> wildcards = new ArrayList<>();
+        @Nullable
+        Node anyDepth;
+        final boolean isAnyDepth;
+        int rule = Integer.MAX_VALUE;
+
+        Node(final boolean isAnyDepth) {
+            this.isAnyDepth = isAnyDepth;
+        }
+
+        boolean isTerminal() {
+            return this.rule != Integer.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Counts of the files and directories removed by a pattern.
+     *
+     * @param files Number of files removed
+     * @param directories Number of directories pruned
+     */
+    record Removed(int files, int directories) {
+    }
+
+    private final List<String> includes;
+    private final List<String> excludes;
+    private final Node includeRoot;
+    private final Node excludeRoot;
+    private final int[] excludedFiles;
+    private final int[] excludedDirs;
+    private int notIncludedFiles;
+    private int notIncludedDirs;
+
+    /**
+     * Compiles the specified patterns.
+     *
+     * @param includes Patterns for the pathnames to accept. If empty, all pathnames not excluded are accepted.
+     * @param excludes Patterns for the pathnames to reject
+     */
+    PathFilter(final List<String> includes, final List<String> excludes) {
+        this.includes = List.copyOf(includes);
+        this.excludes = List.copyOf(excludes);
+        this.includeRoot = compile(this.includes);
+        this.excludeRoot = compile(this.excludes);
+        this.excludedFiles = new int[this.excludes.size()];
+        this.excludedDirs = new int[this.excludes.size()];
+    }
+
+    /**
+     * Indicates whether there are any patterns to apply.
+     *
+     * @return {@code true} if there are no include or exclude patterns and all pathnames are accepted.
+     */
+    boolean isEmpty() {
+        return this.includes.isEmpty() && this.excludes.isEmpty();
+    }
+
+    /**
+     * Determines whether the specified file should be accepted.
+     *
+     * @param relativePath Pathname of the file
+     * @return {@code true} if the file is accepted.
+     */
+    boolean acceptFile(final String relativePath) {
+        final String[] segments = split(relativePath);
+
+        final int excludeRule = firstRule(run(this.excludeRoot, segments), false);
+        if (excludeRule != Integer.MAX_VALUE) {
+            this.excludedFiles[excludeRule]++;
+            return false;
+        }
+
+        if (!this.includes.isEmpty() && firstRule(run(this.includeRoot, segments), false) == Integer.MAX_VALUE) {
+            this.notIncludedFiles++;
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Determines whether the specified directory should be entered. A directory is pruned if an exclude pattern
+     * matches everything below it, or no include pattern can match anything below it.
+     *
+     * @param relativePath Pathname of the directory
+     * @return {@code true} if the directory should be entered.
+     */
+    boolean acceptDirectory(final String relativePath) {
+        final String[] segments = split(relativePath);
+
+        final int excludeRule = firstRule(run(this.excludeRoot, segments), true);
+        if (excludeRule != Integer.MAX_VALUE) {
+            this.excludedDirs[excludeRule]++;
+            return false;
+        }
+
+        if (!this.includes.isEmpty() && run(this.includeRoot, segments).isEmpty()) {
+            this.notIncludedDirs++;
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Obtains the number of files and directories removed by each pattern.
+     *
+     * @return Removal counts keyed by exclude pattern in the order specified. If there are include patterns,
+     *      the files and directories that did not match any include pattern are recorded under
+     *      {@link #NOT_INCLUDED}.
+     */
+    Map<String, Removed> getRemoved() {
+        final Map<String, Removed> removed = new LinkedHashMap<>();
+        for (int i = 0; i < this.excludes.size(); i++) {
+            removed.merge(this.excludes.get(i), new Removed(this.excludedFiles[i], this.excludedDirs[i]),
+                          (r1, r2) -> new Removed(r1.files + r2.files, r1.directories + r2.directories));
+        }
+        if (!this.includes.isEmpty()) {
+            removed.put(NOT_INCLUDED, new Removed(this.notIncludedFiles, this.notIncludedDirs));
+        }
+        return removed;
+    }
+
+    private static Node compile(final List<String> patterns) {
+        final Node root = new Node(false);
+        for (int rule = 0; rule < patterns.size(); rule++) {
+            String pattern = patterns.get(rule).replace('\\', '/');
+            if (pattern.endsWith("/")) {
+                pattern += "**";
+            }
+
+            Node node = root;
+            for (final String segment : split(pattern)) {
+                if ("**".equals(segment)) {
+                    if (!node.isAnyDepth) {
+                        if (node.anyDepth == null) {
+                            node.anyDepth = new Node(true);
+                        }
+                        node = node.anyDepth;
+                    }
+                } else if (segment.indexOf('*') >= 0 || segment.indexOf('?') >= 0) {
+                    node = wildcardChild(node, segment);
+                } else {
+                    node = node.literals.computeIfAbsent(segment, s -> new Node(false));
+                }
+            }
+            node.rule = Math.min(node.rule, rule);
+        }
+        return root;
+    }
+
+    private static Node wildcardChild(final Node node, final String segment) {
+        final String regex = toRegex(segment);
+        for (final Map.Entry<Pattern, Node> entry : node.wildcards) {
+            if (entry.getKey().pattern().equals(regex)) {
+                return entry.getValue();
+            }
+        }
+
+        final Node child = new Node(false);
+        node.wildcards.add(Map.entry(Pattern.compile(regex), child));
+        return child;
+    }
+
+    private static String toRegex(final String segment) {
+        final StringBuilder regex = new StringBuilder();
+        final StringBuilder literal = new StringBuilder();
+        for (int i = 0; i < segment.length(); i++) {
+            final char ch = segment.charAt(i);
+            if (ch == '*' || ch == '?') {
+                if (!literal.isEmpty()) {
+                    regex.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                regex.append(ch == '*' ? ".*" : ".");
+            } else {
+                literal.append(ch);
+            }
+        }
+        if (!literal.isEmpty()) {
+            regex.append(Pattern.quote(literal.toString()));
+        }
+        return regex.toString();
+    }
+
+    /**
+     * Runs the automaton over the specified segments.
+     *
+     * @param root Root of the pattern trie
+     * @param segments Pathname segments
+     * @return Active nodes after all segments have been consumed.
+     */
+    private static List<Node> run(final Node root, final String[] segments) {
+        List<Node> states = new ArrayList<>();
+        addState(states, root);
+
+        for (final String segment : segments) {
+            if (states.isEmpty()) {
+                break;
+            }
+
+            final List<Node> next = new ArrayList<>();
+            for (final Node state : states) {
+                if (state.isAnyDepth) {
+                    addState(next, state);
+                }
+
+                final Node literal = state.literals.get(segment);
+                if (literal != null) {
+                    addState(next, literal);
+                }
+
+                for (final Map.Entry<Pattern, Node> entry : state.wildcards) {
+                    if (entry.getKey().matcher(segment).matches()) {
+                        addState(next, entry.getValue());
+                    }
+                }
+            }
+            states = next;
+        }
+
+        return states;
+    }
+
+    /**
+     * Adds the specified node and, since {@code **} matches zero or more segments, any {@code **} node that
+     * follows it.
+     */
+    private static void addState(final List<Node> states, final Node node) {
+        Node current = node;
+        while (current != null && !states.contains(current)) {
+            states.add(current);
+            current = current.anyDepth;
+        }
+    }
+
+    /**
+     * Finds the lowest numbered pattern matched by the specified states.
+     *
+     * @param states Active nodes
+     * @param everythingBelow {@code true} to only consider patterns that match everything below the current
+     *      directory (i.e. patterns ending in {@code **})
+     * @return Lowest numbered matching pattern or {@link Integer#MAX_VALUE} if no pattern matches.
+     */
+    private static int firstRule(final List<Node> states, final boolean everythingBelow) {
+        int rule = Integer.MAX_VALUE;
+        for (final Node state : states) {
+            if (state.isTerminal() && (!everythingBelow || state.isAnyDepth)) {
+                rule = Math.min(rule, state.rule);
+            }
+        }
+        return rule;
+    }
+
+    private static String[] split(final String pathname) {
+        final String trimmed = pathname.startsWith("/") ? pathname.substring(1) : pathname;
+        return trimmed.isEmpty() ? new String[0] : trimmed.split("/");
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.cthing.gradle.plugins.locc;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.ValueSource;
+import org.gradle.api.provider.ValueSourceParameters;
+
+
+/**
+ * Provides the files found by scanning a repository with a {@link RepositoryScanner}. The scan is performed when
+ * the value is obtained, which for a task input is when the task's inputs are fingerprinted. When the
+ * configuration cache is used, the scan is performed again in each build rather than its result being reused.
+ */
+public abstract class RepositoryScanSource implements ValueSource<List<File>, RepositoryScanSource.Parameters> {
+
+    /**
+     * Parameters of the scan.
+     */
+    public interface Parameters extends ValueSourceParameters {
+        /**
+         * Obtains the root of the directory tree to scan. If the root is not set, no files are found.
+         *
+         * @return Root of the directory tree to scan.
+         */
+        DirectoryProperty getScanRoot();
+
+        /**
+         * Obtains the directory relative to which pathnames are matched against the include and exclude patterns.
+         *
+         * @return Base directory for the patterns.
+         */
+        DirectoryProperty getFilterBase();
+
+        /**
+         * Obtains the patterns of the pathnames to include.
+         *
+         * @return Include patterns.
+         */
+        ListProperty<String> getPathIncludes();
+
+        /**
+         * Obtains the patterns of the pathnames to exclude.
+         *
+         * @return Exclude patterns.
+         */
+        ListProperty<String> getPathExcludes();
+    }
+
+    @Override
+    public List<File> obtain() {
+        final Parameters parameters = getParameters();
+        if (!parameters.getScanRoot().isPresent()) {
+            return List.of();
+        }
+
+        final Path scanRoot = parameters.getScanRoot().get().getAsFile().toPath();
+        final Path filterBase = parameters.getFilterBase().get().getAsFile().toPath();
+        final PathFilter filter = new PathFilter(parameters.getPathIncludes().get(),
+                                                 parameters.getPathExcludes().get());
+        try {
+            return new RepositoryScanner(Logging.getLogger(RepositoryScanSource.class), filter, filterBase)
+                    .scan(scanRoot)
+                    .stream()
+                    .map(Path::toFile)
+                    .toList();
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
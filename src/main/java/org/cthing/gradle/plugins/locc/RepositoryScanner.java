@@ -0,0 +1,202 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.cthing.gradle.plugins.locc;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import org.gradle.api.logging.Logger;
+
+
+/**
+ * Walks a directory tree collecting all regular files that are not ignored by the {@code .gitignore} and
+ * {@code .locc-ignore} files found in the tree. Ignored directories are pruned before they are entered so that
+ * their contents are never visited. The {@code .git} directory is always pruned and the repository's
+ * {@code .git/info/exclude} file is honored. In addition, a {@link PathFilter} can be specified to further
+ * restrict the files and directories visited.
+ */
+final class RepositoryScanner {
+
+    static final List<String> IGNORE_FILENAMES = List.of(".gitignore", ".locc-ignore");
+
+    private static final String GIT_DIR = ".git";
+
+    private final Logger logger;
+    private final PathFilter filter;
+    private final Path filterBase;
+
+    /**
+     * Constructs a scanner.
+     *
+     * @param logger Logger for reporting problems walking the tree
+     * @param filter Filter to apply to the files and directories that are not ignored
+     * @param filterBase Directory relative to which pathnames are matched against the filter
+     */
+    RepositoryScanner(final Logger logger, final PathFilter filter, final Path filterBase) {
+        this.logger = logger;
+        this.filter = filter;
+        this.filterBase = filterBase;
+    }
+
+    /**
+     * Walks the specified directory tree.
+     *
+     * @param root Directory at which to start the walk
+     * @return Absolute paths of all files that are not ignored.
+     * @throws IOException if there was a problem walking the tree
+     */
+    List<Path> scan(final Path root) throws IOException {
+        final Path rootDir = root.toAbsolutePath().normalize();
+        final List<Path> files = new ArrayList<>();
+        final Deque<IgnoreRules> rulesStack = new ArrayDeque<>();
+
+        pushExcludeRules(rulesStack, rootDir);
+
+        Files.walkFileTree(rootDir, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs)
+                    throws IOException {
+                if (!dir.equals(rootDir) && isPruned(rulesStack, dir)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+
+                pushRules(rulesStack, dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(final Path dir, final IOException exc) {
+                while (!rulesStack.isEmpty() && rulesStack.peek().getBaseDir().equals(dir)) {
+                    rulesStack.pop();
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) {
+                if (attrs.isRegularFile() && !isIgnored(rulesStack, file, false)
+                        && RepositoryScanner.this.filter.acceptFile(relativize(file))) {
+                    files.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(final Path file, final IOException exc) {
+                RepositoryScanner.this.logger.warn("Unable to scan {}: {}", file, exc.getMessage());
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        return files;
+    }
+
+    /**
+     * Determines whether the specified file would be found by scanning the specified directory tree, without
+     * walking the tree. Only the ignore files in the directories from the root to the file are read. This is
+     * used to decide whether a file created after a scan is counted.
+     *
+     * @param root Directory at which the scan starts
+     * @param file File to test
+     * @return {@code true} if the file is a regular file within the tree that is not ignored.
+     * @throws IOException if there was a problem reading an ignore file
+     */
+    boolean accepts(final Path root, final Path file) throws IOException {
+        final Path rootDir = root.toAbsolutePath().normalize();
+        final Path path = file.toAbsolutePath().normalize();
+        if (!path.startsWith(rootDir) || path.equals(rootDir)) {
+            return false;
+        }
+
+        final Deque<IgnoreRules> rulesStack = new ArrayDeque<>();
+        pushExcludeRules(rulesStack, rootDir);
+        pushRules(rulesStack, rootDir);
+
+        Path dir = rootDir;
+        final Path relative = rootDir.relativize(path);
+        for (int i = 0; i < relative.getNameCount() - 1; i++) {
+            dir = dir.resolve(relative.getName(i));
+            if (isPruned(rulesStack, dir)) {
+                return false;
+            }
+            pushRules(rulesStack, dir);
+        }
+
+        return Files.isRegularFile(path, LinkOption.NOFOLLOW_LINKS) && !isIgnored(rulesStack, path, false)
+                && this.filter.acceptFile(relativize(path));
+    }
+
+    /**
+     * Determines whether a directory below the root is skipped without being entered.
+     *
+     * @param rulesStack Rules in effect for the directory's parent
+     * @param dir Directory to test
+     * @return {@code true} if the directory is not entered.
+     */
+    private boolean isPruned(final Deque<IgnoreRules> rulesStack, final Path dir) {
+        final Path name = dir.getFileName();
+        return (name != null && GIT_DIR.equals(name.toString())) || isIgnored(rulesStack, dir, true)
+                || !this.filter.acceptDirectory(relativize(dir));
+    }
+
+    private static void pushExcludeRules(final Deque<IgnoreRules> rulesStack, final Path rootDir)
+            throws IOException {
+        final Path excludeFile = rootDir.resolve(GIT_DIR).resolve("info").resolve("exclude");
+        if (Files.isRegularFile(excludeFile)) {
+            rulesStack.push(IgnoreRules.read(rootDir, excludeFile));
+        }
+    }
+
+    private static void pushRules(final Deque<IgnoreRules> rulesStack, final Path dir) throws IOException {
+        for (final String ignoreFilename : IGNORE_FILENAMES) {
+            final Path ignoreFile = dir.resolve(ignoreFilename);
+            if (Files.isRegularFile(ignoreFile)) {
+                final IgnoreRules rules = IgnoreRules.read(dir, ignoreFile);
+                if (!rules.isEmpty()) {
+                    rulesStack.push(rules);
+                }
+            }
+        }
+    }
+
+    /**
+     * Determines whether the specified path is ignored. Rules from deeper directories take precedence over
+     * rules from their ancestors.
+     *
+     * @param rulesStack Rules in effect with the rules for the deepest directory at the top of the stack
+     * @param path Path to test
+     * @param directory {@code true} if the path is a directory
+     * @return {@code true} if the path is ignored.
+     */
+    private static boolean isIgnored(final Deque<IgnoreRules> rulesStack, final Path path, final boolean directory) {
+        for (final IgnoreRules rules : rulesStack) {
+            final String relativePath = toUnixPath(rules.getBaseDir().relativize(path));
+            final IgnoreRules.Match match = rules.match(relativePath, directory);
+            if (match != IgnoreRules.Match.NONE) {
+                return match == IgnoreRules.Match.IGNORED;
+            }
+        }
+        return false;
+    }
+
+    private String relativize(final Path path) {
+        return this.filter.isEmpty() ? "" : toUnixPath(this.filterBase.relativize(path));
+    }
+
+    static String toUnixPath(final Path path) {
+        final String pathname = path.toString();
+        return path.getFileSystem().getSeparator().equals("/") ? pathname : pathname.replace('\\', '/');
+    }
+}
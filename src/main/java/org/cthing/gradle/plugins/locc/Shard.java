@@ -0,0 +1,55 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.cthing.gradle.plugins.locc;
+
+import java.nio.charset.StandardCharsets;
+
+
+/**
+ * Deterministic partition of the counted files. A file is assigned to a shard using the 64-bit FNV-1a hash of its
+ * pathname relative to the root project directory, so every machine assigns a file to the same shard regardless
+ * of where the project is checked out or in which order the files are found.
+ *
+ * @param index Zero based index of the shard
+ * @param count Total number of shards
+ */
+record Shard(int index, int count) {
+
+    /** Shard containing all files. */
+    static final Shard ALL = new Shard(0, 1);
+
+    private static final long FNV_OFFSET_BASIS = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME = 0x100000001B3L;
+
+    Shard {
+        if (count < 1) {
+            throw new IllegalArgumentException("Shard count must be at least 1 but is " + count);
+        }
+        if (index < 0 || index >= count) {
+            throw new IllegalArgumentException("Shard index must be between 0 and " + (count - 1) + " but is "
+                                                       + index);
+        }
+    }
+
+    /**
+     * Indicates whether the specified file belongs to this shard.
+     *
+     * @param pathname Pathname of the file relative to the root project directory using forward slashes
+     * @return {@code true} if the file belongs to this shard.
+     */
+    boolean accepts(final String pathname) {
+        return this.count == 1 || Long.remainderUnsigned(hash(pathname), this.count) == this.index;
+    }
+
+    static long hash(final String pathname) {
+        long hash = FNV_OFFSET_BASIS;
+        for (final byte b : pathname.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+}
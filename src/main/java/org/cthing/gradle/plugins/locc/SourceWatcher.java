@@ -0,0 +1,176 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.cthing.gradle.plugins.locc;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.jspecify.annotations.Nullable;
+
+
+/**
+ * Watches the source trees and the directories containing the counted files for changes. Because a
+ * {@link WatchService} does not watch subdirectories, every directory in each source tree is registered, as are the
+ * directories containing counted files outside the source trees and any directory created within a watched
+ * directory. Registering every directory of a source tree, including directories that only contain other
+ * directories, ensures that a file created in a new package is seen. Events are debounced so that a burst of
+ * changes, such as a refactoring across many files, is reported as a single set of changes.
+ */
+final class SourceWatcher implements Closeable {
+
+    /**
+     * Changes detected in the watched directories.
+     *
+     * @param modified Files whose content was modified
+     * @param created Files that were created, including the files in created directories
+     * @param deleted Files and directories that were deleted
+     * @param overflow {@code true} if events were lost, in which case the set of files to count must be
+     *      determined again and all files must be counted again
+     */
+    record Events(Set<Path> modified, Set<Path> created, Set<Path> deleted, boolean overflow) {
+    }
+
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> keys = new HashMap<>();
+    private final Set<Path> directories = new LinkedHashSet<>();
+
+    /**
+     * Starts watching the specified source trees and the directories containing the specified files.
+     *
+     * @param roots Root directories of the source trees to watch. Roots that do not exist are ignored.
+     * @param files Files whose directories are watched
+     * @throws IOException if there was a problem registering a directory
+     */
+    SourceWatcher(final Collection<Path> roots, final Collection<Path> files) throws IOException {
+        this.watchService = FileSystems.getDefault().newWatchService();
+        for (final Path root : roots) {
+            if (Files.isDirectory(root)) {
+                registerTree(root, null);
+            }
+        }
+        register(files);
+    }
+
+    /**
+     * Starts watching the directories containing the specified files, if they are not already watched.
+     *
+     * @param files Files whose directories are watched
+     * @throws IOException if there was a problem registering a directory
+     */
+    void register(final Collection<Path> files) throws IOException {
+        for (final Path file : files) {
+            final Path dir = file.getParent();
+            if (dir != null) {
+                registerDirectory(dir);
+            }
+        }
+    }
+
+    /**
+     * Obtains the number of watched directories.
+     *
+     * @return Number of watched directories.
+     */
+    int size() {
+        return this.directories.size();
+    }
+
+    /**
+     * Waits for changes in the watched directories. Once a change is detected, events are collected until no
+     * further event is received for the specified debounce interval.
+     *
+     * @param debounceMillis Period of quiet, in milliseconds, that ends the collection of events
+     * @return Changes detected.
+     * @throws IOException if there was a problem registering a newly created directory
+     * @throws InterruptedException if the thread was interrupted while waiting
+     */
+    Events awaitEvents(final long debounceMillis) throws IOException, InterruptedException {
+        final Set<Path> modified = new LinkedHashSet<>();
+        final Set<Path> created = new LinkedHashSet<>();
+        final Set<Path> deleted = new LinkedHashSet<>();
+        boolean overflow = false;
+
+        WatchKey key = this.watchService.take();
+        while (key != null) {
+            final Path dir = this.keys.get(key);
+            for (final WatchEvent<?> event : key.pollEvents()) {
+                final WatchEvent.Kind<?> kind = event.kind();
+                if (kind == StandardWatchEventKinds.OVERFLOW) {
+                    overflow = true;
+                } else if (dir != null) {
+                    final Path path = dir.resolve((Path)event.context());
+                    if (kind == StandardWatchEventKinds.ENTRY_MODIFY) {
+                        modified.add(path);
+                    } else if (kind == StandardWatchEventKinds.ENTRY_DELETE) {
+                        deleted.add(path);
+                    } else if (Files.isDirectory(path)) {
+                        registerTree(path, created);
+                    } else {
+                        created.add(path);
+                    }
+                }
+            }
+            if (!key.reset()) {
+                this.keys.remove(key);
+                if (dir != null) {
+                    this.directories.remove(dir);
+                }
+            }
+            key = this.watchService.poll(debounceMillis, TimeUnit.MILLISECONDS);
+        }
+
+        return new Events(modified, created, deleted, overflow);
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.watchService.close();
+    }
+
+    private void registerDirectory(final Path dir) throws IOException {
+        if (this.directories.add(dir)) {
+            final WatchKey key = dir.register(this.watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                                              StandardWatchEventKinds.ENTRY_DELETE,
+                                              StandardWatchEventKinds.ENTRY_MODIFY);
+            this.keys.put(key, dir);
+        }
+    }
+
+    private void registerTree(final Path root, @Nullable final Set<Path> created) throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs)
+                    throws IOException {
+                registerDirectory(dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) {
+                if (created != null && attrs.isRegularFile()) {
+                    created.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
@@ -5,16 +5,31 @@
 
 package org.cthing.gradle.plugins.locc.reports;
 
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.List;
 import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
 
+import org.cthing.gradle.plugins.locc.CountsCache;
+import org.cthing.gradle.plugins.locc.MultiplexedReportWriter;
+import org.gradle.api.Project;
 import org.gradle.api.Task;
+import org.gradle.api.file.DirectoryProperty;
 import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.model.ObjectFactory;
 import org.gradle.api.provider.Property;
 import org.gradle.api.reporting.Report;
+import org.gradle.api.tasks.TaskExecutionException;
 
 import groovy.lang.Closure;
 import groovy.lang.GroovyObjectSupport;
@@ -27,6 +42,8 @@ abstract class AbstractLoccReport extends GroovyObjectSupport implements LoccRep
 
     protected static final String REPORT_BASE_NAME = "locc";
 
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
     protected final Task task;
 
     private final String name;
@@ -35,18 +52,31 @@ abstract class AbstractLoccReport extends GroovyObjectSupport implements LoccRep
     private final Path rootProjectPath;
     private final Property<Boolean> required;
     private final Property<Boolean> showRelativePaths;
+    private final Property<Boolean> compact;
+    private final Property<Boolean> compressed;
+    private final Property<String> projectName;
+    private final Property<String> projectVersion;
 
     protected AbstractLoccReport(final Task task, final String name, final String displayName,
                                  final boolean required) {
         this.task = task;
         this.name = name;
         this.displayName = displayName;
-        this.rootProjectPath = task.getProject().getRootProject().getProjectDir().toPath();
+        final Project project = task.getProject();
+        this.rootProjectPath = project.getRootProject().getProjectDir().toPath();
 
-        final ObjectFactory objects = task.getProject().getObjects();
+        final ObjectFactory objects = project.getObjects();
         this.destination = objects.fileProperty();
         this.required = objects.property(Boolean.class).convention(required);
         this.showRelativePaths = objects.property(Boolean.class).convention(Boolean.TRUE);
+        this.compact = objects.property(Boolean.class).convention(Boolean.FALSE);
+        this.compressed = objects.property(Boolean.class).convention(Boolean.FALSE);
+
+        // The project name and version are properties rather than being read from the project when the report is
+        // written, so that they are inputs of the task generating the report.
+        this.projectName = objects.property(String.class).convention(project.getName());
+        this.projectVersion = objects.property(String.class)
+                                     .convention(project.provider(() -> project.getVersion().toString()));
     }
 
     @Override
@@ -75,11 +105,43 @@ abstract class AbstractLoccReport extends GroovyObjectSupport implements LoccRep
         return this.showRelativePaths;
     }
 
+    @Override
+    public Property<Boolean> getCompact() {
+        return this.compact;
+    }
+
+    @Override
+    public Property<Boolean> getCompressed() {
+        return this.compressed;
+    }
+
+    @Override
+    public Property<String> getProjectName() {
+        return this.projectName;
+    }
+
+    @Override
+    public Property<String> getProjectVersion() {
+        return this.projectVersion;
+    }
+
     @Override
     public RegularFileProperty getOutputLocation() {
         return this.destination;
     }
 
+    /**
+     * Sets the default location of the report file. If the report is compressed, the {@code .gz} suffix is
+     * appended to the specified filename.
+     *
+     * @param reportsDir Directory in which the report file is written
+     * @param filename Name of the uncompressed report file
+     */
+    protected void setDefaultOutputLocation(final DirectoryProperty reportsDir, final String filename) {
+        this.destination.value(reportsDir.file(this.compressed.map(compress -> compress ? filename + ".gz"
+                                                                                        : filename)));
+    }
+
     /**
      * Sets whether the report is required to be generated. This method is only used by Groovy configuration
      * of the report.
@@ -99,6 +161,24 @@ abstract class AbstractLoccReport extends GroovyObjectSupport implements LoccRep
         this.showRelativePaths.set(relative);
     }
 
+    /**
+     * Sets whether the report should be written without indentation.
+     *
+     * @param compact {@code true} if the report should be written without indentation
+     */
+    void setCompact(final boolean compact) {
+        this.compact.set(compact);
+    }
+
+    /**
+     * Sets whether the report file should be compressed using gzip.
+     *
+     * @param compressed {@code true} if the report file should be compressed
+     */
+    void setCompressed(final boolean compressed) {
+        this.compressed.set(compressed);
+    }
+
     @Override
     @SuppressWarnings("rawtypes")
     public Report configure(final Closure closure) {
@@ -109,6 +189,15 @@ abstract class AbstractLoccReport extends GroovyObjectSupport implements LoccRep
         return this;
     }
 
+    @Override
+    public void generateReport(final CountsCache countsCache) {
+        try {
+            MultiplexedReportWriter.write(countsCache, List.of(this), List.of());
+        } catch (final IOException ex) {
+            throw new TaskExecutionException(this.task, ex);
+        }
+    }
+
     /**
      * Provides an ISO 8601 format timestamp.
      *
@@ -131,4 +220,36 @@ abstract class AbstractLoccReport extends GroovyObjectSupport implements LoccRep
         }
         return pathname;
     }
+
+    /**
+     * Creates the report file at its output location. If the report is compressed, the returned stream compresses
+     * the report as it is written. The stream is not buffered.
+     *
+     * @return Stream to which the report is written.
+     * @throws IOException if the report file could not be created
+     */
+    protected OutputStream openOutputStream() throws IOException {
+        final File destination = getOutputLocation().getAsFile().get();
+        final OutputStream out = Files.newOutputStream(destination.toPath());
+        return getCompressed().get() ? new GZIPOutputStream(out, GZIP_BUFFER_SIZE) : out;
+    }
+
+    /**
+     * Base class for encoders that write the report to its output location. The report file is created when the
+     * encoder is created and is closed by the traversal once all counts have been written. If the report is
+     * compressed, the report is compressed as it is written.
+     */
+    protected abstract class FileEncoder implements LoccReportVisitor, Closeable {
+
+        protected final BufferedWriter writer;
+
+        protected FileEncoder() throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(openOutputStream(), StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.writer.close();
+        }
+    }
 }
@@ -0,0 +1,448 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.cthing.gradle.plugins.locc.reports;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * Writes a table in the <a href="https://arrow.apache.org/docs/format/Columnar.html#ipc-file-format">Apache Arrow
+ * IPC file format</a>, which can be memory mapped and queried directly by Arrow based tools such as DuckDB, pandas
+ * and Polars. The file consists of the schema, a dictionary batch for each dictionary encoded column, any number
+ * of record batches and a footer locating the batches. The metadata of each message is encoded as a FlatBuffer
+ * and the column buffers are written little endian and aligned on 8 bytes. Only the column types needed by the
+ * Arrow report are supported, and the dictionary of each dictionary encoded column is identified by the index of
+ * the column.
+ */
+final class ArrowFileWriter {
+
+    /**
+     * Types of columns.
+     */
+    enum ColumnType {
+        /** UTF-8 strings. */
+        UTF8,
+        /** Signed 32-bit integers. */
+        INT32,
+        /** Signed 32-bit indices into a dictionary of UTF-8 strings. */
+        DICTIONARY
+    }
+
+    /**
+     * Description of a column.
+     *
+     * @param name Name of the column
+     * @param type Type of the values in the column
+     * @param nullable {@code true} if the column may contain null values
+     */
+    record Column(String name, ColumnType type, boolean nullable) {
+    }
+
+    private static final byte[] MAGIC = "ARROW1".getBytes(StandardCharsets.US_ASCII);
+    private static final int CONTINUATION = 0xFFFFFFFF;
+    private static final int ALIGNMENT = 8;
+
+    private static final short METADATA_VERSION_V5 = 4;
+    private static final byte HEADER_SCHEMA = 1;
+    private static final byte HEADER_DICTIONARY_BATCH = 2;
+    private static final byte HEADER_RECORD_BATCH = 3;
+    private static final byte TYPE_INT = 2;
+    private static final byte TYPE_UTF8 = 5;
+
+    private final OutputStream out;
+    private final List<Column> columns;
+    private final List<Block> dictionaryBlocks;
+    private final List<Block> recordBlocks;
+    private final byte[] scratch;
+    private long position;
+
+    /**
+     * Creates a writer.
+     *
+     * @param out Destination of the file. The stream is not closed by the writer.
+     * @param columns Columns of the table
+     */
+    ArrowFileWriter(final OutputStream out, final List<Column> columns) {
+        this.out = out;
+        this.columns = List.copyOf(columns);
+        this.dictionaryBlocks = new ArrayList<>();
+        this.recordBlocks = new ArrayList<>();
+        this.scratch = new byte[Long.BYTES];
+    }
+
+    /**
+     * Writes the start of the file and the schema of the table.
+     *
+     * @throws IOException if there was a problem writing the file
+     */
+    void start() throws IOException {
+        write(MAGIC, MAGIC.length);
+        writePadding(MAGIC.length);
+
+        final FlatBufferBuilder builder = new FlatBufferBuilder();
+        final int schema = createSchema(builder);
+        writeMessage(builder, HEADER_SCHEMA, schema, List.of());
+    }
+
+    /**
+     * Writes the dictionary of a dictionary encoded column. The dictionary must be written before the first record
+     * batch.
+     *
+     * @param column Index of the dictionary encoded column
+     * @param values Values of the dictionary, which are referenced by their index
+     * @throws IOException if there was a problem writing the file
+     */
+    void writeDictionary(final int column, final Utf8Vector values) throws IOException {
+        final List<BodyBuffer> body = new ArrayList<>();
+        final FlatBufferBuilder builder = new FlatBufferBuilder();
+        final int data = createRecordBatch(builder, List.of(values), body);
+        builder.startTable(3);
+        builder.addLong(0, column);
+        builder.addOffset(1, data);
+        final int batch = builder.endTable();
+        this.dictionaryBlocks.add(writeMessage(builder, HEADER_DICTIONARY_BATCH, batch, body));
+    }
+
+    /**
+     * Writes a batch of rows.
+     *
+     * @param vectors Values of each column of the rows, in the order of the columns. All vectors must have the
+     *      same length.
+     * @throws IOException if there was a problem writing the file
+     */
+    void writeRecordBatch(final List<? extends Vector> vectors) throws IOException {
+        final List<BodyBuffer> body = new ArrayList<>();
+        final FlatBufferBuilder builder = new FlatBufferBuilder();
+        final int batch = createRecordBatch(builder, vectors, body);
+        this.recordBlocks.add(writeMessage(builder, HEADER_RECORD_BATCH, batch, body));
+    }
+
+    /**
+     * Writes the end of the stream of messages and the footer, which completes the file.
+     *
+     * @throws IOException if there was a problem writing the file
+     */
+    void finish() throws IOException {
+        writeInt(CONTINUATION);
+        writeInt(0);
+
+        final FlatBufferBuilder builder = new FlatBufferBuilder();
+        final int schema = createSchema(builder);
+        final int dictionaries = createBlockVector(builder, this.dictionaryBlocks);
+        final int recordBatches = createBlockVector(builder, this.recordBlocks);
+        builder.startTable(5);
+        builder.addShort(0, METADATA_VERSION_V5);
+        builder.addOffset(1, schema);
+        builder.addOffset(2, dictionaries);
+        builder.addOffset(3, recordBatches);
+        final byte[] footer = builder.finish(builder.endTable());
+
+        write(footer, footer.length);
+        writeInt(footer.length);
+        write(MAGIC, MAGIC.length);
+    }
+
+    private int createSchema(final FlatBufferBuilder builder) {
+        final int[] fields = new int[this.columns.size()];
+        for (int i = 0; i < fields.length; i++) {
+            final Column column = this.columns.get(i);
+            final int name = builder.createString(column.name());
+            final int type;
+            int dictionary = 0;
+            if (column.type() == ColumnType.INT32) {
+                type = createIntType(builder);
+            } else {
+                builder.startTable(0);
+                type = builder.endTable();
+                if (column.type() == ColumnType.DICTIONARY) {
+                    final int indexType = createIntType(builder);
+                    builder.startTable(4);
+                    builder.addLong(0, i);
+                    builder.addOffset(1, indexType);
+                    dictionary = builder.endTable();
+                }
+            }
+            final int children = builder.createOffsetVector(new int[0]);
+
+            builder.startTable(7);
+            builder.addOffset(0, name);
+            builder.addBoolean(1, column.nullable());
+            builder.addByte(2, column.type() == ColumnType.INT32 ? TYPE_INT : TYPE_UTF8);
+            builder.addOffset(3, type);
+            if (dictionary != 0) {
+                builder.addOffset(4, dictionary);
+            }
+            builder.addOffset(5, children);
+            fields[i] = builder.endTable();
+        }
+
+        final int fieldVector = builder.createOffsetVector(fields);
+        builder.startTable(4);
+        builder.addShort(0, (short)0);
+        builder.addOffset(1, fieldVector);
+        return builder.endTable();
+    }
+
+    private static int createIntType(final FlatBufferBuilder builder) {
+        builder.startTable(2);
+        builder.addInt(0, Integer.SIZE);
+        builder.addBoolean(1, true);
+        return builder.endTable();
+    }
+
+    private static int createRecordBatch(final FlatBufferBuilder builder, final List<? extends Vector> vectors,
+                                         final List<BodyBuffer> body) {
+        final int length = vectors.isEmpty() ? 0 : vectors.get(0).length();
+        for (final Vector vector : vectors) {
+            vector.addBuffers(body);
+        }
+
+        builder.startVector(2 * Long.BYTES, vectors.size(), Long.BYTES);
+        for (int i = vectors.size() - 1; i >= 0; i--) {
+            builder.putLong(vectors.get(i).nullCount());
+            builder.putLong(vectors.get(i).length());
+        }
+        final int nodes = builder.endVector();
+
+        final long[] offsets = new long[body.size()];
+        long offset = 0;
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = offset;
+            offset += align(body.get(i).length());
+        }
+        builder.startVector(2 * Long.BYTES, body.size(), Long.BYTES);
+        for (int i = body.size() - 1; i >= 0; i--) {
+            builder.putLong(body.get(i).length());
+            builder.putLong(offsets[i]);
+        }
+        final int buffers = builder.endVector();
+
+        builder.startTable(3);
+        builder.addLong(0, length);
+        builder.addOffset(1, nodes);
+        builder.addOffset(2, buffers);
+        return builder.endTable();
+    }
+
+    private static int createBlockVector(final FlatBufferBuilder builder, final List<Block> blocks) {
+        builder.startVector(3 * Long.BYTES, blocks.size(), Long.BYTES);
+        for (int i = blocks.size() - 1; i >= 0; i--) {
+            final Block block = blocks.get(i);
+            builder.putLong(block.bodyLength());
+            builder.pad(Integer.BYTES);
+            builder.putInt(block.metadataLength());
+            builder.putLong(block.offset());
+        }
+        return builder.endVector();
+    }
+
+    /**
+     * Writes an encapsulated message, which consists of a continuation marker, the length of the metadata, the
+     * metadata padded to 8 bytes, and the body.
+     */
+    private Block writeMessage(final FlatBufferBuilder builder, final byte headerType, final int header,
+                               final List<BodyBuffer> body) throws IOException {
+        long bodyLength = 0;
+        for (final BodyBuffer buffer : body) {
+            bodyLength += align(buffer.length());
+        }
+
+        builder.startTable(5);
+        builder.addShort(0, METADATA_VERSION_V5);
+        builder.addByte(1, headerType);
+        builder.addOffset(2, header);
+        builder.addLong(3, bodyLength);
+        final byte[] metadata = builder.finish(builder.endTable());
+
+        final long offset = this.position;
+        final int metadataLength = (int)align(metadata.length);
+        writeInt(CONTINUATION);
+        writeInt(metadataLength);
+        write(metadata, metadata.length);
+        writePadding(metadata.length);
+        for (final BodyBuffer buffer : body) {
+            write(buffer.data(), buffer.length());
+            writePadding(buffer.length());
+        }
+        return new Block(offset, 2 * Integer.BYTES + metadataLength, bodyLength);
+    }
+
+    private void write(final byte[] data, final int length) throws IOException {
+        this.out.write(data, 0, length);
+        this.position += length;
+    }
+
+    private void writeInt(final int value) throws IOException {
+        putInt(this.scratch, 0, value);
+        write(this.scratch, Integer.BYTES);
+    }
+
+    private void writePadding(final long length) throws IOException {
+        final int padding = (int)(align(length) - length);
+        Arrays.fill(this.scratch, (byte)0);
+        write(this.scratch, padding);
+    }
+
+    private static long align(final long length) {
+        return (length + ALIGNMENT - 1) & -ALIGNMENT;
+    }
+
+    private static void putInt(final byte[] bytes, final int index, final int value) {
+        bytes[index] = (byte)value;
+        bytes[index + 1] = (byte)(value >>> 8);
+        bytes[index + 2] = (byte)(value >>> 16);
+        bytes[index + 3] = (byte)(value >>> 24);
+    }
+
+    /**
+     * Location of a message in the file.
+     *
+     * @param offset Offset of the start of the message from the start of the file
+     * @param metadataLength Length of the message prefix and padded metadata
+     * @param bodyLength Length of the message body
+     */
+    private record Block(long offset, int metadataLength, long bodyLength) {
+    }
+
+    /**
+     * Buffer of a vector written to a message body.
+     *
+     * @param data Contents of the buffer
+     * @param length Number of bytes of the contents that are used
+     */
+    private record BodyBuffer(byte[] data, int length) {
+    }
+
+    /**
+     * Values of a column in a record batch. A vector is reused for each batch by clearing it once the batch has
+     * been written.
+     */
+    abstract static class Vector {
+
+        protected int length;
+        protected int nullCount;
+
+        int length() {
+            return this.length;
+        }
+
+        int nullCount() {
+            return this.nullCount;
+        }
+
+        /**
+         * Removes all values from the vector.
+         */
+        void clear() {
+            this.length = 0;
+            this.nullCount = 0;
+        }
+
+        /**
+         * Adds the buffers of the vector, in the order defined by the Arrow columnar format, to the specified list.
+         *
+         * @param buffers List to which the buffers are added
+         */
+        abstract void addBuffers(List<BodyBuffer> buffers);
+
+        protected static byte[] ensureCapacity(final byte[] bytes, final int required) {
+            return (required <= bytes.length) ? bytes : Arrays.copyOf(bytes, Math.max(required, bytes.length * 2));
+        }
+    }
+
+    /**
+     * Vector of non-null UTF-8 strings.
+     */
+    static final class Utf8Vector extends Vector {
+
+        private byte[] offsets;
+        private byte[] data;
+        private int dataLength;
+
+        Utf8Vector(final int capacity) {
+            this.offsets = new byte[(capacity + 1) * Integer.BYTES];
+            this.data = new byte[capacity * Integer.BYTES];
+        }
+
+        void add(final String value) {
+            add(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        void add(final byte[] value) {
+            this.data = ensureCapacity(this.data, this.dataLength + value.length);
+            System.arraycopy(value, 0, this.data, this.dataLength, value.length);
+            this.dataLength += value.length;
+            this.length++;
+            this.offsets = ensureCapacity(this.offsets, (this.length + 1) * Integer.BYTES);
+            putInt(this.offsets, this.length * Integer.BYTES, this.dataLength);
+        }
+
+        @Override
+        void clear() {
+            super.clear();
+            this.dataLength = 0;
+        }
+
+        @Override
+        void addBuffers(final List<BodyBuffer> buffers) {
+            buffers.add(new BodyBuffer(this.offsets, 0));
+            buffers.add(new BodyBuffer(this.offsets, (this.length + 1) * Integer.BYTES));
+            buffers.add(new BodyBuffer(this.data, this.dataLength));
+        }
+    }
+
+    /**
+     * Vector of signed 32-bit integers, which may be null.
+     */
+    static final class IntVector extends Vector {
+
+        private byte[] validity;
+        private byte[] values;
+
+        IntVector(final int capacity) {
+            this.validity = new byte[(capacity + Byte.SIZE - 1) / Byte.SIZE];
+            this.values = new byte[capacity * Integer.BYTES];
+        }
+
+        void add(final int value) {
+            ensureCapacity();
+            this.validity[this.length / Byte.SIZE] |= (byte)(1 << (this.length % Byte.SIZE));
+            putInt(this.values, this.length * Integer.BYTES, value);
+            this.length++;
+        }
+
+        void addNull() {
+            ensureCapacity();
+            putInt(this.values, this.length * Integer.BYTES, 0);
+            this.length++;
+            this.nullCount++;
+        }
+
+        @Override
+        void clear() {
+            Arrays.fill(this.validity, 0, (this.length + Byte.SIZE - 1) / Byte.SIZE, (byte)0);
+            super.clear();
+        }
+
+        @Override
+        void addBuffers(final List<BodyBuffer> buffers) {
+            // The validity bitmap may be omitted when there are no nulls.
+            buffers.add(new BodyBuffer(this.validity,
+                                       (this.nullCount == 0) ? 0 : (this.length + Byte.SIZE - 1) / Byte.SIZE));
+            buffers.add(new BodyBuffer(this.values, this.length * Integer.BYTES));
+        }
+
+        private void ensureCapacity() {
+            this.validity = ensureCapacity(this.validity, this.length / Byte.SIZE + 1);
+            this.values = ensureCapacity(this.values, (this.length + 1) * Integer.BYTES);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.cthing.gradle.plugins.locc.reports;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Inject;
+
+import org.cthing.gradle.plugins.locc.reports.ArrowFileWriter.Column;
+import org.cthing.gradle.plugins.locc.reports.ArrowFileWriter.ColumnType;
+import org.cthing.gradle.plugins.locc.reports.ArrowFileWriter.IntVector;
+import org.cthing.gradle.plugins.locc.reports.ArrowFileWriter.Utf8Vector;
+import org.cthing.locc4j.Counts;
+import org.cthing.locc4j.Language;
+import org.gradle.api.Task;
+import org.gradle.api.file.DirectoryProperty;
+import org.jspecify.annotations.Nullable;
+
+
+/**
+ * Generates a per-file line count report in the
+ * <a href="https://arrow.apache.org/docs/format/Columnar.html#ipc-file-format">Apache Arrow IPC file format</a>,
+ * which can be loaded without parsing by DuckDB, pandas, Polars and other Arrow based tools. The report is a table
+ * with a row for each language in each file, and the columns {@code path}, {@code language}, {@code total},
+ * {@code code}, {@code comment} and {@code blank}. The language column contains the language IDs and is
+ * dictionary encoded. Files without any language, such as unrecognized files, have a single row with a null
+ * language. Rows are written in batches as the files are traversed, so the memory used is independent of the
+ * number of files.
+ */
+public final class ArrowReport extends AbstractLoccReport {
+
+    private static final int BATCH_SIZE = 64 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int LANGUAGE_COLUMN = 1;
+    private static final List<Column> COLUMNS = List.of(new Column("path", ColumnType.UTF8, false),
+                                                        new Column("language", ColumnType.DICTIONARY, true),
+                                                        new Column("total", ColumnType.INT32, false),
+                                                        new Column("code", ColumnType.INT32, false),
+                                                        new Column("comment", ColumnType.INT32, false),
+                                                        new Column("blank", ColumnType.INT32, false));
+
+    @Inject
+    public ArrowReport(final Task task, final DirectoryProperty reportsDir) {
+        super(task, "arrow", "Per-file report in Apache Arrow IPC format", false);
+        setDefaultOutputLocation(reportsDir, REPORT_BASE_NAME + ".arrow");
+    }
+
+    @Override
+    public LoccReportVisitor createEncoder() throws IOException {
+        return new Encoder();
+    }
+
+    /**
+     * Collects the rows of each file as it is traversed and writes them once a batch is full. The language
+     * dictionary is built from the languages, which are traversed before the files, and is written before the
+     * first batch.
+     */
+    private final class Encoder implements LoccReportVisitor, Closeable {
+
+        private final OutputStream out;
+        private final ArrowFileWriter arrowWriter;
+        private final Map<Language, Integer> languageIds;
+        private final Utf8Vector dictionary;
+        private final Utf8Vector paths;
+        private final IntVector languages;
+        private final IntVector totalLines;
+        private final IntVector codeLines;
+        private final IntVector commentLines;
+        private final IntVector blankLines;
+        private final List<ArrowFileWriter.Vector> vectors;
+        private boolean dictionaryWritten;
+
+        Encoder() throws IOException {
+            this.out = new BufferedOutputStream(openOutputStream(), BUFFER_SIZE);
+            this.arrowWriter = new ArrowFileWriter(this.out, COLUMNS);
+            this.languageIds = new EnumMap<>(Language.class);
+            this.dictionary = new Utf8Vector(Language.values().length);
+            this.paths = new Utf8Vector(BATCH_SIZE);
+            this.languages = new IntVector(BATCH_SIZE);
+            this.totalLines = new IntVector(BATCH_SIZE);
+            this.codeLines = new IntVector(BATCH_SIZE);
+            this.commentLines = new IntVector(BATCH_SIZE);
+            this.blankLines = new IntVector(BATCH_SIZE);
+            this.vectors = List.of(this.paths, this.languages, this.totalLines, this.codeLines, this.commentLines,
+                                   this.blankLines);
+        }
+
+        @Override
+        public void start(final Summary summary) throws IOException {
+            this.arrowWriter.start();
+        }
+
+        @Override
+        public void language(final Language language, final int numFiles, final Counts counts) {
+            this.languageIds.put(language, this.dictionary.length());
+            this.dictionary.add(language.name());
+        }
+
+        @Override
+        public void file(final Path path, final boolean unrecognized, final Counts total,
+                         final Map<Language, Counts> counts) throws IOException {
+            final byte[] pathname = preparePathname(path).toString().getBytes(StandardCharsets.UTF_8);
+            if (counts.isEmpty()) {
+                addRow(pathname, null, total);
+            } else {
+                for (final Map.Entry<Language, Counts> entry : counts.entrySet()) {
+                    addRow(pathname, this.languageIds.get(entry.getKey()), entry.getValue());
+                }
+            }
+        }
+
+        @Override
+        public void end() throws IOException {
+            writeBatch();
+            this.arrowWriter.finish();
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.out.close();
+        }
+
+        private void addRow(final byte[] pathname, @Nullable final Integer languageId,
+                            final Counts counts) throws IOException {
+            if (this.paths.length() == BATCH_SIZE) {
+                writeBatch();
+            }
+
+            this.paths.add(pathname);
+            if (languageId == null) {
+                this.languages.addNull();
+            } else {
+                this.languages.add(languageId);
+            }
+            this.totalLines.add(counts.getTotalLines());
+            this.codeLines.add(counts.getCodeLines());
+            this.commentLines.add(counts.getCommentLines());
+            this.blankLines.add(counts.getBlankLines());
+        }
+
+        private void writeBatch() throws IOException {
+            if (!this.dictionaryWritten) {
+                this.arrowWriter.writeDictionary(LANGUAGE_COLUMN, this.dictionary);
+                this.dictionaryWritten = true;
+            }
+            if (this.paths.length() > 0) {
+                this.arrowWriter.writeRecordBatch(this.vectors);
+                for (final ArrowFileWriter.Vector vector : this.vectors) {
+                    vector.clear();
+                }
+            }
+        }
+    }
+}
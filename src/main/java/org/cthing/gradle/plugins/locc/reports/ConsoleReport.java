@@ -5,20 +5,16 @@
 
 package org.cthing.gradle.plugins.locc.reports;
 
-import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
 
 import javax.inject.Inject;
 
-import org.cthing.gradle.plugins.locc.CountsCache;
 import org.cthing.locc4j.Counts;
 import org.cthing.locc4j.Language;
 import org.gradle.api.Task;
 import org.gradle.api.file.DirectoryProperty;
+import org.jspecify.annotations.Nullable;
 
 
 /**
@@ -26,6 +22,9 @@ import org.gradle.api.file.DirectoryProperty;
  */
 public final class ConsoleReport extends AbstractLoccReport {
 
+    private record Row(String name, int numFiles, Counts counts) {
+    }
+
     private static final class Widths {
         int language;
         int files;
@@ -45,74 +44,90 @@ public final class ConsoleReport extends AbstractLoccReport {
     }
 
     @Override
-    public void generateReport(final CountsCache countsCache) {
-        final Map<Language, Counts> langCounts = countsCache.getLanguageCounts();
-        final List<Language> languages = new ArrayList<>(langCounts.keySet());
-        languages.sort(Comparator.comparing(Language::getDisplayName));
-        final Map<Language, Set<Path>> langPathCounts = countsCache.getLanguagePathCounts();
-        final Counts total = countsCache.getTotalCounts();
-        final Widths widths = new Widths();
-
-        widths.language = "Language".length();
-        widths.files = "Files".length();
-        widths.blank = "Blank".length();
-        widths.comment = "Comment".length();
-        widths.code = "Code".length();
-
-        for (final Language language : languages) {
-            final String name = language.getDisplayName();
-            final Set<Path> paths = langPathCounts.get(language);
-            final Counts counts = langCounts.get(language);
-
-            widths.language = maxWidth(widths.language, name);
-            widths.blank = maxWidth(widths.blank, counts.getBlankLines());
-            widths.comment = maxWidth(widths.comment, counts.getCommentLines());
-            widths.code = maxWidth(widths.code, counts.getCodeLines());
-            widths.files = maxWidth(widths.files, paths.size());
-        }
+    public LoccReportVisitor createEncoder() {
+        return new Encoder();
+    }
+
+    /**
+     * Collects the language counts as they are traversed and logs the table at the end of the traversal, once the
+     * column widths are known.
+     */
+    private final class Encoder implements LoccReportVisitor {
 
-        widths.language = maxWidth(widths.language, "Total");
-        widths.blank = maxWidth(widths.blank, total.getBlankLines());
-        widths.comment = maxWidth(widths.comment, total.getCommentLines());
-        widths.code = maxWidth(widths.code, total.getCodeLines());
-
-        final int totalWidth = widths.language + widths.files + widths.blank + widths.comment + widths.code
-                               + 4 * COL_SEPARATOR;
-        final String divider = "-".repeat(totalWidth);
-
-        final StringBuilder builder = new StringBuilder();
-
-        builder.append(divider).append('\n')
-               .append(leftAlign("Language", widths.language)).append(COL_PADDING)
-               .append(leftAlign("Files", widths.files)).append(COL_PADDING)
-               .append(leftAlign("Blank", widths.blank)).append(COL_PADDING)
-               .append(leftAlign("Comment", widths.comment)).append(COL_PADDING)
-               .append("Code").append('\n')
-               .append(divider).append('\n');
-
-        for (final Language language : languages) {
-            final String name = language.getDisplayName();
-            final Set<Path> paths = langPathCounts.get(language);
-            final Counts counts = langCounts.get(language);
-
-            builder.append(leftAlign(name, widths.language)).append(COL_PADDING)
-                   .append(rightAlign(paths.size(), widths.files)).append(COL_PADDING)
-                   .append(rightAlign(counts.getBlankLines(), widths.blank)).append(COL_PADDING)
-                   .append(rightAlign(counts.getCommentLines(), widths.comment)).append(COL_PADDING)
-                   .append(rightAlign(counts.getCodeLines(), widths.code))
-                   .append('\n');
+        private final List<Row> rows = new ArrayList<>();
+
+        @Nullable
+        private Counts total;
+
+        @Override
+        public void start(final Summary summary) {
+            this.rows.clear();
+            this.total = summary.total();
         }
 
-        builder.append(divider).append('\n')
-               .append(leftAlign("Total", widths.language)).append(COL_PADDING)
-               .append(" ".repeat(widths.files)).append(COL_PADDING)
-               .append(rightAlign(total.getBlankLines(), widths.blank)).append(COL_PADDING)
-               .append(rightAlign(total.getCommentLines(), widths.comment)).append(COL_PADDING)
-               .append(rightAlign(total.getCodeLines(), widths.code))
-               .append('\n')
-               .append(divider).append('\n');
+        @Override
+        public void language(final Language language, final int numFiles, final Counts counts) {
+            this.rows.add(new Row(language.getDisplayName(), numFiles, counts));
+        }
 
-        this.task.getLogger().lifecycle(builder.toString());
+        @Override
+        public void end() {
+            assert this.total != null;
+            final Widths widths = new Widths();
+
+            widths.language = "Language".length();
+            widths.files = "Files".length();
+            widths.blank = "Blank".length();
+            widths.comment = "Comment".length();
+            widths.code = "Code".length();
+
+            for (final Row row : this.rows) {
+                widths.language = maxWidth(widths.language, row.name());
+                widths.blank = maxWidth(widths.blank, row.counts().getBlankLines());
+                widths.comment = maxWidth(widths.comment, row.counts().getCommentLines());
+                widths.code = maxWidth(widths.code, row.counts().getCodeLines());
+                widths.files = maxWidth(widths.files, row.numFiles());
+            }
+
+            widths.language = maxWidth(widths.language, "Total");
+            widths.blank = maxWidth(widths.blank, this.total.getBlankLines());
+            widths.comment = maxWidth(widths.comment, this.total.getCommentLines());
+            widths.code = maxWidth(widths.code, this.total.getCodeLines());
+
+            final int totalWidth = widths.language + widths.files + widths.blank + widths.comment + widths.code
+                                   + 4 * COL_SEPARATOR;
+            final String divider = "-".repeat(totalWidth);
+
+            final StringBuilder builder = new StringBuilder();
+
+            builder.append(divider).append('\n')
+                   .append(leftAlign("Language", widths.language)).append(COL_PADDING)
+                   .append(leftAlign("Files", widths.files)).append(COL_PADDING)
+                   .append(leftAlign("Blank", widths.blank)).append(COL_PADDING)
+                   .append(leftAlign("Comment", widths.comment)).append(COL_PADDING)
+                   .append("Code").append('\n')
+                   .append(divider).append('\n');
+
+            for (final Row row : this.rows) {
+                builder.append(leftAlign(row.name(), widths.language)).append(COL_PADDING)
+                       .append(rightAlign(row.numFiles(), widths.files)).append(COL_PADDING)
+                       .append(rightAlign(row.counts().getBlankLines(), widths.blank)).append(COL_PADDING)
+                       .append(rightAlign(row.counts().getCommentLines(), widths.comment)).append(COL_PADDING)
+                       .append(rightAlign(row.counts().getCodeLines(), widths.code))
+                       .append('\n');
+            }
+
+            builder.append(divider).append('\n')
+                   .append(leftAlign("Total", widths.language)).append(COL_PADDING)
+                   .append(" ".repeat(widths.files)).append(COL_PADDING)
+                   .append(rightAlign(this.total.getBlankLines(), widths.blank)).append(COL_PADDING)
+                   .append(rightAlign(this.total.getCommentLines(), widths.comment)).append(COL_PADDING)
+                   .append(rightAlign(this.total.getCodeLines(), widths.code))
+                   .append('\n')
+                   .append(divider).append('\n');
+
+            ConsoleReport.this.task.getLogger().lifecycle(builder.toString());
+        }
     }
 
     private int maxWidth(final int existing, final String value) {
@@ -5,28 +5,17 @@
 
 package org.cthing.gradle.plugins.locc.reports;
 
-import java.io.BufferedWriter;
-import java.io.File;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
 import java.io.Writer;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.List;
-import java.util.Map;
 
 import javax.inject.Inject;
 
 import org.cthing.annotations.AccessForTesting;
 import org.cthing.escapers.CsvEscaper;
-import org.cthing.gradle.plugins.locc.CountsCache;
 import org.cthing.locc4j.Counts;
 import org.cthing.locc4j.Language;
 import org.gradle.api.Task;
 import org.gradle.api.file.DirectoryProperty;
-import org.gradle.api.tasks.TaskExecutionException;
 import org.jspecify.annotations.Nullable;
 
 
@@ -39,34 +28,38 @@ public final class CsvReport extends AbstractLoccReport {
     @Inject
     public CsvReport(final Task task, final DirectoryProperty reportsDir) {
         super(task, "csv", "Report in CSV format", false);
-        getOutputLocation().value(reportsDir.file(REPORT_BASE_NAME + ".csv"));
+        setDefaultOutputLocation(reportsDir, REPORT_BASE_NAME + ".csv");
     }
 
     @Override
-    public void generateReport(final CountsCache countsCache) {
-        final Counts totalCounts = countsCache.getTotalCounts();
+    public LoccReportVisitor createEncoder() throws IOException {
+        return new Encoder();
+    }
+
+    /**
+     * Writes the CSV report as the counts are traversed. Only the language counts are reported.
+     */
+    private final class Encoder extends FileEncoder {
 
-        final File destination = getOutputLocation().getAsFile().get();
-        try (BufferedWriter writer =
-                     new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(destination.toPath()),
-                                                               StandardCharsets.UTF_8))) {
-            writeln(writer, "ID,Name,Description,Total Lines,Code Lines,Comment Lines,Blank Lines");
-            writeln(writer, String.format("ALL,All,All languages,%d,%d,%d,%d",
-                                          totalCounts.getTotalLines(), totalCounts.getCodeLines(),
-                                          totalCounts.getCommentLines(), totalCounts.getBlankLines()));
+        Encoder() throws IOException {
+        }
+
+        @Override
+        public void start(final Summary summary) throws IOException {
+            final Counts totalCounts = summary.total();
+            writeln(this.writer, "ID,Name,Description,Total Lines,Code Lines,Comment Lines,Blank Lines");
+            writeln(this.writer, String.format("ALL,All,All languages,%d,%d,%d,%d",
+                                               totalCounts.getTotalLines(), totalCounts.getCodeLines(),
+                                               totalCounts.getCommentLines(), totalCounts.getBlankLines()));
+        }
 
-            final Map<Language, Counts> langCounts = countsCache.getLanguageCounts();
-            final List<Language> languages = new ArrayList<>(langCounts.keySet());
-            languages.sort(Comparator.comparing(Language::getDisplayName));
-            for (final Language language : languages) {
-                final Counts counts = langCounts.get(language);
-                writeln(writer, String.format("%s,%s,%s,%d,%d,%d,%d", escape(language.name()),
-                                              escape(language.getDisplayName()), escape(language.getDescription()),
-                                              counts.getTotalLines(), counts.getCodeLines(),
-                                              counts.getCommentLines(), counts.getBlankLines()));
-            }
-        } catch (final IOException ex) {
-            throw new TaskExecutionException(this.task, ex);
+        @Override
+        public void language(final Language language, final int numFiles, final Counts counts) throws IOException {
+            writeln(this.writer, String.format("%s,%s,%s,%d,%d,%d,%d", escape(language.name()),
+                                               escape(language.getDisplayName()),
+                                               escape(language.getDescription()),
+                                               counts.getTotalLines(), counts.getCodeLines(),
+                                               counts.getCommentLines(), counts.getBlankLines()));
         }
     }
 
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.cthing.gradle.plugins.locc.reports;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.Map;
+
+import javax.inject.Inject;
+
+import org.cthing.annotations.AccessForTesting;
+import org.cthing.locc4j.Counts;
+import org.cthing.locc4j.Language;
+import org.gradle.api.Task;
+import org.gradle.api.file.DirectoryProperty;
+
+
+/**
+ * Generates a per-file line count report in the
+ * <a href="https://en.wikipedia.org/wiki/Comma-separated_values">comma-separated values format</a>. Each file has
+ * a row with the {@code ALL} language ID containing the total counts of the file, followed by a row for each
+ * language in the file. Unrecognized files only have the {@code ALL} row. Rows are written as the files are
+ * traversed, and the counts are written without formatting strings, so reports with millions of rows are written
+ * quickly and in constant memory.
+ */
+public final class FileCsvReport extends AbstractLoccReport {
+
+    private static final String ALL_LANGUAGES = "ALL";
+    private static final String EOL = "\r\n";
+    private static final int MAX_DIGITS = 10;
+
+    @Inject
+    public FileCsvReport(final Task task, final DirectoryProperty reportsDir) {
+        super(task, "fileCsv", "Per-file report in CSV format", false);
+        setDefaultOutputLocation(reportsDir, REPORT_BASE_NAME + "-files.csv");
+    }
+
+    @Override
+    public LoccReportVisitor createEncoder() throws IOException {
+        return new Encoder();
+    }
+
+    /**
+     * Writes the rows of each file as it is traversed.
+     */
+    private final class Encoder extends FileEncoder {
+
+        private final char[] digits = new char[MAX_DIGITS];
+
+        Encoder() throws IOException {
+        }
+
+        @Override
+        public void start(final Summary summary) throws IOException {
+            this.writer.write("Pathname,Language,Total Lines,Code Lines,Comment Lines,Blank Lines");
+            this.writer.write(EOL);
+        }
+
+        @Override
+        public void file(final Path path, final boolean unrecognized, final Counts total,
+                         final Map<Language, Counts> counts) throws IOException {
+            final String pathname = CsvReport.escape(preparePathname(path).toString());
+            writeRow(pathname, ALL_LANGUAGES, total);
+            for (final Map.Entry<Language, Counts> entry : counts.entrySet()) {
+                writeRow(pathname, entry.getKey().name(), entry.getValue());
+            }
+        }
+
+        private void writeRow(final String pathname, final String language, final Counts counts)
+                throws IOException {
+            this.writer.write(pathname);
+            this.writer.write(',');
+            this.writer.write(language);
+            this.writer.write(',');
+            writeCount(this.writer, this.digits, counts.getTotalLines());
+            this.writer.write(',');
+            writeCount(this.writer, this.digits, counts.getCodeLines());
+            this.writer.write(',');
+            writeCount(this.writer, this.digits, counts.getCommentLines());
+            this.writer.write(',');
+            writeCount(this.writer, this.digits, counts.getBlankLines());
+            this.writer.write(EOL);
+        }
+    }
+
+    /**
+     * Writes the decimal representation of a count without creating a string for it.
+     *
+     * @param writer Destination for the count
+     * @param digits Scratch buffer large enough to hold the digits of any non-negative {@code int}
+     * @param value Count to write
+     * @throws IOException if there was a problem writing the count
+     */
+    @AccessForTesting
+    static void writeCount(final Writer writer, final char[] digits, final int value) throws IOException {
+        if (value < 0) {
+            writer.write(Integer.toString(value, 10));
+            return;
+        }
+
+        int pos = digits.length;
+        int remaining = value;
+        do {
+            digits[--pos] = (char)('0' + remaining % 10);
+            remaining /= 10;
+        } while (remaining != 0);
+        writer.write(digits, pos, digits.length - pos);
+    }
+}
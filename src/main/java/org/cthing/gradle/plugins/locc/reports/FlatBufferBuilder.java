@@ -0,0 +1,248 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.cthing.gradle.plugins.locc.reports;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+
+/**
+ * Minimal builder of <a href="https://flatbuffers.dev/">FlatBuffers</a>, used to encode the metadata of the
+ * Arrow report. As with the builder of the FlatBuffers library, the buffer is built from back to front so that
+ * every object is complete before it is referenced, and objects are identified by their offset from the end of
+ * the buffer. Only the features needed by the Arrow metadata are provided. In particular, tables cannot contain
+ * structs and vtables are not shared between tables.
+ */
+final class FlatBufferBuilder {
+
+    private static final int INITIAL_SIZE = 1024;
+
+    private ByteBuffer buffer;
+    private int space;
+    private int minAlign;
+    private int[] vtable;
+    private int objectStart;
+    private int vectorNumElems;
+
+    FlatBufferBuilder() {
+        this.buffer = ByteBuffer.allocate(INITIAL_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        this.space = INITIAL_SIZE;
+        this.minAlign = 1;
+        this.vtable = new int[0];
+    }
+
+    /**
+     * Obtains the offset of the most recently written data from the end of the buffer.
+     *
+     * @return Offset from the end of the buffer.
+     */
+    int offset() {
+        return this.buffer.capacity() - this.space;
+    }
+
+    /**
+     * Writes zero bytes.
+     *
+     * @param numBytes Number of zero bytes to write
+     */
+    void pad(final int numBytes) {
+        for (int i = 0; i < numBytes; i++) {
+            this.buffer.put(--this.space, (byte)0);
+        }
+    }
+
+    /**
+     * Pads the buffer so that once the specified number of additional bytes have been written, a value of the
+     * specified size will be aligned on its size. The buffer is grown as necessary.
+     *
+     * @param size Size of the value to align, in bytes
+     * @param additionalBytes Number of bytes that will be written before the value
+     */
+    void prep(final int size, final int additionalBytes) {
+        if (size > this.minAlign) {
+            this.minAlign = size;
+        }
+        final int alignSize = (~(offset() + additionalBytes) + 1) & (size - 1);
+        while (this.space < alignSize + size + additionalBytes) {
+            grow();
+        }
+        pad(alignSize);
+    }
+
+    void putByte(final byte value) {
+        this.buffer.put(--this.space, value);
+    }
+
+    void putShort(final short value) {
+        this.space -= Short.BYTES;
+        this.buffer.putShort(this.space, value);
+    }
+
+    void putInt(final int value) {
+        this.space -= Integer.BYTES;
+        this.buffer.putInt(this.space, value);
+    }
+
+    void putLong(final long value) {
+        this.space -= Long.BYTES;
+        this.buffer.putLong(this.space, value);
+    }
+
+    /**
+     * Creates a string.
+     *
+     * @param value String to create
+     * @return Offset of the string.
+     */
+    int createString(final String value) {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        prep(Integer.BYTES, bytes.length + 1);
+        putByte((byte)0);
+        this.space -= bytes.length;
+        this.buffer.put(this.space, bytes);
+        putInt(bytes.length);
+        return offset();
+    }
+
+    /**
+     * Creates a vector of references to previously created objects.
+     *
+     * @param offsets Offsets of the objects
+     * @return Offset of the vector.
+     */
+    int createOffsetVector(final int[] offsets) {
+        startVector(Integer.BYTES, offsets.length, Integer.BYTES);
+        for (int i = offsets.length - 1; i >= 0; i--) {
+            putOffset(offsets[i]);
+        }
+        return endVector();
+    }
+
+    /**
+     * Starts a vector whose elements are written directly using the put methods, such as a vector of structs.
+     * The elements must be written in reverse order, and the vector completed by calling {@link #endVector()}.
+     *
+     * @param elemSize Size of each element, in bytes
+     * @param numElems Number of elements in the vector
+     * @param alignment Alignment of the elements, in bytes
+     */
+    void startVector(final int elemSize, final int numElems, final int alignment) {
+        this.vectorNumElems = numElems;
+        prep(Integer.BYTES, elemSize * numElems);
+        prep(alignment, elemSize * numElems);
+    }
+
+    /**
+     * Completes the vector started by {@link #startVector(int, int, int)}.
+     *
+     * @return Offset of the vector.
+     */
+    int endVector() {
+        putInt(this.vectorNumElems);
+        return offset();
+    }
+
+    /**
+     * Starts a table. Any strings, vectors and tables referenced by the table must be created before the table is
+     * started.
+     *
+     * @param numFields Number of fields in the table schema
+     */
+    void startTable(final int numFields) {
+        this.vtable = new int[numFields];
+        this.objectStart = offset();
+    }
+
+    void addBoolean(final int field, final boolean value) {
+        prep(Byte.BYTES, 0);
+        putByte(value ? (byte)1 : (byte)0);
+        this.vtable[field] = offset();
+    }
+
+    void addByte(final int field, final byte value) {
+        prep(Byte.BYTES, 0);
+        putByte(value);
+        this.vtable[field] = offset();
+    }
+
+    void addShort(final int field, final short value) {
+        prep(Short.BYTES, 0);
+        putShort(value);
+        this.vtable[field] = offset();
+    }
+
+    void addInt(final int field, final int value) {
+        prep(Integer.BYTES, 0);
+        putInt(value);
+        this.vtable[field] = offset();
+    }
+
+    void addLong(final int field, final long value) {
+        prep(Long.BYTES, 0);
+        putLong(value);
+        this.vtable[field] = offset();
+    }
+
+    void addOffset(final int field, final int value) {
+        putOffset(value);
+        this.vtable[field] = offset();
+    }
+
+    /**
+     * Completes the current table by writing its vtable.
+     *
+     * @return Offset of the table.
+     */
+    int endTable() {
+        prep(Integer.BYTES, 0);
+        putInt(0);
+        final int objectOffset = offset();
+
+        int numFields = this.vtable.length;
+        while (numFields > 0 && this.vtable[numFields - 1] == 0) {
+            numFields--;
+        }
+        for (int i = numFields - 1; i >= 0; i--) {
+            prep(Short.BYTES, 0);
+            putShort((short)(this.vtable[i] == 0 ? 0 : objectOffset - this.vtable[i]));
+        }
+        prep(Short.BYTES, 0);
+        putShort((short)(objectOffset - this.objectStart));
+        prep(Short.BYTES, 0);
+        putShort((short)((numFields + 2) * Short.BYTES));
+
+        // The table starts with the signed distance back to its vtable.
+        this.buffer.putInt(this.buffer.capacity() - objectOffset, offset() - objectOffset);
+        return objectOffset;
+    }
+
+    /**
+     * Completes the buffer.
+     *
+     * @param root Offset of the root table
+     * @return Contents of the buffer.
+     */
+    byte[] finish(final int root) {
+        prep(this.minAlign, Integer.BYTES);
+        putOffset(root);
+        return Arrays.copyOfRange(this.buffer.array(), this.space, this.buffer.capacity());
+    }
+
+    private void putOffset(final int value) {
+        prep(Integer.BYTES, 0);
+        putInt(offset() - value + Integer.BYTES);
+    }
+
+    private void grow() {
+        final int oldCapacity = this.buffer.capacity();
+        final ByteBuffer grown = ByteBuffer.allocate(oldCapacity * 2).order(ByteOrder.LITTLE_ENDIAN);
+        System.arraycopy(this.buffer.array(), 0, grown.array(), oldCapacity, oldCapacity);
+        this.buffer = grown;
+        this.space += oldCapacity;
+    }
+}
@@ -5,17 +5,9 @@
 
 package org.cthing.gradle.plugins.locc.reports;
 
-import java.io.BufferedWriter;
-import java.io.File;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
 import java.io.Writer;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -23,12 +15,11 @@ import java.util.stream.Collectors;
 import javax.inject.Inject;
 
 import org.cthing.escapers.HtmlEscaper;
-import org.cthing.gradle.plugins.locc.CountsCache;
 import org.cthing.locc4j.Counts;
 import org.cthing.locc4j.Language;
 import org.gradle.api.Task;
 import org.gradle.api.file.DirectoryProperty;
-import org.gradle.api.tasks.TaskExecutionException;
+import org.jspecify.annotations.Nullable;
 
 
 /**
@@ -36,27 +27,102 @@ import org.gradle.api.tasks.TaskExecutionException;
  */
 public final class HtmlReport extends AbstractLoccReport {
 
+    /**
+     * Sections of the report, in the order they are written.
+     */
+    private enum Section {
+        LANGUAGES,
+        FILES,
+        DUPLICATES,
+        END
+    }
+
     @Inject
     public HtmlReport(final Task task, final DirectoryProperty reportsDir) {
         super(task, "html", "Report in HTML format", true);
-        getOutputLocation().value(reportsDir.file(REPORT_BASE_NAME + ".html"));
+        setDefaultOutputLocation(reportsDir, REPORT_BASE_NAME + ".html");
     }
 
     @Override
-    public void generateReport(final CountsCache countsCache) {
-        final File destination = getOutputLocation().getAsFile().get();
-        try (Writer writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(destination.toPath()),
-                                                                       StandardCharsets.UTF_8))) {
-            writeDocumentStart(writer);
-            writeHead(writer);
-            writeBodyStart(writer);
-            writeSummary(writer, countsCache);
-            writeLanguages(writer, countsCache);
-            writeFiles(writer, countsCache);
-            writeBodyEnd(writer);
-            writeDocumentEnd(writer);
-        } catch (final IOException ex) {
-            throw new TaskExecutionException(this.task, ex);
+    public LoccReportVisitor createEncoder() throws IOException {
+        return new Encoder();
+    }
+
+    /**
+     * Writes the HTML report as the counts are traversed. Each table is closed and the next one opened when the
+     * first record of the following section is received.
+     */
+    private final class Encoder extends FileEncoder {
+
+        @Nullable
+        private Summary summary;
+        private Section section = Section.LANGUAGES;
+
+        Encoder() throws IOException {
+        }
+
+        @Override
+        public void start(final Summary summary) throws IOException {
+            this.summary = summary;
+            this.section = Section.LANGUAGES;
+
+            writeDocumentStart(this.writer);
+            writeHead(this.writer);
+            writeBodyStart(this.writer);
+            writeSummary(this.writer, summary);
+            writeLanguagesStart(this.writer);
+        }
+
+        @Override
+        public void language(final Language language, final int numFiles, final Counts counts) throws IOException {
+            writeLanguage(this.writer, language, counts);
+        }
+
+        @Override
+        public void file(final Path path, final boolean unrecognized, final Counts total,
+                         final Map<Language, Counts> counts) throws IOException {
+            enterSection(Section.FILES);
+            writeFile(this.writer, path, unrecognized, total, counts);
+        }
+
+        @Override
+        public void duplicates(final Set<Path> group, final Counts counts) throws IOException {
+            enterSection(Section.DUPLICATES);
+            writeDuplicate(this.writer, group, counts);
+        }
+
+        @Override
+        public void end() throws IOException {
+            enterSection(Section.END);
+            writeBodyEnd(this.writer);
+            writeDocumentEnd(this.writer);
+        }
+
+        /**
+         * Closes the table of the current section, and of any following sections that have no records, and opens
+         * the table of the specified section.
+         *
+         * @param next Section to enter
+         * @throws IOException if there was a problem writing the report
+         */
+        private void enterSection(final Section next) throws IOException {
+            assert this.summary != null;
+            if (this.section == Section.LANGUAGES && next != Section.LANGUAGES) {
+                writeLanguagesEnd(this.writer, this.summary.total());
+                writeFilesStart(this.writer);
+                this.section = Section.FILES;
+            }
+            if (this.section == Section.FILES && next != Section.FILES) {
+                writeFilesEnd(this.writer, this.summary.total());
+                if (next == Section.DUPLICATES) {
+                    writeDuplicatesStart(this.writer);
+                }
+                this.section = next;
+            }
+            if (this.section == Section.DUPLICATES && next == Section.END) {
+                writeDuplicatesEnd(this.writer);
+                this.section = Section.END;
+            }
         }
     }
 
@@ -115,14 +181,14 @@ public final class HtmlReport extends AbstractLoccReport {
                                  }
                              </style>
                          </head>
-                     """.formatted(this.task.getProject().getName()));
+                     """.formatted(getProjectName().get()));
     }
 
     private void writeBodyStart(final Writer writer) throws IOException {
         writer.write("""
                          <body>
                              <h1>Line Count Report For %s</h1>
-                     """.formatted(HtmlEscaper.escape(this.task.getProject().getName())));
+                     """.formatted(HtmlEscaper.escape(getProjectName().get())));
     }
 
     private void writeBodyEnd(final Writer writer) throws IOException {
@@ -131,9 +197,8 @@ public final class HtmlReport extends AbstractLoccReport {
                      """);
     }
 
-    private void writeSummary(final Writer writer, final CountsCache countsCache) throws IOException {
-        final Counts totalCounts = countsCache.getTotalCounts();
-        final Set<Language> languages = countsCache.getLanguages();
+    private void writeSummary(final Writer writer, final LoccReportVisitor.Summary summary) throws IOException {
+        final Counts totalCounts = summary.total();
 
         writer.write("""
 
@@ -180,17 +245,34 @@ public final class HtmlReport extends AbstractLoccReport {
                                          <td>Blank lines</td>
                                          <td>%d</td>
                                      </tr>
-                                 </tbody>
-                             </table>
-                     """.formatted(HtmlEscaper.escape(this.task.getProject().getName()),
-                                   HtmlEscaper.escape(this.task.getProject().getVersion().toString()),
-                                   HtmlEscaper.escape(timestamp()), countsCache.getPathCounts().size(),
-                                   languages.size(), countsCache.getUnrecognized().size(),
+                     """.formatted(HtmlEscaper.escape(getProjectName().get()),
+                                   HtmlEscaper.escape(getProjectVersion().get()),
+                                   HtmlEscaper.escape(timestamp()), summary.numFiles(),
+                                   summary.numLanguages(), summary.numUnrecognized(),
                                    totalCounts.getTotalLines(), totalCounts.getCodeLines(),
                                    totalCounts.getCommentLines(), totalCounts.getBlankLines()));
+
+        if (summary.numDuplicateGroups() > 0) {
+            final Counts uniqueCounts = summary.uniqueTotal();
+            writer.write("""
+                                         <tr>
+                                             <td>Unique total lines</td>
+                                             <td>%d</td>
+                                         </tr>
+                                         <tr>
+                                             <td>Unique code lines</td>
+                                             <td>%d</td>
+                                         </tr>
+                         """.formatted(uniqueCounts.getTotalLines(), uniqueCounts.getCodeLines()));
+        }
+
+        writer.write("""
+                                 </tbody>
+                             </table>
+                     """);
     }
 
-    private void writeLanguages(final Writer writer, final CountsCache countsCache) throws IOException {
+    private void writeLanguagesStart(final Writer writer) throws IOException {
         writer.write("""
 
                              <h2>Line Count by Language</h2>
@@ -207,38 +289,36 @@ public final class HtmlReport extends AbstractLoccReport {
                                  </thead>
                                  <tbody>
                      """);
+    }
 
-        final Map<Language, Counts> langCounts = countsCache.getLanguageCounts();
-        final List<Language> sortedLanguages = new ArrayList<>(langCounts.keySet());
-        sortedLanguages.sort(Comparator.comparing(Language::getDisplayName));
-        for (final Language language : sortedLanguages) {
-            final Counts counts = langCounts.get(language);
-            String description = language.getDescription();
-            if (description == null) {
-                description = "";
-            } else {
-                description = HtmlEscaper.escape(description);
-                final String website = language.getWebsite();
-                if (website != null) {
-                    description = String.format("<a href=\"%s\">%s</a>", website, description);
-                }
+    private void writeLanguage(final Writer writer, final Language language, final Counts counts)
+            throws IOException {
+        String description = language.getDescription();
+        if (description == null) {
+            description = "";
+        } else {
+            description = HtmlEscaper.escape(description);
+            final String website = language.getWebsite();
+            if (website != null) {
+                description = String.format("<a href=\"%s\">%s</a>", website, description);
             }
-
-            writer.write("""
-                                         <tr>
-                                             <td>%s</td>
-                                             <td>%s</td>
-                                             <td class="CountCell">%d</td>
-                                             <td class="CountCell">%d</td>
-                                             <td class="CountCell">%d</td>
-                                             <td class="CountCell">%d</td>
-                                         </tr>
-                         """.formatted(HtmlEscaper.escape(language.getDisplayName()), description,
-                                       counts.getTotalLines(), counts.getCodeLines(),
-                                       counts.getCommentLines(), counts.getBlankLines()));
         }
 
-        final Counts totalCounts = countsCache.getTotalCounts();
+        writer.write("""
+                                     <tr>
+                                         <td>%s</td>
+                                         <td>%s</td>
+                                         <td class="CountCell">%d</td>
+                                         <td class="CountCell">%d</td>
+                                         <td class="CountCell">%d</td>
+                                         <td class="CountCell">%d</td>
+                                     </tr>
+                     """.formatted(HtmlEscaper.escape(language.getDisplayName()), description,
+                                   counts.getTotalLines(), counts.getCodeLines(),
+                                   counts.getCommentLines(), counts.getBlankLines()));
+    }
+
+    private void writeLanguagesEnd(final Writer writer, final Counts totalCounts) throws IOException {
         writer.write("""
                                      <tr>
                                          <td class="TotalCell">Total</td>
@@ -257,7 +337,7 @@ public final class HtmlReport extends AbstractLoccReport {
                      """);
     }
 
-    private void writeFiles(final Writer writer, final CountsCache countsCache) throws IOException {
+    private void writeFilesStart(final Writer writer) throws IOException {
         writer.write("""
 
                              <h2>Line Count by File</h2>
@@ -274,39 +354,34 @@ public final class HtmlReport extends AbstractLoccReport {
                                  </thead>
                                  <tbody>
                      """);
+    }
 
-        final Map<Path, Counts> pathTotals = countsCache.getFileCounts();
-        final Set<Path> unrecognized = countsCache.getUnrecognized();
-        final List<Path> paths = new ArrayList<>(countsCache.getPathCounts().keySet());
-        paths.sort(Path::compareTo);
-        for (final Path path : paths) {
-            final Counts counts = pathTotals.getOrDefault(path, Counts.ZERO);
-            final List<Language> sortedLanguages = new ArrayList<>(countsCache.getPathCounts().get(path).keySet());
-            sortedLanguages.sort(Comparator.comparing(Language::getDisplayName));
-
-            String unrecognizedClass = "";
-            if (unrecognized.contains(path)) {
-                unrecognizedClass = " class=\"Unrecognized\"";
-            }
-
-            writer.write("""
-                                         <tr>
-                                             <td%s>%s</td>
-                                             <td class="CountCell">%d</td>
-                                             <td class="CountCell">%d</td>
-                                             <td class="CountCell">%d</td>
-                                             <td class="CountCell">%d</td>
-                                             <td>%s</td>
-                                         </tr>
-                         """.formatted(unrecognizedClass, HtmlEscaper.escape(preparePathname(path).toString()),
-                                       counts.getTotalLines(), counts.getCodeLines(), counts.getCommentLines(),
-                                       counts.getBlankLines(),
-                                       HtmlEscaper.escape(sortedLanguages.stream()
-                                                                         .map(Language::getDisplayName)
-                                                                         .collect(Collectors.joining(", ")))));
+    private void writeFile(final Writer writer, final Path path, final boolean unrecognized, final Counts counts,
+                           final Map<Language, Counts> langCounts) throws IOException {
+        String unrecognizedClass = "";
+        if (unrecognized) {
+            unrecognizedClass = " class=\"Unrecognized\"";
         }
 
-        final Counts totalCounts = countsCache.getTotalCounts();
+        writer.write("""
+                                     <tr>
+                                         <td%s>%s</td>
+                                         <td class="CountCell">%d</td>
+                                         <td class="CountCell">%d</td>
+                                         <td class="CountCell">%d</td>
+                                         <td class="CountCell">%d</td>
+                                         <td>%s</td>
+                                     </tr>
+                     """.formatted(unrecognizedClass, HtmlEscaper.escape(preparePathname(path).toString()),
+                                   counts.getTotalLines(), counts.getCodeLines(), counts.getCommentLines(),
+                                   counts.getBlankLines(),
+                                   HtmlEscaper.escape(langCounts.keySet()
+                                                                .stream()
+                                                                .map(Language::getDisplayName)
+                                                                .collect(Collectors.joining(", ")))));
+    }
+
+    private void writeFilesEnd(final Writer writer, final Counts totalCounts) throws IOException {
         writer.write("""
                                      <tr>
                                          <td class="TotalCell">Total</td>
@@ -324,4 +399,42 @@ public final class HtmlReport extends AbstractLoccReport {
                              </table>
                      """);
     }
+
+    private void writeDuplicatesStart(final Writer writer) throws IOException {
+        writer.write("""
+
+                             <h2>Files with Identical Content</h2>
+                             <table>
+                                 <thead>
+                                     <tr>
+                                         <th>Pathnames</th>
+                                         <th class="CountCell">Copies</th>
+                                         <th class="CountCell">Code Lines Per Copy</th>
+                                     </tr>
+                                 </thead>
+                                 <tbody>
+                     """);
+    }
+
+    private void writeDuplicate(final Writer writer, final Set<Path> group, final Counts counts)
+            throws IOException {
+        final String pathnames = group.stream()
+                                      .map(path -> HtmlEscaper.escape(preparePathname(path).toString()))
+                                      .collect(Collectors.joining("<br/>"));
+
+        writer.write("""
+                                     <tr>
+                                         <td>%s</td>
+                                         <td class="CountCell">%d</td>
+                                         <td class="CountCell">%d</td>
+                                     </tr>
+                     """.formatted(pathnames, group.size(), counts.getCodeLines()));
+    }
+
+    private void writeDuplicatesEnd(final Writer writer) throws IOException {
+        writer.write("""
+                                 </tbody>
+                             </table>
+                     """);
+    }
 }
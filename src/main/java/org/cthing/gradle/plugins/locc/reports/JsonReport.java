@@ -5,29 +5,17 @@
 
 package org.cthing.gradle.plugins.locc.reports;
 
-import java.io.BufferedWriter;
-import java.io.File;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.io.Writer;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 import javax.inject.Inject;
 
-import org.cthing.gradle.plugins.locc.CountsCache;
 import org.cthing.jsonwriter.JsonWriter;
 import org.cthing.locc4j.Counts;
 import org.cthing.locc4j.Language;
 import org.gradle.api.Task;
 import org.gradle.api.file.DirectoryProperty;
-import org.gradle.api.tasks.TaskExecutionException;
 
 
 /**
@@ -40,97 +28,105 @@ public final class JsonReport extends AbstractLoccReport {
     @Inject
     public JsonReport(final Task task, final DirectoryProperty reportsDir) {
         super(task, "json", "Report in JSON format", false);
-        getOutputLocation().value(reportsDir.file(REPORT_BASE_NAME + ".json"));
+        setDefaultOutputLocation(reportsDir, REPORT_BASE_NAME + ".json");
     }
 
     @Override
-    public void generateReport(final CountsCache countsCache) {
-        final Counts totalCounts = countsCache.getTotalCounts();
-        final Set<Language> languages = countsCache.getLanguages();
-
-        final File destination = getOutputLocation().getAsFile().get();
-        try (Writer writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(destination.toPath()),
-                                                                       StandardCharsets.UTF_8))) {
-            final JsonWriter jsonWriter = new JsonWriter(writer);
-            jsonWriter.setPrettyPrint(true);
-
-            jsonWriter.startObject();
-
-            jsonWriter.member("formatVersion", FORMAT_VERSION)
-                      .member("date", timestamp())
-                      .member("projectName", this.task.getProject().getName())
-                      .member("projectVersion", this.task.getProject().getVersion().toString())
-                      .member("numFiles", countsCache.getPathCounts().size())
-                      .member("numUnrecognized", countsCache.getUnrecognized().size())
-                      .member("numLanguages", languages.size());
-            writeCounts(jsonWriter, totalCounts);
-            writeLanguages(jsonWriter, countsCache);
-            writeFiles(jsonWriter, countsCache);
-
-            jsonWriter.endObject();
-        } catch (final IOException ex) {
-            throw new TaskExecutionException(this.task, ex);
-        }
+    public LoccReportVisitor createEncoder() throws IOException {
+        return new Encoder();
     }
 
-    private void writeLanguages(final JsonWriter jsonWriter, final CountsCache countsCache) throws IOException {
-        jsonWriter.memberStartArray("languages");
+    /**
+     * Writes the JSON report as the counts are traversed. The languages array is closed and the files array is
+     * opened when the first file is received.
+     */
+    private final class Encoder extends FileEncoder {
 
-        final Map<Language, Counts> langCounts = countsCache.getLanguageCounts();
-        final List<Language> languages = new ArrayList<>(langCounts.keySet());
-        languages.sort(Comparator.comparing(Language::getDisplayName));
-        for (final Language language : languages) {
-            jsonWriter.startObject();
+        private final JsonWriter jsonWriter;
 
-            jsonWriter.member("name", language.name())
-                      .member("displayName", language.getDisplayName())
-                      .member("description", language.getDescription())
-                      .member("website", language.getWebsite());
-            writeCounts(jsonWriter, langCounts.get(language));
+        private boolean inFiles;
 
-            jsonWriter.endObject();
+        Encoder() throws IOException {
+            this.jsonWriter = new JsonWriter(this.writer);
+            this.jsonWriter.setPrettyPrint(!getCompact().get());
         }
 
-        jsonWriter.endArray();
-    }
+        @Override
+        public void start(final Summary summary) throws IOException {
+            this.inFiles = false;
+
+            this.jsonWriter.startObject();
 
-    private void writeFiles(final JsonWriter jsonWriter, final CountsCache countsCache) throws IOException {
-        jsonWriter.memberStartArray("files");
-
-        final Map<Path, Counts> pathTotals = countsCache.getFileCounts();
-        final Set<Path> unrecognized = countsCache.getUnrecognized();
-        final List<Path> paths = new ArrayList<>(countsCache.getPathCounts().keySet());
-        paths.sort(Path::compareTo);
-        for (final Path path : paths) {
-            jsonWriter.startObject();
-
-            final Map<Language, Counts> langCounts = countsCache.getPathCounts().get(path);
-            jsonWriter.member("pathname", preparePathname(path).toString())
-                      .member("numLanguages", langCounts.size());
-            if (unrecognized.contains(path)) {
-                jsonWriter.member("unrecognized", true);
+            this.jsonWriter.member("formatVersion", FORMAT_VERSION)
+                           .member("date", timestamp())
+                           .member("projectName", getProjectName().get())
+                           .member("projectVersion", getProjectVersion().get())
+                           .member("numFiles", summary.numFiles())
+                           .member("numUnrecognized", summary.numUnrecognized())
+                           .member("numLanguages", summary.numLanguages());
+            writeCounts(this.jsonWriter, summary.total());
+
+            this.jsonWriter.memberStartArray("languages");
+        }
+
+        @Override
+        public void language(final Language language, final int numFiles, final Counts counts) throws IOException {
+            this.jsonWriter.startObject();
+
+            this.jsonWriter.member("name", language.name())
+                           .member("displayName", language.getDisplayName())
+                           .member("description", language.getDescription())
+                           .member("website", language.getWebsite());
+            writeCounts(this.jsonWriter, counts);
+
+            this.jsonWriter.endObject();
+        }
+
+        @Override
+        public void file(final Path path, final boolean unrecognized, final Counts total,
+                         final Map<Language, Counts> counts) throws IOException {
+            startFiles();
+
+            this.jsonWriter.startObject();
+
+            this.jsonWriter.member("pathname", preparePathname(path).toString())
+                           .member("numLanguages", counts.size());
+            if (unrecognized) {
+                this.jsonWriter.member("unrecognized", true);
             }
-            writeCounts(jsonWriter, pathTotals.getOrDefault(path, Counts.ZERO));
+            writeCounts(this.jsonWriter, total);
 
-            jsonWriter.memberStartArray("languages");
+            this.jsonWriter.memberStartArray("languages");
 
-            final List<Language> languages = new ArrayList<>(langCounts.keySet());
-            languages.sort(Comparator.comparing(Language::getDisplayName));
-            for (final Language language : languages) {
-                jsonWriter.startObject();
+            for (final Map.Entry<Language, Counts> entry : counts.entrySet()) {
+                this.jsonWriter.startObject();
 
-                jsonWriter.member("name", language.name());
-                writeCounts(jsonWriter, langCounts.get(language));
+                this.jsonWriter.member("name", entry.getKey().name());
+                writeCounts(this.jsonWriter, entry.getValue());
 
-                jsonWriter.endObject();
+                this.jsonWriter.endObject();
             }
 
-            jsonWriter.endArray();
+            this.jsonWriter.endArray();
+
+            this.jsonWriter.endObject();
+        }
+
+        @Override
+        public void end() throws IOException {
+            startFiles();
+            this.jsonWriter.endArray();
 
-            jsonWriter.endObject();
+            this.jsonWriter.endObject();
         }
 
-        jsonWriter.endArray();
+        private void startFiles() throws IOException {
+            if (!this.inFiles) {
+                this.inFiles = true;
+                this.jsonWriter.endArray();
+                this.jsonWriter.memberStartArray("files");
+            }
+        }
     }
 
     private void writeCounts(final JsonWriter jsonWriter, final Counts counts) throws IOException {
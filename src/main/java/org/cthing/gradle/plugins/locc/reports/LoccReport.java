@@ -5,7 +5,10 @@
 
 package org.cthing.gradle.plugins.locc.reports;
 
+import java.io.IOException;
+
 import org.cthing.gradle.plugins.locc.CountsCache;
+import org.cthing.gradle.plugins.locc.MultiplexedReportWriter;
 import org.gradle.api.provider.Property;
 import org.gradle.api.reporting.SingleFileReport;
 import org.gradle.api.tasks.Input;
@@ -25,10 +28,58 @@ public interface LoccReport extends SingleFileReport {
     @Input
     Property<Boolean> getShowRelativePaths();
 
+    /**
+     * Obtains the flag indicating whether to write the report without indentation or line breaks between
+     * elements. Only the JSON, XML and YAML reports support a compact layout. The default is {@code false} to write
+     * an indented report that is easier to read.
+     *
+     * @return Flag indicating whether to write a compact report.
+     */
+    @Input
+    Property<Boolean> getCompact();
+
+    /**
+     * Obtains the flag indicating whether to compress the report file using gzip. The report is compressed as it is
+     * written, and the {@code .gz} suffix is appended to the default report location. The console report is never
+     * compressed. The default is {@code false} to write an uncompressed report.
+     *
+     * @return Flag indicating whether to compress the report file.
+     */
+    @Input
+    Property<Boolean> getCompressed();
+
+    /**
+     * Obtains the name of the project that appears in the report. The default is the name of the project
+     * containing the task that generates the report.
+     *
+     * @return Name of the project.
+     */
+    @Input
+    Property<String> getProjectName();
+
+    /**
+     * Obtains the version of the project that appears in the report. The default is the version of the project
+     * containing the task that generates the report.
+     *
+     * @return Version of the project.
+     */
+    @Input
+    Property<String> getProjectVersion();
+
     /**
      * Writes the line count report in a specific file format.
      *
      * @param countsCache Cache of line count data to report
      */
     void generateReport(CountsCache countsCache);
+
+    /**
+     * Creates an encoder that writes the report as it receives the counts from a traversal. This allows several
+     * reports to be written in a single pass over the counts by the {@link MultiplexedReportWriter}. Encoders that
+     * write a file implement {@link java.io.Closeable} and are closed when the traversal completes.
+     *
+     * @return Encoder for the report.
+     * @throws IOException if the report file could not be created
+     */
+    LoccReportVisitor createEncoder() throws IOException;
 }
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.cthing.gradle.plugins.locc.reports;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+
+import org.cthing.locc4j.Counts;
+import org.cthing.locc4j.Language;
+
+
+/**
+ * Receives the line counts as a stream of events during a single traversal of the counts, so that a report can be
+ * written without collecting the counts itself. Custom report formats are added by implementing this interface
+ * and registering the implementation with the {@code codeLinesReports} task, which delivers the counts to the
+ * visitors in the same traversal that writes the built-in reports. The events are delivered in the following
+ * order:
+ * <ol>
+ *     <li>{@link #start(Summary)} once</li>
+ *     <li>{@link #language(Language, int, Counts)} for each language, ordered by display name</li>
+ *     <li>{@link #file(Path, boolean, Counts, Map)} for each file, ordered by pathname</li>
+ *     <li>{@link #duplicates(Set, Counts)} for each group of files with identical content</li>
+ *     <li>{@link #end()} once</li>
+ * </ol>
+ * All methods have empty default implementations so that a visitor only needs to implement the events it uses.
+ * A visitor may be used for more than one traversal, so any state should be initialized by {@link #start(Summary)}.
+ * A visitor that also implements {@link java.io.Closeable} is closed by the {@code MultiplexedReportWriter} once
+ * the traversal completes, whether or not it was successful.
+ */
+public interface LoccReportVisitor {
+
+    /**
+     * Aggregate counts delivered at the start of a traversal.
+     *
+     * @param numFiles Number of files counted, including unrecognized files
+     * @param numUnrecognized Number of files whose language was not recognized
+     * @param numLanguages Number of languages in the counted files
+     * @param numDuplicateGroups Number of groups of files with identical content
+     * @param total Counts for all files
+     * @param uniqueTotal Counts for all files with each duplicated content counted once. The same as the total
+     *      if there are no files with identical content.
+     */
+    record Summary(int numFiles, int numUnrecognized, int numLanguages, int numDuplicateGroups, Counts total,
+                   Counts uniqueTotal) {
+    }
+
+    /**
+     * Called at the start of the traversal.
+     *
+     * @param summary Aggregate counts of all files
+     * @throws IOException if there was a problem writing the report
+     */
+    default void start(final Summary summary) throws IOException {
+    }
+
+    /**
+     * Called for each language.
+     *
+     * @param language Language
+     * @param numFiles Number of files containing the language
+     * @param counts Counts for the language in all files
+     * @throws IOException if there was a problem writing the report
+     */
+    default void language(final Language language, final int numFiles, final Counts counts) throws IOException {
+    }
+
+    /**
+     * Called for each file.
+     *
+     * @param path Absolute path of the file
+     * @param unrecognized {@code true} if the language of the file was not recognized
+     * @param total Counts for all languages in the file
+     * @param counts Counts for each language in the file, ordered by the display name of the language. Empty if
+     *      the file was not recognized.
+     * @throws IOException if there was a problem writing the report
+     */
+    default void file(final Path path, final boolean unrecognized, final Counts total,
+                      final Map<Language, Counts> counts) throws IOException {
+    }
+
+    /**
+     * Called for each group of files with identical content.
+     *
+     * @param group Absolute paths of the files in the group
+     * @param counts Counts for each copy of the content
+     * @throws IOException if there was a problem writing the report
+     */
+    default void duplicates(final Set<Path> group, final Counts counts) throws IOException {
+    }
+
+    /**
+     * Called at the end of the traversal.
+     *
+     * @throws IOException if there was a problem writing the report
+     */
+    default void end() throws IOException {
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.cthing.gradle.plugins.locc.reports;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.Map;
+
+import javax.inject.Inject;
+
+import org.cthing.escapers.JsonEscaper;
+import org.cthing.locc4j.Counts;
+import org.cthing.locc4j.Language;
+import org.gradle.api.Task;
+import org.gradle.api.file.DirectoryProperty;
+import org.jspecify.annotations.Nullable;
+
+
+/**
+ * Generates a line count report in <a href="https://github.com/ndjson/ndjson-spec">newline delimited JSON</a>.
+ * Each line of the report is a self-contained JSON object whose {@code record} member identifies its type. A
+ * {@code language} record is written for each language, a {@code file} record for each file, and a final
+ * {@code summary} record contains the project information and total counts. Records are written as the counts are
+ * traversed, so the report can be consumed line by line, while it is being written, without parsing the entire
+ * document.
+ */
+public final class NdjsonReport extends AbstractLoccReport {
+
+    private static final int FORMAT_VERSION = 1;
+
+    @Inject
+    public NdjsonReport(final Task task, final DirectoryProperty reportsDir) {
+        super(task, "ndjson", "Report in newline delimited JSON format", false);
+        setDefaultOutputLocation(reportsDir, REPORT_BASE_NAME + ".ndjson");
+    }
+
+    @Override
+    public LoccReportVisitor createEncoder() throws IOException {
+        return new Encoder();
+    }
+
+    /**
+     * Writes a record for each language and file as it is traversed, and the summary record at the end of the
+     * traversal.
+     */
+    private final class Encoder extends FileEncoder {
+
+        @Nullable
+        private Summary summary;
+
+        Encoder() throws IOException {
+        }
+
+        @Override
+        public void start(final Summary summary) {
+            this.summary = summary;
+        }
+
+        @Override
+        public void language(final Language language, final int numFiles, final Counts counts) throws IOException {
+            this.writer.write("{\"record\":\"language\"");
+            writeMember(this.writer, "name", language.name());
+            writeMember(this.writer, "displayName", language.getDisplayName());
+            writeMember(this.writer, "description", language.getDescription());
+            writeMember(this.writer, "website", language.getWebsite());
+            writeMember(this.writer, "numFiles", numFiles);
+            writeCounts(this.writer, counts);
+            this.writer.write("}\n");
+        }
+
+        @Override
+        public void file(final Path path, final boolean unrecognized, final Counts total,
+                         final Map<Language, Counts> counts) throws IOException {
+            this.writer.write("{\"record\":\"file\"");
+            writeMember(this.writer, "pathname", preparePathname(path).toString());
+            writeMember(this.writer, "numLanguages", counts.size());
+            if (unrecognized) {
+                this.writer.write(",\"unrecognized\":true");
+            }
+            writeCounts(this.writer, total);
+
+            this.writer.write(",\"languages\":[");
+            boolean first = true;
+            for (final Map.Entry<Language, Counts> entry : counts.entrySet()) {
+                this.writer.write(first ? "{" : ",{");
+                first = false;
+                this.writer.write("\"name\":\"");
+                this.writer.write(entry.getKey().name());
+                this.writer.write('"');
+                writeCounts(this.writer, entry.getValue());
+                this.writer.write('}');
+            }
+            this.writer.write("]}\n");
+        }
+
+        @Override
+        public void end() throws IOException {
+            assert this.summary != null;
+            this.writer.write("{\"record\":\"summary\"");
+            writeMember(this.writer, "formatVersion", FORMAT_VERSION);
+            writeMember(this.writer, "date", timestamp());
+            writeMember(this.writer, "projectName", getProjectName().get());
+            writeMember(this.writer, "projectVersion", getProjectVersion().get());
+            writeMember(this.writer, "numFiles", this.summary.numFiles());
+            writeMember(this.writer, "numUnrecognized", this.summary.numUnrecognized());
+            writeMember(this.writer, "numLanguages", this.summary.numLanguages());
+            writeCounts(this.writer, this.summary.total());
+            this.writer.write("}\n");
+        }
+    }
+
+    private void writeCounts(final Writer writer, final Counts counts) throws IOException {
+        writeMember(writer, "totalLines", counts.getTotalLines());
+        writeMember(writer, "codeLines", counts.getCodeLines());
+        writeMember(writer, "commentLines", counts.getCommentLines());
+        writeMember(writer, "blankLines", counts.getBlankLines());
+    }
+
+    private void writeMember(final Writer writer, final String name, @Nullable final String value)
+            throws IOException {
+        if (value != null) {
+            writer.write(",\"");
+            writer.write(name);
+            writer.write("\":\"");
+            JsonEscaper.escape(value, writer);
+            writer.write('"');
+        }
+    }
+
+    private void writeMember(final Writer writer, final String name, final int value) throws IOException {
+        writer.write(",\"");
+        writer.write(name);
+        writer.write("\":");
+        writer.write(Integer.toString(value, 10));
+    }
+}
@@ -6,27 +6,18 @@
 package org.cthing.gradle.plugins.locc.reports;
 
 import java.io.BufferedWriter;
-import java.io.File;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 
-import org.cthing.gradle.plugins.locc.CountsCache;
 import org.cthing.locc4j.Counts;
 import org.cthing.locc4j.Language;
 import org.gradle.api.Task;
 import org.gradle.api.file.DirectoryProperty;
-import org.gradle.api.tasks.TaskExecutionException;
 
 
 /**
@@ -37,85 +28,120 @@ public final class TextReport extends AbstractLoccReport {
     @Inject
     public TextReport(final Task task, final DirectoryProperty reportsDir) {
         super(task, "text", "Report in text format", false);
-        getOutputLocation().value(reportsDir.file(REPORT_BASE_NAME + ".txt"));
+        setDefaultOutputLocation(reportsDir, REPORT_BASE_NAME + ".txt");
     }
 
     @Override
-    public void generateReport(final CountsCache countsCache) {
-        final Counts totalCounts = countsCache.getTotalCounts();
-        final Set<Language> languages = countsCache.getLanguages();
-
-        final File destination = getOutputLocation().getAsFile().get();
-        try (BufferedWriter writer =
-                     new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(destination.toPath()),
-                                                               StandardCharsets.UTF_8))) {
-            writer.write("Line Count Report For ");
-            writeln(writer, this.task.getProject().getName());
-            writeln(writer, "-".repeat(80));
-            writeln(writer, "Date: ", timestamp());
-            writeln(writer, "Project version: ", this.task.getProject().getVersion().toString());
-            writeln(writer, "Number of files: ", countsCache.getPathCounts().size());
-            writeln(writer, "Number unrecognized files: ", countsCache.getUnrecognized().size());
-            writeln(writer, "Number of languages: ", languages.size());
-            writeln(writer, "Total lines: ", totalCounts.getTotalLines());
-            writeln(writer, "Code lines: ", totalCounts.getCodeLines());
-            writeln(writer, "Comment lines: ", totalCounts.getCommentLines());
-            writeln(writer, "Blank lines: ", totalCounts.getBlankLines());
-            writeLanguages(writer, countsCache);
-            writeFiles(writer, countsCache);
-        } catch (final IOException ex) {
-            throw new TaskExecutionException(this.task, ex);
+    public LoccReportVisitor createEncoder() throws IOException {
+        return new Encoder();
+    }
+
+    /**
+     * Writes the text report as the counts are traversed. The files section is started when the first file is
+     * received, and the duplicates section is started when the first group of duplicate files is received.
+     */
+    private final class Encoder extends FileEncoder {
+
+        private boolean inFiles;
+        private boolean firstFile;
+        private boolean firstGroup;
+
+        Encoder() throws IOException {
         }
 
-    }
+        @Override
+        public void start(final Summary summary) throws IOException {
+            this.inFiles = false;
+            this.firstFile = true;
+            this.firstGroup = true;
+
+            final Counts totalCounts = summary.total();
+            this.writer.write("Line Count Report For ");
+            writeln(this.writer, getProjectName().get());
+            writeln(this.writer, "-".repeat(80));
+            writeln(this.writer, "Date: ", timestamp());
+            writeln(this.writer, "Project version: ", getProjectVersion().get());
+            writeln(this.writer, "Number of files: ", summary.numFiles());
+            writeln(this.writer, "Number unrecognized files: ", summary.numUnrecognized());
+            writeln(this.writer, "Number of languages: ", summary.numLanguages());
+            writeln(this.writer, "Total lines: ", totalCounts.getTotalLines());
+            writeln(this.writer, "Code lines: ", totalCounts.getCodeLines());
+            writeln(this.writer, "Comment lines: ", totalCounts.getCommentLines());
+            writeln(this.writer, "Blank lines: ", totalCounts.getBlankLines());
+            if (summary.numDuplicateGroups() > 0) {
+                final Counts uniqueCounts = summary.uniqueTotal();
+                writeln(this.writer, "Unique total lines: ", uniqueCounts.getTotalLines());
+                writeln(this.writer, "Unique code lines: ", uniqueCounts.getCodeLines());
+            }
 
-    private void writeLanguages(final BufferedWriter writer, final CountsCache countsCache) throws IOException {
-        writer.newLine();
-        writeln(writer, "Languages");
-        writeln(writer, "-".repeat(9));
+            this.writer.newLine();
+            writeln(this.writer, "Languages");
+            writeln(this.writer, "-".repeat(9));
+        }
 
-        final Map<Language, Counts> langCounts = countsCache.getLanguageCounts();
-        final List<Language> languages = new ArrayList<>(langCounts.keySet());
-        languages.sort(Comparator.comparing(Language::getDisplayName));
-        for (final Language language : languages) {
+        @Override
+        public void language(final Language language, final int numFiles, final Counts counts) throws IOException {
             final String description = language.getDescription();
             if (description == null) {
-                writeln(writer, String.format("%s", language.getDisplayName()));
+                writeln(this.writer, String.format("%s", language.getDisplayName()));
             } else {
-                writeln(writer, String.format("%s: %s", language.getDisplayName(), description));
+                writeln(this.writer, String.format("%s: %s", language.getDisplayName(), description));
             }
 
-            writeCounts(writer, langCounts.get(language));
-            writer.newLine();
+            writeCounts(this.writer, counts);
+            this.writer.newLine();
         }
-    }
 
-    private void writeFiles(final BufferedWriter writer, final CountsCache countsCache) throws IOException {
-        writeln(writer, "Files");
-        writeln(writer, "-".repeat(5));
-
-        final Map<Path, Counts> pathTotals = countsCache.getFileCounts();
-        final Set<Path> unrecognized = countsCache.getUnrecognized();
-        final List<Path> paths = new ArrayList<>(countsCache.getPathCounts().keySet());
-        paths.sort(Path::compareTo);
-        boolean first = true;
-        for (final Path path : paths) {
-            if (!first) {
-                writer.newLine();
+        @Override
+        public void file(final Path path, final boolean unrecognized, final Counts total,
+                         final Map<Language, Counts> counts) throws IOException {
+            startFiles();
+
+            if (!this.firstFile) {
+                this.writer.newLine();
             }
-            first = false;
+            this.firstFile = false;
 
-            final Map<Language, Counts> langCounts = countsCache.getPathCounts().get(path);
-            if (unrecognized.contains(path)) {
-                writeln(writer, preparePathname(path) + " (unrecognized)");
+            if (unrecognized) {
+                writeln(this.writer, preparePathname(path) + " (unrecognized)");
             } else {
-                writeln(writer, preparePathname(path).toString());
-                writeCounts(writer, pathTotals.getOrDefault(path, Counts.ZERO));
+                writeln(this.writer, preparePathname(path).toString());
+                writeCounts(this.writer, total);
+
+                this.writer.write("    Languages: ");
+                writeln(this.writer, counts.keySet()
+                                           .stream()
+                                           .map(Language::getDisplayName)
+                                           .collect(Collectors.joining(", ")));
+            }
+        }
+
+        @Override
+        public void duplicates(final Set<Path> group, final Counts counts) throws IOException {
+            startFiles();
+
+            this.writer.newLine();
+            if (this.firstGroup) {
+                writeln(this.writer, "Duplicates");
+                writeln(this.writer, "-".repeat(10));
+            }
+            this.firstGroup = false;
+
+            for (final Path path : group) {
+                writeln(this.writer, preparePathname(path).toString());
+            }
+        }
+
+        @Override
+        public void end() throws IOException {
+            startFiles();
+        }
 
-                final List<Language> languages = new ArrayList<>(langCounts.keySet());
-                languages.sort(Comparator.comparing(Language::getDisplayName));
-                writer.write("    Languages: ");
-                writeln(writer, languages.stream().map(Language::getDisplayName).collect(Collectors.joining(", ")));
+        private void startFiles() throws IOException {
+            if (!this.inFiles) {
+                this.inFiles = true;
+                writeln(this.writer, "Files");
+                writeln(this.writer, "-".repeat(5));
             }
         }
     }
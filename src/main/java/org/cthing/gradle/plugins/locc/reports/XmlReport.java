@@ -5,29 +5,18 @@
 
 package org.cthing.gradle.plugins.locc.reports;
 
-import java.io.File;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.io.Writer;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 import javax.inject.Inject;
 import javax.xml.XMLConstants;
 
-import org.cthing.gradle.plugins.locc.CountsCache;
 import org.cthing.locc4j.Counts;
 import org.cthing.locc4j.Language;
 import org.cthing.xmlwriter.XmlWriter;
 import org.gradle.api.Task;
 import org.gradle.api.file.DirectoryProperty;
-import org.gradle.api.tasks.TaskExecutionException;
 import org.jspecify.annotations.Nullable;
 import org.xml.sax.SAXException;
 import org.xml.sax.helpers.AttributesImpl;
@@ -44,102 +33,121 @@ public final class XmlReport extends AbstractLoccReport {
     private static final String SCHEMA_FILENAME = "locc-1.xsd";
     private static final String SCHEMA_URL = "https://www.cthing.com/schemas/" + SCHEMA_FILENAME;
 
-    @Nullable
-    private Counts totalCounts;
-
     @Inject
     public XmlReport(final Task task, final DirectoryProperty reportsDir) {
         super(task, "xml", "Report in XML format", true);
-        getOutputLocation().value(reportsDir.file(REPORT_BASE_NAME + ".xml"));
+        setDefaultOutputLocation(reportsDir, REPORT_BASE_NAME + ".xml");
     }
 
     @Override
-    public void generateReport(final CountsCache countsCache) {
-        this.totalCounts = countsCache.getTotalCounts();
-
-        final File destination = getOutputLocation().getAsFile().get();
-        try (Writer writer = new OutputStreamWriter(Files.newOutputStream(destination.toPath()),
-                                                    StandardCharsets.UTF_8)) {
-            final XmlWriter xmlWriter = new XmlWriter(writer);
-            xmlWriter.setPrettyPrint(true);
-
-            xmlWriter.startDocument();
-            xmlWriter.addNSPrefix("", NAMESPACE);
-
-            final AttributesImpl attrs = new AttributesImpl();
-            addAttribute(attrs, "xmlns:xsi", XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI);
-            addAttribute(attrs, "xsi:schemaLocation", SCHEMA_URL + " " + SCHEMA_FILENAME);
-            addAttribute(attrs, "formatVersion", FORMAT_VERSION);
-            addAttribute(attrs, "date", timestamp());
-            addAttribute(attrs, "projectName", this.task.getProject().getName());
-            addAttribute(attrs, "projectVersion", this.task.getProject().getVersion().toString());
-            xmlWriter.startElement(NAMESPACE, "locc", attrs);
-
-            writeLanguages(xmlWriter, countsCache);
-            writeFiles(xmlWriter, countsCache);
-
-            xmlWriter.endElement();
-            xmlWriter.endDocument();
-        } catch (final IOException | SAXException ex) {
-            throw new TaskExecutionException(this.task, ex);
-        }
+    public LoccReportVisitor createEncoder() throws IOException {
+        return new Encoder();
     }
 
-    private void writeLanguages(final XmlWriter xmlWriter, final CountsCache countsCache) throws SAXException {
-        assert this.totalCounts != null;
-        final Map<Language, Counts> langCounts = countsCache.getLanguageCounts();
+    /**
+     * Writes the XML report as the counts are traversed. The languages element is closed and the files element is
+     * opened when the first file is received.
+     */
+    private final class Encoder extends FileEncoder {
 
-        final AttributesImpl langsAttrs = new AttributesImpl();
-        addAttribute(langsAttrs, "numLanguages", langCounts.size());
-        addCountAttributes(langsAttrs, this.totalCounts);
-        xmlWriter.startElement(NAMESPACE, "languages", langsAttrs);
+        private final XmlWriter xmlWriter;
 
-        final List<Language> languages = new ArrayList<>(langCounts.keySet());
-        languages.sort(Comparator.comparing(Language::getDisplayName));
-        for (final Language language : languages) {
-            writeLanguage(xmlWriter, language, langCounts.get(language));
-        }
+        @Nullable
+        private Summary summary;
+        private boolean inFiles;
 
-        xmlWriter.endElement();
-    }
-
-    private void writeFiles(final XmlWriter xmlWriter, final CountsCache countsCache) throws SAXException {
-        assert this.totalCounts != null;
-        final int numFiles = countsCache.getPathCounts().size();
-        final Set<Path> unrecognized = countsCache.getUnrecognized();
-
-        final AttributesImpl filesAttrs = new AttributesImpl();
-        addAttribute(filesAttrs, "numFiles", numFiles);
-        addAttribute(filesAttrs, "numUnrecognized", unrecognized.size());
-        addCountAttributes(filesAttrs, this.totalCounts);
-        xmlWriter.startElement(NAMESPACE, "files", filesAttrs);
-
-        final Map<Path, Counts> pathTotals = countsCache.getFileCounts();
+        Encoder() throws IOException {
+            this.xmlWriter = new XmlWriter(this.writer);
+            this.xmlWriter.setPrettyPrint(!getCompact().get());
+        }
 
-        final List<Path> paths = new ArrayList<>(countsCache.getPathCounts().keySet());
-        paths.sort(Path::compareTo);
-        for (final Path path : paths) {
-            final Map<Language, Counts> langCounts = countsCache.getPathCounts().get(path);
+        @Override
+        public void start(final Summary summary) throws IOException {
+            this.summary = summary;
+            this.inFiles = false;
+
+            try {
+                this.xmlWriter.startDocument();
+                this.xmlWriter.addNSPrefix("", NAMESPACE);
+
+                final AttributesImpl attrs = new AttributesImpl();
+                addAttribute(attrs, "xmlns:xsi", XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI);
+                addAttribute(attrs, "xsi:schemaLocation", SCHEMA_URL + " " + SCHEMA_FILENAME);
+                addAttribute(attrs, "formatVersion", FORMAT_VERSION);
+                addAttribute(attrs, "date", timestamp());
+                addAttribute(attrs, "projectName", getProjectName().get());
+                addAttribute(attrs, "projectVersion", getProjectVersion().get());
+                this.xmlWriter.startElement(NAMESPACE, "locc", attrs);
+
+                final AttributesImpl langsAttrs = new AttributesImpl();
+                addAttribute(langsAttrs, "numLanguages", summary.numLanguages());
+                addCountAttributes(langsAttrs, summary.total());
+                this.xmlWriter.startElement(NAMESPACE, "languages", langsAttrs);
+            } catch (final SAXException ex) {
+                throw new IOException(ex);
+            }
+        }
 
-            final AttributesImpl fileAttrs = new AttributesImpl();
-            addAttribute(fileAttrs, "pathname", preparePathname(path).toString());
-            if (unrecognized.contains(path)) {
-                addAttribute(fileAttrs, "unrecognized", "true");
+        @Override
+        public void language(final Language language, final int numFiles, final Counts counts) throws IOException {
+            try {
+                writeLanguage(this.xmlWriter, language, counts);
+            } catch (final SAXException ex) {
+                throw new IOException(ex);
             }
-            addAttribute(fileAttrs, "numLanguages", langCounts.size());
-            addCountAttributes(fileAttrs, pathTotals.getOrDefault(path, Counts.ZERO));
-            xmlWriter.startElement(NAMESPACE, "file", fileAttrs);
-
-            final List<Language> languages = new ArrayList<>(langCounts.keySet());
-            languages.sort(Comparator.comparing(Language::getDisplayName));
-            for (final Language language : languages) {
-                writeLanguageRef(xmlWriter, language, langCounts.get(language));
+        }
+
+        @Override
+        public void file(final Path path, final boolean unrecognized, final Counts total,
+                         final Map<Language, Counts> counts) throws IOException {
+            try {
+                startFiles();
+
+                final AttributesImpl fileAttrs = new AttributesImpl();
+                addAttribute(fileAttrs, "pathname", preparePathname(path).toString());
+                if (unrecognized) {
+                    addAttribute(fileAttrs, "unrecognized", "true");
+                }
+                addAttribute(fileAttrs, "numLanguages", counts.size());
+                addCountAttributes(fileAttrs, total);
+                this.xmlWriter.startElement(NAMESPACE, "file", fileAttrs);
+
+                for (final Map.Entry<Language, Counts> entry : counts.entrySet()) {
+                    writeLanguageRef(this.xmlWriter, entry.getKey(), entry.getValue());
+                }
+
+                this.xmlWriter.endElement();
+            } catch (final SAXException ex) {
+                throw new IOException(ex);
             }
+        }
 
-            xmlWriter.endElement();
+        @Override
+        public void end() throws IOException {
+            try {
+                startFiles();
+                this.xmlWriter.endElement();
+                this.xmlWriter.endElement();
+                this.xmlWriter.endDocument();
+            } catch (final SAXException ex) {
+                throw new IOException(ex);
+            }
         }
 
-        xmlWriter.endElement();
+        private void startFiles() throws SAXException {
+            if (this.inFiles) {
+                return;
+            }
+            assert this.summary != null;
+            this.inFiles = true;
+            this.xmlWriter.endElement();
+
+            final AttributesImpl filesAttrs = new AttributesImpl();
+            addAttribute(filesAttrs, "numFiles", this.summary.numFiles());
+            addAttribute(filesAttrs, "numUnrecognized", this.summary.numUnrecognized());
+            addCountAttributes(filesAttrs, this.summary.total());
+            this.xmlWriter.startElement(NAMESPACE, "files", filesAttrs);
+        }
     }
 
     private void writeLanguage(final XmlWriter xmlWriter, final Language language, final Counts counts)
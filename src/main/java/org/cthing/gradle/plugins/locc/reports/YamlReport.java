@@ -6,27 +6,18 @@
 package org.cthing.gradle.plugins.locc.reports;
 
 import java.io.BufferedWriter;
-import java.io.File;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
+import java.io.Writer;
 import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 import javax.inject.Inject;
 
 import org.cthing.escapers.YamlEscaper;
-import org.cthing.gradle.plugins.locc.CountsCache;
 import org.cthing.locc4j.Counts;
 import org.cthing.locc4j.Language;
 import org.gradle.api.Task;
 import org.gradle.api.file.DirectoryProperty;
-import org.gradle.api.tasks.TaskExecutionException;
 import org.jspecify.annotations.Nullable;
 
 
@@ -38,83 +29,126 @@ public final class YamlReport extends AbstractLoccReport {
     private static final int FORMAT_VERSION = 1;
     private static final String INDENT_4 = "    ";
     private static final String INDENT_8 = "        ";
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
 
     @Inject
     public YamlReport(final Task task, final DirectoryProperty reportsDir) {
         super(task, "yaml", "Report in YAML format", false);
-        getOutputLocation().value(reportsDir.file(REPORT_BASE_NAME + ".yaml"));
+        setDefaultOutputLocation(reportsDir, REPORT_BASE_NAME + ".yaml");
     }
 
     @Override
-    public void generateReport(final CountsCache countsCache) {
-        final Counts totalCounts = countsCache.getTotalCounts();
-        final Set<Language> languages = countsCache.getLanguages();
-
-        final File destination = getOutputLocation().getAsFile().get();
-        try (BufferedWriter writer =
-                     new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(destination.toPath()),
-                                                               StandardCharsets.UTF_8))) {
-            writeln(writer, "---");
-            writeln(writer, "formatVersion: ", FORMAT_VERSION);
-            writeln(writer, "date: ", timestamp());
-            writeln(writer, "projectName: ", this.task.getProject().getName());
-            writeln(writer, "projectVersion: ", this.task.getProject().getVersion().toString());
-            writeln(writer, "numFiles: ", countsCache.getPathCounts().size());
-            writeln(writer, "numUnrecognized: ", countsCache.getUnrecognized().size());
-            writeln(writer, "numLanguages: ", languages.size());
-            writeCounts(writer, null, totalCounts);
-            writeLanguages(writer, countsCache);
-            writeFiles(writer, countsCache);
-            writeln(writer, "...");
-        } catch (final IOException ex) {
-            throw new TaskExecutionException(this.task, ex);
-        }
+    public LoccReportVisitor createEncoder() throws IOException {
+        return new Encoder();
     }
 
-    private void writeLanguages(final BufferedWriter writer, final CountsCache countsCache) throws IOException {
-        writeln(writer, "languages:");
-
-        final Map<Language, Counts> langCounts = countsCache.getLanguageCounts();
-        final List<Language> languages = new ArrayList<>(langCounts.keySet());
-        languages.sort(Comparator.comparing(Language::getDisplayName));
-        for (final Language language : languages) {
-            writeln(writer, "  - name: ", language.name());
-            writeln(writer, "    displayName: ", language.getDisplayName());
-            writeln(writer, "    description: ", language.getDescription());
-            writeln(writer, "    website: ", language.getWebsite());
-            writeCounts(writer, INDENT_4, langCounts.get(language));
+    /**
+     * Writes the YAML report as the counts are traversed. The files sequence is started when the first file is
+     * received. In compact mode, each language and file is written on a single line as a flow mapping.
+     */
+    private final class Encoder extends FileEncoder {
+
+        private final boolean compact;
+        private boolean inFiles;
+
+        Encoder() throws IOException {
+            this.compact = getCompact().get();
         }
-    }
 
-    private void writeFiles(final BufferedWriter writer, final CountsCache countsCache) throws IOException {
-        writeln(writer, "files:");
-
-        final Map<Path, Counts> pathTotals = countsCache.getFileCounts();
-        final Set<Path> unrecognized = countsCache.getUnrecognized();
-        final List<Path> paths = new ArrayList<>(countsCache.getPathCounts().keySet());
-        paths.sort(Path::compareTo);
-        for (final Path path : paths) {
-            final Map<Language, Counts> langCounts = countsCache.getPathCounts().get(path);
-            writeln(writer, "  - pathname: ", preparePathname(path).toString());
-            writeln(writer, "    numLanguages: ", langCounts.size());
-            if (unrecognized.contains(path)) {
-                writeln(writer, "    unrecognized: ", "true");
+        @Override
+        public void start(final Summary summary) throws IOException {
+            this.inFiles = false;
+
+            writeln(this.writer, "---");
+            writeln(this.writer, "formatVersion: ", FORMAT_VERSION);
+            writeln(this.writer, "date: ", timestamp());
+            writeln(this.writer, "projectName: ", getProjectName().get());
+            writeln(this.writer, "projectVersion: ", getProjectVersion().get());
+            writeln(this.writer, "numFiles: ", summary.numFiles());
+            writeln(this.writer, "numUnrecognized: ", summary.numUnrecognized());
+            writeln(this.writer, "numLanguages: ", summary.numLanguages());
+            writeCounts(this.writer, null, summary.total());
+            writeln(this.writer, "languages:");
+        }
+
+        @Override
+        public void language(final Language language, final int numFiles, final Counts counts) throws IOException {
+            if (this.compact) {
+                this.writer.write("- {name: ");
+                this.writer.write(language.name());
+                writeFlow(this.writer, ", displayName: ", language.getDisplayName());
+                writeFlow(this.writer, ", description: ", language.getDescription());
+                writeFlow(this.writer, ", website: ", language.getWebsite());
+                writeFlowCounts(this.writer, counts);
+                writeln(this.writer, "}");
+                return;
             }
-            writeCounts(writer, INDENT_4, pathTotals.getOrDefault(path, Counts.ZERO));
 
-            final List<Language> languages = new ArrayList<>(langCounts.keySet());
-            if (languages.isEmpty()) {
-                writeln(writer, "    languages: []");
+            writeln(this.writer, "  - name: ", language.name());
+            writeln(this.writer, "    displayName: ", language.getDisplayName());
+            writeln(this.writer, "    description: ", language.getDescription());
+            writeln(this.writer, "    website: ", language.getWebsite());
+            writeCounts(this.writer, INDENT_4, counts);
+        }
+
+        @Override
+        public void file(final Path path, final boolean unrecognized, final Counts total,
+                         final Map<Language, Counts> counts) throws IOException {
+            startFiles();
+
+            if (this.compact) {
+                this.writer.write("- {");
+                writeFlow(this.writer, "pathname: ", preparePathname(path).toString());
+                this.writer.write(", numLanguages: ");
+                this.writer.write(Integer.toString(counts.size(), 10));
+                if (unrecognized) {
+                    this.writer.write(", unrecognized: true");
+                }
+                writeFlowCounts(this.writer, total);
+                this.writer.write(", languages: [");
+                boolean first = true;
+                for (final Map.Entry<Language, Counts> entry : counts.entrySet()) {
+                    this.writer.write(first ? "{name: " : ", {name: ");
+                    first = false;
+                    this.writer.write(entry.getKey().name());
+                    writeFlowCounts(this.writer, entry.getValue());
+                    this.writer.write("}");
+                }
+                writeln(this.writer, "]}");
+                return;
+            }
+
+            writeln(this.writer, "  - pathname: ", preparePathname(path).toString());
+            writeln(this.writer, "    numLanguages: ", counts.size());
+            if (unrecognized) {
+                writeln(this.writer, "    unrecognized: ", "true");
+            }
+            writeCounts(this.writer, INDENT_4, total);
+
+            if (counts.isEmpty()) {
+                writeln(this.writer, "    languages: []");
             } else {
-                writeln(writer, "    languages:");
+                writeln(this.writer, "    languages:");
 
-                languages.sort(Comparator.comparing(Language::getDisplayName));
-                for (final Language language : languages) {
-                    writeln(writer, "      - name: ", language.name());
-                    writeCounts(writer, INDENT_8, langCounts.get(language));
+                for (final Map.Entry<Language, Counts> entry : counts.entrySet()) {
+                    writeln(this.writer, "      - name: ", entry.getKey().name());
+                    writeCounts(this.writer, INDENT_8, entry.getValue());
                 }
             }
         }
+
+        @Override
+        public void end() throws IOException {
+            startFiles();
+            writeln(this.writer, "...");
+        }
+
+        private void startFiles() throws IOException {
+            if (!this.inFiles) {
+                this.inFiles = true;
+                writeln(this.writer, "files:");
+            }
+        }
     }
 
     private void writeCounts(final BufferedWriter writer, @Nullable final String indent, final Counts counts)
@@ -125,6 +159,78 @@ public final class YamlReport extends AbstractLoccReport {
         writeln(writer, indent, "blankLines: ", counts.getBlankLines());
     }
 
+    private void writeFlowCounts(final BufferedWriter writer, final Counts counts) throws IOException {
+        writer.write(", totalLines: ");
+        writer.write(Integer.toString(counts.getTotalLines(), 10));
+        writer.write(", codeLines: ");
+        writer.write(Integer.toString(counts.getCodeLines(), 10));
+        writer.write(", commentLines: ");
+        writer.write(Integer.toString(counts.getCommentLines(), 10));
+        writer.write(", blankLines: ");
+        writer.write(Integer.toString(counts.getBlankLines(), 10));
+    }
+
+    /**
+     * Writes a string value in a flow mapping. Flow indicators such as commas are allowed in plain scalars in
+     * block context but not in flow context, so the value is always written as a double-quoted scalar.
+     *
+     * @param writer Destination for the value
+     * @param str Key and separator preceding the value
+     * @param val Value to write. If {@code null}, nothing is written.
+     * @throws IOException if there was a problem writing the value
+     */
+    private void writeFlow(final BufferedWriter writer, final String str, @Nullable final String val)
+            throws IOException {
+        if (val != null) {
+            writer.write(str);
+            writeDoubleQuoted(writer, val);
+        }
+    }
+
+    /**
+     * Writes the specified string as a YAML double-quoted scalar. Only the escapes defined by YAML 1.1 are used,
+     * so that the scalar can be read by YAML 1.1 parsers as well as YAML 1.2 parsers. In particular, the
+     * {@code \/} escape of JSON strings is only defined by YAML 1.2 and is not used. Line break characters are
+     * escaped because they would otherwise be folded into spaces.
+     *
+     * @param writer Destination for the scalar
+     * @param val String to write
+     * @throws IOException if there was a problem writing the scalar
+     */
+    static void writeDoubleQuoted(final Writer writer, final String val) throws IOException {
+        writer.write('"');
+        final int length = val.length();
+        for (int i = 0; i < length; i++) {
+            final char ch = val.charAt(i);
+            switch (ch) {
+                case '"' -> writer.write("\\\"");
+                case '\\' -> writer.write("\\\\");
+                case '\t' -> writer.write("\\t");
+                case '\n' -> writer.write("\\n");
+                case '\r' -> writer.write("\\r");
+                case '\u0085' -> writer.write("\\N");
+                case '\u2028' -> writer.write("\\L");
+                case '\u2029' -> writer.write("\\P");
+                default -> {
+                    if (ch < 0x20 || (ch >= 0x7F && ch < 0xA0)) {
+                        writer.write("\\x");
+                        writer.write(HEX_DIGITS[ch >> 4]);
+                        writer.write(HEX_DIGITS[ch & 0xF]);
+                    } else if (ch == '\uFFFE' || ch == '\uFFFF') {
+                        writer.write("\\u");
+                        writer.write(HEX_DIGITS[ch >> 12]);
+                        writer.write(HEX_DIGITS[(ch >> 8) & 0xF]);
+                        writer.write(HEX_DIGITS[(ch >> 4) & 0xF]);
+                        writer.write(HEX_DIGITS[ch & 0xF]);
+                    } else {
+                        writer.write(ch);
+                    }
+                }
+            }
+        }
+        writer.write('"');
+    }
+
     private void writeln(final BufferedWriter writer, final String str) throws IOException {
         writer.write(str);
         writer.newLine();
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.cthing.gradle.plugins.locc;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.cthing.locc4j.Counts;
+import org.cthing.locc4j.Language;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+public class AliasResolverTest {
+
+    private static final Map<Language, Counts> COUNTS = Map.of(Language.Java, new Counts(3, 1, 1));
+
+    @TempDir
+    private Path tempDir;
+
+    private Path rootDir;
+    private Path sharedDir;
+    private Path sharedFile;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        // The temporary directory may itself be reached through a symbolic link (e.g. /tmp on macOS).
+        this.rootDir = this.tempDir.toRealPath();
+        this.sharedDir = this.rootDir.resolve("shared");
+        Files.createDirectories(this.sharedDir);
+        this.sharedFile = this.sharedDir.resolve("Shared.java");
+        Files.writeString(this.sharedFile, "class Shared {\n}\n");
+    }
+
+    @Test
+    public void testNoAliases() throws IOException {
+        final Path other = this.sharedDir.resolve("Other.java");
+        Files.writeString(other, "class Shared {\n}\n");
+        final List<Path> files = List.of(this.sharedFile, other);
+
+        assertThat(AliasResolver.findAliases(files)).isEmpty();
+    }
+
+    @Test
+    public void testSymlinkedDirectory() throws IOException {
+        final Path linkedDir = Files.createSymbolicLink(this.rootDir.resolve("linked"), this.sharedDir);
+        final Path linkedFile = linkedDir.resolve("Shared.java");
+        final List<Path> files = List.of(linkedFile, this.sharedFile);
+
+        final Map<Path, Set<Path>> aliases = AliasResolver.findAliases(files);
+        assertThat(aliases).containsOnlyKeys(linkedFile);
+        assertThat(aliases.get(linkedFile)).containsExactly(linkedFile, this.sharedFile);
+    }
+
+    @Test
+    public void testSymlinkedFile() throws IOException {
+        final Path linkedFile = Files.createSymbolicLink(this.rootDir.resolve("Linked.java"), this.sharedFile);
+
+        final Map<Path, Set<Path>> aliases = AliasResolver.findAliases(List.of(this.sharedFile, linkedFile));
+        assertThat(aliases).containsOnlyKeys(linkedFile);
+        assertThat(aliases.get(linkedFile)).containsExactly(linkedFile, this.sharedFile);
+    }
+
+    @Test
+    public void testHardLink() throws IOException {
+        final Path linkedFile = Files.createLink(this.rootDir.resolve("Linked.java"), this.sharedFile);
+
+        final Map<Path, Set<Path>> aliases = AliasResolver.findAliases(List.of(this.sharedFile, linkedFile));
+        assertThat(aliases).containsOnlyKeys(linkedFile);
+        assertThat(aliases.get(linkedFile)).containsExactly(linkedFile, this.sharedFile);
+    }
+
+    @Test
+    public void testMergeGroups() {
+        final Path a = Path.of("a");
+        final Path b = Path.of("b");
+        final Path c = Path.of("c");
+        final Path d = Path.of("d");
+        final Path e = Path.of("e");
+        final Path f = Path.of("f");
+
+        final Map<Path, Set<Path>> duplicates = Map.of(a, Set.of(a, c), e, Set.of(e, f));
+        final Map<Path, Set<Path>> aliases = Map.of(b, Set.of(b, c), d, Set.of(d, e));
+
+        final Map<Path, Set<Path>> merged = AliasResolver.mergeGroups(duplicates, aliases);
+        assertThat(merged).containsOnlyKeys(a, d);
+        assertThat(merged.get(a)).containsExactly(a, b, c);
+        assertThat(merged.get(d)).containsExactly(d, e, f);
+
+        assertThat(AliasResolver.mergeGroups(Map.of(), aliases)).isEqualTo(aliases);
+    }
+
+    @Test
+    public void testAttributeFirst() {
+        final Path first = Path.of("a/Shared.java");
+        final Path alias = Path.of("b/Shared.java");
+        final Path copy = Path.of("c/Copy.java");
+        final Map<Path, Map<Language, Counts>> counts = new HashMap<>(Map.of(first, COUNTS));
+        final Map<Path, Set<Path>> aliases = Map.of(first, Set.of(first, alias));
+        final Map<Path, Set<Path>> duplicates = Map.of(first, Set.of(first, copy));
+
+        final Map<Path, Set<Path>> groups =
+                AliasResolver.attribute(AliasAttribution.FIRST, counts, aliases, duplicates, true);
+        assertThat(groups).isEqualTo(duplicates);
+        assertThat(counts).containsOnlyKeys(first);
+    }
+
+    @Test
+    public void testAttributeAll() {
+        final Path first = Path.of("a/Shared.java");
+        final Path alias = Path.of("b/Shared.java");
+        final Path copy = Path.of("c/Copy.java");
+        final Map<Path, Map<Language, Counts>> counts = new HashMap<>(Map.of(first, COUNTS));
+        final Map<Path, Set<Path>> aliases = Map.of(first, Set.of(first, alias));
+        final Map<Path, Set<Path>> duplicates = Map.of(first, Set.of(first, copy));
+
+        Map<Path, Set<Path>> groups =
+                AliasResolver.attribute(AliasAttribution.ALL, counts, aliases, duplicates, true);
+        assertThat(groups).containsOnlyKeys(first);
+        assertThat(groups.get(first)).containsExactly(first, alias, copy);
+        assertThat(counts).containsOnlyKeys(first, alias);
+        assertThat(counts.get(alias)).isEqualTo(COUNTS);
+
+        counts.remove(alias);
+        groups = AliasResolver.attribute(AliasAttribution.ALL, counts, aliases, Map.of(), false);
+        assertThat(groups).isEmpty();
+        assertThat(counts).containsOnlyKeys(first, alias);
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.cthing.gradle.plugins.locc;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+public class ArchiveEntriesTest {
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    public void testEntries() throws IOException {
+        final Path archive = this.tempDir.resolve("libs/app-sources.jar");
+        Files.createDirectories(archive.getParent());
+        try (OutputStream outs = Files.newOutputStream(archive);
+             ZipOutputStream zipOuts = new ZipOutputStream(outs)) {
+            addEntry(zipOuts, "com/example/App.java", "class App {\n}\n");
+            addEntry(zipOuts, "com/example/generated/Gen.java", "class Gen {\n}\n");
+            addEntry(zipOuts, "META-INF/MANIFEST.MF", "Manifest-Version: 1.0\n");
+        }
+
+        final PathFilter filter = new PathFilter(List.of(), List.of("**/generated/**"));
+        try (ArchiveEntries archiveEntries = new ArchiveEntries()) {
+            archiveEntries.add(archive, filter, this.tempDir);
+
+            final List<Path> entries = archiveEntries.getEntries();
+            assertThat(entries).hasSize(2);
+            assertThat(entries).map(archiveEntries::getDisplayPath)
+                               .containsExactlyInAnyOrder(Path.of(archive + "!/com/example/App.java"),
+                                                          Path.of(archive + "!/META-INF/MANIFEST.MF"));
+
+            final Path appEntry = entries.stream()
+                                         .filter(entry -> entry.endsWith("App.java"))
+                                         .findFirst()
+                                         .orElseThrow();
+            assertThat(Files.readString(appEntry)).isEqualTo("class App {\n}\n");
+        }
+
+        assertThat(filter.getRemoved()).containsEntry("**/generated/**", new PathFilter.Removed(1, 0));
+    }
+
+    private static void addEntry(final ZipOutputStream zipOuts, final String name, final String content)
+            throws IOException {
+        zipOuts.putNextEntry(new ZipEntry(name));
+        zipOuts.write(content.getBytes(StandardCharsets.UTF_8));
+        zipOuts.closeEntry();
+    }
+}
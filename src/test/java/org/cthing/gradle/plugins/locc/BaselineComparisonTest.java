@@ -0,0 +1,177 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.cthing.gradle.plugins.locc;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cthing.locc4j.Counts;
+import org.cthing.locc4j.Language;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+
+public class BaselineComparisonTest {
+
+    private static final String BASELINE = """
+            {
+                "formatVersion": 1,
+                "projectName": "test",
+                "numFiles": 4,
+                "languages": [
+                    { "name": "Java", "displayName": "Java", "totalLines": 22, "codeLines": 18 }
+                ],
+                "files": [
+                    {
+                        "pathname": "lib/\\"odd\\u0020name\\".txt",
+                        "numLanguages": 0,
+                        "unrecognized": true,
+                        "totalLines": 0,
+                        "codeLines": 0,
+                        "commentLines": 0,
+                        "blankLines": 0,
+                        "languages": []
+                    },
+                    {
+                        "pathname": "lib/Changed.java",
+                        "numLanguages": 1,
+                        "languages": [
+                            { "name": "Java", "totalLines": 13, "codeLines": 10, "commentLines": 2, "blankLines": 1 }
+                        ]
+                    },
+                    {
+                        "pathname": "lib/Removed.java",
+                        "numLanguages": 1,
+                        "languages": [
+                            { "name": "Java", "totalLines": 5, "codeLines": 5, "commentLines": 0, "blankLines": 0 }
+                        ]
+                    },
+                    {
+                        "pathname": "lib/Same.java",
+                        "numLanguages": 1,
+                        "languages": [
+                            { "name": "Java", "totalLines": 4, "codeLines": 3, "commentLines": 1, "blankLines": 0 }
+                        ]
+                    }
+                ]
+            }
+            """;
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    public void testCompare() throws IOException {
+        final Path baseline = this.tempDir.resolve("locc.json");
+        Files.writeString(baseline, BASELINE, StandardCharsets.UTF_8);
+
+        final Path rootPath = this.tempDir.resolve("project");
+        final Map<Path, Map<Language, Counts>> pathCounts = new HashMap<>();
+        pathCounts.put(rootPath.resolve("lib/\"odd name\".txt"), new EnumMap<>(Language.class));
+        pathCounts.put(rootPath.resolve("lib/Added.cpp"), Map.of(Language.Cpp, new Counts(4, 0, 1)));
+        pathCounts.put(rootPath.resolve("lib/Changed.java"), Map.of(Language.Java, new Counts(12, 2, 1)));
+        pathCounts.put(rootPath.resolve("lib/Same.java"), Map.of(Language.Java, new Counts(3, 1, 0)));
+
+        final File filesReport = this.tempDir.resolve("files.csv").toFile();
+        final File languagesReport = this.tempDir.resolve("languages.csv").toFile();
+        final BaselineComparison.Summary summary =
+                new BaselineComparison(pathCounts, rootPath).compare(baseline, filesReport, languagesReport);
+
+        assertThat(summary.added()).isEqualTo(1);
+        assertThat(summary.removed()).isEqualTo(1);
+        assertThat(summary.changed()).isEqualTo(1);
+        assertThat(summary.totalBefore().getCodeLines()).isEqualTo(18);
+        assertThat(summary.totalAfter().getCodeLines()).isEqualTo(19);
+
+        assertThat(Files.readAllLines(filesReport.toPath())).containsExactly(
+                DiffReport.FILES_HEADER,
+                "lib/Added.cpp,A,Cpp,0,4,0,0,0,1",
+                "lib/Changed.java,M,Java,10,12,2,2,1,1",
+                "lib/Removed.java,D,Java,5,0,0,0,0,0");
+
+        final List<String> languageLines = Files.readAllLines(languagesReport.toPath());
+        assertThat(languageLines).hasSize(4);
+        assertThat(languageLines.get(0)).isEqualTo(DiffReport.LANGUAGES_HEADER);
+        assertThat(languageLines.get(1)).isEqualTo("ALL,All,4,4,18,19,3,3,1,2");
+        assertThat(languageLines.subList(2, 4)).containsExactlyInAnyOrder(
+                "Cpp," + DiffReport.escape(Language.Cpp.getDisplayName()) + ",0,1,0,4,0,0,0,1",
+                "Java," + DiffReport.escape(Language.Java.getDisplayName()) + ",3,2,18,15,3,3,1,1");
+    }
+
+    @Test
+    public void testCompareArtifact() throws IOException {
+        final Path report = this.tempDir.resolve("locc.json");
+        Files.writeString(report, BASELINE, StandardCharsets.UTF_8);
+
+        // The baseline artifact was written by a build in a different location.
+        final Path baselineRootPath = this.tempDir.resolve("main");
+        final Map<Path, Map<Language, Counts>> baselineCounts = new HashMap<>();
+        LoccReportReader.read(report).getPathCounts()
+                        .forEach((path, counts) -> baselineCounts.put(baselineRootPath.resolve(path), counts));
+        final Path baseline = this.tempDir.resolve("locc-counts.bin");
+        CountsArtifact.write(baseline, baselineRootPath,
+                             new CountsArtifact.Contents(Shard.ALL, "", baselineCounts, Map.of()));
+
+        final Path rootPath = this.tempDir.resolve("project");
+        final Map<Path, Map<Language, Counts>> pathCounts = new HashMap<>();
+        pathCounts.put(rootPath.resolve("lib/\"odd name\".txt"), new EnumMap<>(Language.class));
+        pathCounts.put(rootPath.resolve("lib/Added.cpp"), Map.of(Language.Cpp, new Counts(4, 0, 1)));
+        pathCounts.put(rootPath.resolve("lib/Changed.java"), Map.of(Language.Java, new Counts(12, 2, 1)));
+        pathCounts.put(rootPath.resolve("lib/Same.java"), Map.of(Language.Java, new Counts(3, 1, 0)));
+
+        final File filesReport = this.tempDir.resolve("files.csv").toFile();
+        final BaselineComparison.Summary summary =
+                new BaselineComparison(pathCounts, rootPath).compare(baseline, filesReport, null);
+
+        assertThat(summary.added()).isEqualTo(1);
+        assertThat(summary.removed()).isEqualTo(1);
+        assertThat(summary.changed()).isEqualTo(1);
+        assertThat(summary.totalBefore().getCodeLines()).isEqualTo(18);
+        assertThat(summary.totalAfter().getCodeLines()).isEqualTo(19);
+        assertThat(Files.readAllLines(filesReport.toPath())).containsExactly(
+                DiffReport.FILES_HEADER,
+                "lib/Added.cpp,A,Cpp,0,4,0,0,0,1",
+                "lib/Changed.java,M,Java,10,12,2,2,1,1",
+                "lib/Removed.java,D,Java,5,0,0,0,0,0");
+    }
+
+    @Test
+    public void testUnsortedBaseline() throws IOException {
+        final Path baseline = this.tempDir.resolve("locc.json");
+        Files.writeString(baseline, """
+                          {
+                              "files": [
+                                  { "pathname": "b.java", "languages": [] },
+                                  { "pathname": "a.java", "languages": [] }
+                              ]
+                          }
+                          """, StandardCharsets.UTF_8);
+
+        final BaselineComparison comparison = new BaselineComparison(Map.of(), this.tempDir);
+        assertThatThrownBy(() -> comparison.compare(baseline, null, null)).isInstanceOf(IOException.class)
+                                                                           .hasMessageContaining("a.java");
+    }
+
+    @Test
+    public void testMalformedBaseline() throws IOException {
+        final Path baseline = this.tempDir.resolve("locc.json");
+        Files.writeString(baseline, "{ \"files\": [ { \"pathname\": \"a.java\" ", StandardCharsets.UTF_8);
+
+        final BaselineComparison comparison = new BaselineComparison(Map.of(), this.tempDir);
+        assertThatThrownBy(() -> comparison.compare(baseline, null, null)).isInstanceOf(IOException.class)
+                                                                           .hasMessageContaining(baseline.toString());
+    }
+}
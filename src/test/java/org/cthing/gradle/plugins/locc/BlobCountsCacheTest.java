@@ -0,0 +1,69 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.cthing.gradle.plugins.locc;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import org.cthing.locc4j.Counts;
+import org.cthing.locc4j.Language;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+public class BlobCountsCacheTest {
+
+    private static final String BLOB_ID = "ce013625030ba8dba906f756967f9e9ca394464a";
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    public void testHash() throws IOException {
+        final Path file = this.tempDir.resolve("hello.txt");
+        Files.writeString(file, "hello\n");
+
+        final BlobCountsCache cache = BlobCountsCache.read(this.tempDir.resolve("cache.bin"), "options");
+        assertThat(cache.hash(file)).isEqualTo(BLOB_ID);
+    }
+
+    @Test
+    public void testPersistence() throws IOException {
+        final Path cacheFile = this.tempDir.resolve("locc/cache.bin");
+        final Path file = Path.of("/src/App.java");
+
+        final BlobCountsCache cache1 = BlobCountsCache.read(cacheFile, "options");
+        assertThat(cache1.size()).isEqualTo(0);
+        assertThat(cache1.get(BLOB_ID, file)).isNull();
+        cache1.put(BLOB_ID, file, Map.of(Language.Java, new Counts(10, 5, 2)));
+        cache1.write(cacheFile);
+
+        final BlobCountsCache cache2 = BlobCountsCache.read(cacheFile, "options");
+        assertThat(cache2.size()).isEqualTo(1);
+        final Map<Language, Counts> counts = cache2.get(BLOB_ID, Path.of("/other/App.java"));
+        assertThat(counts).containsOnlyKeys(Language.Java);
+        assertThat(counts.get(Language.Java).getCodeLines()).isEqualTo(10);
+        assertThat(counts.get(Language.Java).getCommentLines()).isEqualTo(5);
+        assertThat(counts.get(Language.Java).getBlankLines()).isEqualTo(2);
+
+        // The file name is part of the key because it can determine the language.
+        assertThat(cache2.get(BLOB_ID, Path.of("/src/App.kt"))).isNull();
+
+        final BlobCountsCache cache3 = BlobCountsCache.read(cacheFile, "other options");
+        assertThat(cache3.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void testCorrupt() throws IOException {
+        final Path cacheFile = this.tempDir.resolve("cache.bin");
+        Files.writeString(cacheFile, "not a cache");
+        assertThat(BlobCountsCache.read(cacheFile, "options").size()).isEqualTo(0);
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.cthing.gradle.plugins.locc;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.cthing.locc4j.FileCounter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+public class CachedFileCounterTest {
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    public void testCount() throws IOException {
+        final Path file1 = this.tempDir.resolve("File1.java");
+        final Path file2 = this.tempDir.resolve("File2.java");
+        Files.writeString(file1, "class File1 {\n}\n");
+        Files.writeString(file2, "class File2 {\n    // Comment\n}\n");
+        final List<Path> files = List.of(file1, file2);
+
+        final CachedFileCounter cachedCounter = new CachedFileCounter(10);
+        final FileCounter counter = new FileCounter();
+
+        CachedFileCounter.Result result = cachedCounter.count(counter, "a", files);
+        assertThat(result.hits()).isEqualTo(0);
+        assertThat(result.misses()).isEqualTo(2);
+        assertThat(result.counts()).containsOnlyKeys(file1, file2);
+        final CachedFileCounter.Result firstResult = result;
+
+        result = cachedCounter.count(counter, "a", files);
+        assertThat(result.hits()).isEqualTo(2);
+        assertThat(result.misses()).isEqualTo(0);
+        assertThat(result.counts()).isEqualTo(firstResult.counts());
+
+        Files.writeString(file1, "class File1 {\n    int x;\n}\n");
+        result = cachedCounter.count(counter, "a", files);
+        assertThat(result.hits()).isEqualTo(1);
+        assertThat(result.misses()).isEqualTo(1);
+        assertThat(result.counts().get(file1)).isNotEqualTo(firstResult.counts().get(file1));
+
+        result = cachedCounter.count(counter, "b", files);
+        assertThat(result.hits()).isEqualTo(0);
+        assertThat(result.misses()).isEqualTo(2);
+    }
+
+    @Test
+    public void testEviction() throws IOException {
+        final Path file1 = this.tempDir.resolve("File1.java");
+        final Path file2 = this.tempDir.resolve("File2.java");
+        Files.writeString(file1, "class File1 {\n}\n");
+        Files.writeString(file2, "class File2 {\n}\n");
+
+        final CachedFileCounter cachedCounter = new CachedFileCounter(2);
+        final FileCounter counter = new FileCounter();
+
+        cachedCounter.count(counter, "a", List.of(file1, file2));
+        assertThat(cachedCounter.size()).isEqualTo(2);
+
+        cachedCounter.setMaxEntries(1);
+        assertThat(cachedCounter.size()).isEqualTo(1);
+
+        final CachedFileCounter.Result result = cachedCounter.count(counter, "a", List.of(file2));
+        assertThat(result.hits()).isEqualTo(1);
+
+        cachedCounter.setMaxEntries(0);
+        assertThat(cachedCounter.size()).isEqualTo(0);
+    }
+}
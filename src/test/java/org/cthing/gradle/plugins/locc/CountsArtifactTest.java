@@ -0,0 +1,111 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.cthing.gradle.plugins.locc;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.cthing.locc4j.Counts;
+import org.cthing.locc4j.Language;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+
+public class CountsArtifactTest {
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    public void testWriteRead() throws IOException {
+        final Path rootPath = this.tempDir.resolve("project1");
+        final Path javaPath = rootPath.resolve("src/App.java");
+        final Path copyPath = rootPath.resolve("src/copy/App.java");
+        final Path cppPath = rootPath.resolve("src/main.cpp");
+        final Path unrecognizedPath = rootPath.resolve("README.foo");
+        final Path outsidePath = this.tempDir.resolve("other/Lib.java");
+
+        final Map<Path, Map<Language, Counts>> pathCounts = new HashMap<>();
+        pathCounts.put(javaPath, Map.of(Language.Java, new Counts(10, 5, 2)));
+        pathCounts.put(copyPath, Map.of(Language.Java, new Counts(10, 5, 2)));
+        pathCounts.put(cppPath, Map.of(Language.Cpp, new Counts(7, 1, 0), Language.CHeader, new Counts(3, 0, 1)));
+        pathCounts.put(unrecognizedPath, new EnumMap<>(Language.class));
+        pathCounts.put(outsidePath, Map.of(Language.Java, new Counts(4, 0, 0)));
+        final Map<Path, Set<Path>> duplicates = Map.of(javaPath, new TreeSet<>(Set.of(javaPath, copyPath)));
+
+        final Path artifact = this.tempDir.resolve("build/locc/locc-counts.bin");
+        CountsArtifact.write(artifact, rootPath,
+                             new CountsArtifact.Contents(new Shard(1, 3), "options", pathCounts, duplicates));
+
+        // The artifact is read relative to a different checkout location.
+        final Path otherRootPath = this.tempDir.resolve("project2");
+        final CountsArtifact.Contents contents = CountsArtifact.read(artifact, otherRootPath);
+        assertThat(contents.shard()).isEqualTo(new Shard(1, 3));
+        assertThat(contents.options()).isEqualTo("options");
+        assertThat(contents.pathCounts()).containsOnlyKeys(otherRootPath.resolve("src/App.java"),
+                                                           otherRootPath.resolve("src/copy/App.java"),
+                                                           otherRootPath.resolve("src/main.cpp"),
+                                                           otherRootPath.resolve("README.foo"),
+                                                           outsidePath);
+        assertThat(contents.pathCounts().get(otherRootPath.resolve("README.foo"))).isEmpty();
+
+        final Map<Language, Counts> cppCounts = contents.pathCounts().get(otherRootPath.resolve("src/main.cpp"));
+        assertThat(cppCounts).containsOnlyKeys(Language.Cpp, Language.CHeader);
+        assertThat(cppCounts.get(Language.Cpp).getCodeLines()).isEqualTo(7);
+        assertThat(cppCounts.get(Language.Cpp).getCommentLines()).isEqualTo(1);
+        assertThat(cppCounts.get(Language.CHeader).getBlankLines()).isEqualTo(1);
+
+        assertThat(contents.duplicateGroups()).containsOnlyKeys(otherRootPath.resolve("src/App.java"));
+        assertThat(contents.duplicateGroups().get(otherRootPath.resolve("src/App.java")))
+                .containsExactly(otherRootPath.resolve("src/App.java"), otherRootPath.resolve("src/copy/App.java"));
+    }
+
+    @Test
+    public void testInvalidArtifact() throws IOException {
+        final Path artifact = this.tempDir.resolve("locc-counts.bin");
+        Files.writeString(artifact, "not an artifact");
+        assertThatThrownBy(() -> CountsArtifact.read(artifact, this.tempDir)).isInstanceOf(IOException.class)
+                                                                              .hasMessageContaining("not a line");
+    }
+
+    @Test
+    public void testMerge() throws IOException {
+        final Path path1 = Path.of("/project/a.java");
+        final Path path2 = Path.of("/project/b.java");
+        final CountsArtifact.Contents shard0 =
+                new CountsArtifact.Contents(new Shard(0, 2), "options",
+                                            Map.of(path1, Map.of(Language.Java, new Counts(1, 2, 3))), Map.of());
+        final CountsArtifact.Contents shard1 =
+                new CountsArtifact.Contents(new Shard(1, 2), "options",
+                                            Map.of(path2, Map.of(Language.Java, new Counts(4, 5, 6))), Map.of());
+
+        final CountsArtifact.Contents merged = CountsArtifact.merge(List.of(shard1, shard0));
+        assertThat(merged.shard()).isEqualTo(Shard.ALL);
+        assertThat(merged.pathCounts()).containsOnlyKeys(path1, path2);
+
+        assertThatThrownBy(() -> CountsArtifact.merge(List.of(shard0))).isInstanceOf(IOException.class)
+                                                                      .hasMessageContaining("missing");
+        assertThatThrownBy(() -> CountsArtifact.merge(List.of(shard0, shard0, shard1)))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("more than once");
+
+        final CountsArtifact.Contents otherOptions =
+                new CountsArtifact.Contents(new Shard(1, 2), "other", Map.of(), Map.of());
+        assertThatThrownBy(() -> CountsArtifact.merge(List.of(shard0, otherOptions)))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("different options");
+    }
+}
@@ -11,6 +11,7 @@ import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 
 import org.cthing.locc4j.Counter;
 import org.cthing.locc4j.Counts;
@@ -118,4 +119,82 @@ public class CountsCacheTest {
     public void testGetUnrecognized() {
         assertThat(this.countsCache.getUnrecognized()).containsExactly(UNRECOGNIZED_PATH);
     }
+
+    @Test
+    public void testNoDuplicates() {
+        assertThat(this.countsCache.getDuplicateGroups()).isEmpty();
+        assertThat(this.countsCache.getUniqueTotalCounts()).isEqualTo(this.countsCache.getTotalCounts());
+    }
+
+    @Test
+    public void testDuplicates() {
+        final Path copyPath = Path.of("/tmp/copy/file2.java");
+        final Map<Path, Map<Language, Counts>> pathCounts = new HashMap<>(PATH_COUNTS);
+        pathCounts.put(copyPath, PATH_COUNTS.get(JAVA_PATH));
+        final Map<Path, Set<Path>> duplicates = Map.of(copyPath, new TreeSet<>(Set.of(copyPath, JAVA_PATH)));
+
+        final CountsCache cache = new CountsCache(pathCounts, duplicates);
+        assertThat(cache.getDuplicateGroups()).isEqualTo(duplicates);
+        assertThat(cache.getTotalCounts().getTotalLines()).isEqualTo(33);
+        assertThat(cache.getTotalCounts().getCodeLines()).isEqualTo(18);
+        assertThat(cache.getUniqueTotalCounts().getTotalLines()).isEqualTo(20);
+        assertThat(cache.getUniqueTotalCounts().getCodeLines()).isEqualTo(12);
+    }
+
+    @Test
+    public void testUpdate() throws IOException {
+        final CountsCache cache = new CountsCache(new HashMap<>(PATH_COUNTS));
+        assertThat(cache.getTotalCounts().getTotalLines()).isEqualTo(20);
+
+        final Path newPath = Path.of("/tmp/file4.java");
+        final Map<Language, Counts> newCounts = new Counter(Language.Java).count("""
+                                                                                 // Comment
+                                                                                 int x = 1;
+                                                                                 """);
+        CountsCache.Changes changes = cache.update(Map.of(newPath, newCounts), Set.of(CPP_PATH));
+        assertThat(changes.files()).isTrue();
+        assertThat(changes.languages()).isTrue();
+
+        final Map<Path, Map<Language, Counts>> expectedCounts = new HashMap<>(PATH_COUNTS);
+        expectedCounts.remove(CPP_PATH);
+        expectedCounts.put(newPath, newCounts);
+        final CountsCache expected = new CountsCache(expectedCounts);
+
+        assertThat(cache.getPathCounts()).isEqualTo(expectedCounts);
+        assertThat(cache.getLanguages()).containsExactly(Language.Java);
+        assertThat(cache.getTotalCounts().getCodeLines()).isEqualTo(expected.getTotalCounts().getCodeLines());
+        assertThat(cache.getTotalCounts().getCommentLines()).isEqualTo(expected.getTotalCounts().getCommentLines());
+        assertThat(cache.getTotalCounts().getBlankLines()).isEqualTo(expected.getTotalCounts().getBlankLines());
+        assertThat(cache.getLanguageCounts()).containsOnlyKeys(Language.Java);
+        assertThat(cache.getLanguageCounts().get(Language.Java).getCodeLines())
+                .isEqualTo(expected.getLanguageCounts().get(Language.Java).getCodeLines());
+        assertThat(cache.getLanguagePathCounts()).isEqualTo(expected.getLanguagePathCounts());
+        assertThat(cache.getFileCounts()).containsOnlyKeys(JAVA_PATH, newPath);
+        assertThat(cache.getUnrecognized()).containsExactly(UNRECOGNIZED_PATH);
+
+        changes = cache.update(Map.of(newPath, newCounts, UNRECOGNIZED_PATH, new EnumMap<>(Language.class)),
+                               Set.of());
+        assertThat(changes.files()).isFalse();
+        assertThat(changes.languages()).isFalse();
+
+        changes = cache.update(Map.of(), Set.of(UNRECOGNIZED_PATH));
+        assertThat(changes.files()).isTrue();
+        assertThat(changes.languages()).isFalse();
+        assertThat(cache.getUnrecognized()).isEmpty();
+    }
+
+    @Test
+    public void testUpdateDuplicates() {
+        final Path copyPath = Path.of("/tmp/copy/file2.java");
+        final Map<Path, Map<Language, Counts>> pathCounts = new HashMap<>(PATH_COUNTS);
+        pathCounts.put(copyPath, PATH_COUNTS.get(JAVA_PATH));
+        final Map<Path, Set<Path>> duplicates = Map.of(copyPath, new TreeSet<>(Set.of(copyPath, JAVA_PATH)));
+
+        final CountsCache cache = new CountsCache(pathCounts, duplicates);
+        assertThat(cache.getUniqueTotalCounts().getTotalLines()).isEqualTo(20);
+
+        cache.update(Map.of(copyPath, PATH_COUNTS.get(CPP_PATH)), Set.of());
+        assertThat(cache.getDuplicateGroups()).isEmpty();
+        assertThat(cache.getUniqueTotalCounts().getTotalLines()).isEqualTo(27);
+    }
 }
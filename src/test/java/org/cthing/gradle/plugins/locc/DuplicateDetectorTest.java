@@ -0,0 +1,94 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.cthing.gradle.plugins.locc;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+public class DuplicateDetectorTest {
+
+    private static final String CONTENT = "int x;\n";
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    public void testIdenticalContent() throws IOException {
+        final Path file1 = write("a/Main.java", "class Main {\n}\n");
+        final Path file2 = write("b/Main.java", "class Main {\n}\n");
+        final Path file3 = write("c/Main.java", "class Main {\n}\n");
+        final Path file4 = write("d/Main.java", "class Main {\n }\n");
+        final Path file5 = write("Other.java", "class Other {\n}\n");
+
+        final Map<Path, Set<Path>> groups =
+                new DuplicateDetector().findDuplicates(List.of(file3, file5, file2, file4, file1));
+        assertThat(groups).containsOnlyKeys(file1);
+        assertThat(groups.get(file1)).containsExactly(file1, file2, file3);
+    }
+
+    @Test
+    public void testUniqueContent() throws IOException {
+        final Path file1 = write("File1.java", "class File1 {\n}\n");
+        final Path file2 = write("File2.java", "class File2 {\n}\n");
+
+        assertThat(new DuplicateDetector().findDuplicates(List.of(file1, file2))).isEmpty();
+    }
+
+    @Test
+    public void testDifferentLanguages() throws IOException {
+        final Path source = write("x.cpp", CONTENT);
+        final Path header = write("x.h", CONTENT);
+        final Path python = write("script.py", CONTENT);
+        final Path unrecognized = write("notes.foo", CONTENT);
+
+        assertThat(new DuplicateDetector().findDuplicates(List.of(source, header, python, unrecognized))).isEmpty();
+    }
+
+    @Test
+    public void testSameLanguage() throws IOException {
+        final Path source1 = write("x.cpp", CONTENT);
+        final Path header1 = write("x.h", CONTENT);
+        final Path source2 = write("y.cpp", CONTENT);
+        final Path header2 = write("y.h", CONTENT);
+        final Path unrecognized1 = write("notes.foo", CONTENT);
+        final Path unrecognized2 = write("notes.bar", CONTENT);
+
+        final Map<Path, Set<Path>> groups = new DuplicateDetector().findDuplicates(
+                List.of(source1, header1, source2, header2, unrecognized1, unrecognized2));
+        assertThat(groups).containsOnlyKeys(unrecognized2, source1, header1);
+        assertThat(groups.get(source1)).containsExactly(source1, source2);
+        assertThat(groups.get(header1)).containsExactly(header1, header2);
+        assertThat(groups.get(unrecognized2)).containsExactly(unrecognized2, unrecognized1);
+    }
+
+    @Test
+    public void testEmptyFiles() throws IOException {
+        final Path java1 = write("Empty1.java", "");
+        final Path java2 = write("Empty2.java", "");
+        final Path css = write("empty.css", "");
+
+        final Map<Path, Set<Path>> groups = new DuplicateDetector().findDuplicates(List.of(java1, java2, css));
+        assertThat(groups).containsOnlyKeys(java1);
+        assertThat(groups.get(java1)).containsExactly(java1, java2);
+    }
+
+    private Path write(final String pathname, final String content) throws IOException {
+        final Path file = this.tempDir.resolve(pathname);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+        return file;
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.cthing.gradle.plugins.locc;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cthing.locc4j.Language;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+
+public class GitRepositoryTest {
+
+    @TempDir
+    private Path repoDir;
+
+    @BeforeEach
+    public void setup() throws IOException, InterruptedException {
+        git("init", "-q", "-b", "main");
+        write("src/App.java", "class App {\n}\n");
+        write("src/Old.java", "class Old {\n}\n");
+        git("add", ".");
+        git("commit", "-q", "-m", "Initial");
+
+        git("checkout", "-q", "-b", "feature");
+        write("src/App.java", "class App {\n    // Comment\n    int x;\n}\n");
+        write("src/New.java", "class New {\n}\n");
+        git("rm", "-q", "src/Old.java");
+        git("add", ".");
+        git("commit", "-q", "-m", "Change");
+    }
+
+    @Test
+    public void testDiff() throws IOException {
+        final GitRepository repository = GitRepository.open(this.repoDir.resolve("src"));
+        assertThat(repository.getWorkTree().toRealPath()).isEqualTo(this.repoDir.toRealPath());
+
+        final GitDiffCounter counter = new GitDiffCounter(repository, new BlobCounter(true));
+        final List<GitDiffCounter.FileDiff> diffs = counter.count("main", path -> true);
+        assertThat(diffs).extracting(GitDiffCounter.FileDiff::path, GitDiffCounter.FileDiff::status)
+                         .containsExactly(tuple("src/App.java", 'M'), tuple("src/New.java", 'A'),
+                                          tuple("src/Old.java", 'D'));
+
+        final GitDiffCounter.FileDiff app = diffs.get(0);
+        assertThat(app.before().get(Language.Java).getCodeLines()).isEqualTo(2);
+        assertThat(app.after().get(Language.Java).getCodeLines()).isEqualTo(3);
+        assertThat(app.after().get(Language.Java).getCommentLines()).isEqualTo(1);
+        assertThat(diffs.get(1).before()).isEmpty();
+        assertThat(diffs.get(2).after()).isEmpty();
+
+        final DiffReport report = new DiffReport(diffs);
+        assertThat(report.getTotalBefore().getCodeLines()).isEqualTo(4);
+        assertThat(report.getTotalAfter().getCodeLines()).isEqualTo(5);
+    }
+
+    @Test
+    public void testDiffFilter() throws IOException {
+        final GitRepository repository = GitRepository.open(this.repoDir);
+        final GitDiffCounter counter = new GitDiffCounter(repository, new BlobCounter(true));
+        final List<GitDiffCounter.FileDiff> diffs = counter.count("main", path -> path.endsWith("App.java"));
+        assertThat(diffs).extracting(GitDiffCounter.FileDiff::path).containsExactly("src/App.java");
+    }
+
+    @Test
+    public void testUnknownRevision() throws IOException {
+        final GitRepository repository = GitRepository.open(this.repoDir);
+        final GitDiffCounter counter = new GitDiffCounter(repository, new BlobCounter(true));
+        assertThatThrownBy(() -> counter.count("nonexistent", path -> true)).isInstanceOf(IOException.class)
+                                                                             .hasMessageContaining("nonexistent");
+    }
+
+    @Test
+    public void testObjectReader() throws IOException {
+        final GitRepository repository = GitRepository.open(this.repoDir);
+        try (GitRepository.ObjectReader reader = repository.openObjectReader()) {
+            final byte[] contents = reader.read("main:src/Old.java");
+            assertThat(contents).isNotNull();
+            assertThat(new String(contents, StandardCharsets.UTF_8)).isEqualTo("class Old {\n}\n");
+            assertThat(reader.read("HEAD:src/Old.java")).isNull();
+            assertThat(reader.read("HEAD:src")).isNull();
+        }
+    }
+
+    @Test
+    public void testIndex() throws IOException, InterruptedException {
+        write("src/App.java", "class App {\n}\n");
+        write("src/Untracked.java", "class Untracked {\n}\n");
+
+        final GitRepository repository = GitRepository.open(this.repoDir);
+        final Map<String, String> blobIds = repository.indexBlobIds();
+        assertThat(blobIds).containsOnlyKeys("src/App.java", "src/New.java");
+
+        final BlobCountsCache cache = BlobCountsCache.read(this.repoDir.resolve("cache.bin"), "options");
+        assertThat(blobIds.get("src/New.java")).isEqualTo(cache.hash(this.repoDir.resolve("src/New.java")));
+        assertThat(repository.modifiedPaths()).containsExactly("src/App.java");
+
+        git("add", "src/App.java");
+        assertThat(repository.modifiedPaths()).isEmpty();
+    }
+
+    @Test
+    public void testHistory() throws IOException {
+        final GitRepository repository = GitRepository.open(this.repoDir);
+        final List<GitRepository.Commit> commits = repository.log("feature", 10);
+        assertThat(commits).hasSize(2);
+        assertThat(commits.get(0).id()).isEqualTo(repository.resolveCommit("feature"));
+        assertThat(commits.get(1).id()).isEqualTo(repository.resolveCommit("main"));
+
+        assertThat(repository.listTree(commits.get(1).id())).extracting(GitRepository.TreeEntry::path)
+                                                            .containsExactly("src/App.java", "src/Old.java");
+
+        final HistoryCounter counter = new HistoryCounter(repository, new BlobCounter(true), path -> true, 2);
+        final List<HistoryCounter.Point> points = counter.count(commits);
+        assertThat(points).extracting(HistoryCounter.Point::commit).containsExactlyElementsOf(commits);
+
+        assertThat(points.get(0).counts().get(Language.Java).getCodeLines()).isEqualTo(5);
+        assertThat(points.get(0).counts().get(Language.Java).getCommentLines()).isEqualTo(1);
+        assertThat(points.get(0).files()).containsEntry(Language.Java, 2);
+        assertThat(points.get(0).numFiles()).isEqualTo(2);
+        assertThat(points.get(1).counts().get(Language.Java).getCodeLines()).isEqualTo(4);
+        assertThat(points.get(1).files()).containsEntry(Language.Java, 2);
+
+        // App.java at both commits, Old.java and New.java
+        assertThat(counter.getBlobsCounted()).isEqualTo(4);
+
+        // A single worker lists the tree of the first commit and applies the changes to obtain the second.
+        final HistoryCounter serialCounter = new HistoryCounter(repository, new BlobCounter(true), path -> true, 1);
+        assertThat(serialCounter.count(commits)).isEqualTo(points);
+    }
+
+    @Test
+    public void testHistoryEmbeddedLanguages() throws IOException, InterruptedException {
+        write("src/index.html", "<html>\n<style>\nbody { color: red; }\n</style>\n</html>\n");
+        git("add", ".");
+        git("commit", "-q", "-m", "Page");
+
+        final GitRepository repository = GitRepository.open(this.repoDir);
+        final HistoryCounter counter = new HistoryCounter(repository, new BlobCounter(true), path -> true, 1);
+        final List<HistoryCounter.Point> points = counter.count(repository.log("feature", 1));
+        assertThat(points).hasSize(1);
+
+        // The HTML file contains CSS, so it is counted for both languages but is a single file.
+        final HistoryCounter.Point point = points.get(0);
+        assertThat(point.files()).containsEntry(Language.Java, 2)
+                                 .containsEntry(Language.Html, 1)
+                                 .containsEntry(Language.Css, 1);
+        assertThat(point.numFiles()).isEqualTo(3);
+    }
+
+    @Test
+    public void testDiffTree() throws IOException {
+        final GitRepository repository = GitRepository.open(this.repoDir);
+        final List<GitRepository.TreeChange> changes = repository.diffTree(repository.resolveCommit("main"),
+                                                                            repository.resolveCommit("feature"));
+        assertThat(changes).extracting(GitRepository.TreeChange::path)
+                           .containsExactly("src/App.java", "src/New.java", "src/Old.java");
+        assertThat(changes.get(0).blobId()).isNotNull();
+        assertThat(changes.get(1).blobId()).isNotNull();
+        assertThat(changes.get(2).blobId()).isNull();
+
+        final Map<String, String> tree = new HashMap<>();
+        repository.listTree("main").forEach(entry -> tree.put(entry.path(), entry.blobId()));
+        changes.forEach(change -> {
+            if (change.blobId() == null) {
+                tree.remove(change.path());
+            } else {
+                tree.put(change.path(), change.blobId());
+            }
+        });
+        final Map<String, String> expected = new HashMap<>();
+        repository.listTree("feature").forEach(entry -> expected.put(entry.path(), entry.blobId()));
+        assertThat(tree).isEqualTo(expected);
+    }
+
+    private void write(final String path, final String content) throws IOException {
+        final Path file = this.repoDir.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+
+    private void git(final String... args) throws IOException, InterruptedException {
+        final List<String> command = new ArrayList<>(List.of("git", "-c", "user.name=Test", "-c",
+                                                             "user.email=test@example.com"));
+        command.addAll(List.of(args));
+        final Process process = new ProcessBuilder(command).directory(this.repoDir.toFile())
+                                                           .redirectErrorStream(true)
+                                                           .start();
+        final String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        assertThat(process.waitFor()).as(output).isEqualTo(0);
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.cthing.gradle.plugins.locc;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cthing.locc4j.Counts;
+import org.cthing.locc4j.Language;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+public class HistoryStoreTest {
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    public void testAppendRead() throws IOException {
+        final Path historyFile = this.tempDir.resolve("history/locc-history.bin");
+        assertThat(HistoryStore.size(historyFile)).isEqualTo(0);
+        assertThat(HistoryStore.read(historyFile, 10)).isEmpty();
+
+        final HistoryStore.Entry entry1 = createEntry(1000L, "1.0.0", 100);
+        final HistoryStore.Entry entry2 = createEntry(2000L, "1.1.0", 200_000);
+        HistoryStore.append(historyFile, entry1);
+        HistoryStore.append(historyFile, entry2);
+
+        assertThat(HistoryStore.size(historyFile)).isEqualTo(2);
+        assertThat(HistoryStore.read(historyFile, 10)).usingRecursiveComparison().isEqualTo(List.of(entry1, entry2));
+    }
+
+    @Test
+    public void testReadRecent() throws IOException {
+        final Path historyFile = this.tempDir.resolve("locc-history.bin");
+        for (int i = 0; i < 20; i++) {
+            HistoryStore.append(historyFile, createEntry(i, "run" + i, i * 10));
+        }
+
+        assertThat(HistoryStore.size(historyFile)).isEqualTo(20);
+        final List<HistoryStore.Entry> entries = HistoryStore.read(historyFile, 3);
+        assertThat(entries).extracting(HistoryStore.Entry::label).containsExactly("run17", "run18", "run19");
+        assertThat(entries.get(2)).usingRecursiveComparison().isEqualTo(createEntry(19, "run19", 190));
+    }
+
+    @Test
+    public void testCreateEntry() {
+        final Path rootDir = Path.of("/project");
+        final Path appFile = rootDir.resolve("app/src/App.java");
+        final Path libFile = rootDir.resolve("lib/src/Lib.java");
+        final Path buildFile = rootDir.resolve("build.gradle.kts");
+        final Path otherFile = Path.of("/other/Other.java");
+
+        final Map<Path, Map<Language, Counts>> pathCounts = new HashMap<>();
+        pathCounts.put(appFile, Map.of(Language.Java, new Counts(10, 2, 1)));
+        pathCounts.put(libFile, Map.of(Language.Java, new Counts(20, 4, 2)));
+        pathCounts.put(buildFile, Map.of(Language.Kotlin, new Counts(5, 0, 1)));
+        pathCounts.put(otherFile, new EnumMap<>(Language.class));
+
+        final Map<String, Path> projectDirs = Map.of(":", rootDir, ":app", rootDir.resolve("app"),
+                                                     ":lib", rootDir.resolve("lib"));
+        final HistoryStore.Entry entry = HistoryStore.createEntry(new CountsCache(pathCounts), projectDirs, 1234L,
+                                                                  "1.0.0");
+
+        assertThat(entry.timestamp()).isEqualTo(1234L);
+        assertThat(entry.label()).isEqualTo("1.0.0");
+        assertThat(entry.total()).usingRecursiveComparison()
+                                 .isEqualTo(new HistoryStore.Aggregate("", 4, new Counts(35, 6, 4)));
+        assertThat(entry.languages()).usingRecursiveFieldByFieldElementComparator().containsExactly(
+                new HistoryStore.Aggregate("Java", 2, new Counts(30, 6, 3)),
+                new HistoryStore.Aggregate("Kotlin", 1, new Counts(5, 0, 1)));
+        assertThat(entry.projects()).usingRecursiveFieldByFieldElementComparator().containsExactly(
+                new HistoryStore.Aggregate(":", 1, new Counts(5, 0, 1)),
+                new HistoryStore.Aggregate(":app", 1, new Counts(10, 2, 1)),
+                new HistoryStore.Aggregate(":lib", 1, new Counts(20, 4, 2)));
+    }
+
+    private static HistoryStore.Entry createEntry(final long timestamp, final String label, final int codeLines) {
+        return new HistoryStore.Entry(timestamp, label,
+                                      new HistoryStore.Aggregate("", 3, new Counts(codeLines + 7, 12, 6)),
+                                      List.of(new HistoryStore.Aggregate("Java", 2, new Counts(codeLines, 10, 5)),
+                                              new HistoryStore.Aggregate("Kotlin", 1, new Counts(7, 2, 1))),
+                                      List.of(new HistoryStore.Aggregate(":", 3,
+                                                                         new Counts(codeLines + 7, 12, 6))));
+    }
+}
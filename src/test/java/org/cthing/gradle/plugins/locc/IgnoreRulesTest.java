@@ -0,0 +1,102 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.cthing.gradle.plugins.locc;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.cthing.gradle.plugins.locc.IgnoreRules.Match.IGNORED;
+import static org.cthing.gradle.plugins.locc.IgnoreRules.Match.INCLUDED;
+import static org.cthing.gradle.plugins.locc.IgnoreRules.Match.NONE;
+import static org.junit.jupiter.params.provider.Arguments.arguments;
+
+
+public class IgnoreRulesTest {
+
+    private static final IgnoreRules RULES = IgnoreRules.parse(Path.of("/repo"), List.of(
+            "# Comment",
+            "",
+            "build/",
+            "*.log",
+            "!keep.log",
+            "/docs/*.tmp",
+            "a/**/b",
+            "node_modules",
+            "generated/**",
+            "\\#hash",
+            "[abc].txt"
+    ));
+
+    public static Stream<Arguments> matchProvider() {
+        return Stream.of(
+                arguments("build", true, IGNORED),
+                arguments("build", false, NONE),
+                arguments("sub/build", true, IGNORED),
+                arguments("error.log", false, IGNORED),
+                arguments("sub/keep.log", false, INCLUDED),
+                arguments("docs/file.tmp", false, IGNORED),
+                arguments("sub/docs/file.tmp", false, NONE),
+                arguments("a/b", false, IGNORED),
+                arguments("a/x/y/b", false, IGNORED),
+                arguments("node_modules", true, IGNORED),
+                arguments("generated/src/Foo.java", false, IGNORED),
+                arguments("#hash", false, IGNORED),
+                arguments("b.txt", false, IGNORED),
+                arguments("d.txt", false, NONE),
+                arguments("src/Main.java", false, NONE)
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("matchProvider")
+    public void testMatch(final String path, final boolean directory, final IgnoreRules.Match expected) {
+        assertThat(RULES.match(path, directory)).isEqualTo(expected);
+    }
+
+    @Test
+    public void testEmpty() {
+        final IgnoreRules rules = IgnoreRules.parse(Path.of("/repo"), List.of("# Only a comment", "   "));
+        assertThat(rules.isEmpty()).isTrue();
+        assertThat(rules.match("anything", false)).isEqualTo(NONE);
+    }
+
+    @Test
+    public void testBracketLiteralClose() {
+        final IgnoreRules rules = IgnoreRules.parse(Path.of("/repo"), List.of("[]a].c", "[!]x].d", "[]", "[!]",
+                                                                                "[a-].e", "[\\]].f"));
+        assertThat(rules.match("].c", false)).isEqualTo(IGNORED);
+        assertThat(rules.match("a.c", false)).isEqualTo(IGNORED);
+        assertThat(rules.match("b.c", false)).isEqualTo(NONE);
+        assertThat(rules.match("y.d", false)).isEqualTo(IGNORED);
+        assertThat(rules.match("].d", false)).isEqualTo(NONE);
+        assertThat(rules.match("x.d", false)).isEqualTo(NONE);
+        assertThat(rules.match("[]", false)).isEqualTo(IGNORED);
+        assertThat(rules.match("[!]", false)).isEqualTo(IGNORED);
+        assertThat(rules.match("-.e", false)).isEqualTo(IGNORED);
+        assertThat(rules.match("b.e", false)).isEqualTo(NONE);
+        assertThat(rules.match("].f", false)).isEqualTo(IGNORED);
+    }
+
+    @Test
+    public void testReadMalformed(@TempDir final Path tempDir) throws IOException {
+        final Path ignoreFile = tempDir.resolve(".gitignore");
+        Files.write(ignoreFile, "# Caf\u00e9\n*.log\n".getBytes(StandardCharsets.ISO_8859_1));
+
+        final IgnoreRules rules = IgnoreRules.read(tempDir, ignoreFile);
+        assertThat(rules.match("error.log", false)).isEqualTo(IGNORED);
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.cthing.gradle.plugins.locc;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import org.cthing.locc4j.Counts;
+import org.cthing.locc4j.Language;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+
+public class LoccReportReaderTest {
+
+    @TempDir
+    private Path tempDir;
+
+    @ParameterizedTest
+    @ValueSource(strings = { "locc.json", "locc.xml" })
+    public void testRead(final String reportName) throws IOException, URISyntaxException {
+        final CountsCache countsCache = LoccReportReader.read(report(reportName));
+
+        assertThat(countsCache.getPathCounts()).hasSize(12);
+        assertThat(countsCache.getUnrecognized()).isEmpty();
+        assertThat(countsCache.getLanguages()).containsExactlyInAnyOrder(Language.CHeader, Language.Cpp,
+                                                                         Language.Java, Language.Kotlin,
+                                                                         Language.Swift);
+        final Counts totalCounts = countsCache.getTotalCounts();
+        assertThat(totalCounts.getCodeLines()).isEqualTo(82);
+        assertThat(totalCounts.getCommentLines()).isEqualTo(44);
+        assertThat(totalCounts.getBlankLines()).isEqualTo(22);
+
+        final Path helloWorld = Path.of("project1/src/main/java/com/cthing/project1/HelloWorld.java");
+        assertThat(countsCache.getPathCounts().get(helloWorld)).containsOnlyKeys(Language.Java);
+    }
+
+    @Test
+    public void testHandler() throws IOException, URISyntaxException {
+        final List<String> jsonPathnames = new ArrayList<>();
+        LoccReportReader.read(report("locc.json"), (pathname, counts) -> jsonPathnames.add(pathname));
+        final List<String> xmlPathnames = new ArrayList<>();
+        LoccReportReader.read(report("locc.xml"), (pathname, counts) -> xmlPathnames.add(pathname));
+
+        assertThat(jsonPathnames).hasSize(12).isSorted().isEqualTo(xmlPathnames);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "locc.json", "locc.xml" })
+    public void testReadCompressed(final String reportName) throws IOException, URISyntaxException {
+        final Path compressed = this.tempDir.resolve(reportName + ".gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(compressed))) {
+            Files.copy(report(reportName), out);
+        }
+
+        final CountsCache countsCache = LoccReportReader.read(compressed);
+        assertThat(countsCache.getPathCounts()).usingRecursiveComparison()
+                                               .isEqualTo(LoccReportReader.read(report(reportName)).getPathCounts());
+    }
+
+    @Test
+    public void testReadArtifact() throws IOException, URISyntaxException {
+        final CountsCache reportCache = LoccReportReader.read(report("locc.json"));
+        final Path rootDir = this.tempDir.resolve("project");
+        final Map<Path, Map<Language, Counts>> pathCounts = new HashMap<>();
+        reportCache.getPathCounts().forEach((path, counts) -> pathCounts.put(rootDir.resolve(path), counts));
+        final Path artifact = this.tempDir.resolve("locc-counts.bin");
+        CountsArtifact.write(artifact, rootDir, new CountsArtifact.Contents(Shard.ALL, "", pathCounts, Map.of()));
+
+        final CountsCache artifactCache = LoccReportReader.readArtifact(artifact, rootDir);
+        assertThat(artifactCache.getPathCounts()).usingRecursiveComparison().isEqualTo(pathCounts);
+        assertThat(artifactCache.getTotalCounts()).usingRecursiveComparison()
+                                                  .isEqualTo(reportCache.getTotalCounts());
+
+        // An artifact is detected when read as a report, with its files in pathname order relative to the root.
+        assertThat(LoccReportReader.read(artifact).getPathCounts()).usingRecursiveComparison()
+                                                                  .isEqualTo(reportCache.getPathCounts());
+        final List<String> pathnames = new ArrayList<>();
+        LoccReportReader.read(artifact, (pathname, counts) -> pathnames.add(pathname));
+        assertThat(pathnames).hasSize(12).isSorted();
+
+        assertThatThrownBy(() -> LoccReportReader.readArtifact(report("locc.json"), rootDir))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("not a line counts artifact");
+    }
+
+    @Test
+    public void testUnrecognized() throws IOException {
+        final Path report = this.tempDir.resolve("locc.xml");
+        Files.writeString(report, """
+                          <?xml version="1.0"?>
+                          <locc xmlns="http://www.cthing.com/locc">
+                              <files>
+                                  <file pathname="a.foo" unrecognized="true" numLanguages="0"/>
+                              </files>
+                          </locc>
+                          """, StandardCharsets.UTF_8);
+
+        final CountsCache countsCache = LoccReportReader.read(report);
+        assertThat(countsCache.getUnrecognized()).containsExactly(Path.of("a.foo"));
+    }
+
+    @Test
+    public void testMalformed() throws IOException {
+        final Path report = this.tempDir.resolve("locc.xml");
+        Files.writeString(report, "<locc><files><file pathname=\"a.java\">", StandardCharsets.UTF_8);
+        assertThatThrownBy(() -> LoccReportReader.read(report)).isInstanceOf(IOException.class)
+                                                             .hasMessageContaining(report.toString());
+
+        Files.writeString(report, "{ \"files\": [ { \"pathname\": \"a.java\", \"languages\": [ { \"name\": "
+                + "\"NoSuchLanguage\" } ] } ] }", StandardCharsets.UTF_8);
+        assertThatThrownBy(() -> LoccReportReader.read(report)).isInstanceOf(IOException.class)
+                                                             .hasMessageContaining("NoSuchLanguage");
+    }
+
+    private Path report(final String reportName) throws URISyntaxException {
+        final URL url = getClass().getResource("/reports/complex-project/" + reportName);
+        assertThat(url).isNotNull();
+        return Path.of(url.toURI());
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.cthing.gradle.plugins.locc;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.cthing.gradle.plugins.locc.reports.LoccReportVisitor;
+import org.cthing.locc4j.Counts;
+import org.cthing.locc4j.Language;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+public class LoccReportTraversalTest {
+
+    private static final class RecordingVisitor implements LoccReportVisitor {
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void start(final Summary summary) {
+            this.events.add("start " + summary.numFiles() + " " + summary.numUnrecognized() + " "
+                                    + summary.numLanguages() + " " + summary.numDuplicateGroups() + " "
+                                    + summary.total().getCodeLines() + " "
+                                    + summary.uniqueTotal().getCodeLines());
+        }
+
+        @Override
+        public void language(final Language language, final int numFiles, final Counts counts) {
+            this.events.add("language " + language.name() + " " + numFiles + " " + counts.getCodeLines());
+        }
+
+        @Override
+        public void file(final Path path, final boolean unrecognized, final Counts total,
+                         final Map<Language, Counts> counts) {
+            this.events.add("file " + path.getFileName() + " " + unrecognized + " " + total.getCodeLines() + " "
+                                    + counts.keySet());
+        }
+
+        @Override
+        public void duplicates(final Set<Path> group, final Counts counts) {
+            this.events.add("duplicates " + group.size() + " " + counts.getCodeLines());
+        }
+
+        @Override
+        public void end() {
+            this.events.add("end");
+        }
+    }
+
+    @Test
+    public void testTraverse() throws IOException {
+        final Path a = Path.of("/project/a.kt");
+        final Path b = Path.of("/project/b.java");
+        final Path c = Path.of("/project/c.java");
+        final Path d = Path.of("/project/d.foo");
+        final Map<Path, Map<Language, Counts>> pathCounts = new HashMap<>();
+        pathCounts.put(c, Map.of(Language.Java, new Counts(10, 2, 1)));
+        pathCounts.put(a, Map.of(Language.Kotlin, new Counts(4, 0, 0)));
+        pathCounts.put(b, Map.of(Language.Java, new Counts(10, 2, 1)));
+        pathCounts.put(d, new EnumMap<>(Language.class));
+        final CountsCache countsCache = new CountsCache(pathCounts, Map.of(b, new TreeSet<>(Set.of(b, c))));
+
+        final RecordingVisitor visitor1 = new RecordingVisitor();
+        final RecordingVisitor visitor2 = new RecordingVisitor();
+        LoccReportTraversal.traverse(countsCache, List.of(visitor1, visitor2));
+
+        assertThat(visitor1.events).containsExactly("start 4 1 2 1 24 14",
+                                                    "language Java 2 20",
+                                                    "language Kotlin 1 4",
+                                                    "file a.kt false 4 [Kotlin]",
+                                                    "file b.java false 10 [Java]",
+                                                    "file c.java false 10 [Java]",
+                                                    "file d.foo true 0 []",
+                                                    "duplicates 2 10",
+                                                    "end");
+        assertThat(visitor2.events).isEqualTo(visitor1.events);
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.cthing.gradle.plugins.locc;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.cthing.locc4j.Counts;
+import org.cthing.locc4j.Language;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+public class LoccSummaryTest {
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    public void testRead() throws IOException {
+        final Path rootDir = this.tempDir.resolve("project");
+        final Map<Path, Map<Language, Counts>> pathCounts = new HashMap<>();
+        pathCounts.put(rootDir.resolve("app/src/App.java"), Map.of(Language.Java, new Counts(10, 2, 1)));
+        pathCounts.put(rootDir.resolve("app/src/App.kt"), Map.of(Language.Kotlin, new Counts(4, 0, 0)));
+        pathCounts.put(rootDir.resolve("lib/src/Lib.java"), Map.of(Language.Java, new Counts(20, 4, 2)));
+        pathCounts.put(rootDir.resolve("README.foo"), new EnumMap<>(Language.class));
+        final Path artifact = this.tempDir.resolve("locc-counts.bin");
+        CountsArtifact.write(artifact, rootDir, new CountsArtifact.Contents(Shard.ALL, "", pathCounts, Map.of()));
+
+        final LoccSummary summary = LoccSummary.read(artifact, rootDir, Map.of(":", rootDir,
+                                                                               ":app", rootDir.resolve("app"),
+                                                                               ":lib", rootDir.resolve("lib")));
+
+        assertThat(summary.total()).usingRecursiveComparison()
+                                   .isEqualTo(new LoccSummary.Aggregate(4, new Counts(34, 6, 3)));
+        assertThat(summary.languages()).containsOnlyKeys(Language.Java, Language.Kotlin);
+        assertThat(summary.languages().get(Language.Java)).usingRecursiveComparison()
+                                                          .isEqualTo(new LoccSummary.Aggregate(2,
+                                                                                               new Counts(30, 6, 3)));
+        assertThat(summary.projects()).containsOnlyKeys(":", ":app", ":lib");
+        assertThat(summary.projects().get(":")).usingRecursiveComparison()
+                                               .isEqualTo(new LoccSummary.Aggregate(1, Counts.ZERO));
+        assertThat(summary.projects().get(":app")).usingRecursiveComparison()
+                                                  .isEqualTo(new LoccSummary.Aggregate(2, new Counts(14, 2, 1)));
+    }
+
+    @Test
+    public void testReadMissing() throws IOException {
+        final Path rootDir = this.tempDir.resolve("project");
+        final LoccSummary summary = LoccSummary.read(this.tempDir.resolve("locc-counts.bin"), rootDir,
+                                                     Map.of(":", rootDir));
+
+        assertThat(summary.total()).usingRecursiveComparison()
+                                   .isEqualTo(new LoccSummary.Aggregate(0, Counts.ZERO));
+        assertThat(summary.languages()).isEmpty();
+        assertThat(summary.projects()).isEmpty();
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.cthing.gradle.plugins.locc;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.cthing.gradle.plugins.locc.reports.LoccReport;
+import org.cthing.gradle.plugins.locc.reports.LoccReportVisitor;
+import org.cthing.locc4j.Counts;
+import org.cthing.locc4j.Language;
+import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+
+public class MultiplexedReportWriterTest {
+
+    private static final class ClosingVisitor implements LoccReportVisitor, Closeable {
+        final List<String> events = new ArrayList<>();
+        final boolean failOnFile;
+
+        ClosingVisitor(final boolean failOnFile) {
+            this.failOnFile = failOnFile;
+        }
+
+        @Override
+        public void file(final Path path, final boolean unrecognized, final Counts total,
+                         final Map<Language, Counts> counts) throws IOException {
+            if (this.failOnFile) {
+                throw new IOException("write failed");
+            }
+            this.events.add("file " + path.getFileName());
+        }
+
+        @Override
+        public void end() {
+            this.events.add("end");
+        }
+
+        @Override
+        public void close() {
+            this.events.add("close");
+        }
+    }
+
+    @TempDir
+    private Path tempDir;
+
+    private final CountsCache countsCache =
+            new CountsCache(Map.of(Path.of("/project/a.java"), Map.of(Language.Java, new Counts(4, 1, 0))), Map.of());
+
+    @Test
+    public void testWrite() throws IOException {
+        final ClosingVisitor visitor1 = new ClosingVisitor(false);
+        final ClosingVisitor visitor2 = new ClosingVisitor(false);
+        MultiplexedReportWriter.write(this.countsCache, List.of(), List.of(visitor1, visitor2));
+
+        assertThat(visitor1.events).containsExactly("file a.java", "end", "close");
+        assertThat(visitor2.events).containsExactly("file a.java", "end", "close");
+    }
+
+    @Test
+    public void testWriteFailure() {
+        final ClosingVisitor visitor1 = new ClosingVisitor(false);
+        final ClosingVisitor visitor2 = new ClosingVisitor(true);
+        assertThatThrownBy(() -> MultiplexedReportWriter.write(this.countsCache, List.of(),
+                                                               List.of(visitor1, visitor2)))
+                .isInstanceOf(IOException.class)
+                .hasMessage("write failed");
+
+        assertThat(visitor1.events).containsExactly("file a.java", "close");
+        assertThat(visitor2.events).containsExactly("close");
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { false, true })
+    public void testWriteCompactReports(final boolean compressed)
+            throws IOException, ParserConfigurationException, SAXException {
+        final Project project = ProjectBuilder.builder().withProjectDir(this.tempDir.toFile()).build();
+        final Task task = project.getTasks().register("generateReports").get();
+        final DirectoryProperty reportsDir = project.getObjects().directoryProperty();
+        reportsDir.set(Files.createDirectories(this.tempDir.resolve("reports")).toFile());
+        final LoccReports reports = new LoccReports(task, reportsDir);
+        for (final LoccReport report : reports) {
+            final boolean parsed = List.of("xml", "json", "ndjson", "yaml").contains(report.getName());
+            report.getRequired().set(parsed);
+            report.getCompact().set(true);
+            report.getCompressed().set(compressed);
+        }
+
+        // The pathnames contain characters that must be escaped or quoted in some of the formats.
+        final Path rootDir = project.getRootDir().toPath();
+        final Path javaFile = rootDir.resolve("src/main/java/App.java");
+        final Path htmlFile = rootDir.resolve("docs/a, b #{c} [d] & e.html");
+        final CountsCache counts = new CountsCache(Map.of(javaFile, Map.of(Language.Java, new Counts(10, 2, 1)),
+                                                          htmlFile, Map.of(Language.Html, new Counts(7, 1, 0),
+                                                                           Language.Css, new Counts(3, 0, 1))),
+                                                   Map.of());
+        MultiplexedReportWriter.write(counts, reports.getEnabled(), List.of());
+
+        final String javaPathname = rootDir.relativize(javaFile).toString();
+        final String htmlPathname = rootDir.relativize(htmlFile).toString();
+        final int totalCode = counts.getTotalCounts().getCodeLines();
+
+        final JsonNode json = new ObjectMapper().readTree(readReport(reports.getJson(), compressed));
+        assertThat(json.get("codeLines").asInt()).isEqualTo(totalCode);
+        assertThat(json.get("files").findValuesAsText("pathname")).containsExactly(htmlPathname, javaPathname);
+
+        final JsonNode yaml = new ObjectMapper(new YAMLFactory()).readTree(readReport(reports.getYaml(), compressed));
+        assertThat(yaml.get("codeLines").asInt()).isEqualTo(totalCode);
+        assertThat(yaml.get("languages").findValuesAsText("name")).containsExactlyInAnyOrder("Css", "Html", "Java");
+        assertThat(yaml.get("languages").findValuesAsText("website")).isNotEmpty();
+        assertThat(yaml.get("files").findValuesAsText("pathname")).containsExactly(htmlPathname, javaPathname);
+        assertThat(yaml.get("files").get(0).get("languages").size()).isEqualTo(2);
+
+        final List<String> ndjsonPathnames = new ArrayList<>();
+        final ObjectMapper mapper = new ObjectMapper();
+        for (final String line : readReport(reports.getNdjson(), compressed).lines().toList()) {
+            final JsonNode record = mapper.readTree(line);
+            if ("file".equals(record.get("record").asText())) {
+                ndjsonPathnames.add(record.get("pathname").asText());
+            }
+        }
+        assertThat(ndjsonPathnames).containsExactly(htmlPathname, javaPathname);
+
+        final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        final InputSource xml = new InputSource(new StringReader(readReport(reports.getXml(), compressed)));
+        final NodeList files = factory.newDocumentBuilder().parse(xml).getElementsByTagNameNS("*", "file");
+        assertThat(files.getLength()).isEqualTo(2);
+        assertThat(((Element)files.item(0)).getAttribute("pathname")).isEqualTo(htmlPathname);
+        assertThat(((Element)files.item(1)).getAttribute("pathname")).isEqualTo(javaPathname);
+    }
+
+    private static String readReport(final LoccReport report, final boolean compressed) throws IOException {
+        final Path file = report.getOutputLocation().get().getAsFile().toPath();
+        assertThat(file.getFileName().toString().endsWith(".gz")).isEqualTo(compressed);
+        try (InputStream ins = compressed ? new GZIPInputStream(Files.newInputStream(file))
+                                          : Files.newInputStream(file)) {
+            return new String(ins.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
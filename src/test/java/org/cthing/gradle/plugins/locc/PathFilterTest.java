@@ -0,0 +1,90 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.cthing.gradle.plugins.locc;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+public class PathFilterTest {
+
+    @Test
+    public void testEmpty() {
+        final PathFilter filter = new PathFilter(List.of(), List.of());
+        assertThat(filter.isEmpty()).isTrue();
+        assertThat(filter.acceptFile("src/main/java/Foo.java")).isTrue();
+        assertThat(filter.acceptDirectory("src")).isTrue();
+        assertThat(filter.getRemoved()).isEmpty();
+    }
+
+    @Test
+    public void testExcludes() {
+        final PathFilter filter = new PathFilter(List.of(), List.of("**/generated/**", "build/", "**/*.min.js",
+                                                                    "docs/*.md", "src/**/Gen?.java"));
+        assertThat(filter.isEmpty()).isFalse();
+
+        assertThat(filter.acceptFile("src/main/Foo.java")).isTrue();
+        assertThat(filter.acceptFile("x/generated/A.java")).isFalse();
+        assertThat(filter.acceptFile("generated/A.java")).isFalse();
+        assertThat(filter.acceptFile("build/x")).isFalse();
+        assertThat(filter.acceptFile("web/a.min.js")).isFalse();
+        assertThat(filter.acceptFile("docs/a.md")).isFalse();
+        assertThat(filter.acceptFile("docs/sub/a.md")).isTrue();
+        assertThat(filter.acceptFile("src/Gen1.java")).isFalse();
+        assertThat(filter.acceptFile("src/a/b/Gen2.java")).isFalse();
+
+        assertThat(filter.acceptDirectory("x/generated")).isFalse();
+        assertThat(filter.acceptDirectory("build")).isFalse();
+        assertThat(filter.acceptDirectory("web")).isTrue();
+        assertThat(filter.acceptDirectory("docs")).isTrue();
+
+        assertThat(filter.getRemoved()).containsExactly(
+                entry("**/generated/**", 2, 1),
+                entry("build/", 1, 1),
+                entry("**/*.min.js", 1, 0),
+                entry("docs/*.md", 1, 0),
+                entry("src/**/Gen?.java", 2, 0)
+        );
+    }
+
+    @Test
+    public void testIncludes() {
+        final PathFilter filter = new PathFilter(List.of("src/main/**", "**/*.kt"), List.of("**/test/**"));
+
+        assertThat(filter.acceptFile("src/main/A.java")).isTrue();
+        assertThat(filter.acceptFile("src/test/A.java")).isFalse();
+        assertThat(filter.acceptFile("x/B.kt")).isTrue();
+        assertThat(filter.acceptFile("x/test/B.kt")).isFalse();
+        assertThat(filter.acceptFile("README.md")).isFalse();
+
+        assertThat(filter.acceptDirectory("src")).isTrue();
+        assertThat(filter.acceptDirectory("src/main")).isTrue();
+        assertThat(filter.acceptDirectory("src/main/test")).isFalse();
+
+        assertThat(filter.getRemoved()).containsExactly(
+                entry("**/test/**", 2, 1),
+                entry(PathFilter.NOT_INCLUDED, 1, 0)
+        );
+    }
+
+    @Test
+    public void testIncludePruning() {
+        final PathFilter filter = new PathFilter(List.of("src/**"), List.of());
+
+        assertThat(filter.acceptDirectory("docs")).isFalse();
+        assertThat(filter.acceptDirectory("src")).isTrue();
+        assertThat(filter.getRemoved()).containsExactly(entry(PathFilter.NOT_INCLUDED, 0, 1));
+    }
+
+    private static Map.Entry<String, PathFilter.Removed> entry(final String pattern, final int files,
+                                                              final int dirs) {
+        return Map.entry(pattern, new PathFilter.Removed(files, dirs));
+    }
+}
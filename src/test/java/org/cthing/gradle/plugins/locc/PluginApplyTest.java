@@ -12,8 +12,10 @@ import java.net.URL;
 
 import javax.xml.transform.stream.StreamSource;
 
+import org.cthing.gradle.plugins.locc.reports.LoccReport;
 import org.gradle.api.Project;
 import org.gradle.api.Task;
+import org.gradle.api.artifacts.Configuration;
 import org.gradle.testfixtures.ProjectBuilder;
 import org.junit.jupiter.api.Test;
 import org.xmlunit.validation.Languages;
@@ -44,8 +46,49 @@ public class PluginApplyTest {
         assertThat(reports.getHtml().getRequired()).contains(true);
         assertThat(reports.getYaml().getRequired()).contains(false);
         assertThat(reports.getJson().getRequired()).contains(false);
+        assertThat(reports.getNdjson().getRequired()).contains(false);
         assertThat(reports.getCsv().getRequired()).contains(false);
+        assertThat(reports.getFileCsv().getRequired()).contains(false);
+        assertThat(reports.getArrow().getRequired()).contains(false);
         assertThat(reports.getText().getRequired()).contains(false);
+
+        final LoccReportTask reportTask = (LoccReportTask)project.getTasks().getByName(LoccPlugin.REPORT_TASK_NAME);
+        assertThat(reportTask.getVisitors().get()).isEmpty();
+        final LoccReports taskReports = reportTask.getReports();
+        for (final String reportName : LoccReports.REPORT_NAMES) {
+            final LoccReport report = taskReports.getByName(reportName);
+            assertThat(report.getRequired()).contains(reports.getByName(reportName).getRequired().get());
+            assertThat(report.getOutputLocation().get().getAsFile())
+                    .isEqualTo(reports.getByName(reportName).getOutputLocation().get().getAsFile());
+            assertThat(report.getProjectName()).contains(project.getName());
+        }
+        project.setVersion("1.2.3");
+        assertThat(taskReports.getXml().getProjectVersion()).contains("1.2.3");
+        reports.getHtml().getShowRelativePaths().set(false);
+        assertThat(taskReports.getHtml().getShowRelativePaths()).contains(false);
+        reports.getYaml().getRequired().set(true);
+        assertThat(taskReports.getEnabled().getNames()).containsExactlyInAnyOrder("xml", "html", "yaml");
+
+        assertThat(reports.getJson().getCompact()).contains(false);
+        assertThat(reports.getJson().getCompressed()).contains(false);
+        assertThat(reports.getJson().getOutputLocation().get().getAsFile()).hasName("locc.json");
+        reports.getJson().getCompact().set(true);
+        reports.getJson().getCompressed().set(true);
+        assertThat(reports.getJson().getOutputLocation().get().getAsFile()).hasName("locc.json.gz");
+        assertThat(taskReports.getJson().getCompact()).contains(true);
+        assertThat(taskReports.getJson().getCompressed()).contains(true);
+        assertThat(taskReports.getJson().getOutputLocation().get().getAsFile()).hasName("locc.json.gz");
+
+        final LoccMergeTask mergeTask = (LoccMergeTask)project.getTasks().getByName(LoccPlugin.MERGE_TASK_NAME);
+        assertThat(mergeTask.getReportsDir().get().getAsFile()).hasName(LoccPlugin.MERGED_REPORTS_DIR_NAME);
+        assertThat(mergeTask.getReports().getHtml().getOutputLocation().get().getAsFile())
+                .isNotEqualTo(reports.getHtml().getOutputLocation().get().getAsFile());
+
+        final Configuration counts = project.getConfigurations().getByName(LoccPlugin.COUNTS_CONFIGURATION_NAME);
+        assertThat(counts.isCanBeConsumed()).isTrue();
+        assertThat(counts.isCanBeResolved()).isFalse();
+        assertThat(counts.getOutgoing().getArtifacts().getFiles().getSingleFile())
+                .isEqualTo(((LoccTask)task).getCountsArtifact().get().getAsFile());
     }
 
     @Test
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.cthing.gradle.plugins.locc;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.gradle.testkit.runner.BuildResult;
+import org.gradle.testkit.runner.GradleRunner;
+import org.jspecify.annotations.Nullable;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+/**
+ * Measures the configuration time and memory needed to apply the plugin to builds with a large number of
+ * subprojects. The benchmark is only run by the {@code configurationBenchmark} task. The subproject counts
+ * can be specified as a comma separated list using the {@code locc.benchmark.sizes} system property.
+ * <p>
+ * Each build is run with {@code --dry-run}, so the line count task is configured but no files are counted. The
+ * cold run uses a new TestKit directory, so it starts a new daemon. The other runs reuse the daemon of the shared
+ * TestKit directory, which has already configured the build once. The heap usage is the heap in use when the task
+ * graph is ready, without forcing a garbage collection, so it includes garbage not yet collected. When the
+ * configuration is reused from the configuration cache, the settings script is not run, so the configuration time
+ * and heap usage cannot be measured and only the wall time and the build time reported by Gradle are recorded.
+ */
+@EnabledIfSystemProperty(named = "locc.benchmark", matches = "true")
+public class PluginConfigurationBenchmark {
+
+    private static final Path BASE_DIR = Path.of(System.getProperty("buildDir"), "benchmark");
+    private static final Path WORKING_DIR = Path.of(System.getProperty("projectDir"), "testkit");
+    private static final Path RESULTS_FILE = Path.of(System.getProperty("buildDir"), "reports", "benchmarks",
+                                                     "configuration.csv");
+    private static final Pattern METRICS_REGEX =
+            Pattern.compile("LOCC_BENCHMARK configMillis=(\\d+) heapBytes=(\\d+)");
+    private static final Pattern BUILD_TIME_REGEX = Pattern.compile("BUILD SUCCESSFUL in ((?:\\d+(?:ms|h|m|s) ?)+)");
+    private static final Pattern DURATION_REGEX = Pattern.compile("(\\d+)(ms|h|m|s)");
+    private static final List<String> RESULTS = new ArrayList<>();
+
+    public static Stream<Arguments> sizeProvider() {
+        final String sizes = System.getProperty("locc.benchmark.sizes", "100,1000,5000");
+        return Arrays.stream(sizes.split(",")).map(String::trim).map(Integer::valueOf).map(Arguments::of);
+    }
+
+    @ParameterizedTest
+    @MethodSource("sizeProvider")
+    public void benchmarkConfiguration(final int numProjects) throws IOException {
+        final Path projectDir = createProject(numProjects);
+        final Path coldTestKitDir = Files.createTempDirectory(BASE_DIR, "testkit" + numProjects + "-");
+
+        final Measurement cold = measure(projectDir, coldTestKitDir, "--no-configuration-cache");
+        measure(projectDir, WORKING_DIR, "--no-configuration-cache");
+        final Measurement warm = measure(projectDir, WORKING_DIR, "--no-configuration-cache");
+        final Measurement cacheStore = measure(projectDir, WORKING_DIR, "--configuration-cache");
+        final Measurement cacheHit = measure(projectDir, WORKING_DIR, "--configuration-cache");
+
+        assertThat(cacheHit.output).contains("Configuration cache entry reused");
+
+        record(numProjects, "no-cache-cold-daemon", cold);
+        record(numProjects, "no-cache-warm-daemon", warm);
+        record(numProjects, "cache-store", cacheStore);
+        record(numProjects, "cache-hit", cacheHit);
+    }
+
+    @AfterAll
+    public static void writeResults() throws IOException {
+        if (RESULTS.isEmpty()) {
+            return;
+        }
+
+        Files.createDirectories(RESULTS_FILE.getParent());
+        final StringBuilder buffer =
+                new StringBuilder("Subprojects,Run,Wall Millis,Build Millis,Configuration Millis,Heap Bytes\n");
+        RESULTS.forEach(line -> buffer.append(line).append('\n'));
+        Files.writeString(RESULTS_FILE, buffer);
+        System.out.print(buffer);
+    }
+
+    private Path createProject(final int numProjects) throws IOException {
+        Files.createDirectories(BASE_DIR);
+        final Path projectDir = Files.createTempDirectory(BASE_DIR, "wide" + numProjects + "-");
+
+        final StringBuilder settings = new StringBuilder("""
+                final long configStart = System.nanoTime()
+                rootProject.name = 'wide'
+                gradle.taskGraph.whenReady {
+                    final long configMillis = (System.nanoTime() - configStart).intdiv(1000000)
+                    final Runtime runtime = Runtime.getRuntime()
+                    final long heapBytes = runtime.totalMemory() - runtime.freeMemory()
+                    println "LOCC_BENCHMARK configMillis=${configMillis} heapBytes=${heapBytes}"
+                }
+                """);
+        for (int i = 0; i < numProjects; i++) {
+            settings.append("include 'p").append(i).append("'\n");
+
+            final Path sourceDir = projectDir.resolve("p" + i + "/src/main/java/p" + i);
+            Files.createDirectories(sourceDir);
+            Files.writeString(projectDir.resolve("p" + i + "/build.gradle"), "plugins { id 'java' }\n");
+            Files.writeString(sourceDir.resolve("Hello.java"), """
+                    package p%d;
+
+                    // Greets the world.
+                    public class Hello {
+                        public static void main(String[] args) {
+                            System.out.println("Hello");
+                        }
+                    }
+                    """.formatted(i));
+        }
+
+        Files.writeString(projectDir.resolve("settings.gradle"), settings);
+        // The daemon started for each cold run is only used once, so it is stopped soon after the run.
+        Files.writeString(projectDir.resolve("gradle.properties"), """
+                org.gradle.jvmargs=-Xmx4g
+                org.gradle.daemon.idletimeout=10000
+                """);
+        Files.writeString(projectDir.resolve("build.gradle"), """
+                plugins {
+                    id 'org.cthing.locc'
+                }
+
+                tasks.countCodeLines {
+                    reports {
+                        xml.required = false
+                        html.required = false
+                    }
+                }
+                """);
+        return projectDir;
+    }
+
+    private Measurement measure(final Path projectDir, final Path testKitDir, final String cacheOption) {
+        final long start = System.nanoTime();
+        final BuildResult result = GradleRunner.create()
+                                               .withProjectDir(projectDir.toFile())
+                                               .withTestKitDir(testKitDir.toFile())
+                                               .withArguments(LoccPlugin.TASK_NAME, "--dry-run", cacheOption)
+                                               .withPluginClasspath()
+                                               .build();
+        final long wallMillis = (System.nanoTime() - start) / 1_000_000;
+
+        final long buildMillis = parseBuildMillis(result.getOutput());
+        final Matcher matcher = METRICS_REGEX.matcher(result.getOutput());
+        if (matcher.find()) {
+            return new Measurement(wallMillis, buildMillis, Long.parseLong(matcher.group(1)),
+                                   Long.parseLong(matcher.group(2)), result.getOutput());
+        }
+        return new Measurement(wallMillis, buildMillis, null, null, result.getOutput());
+    }
+
+    /**
+     * Obtains the build time reported by Gradle (e.g. {@code BUILD SUCCESSFUL in 1m 3s}). Gradle only reports
+     * sub-second precision for builds taking less than a second.
+     *
+     * @param output Output of the build
+     * @return Build time in milliseconds, or {@code null} if the build time was not found.
+     */
+    @Nullable
+    private static Long parseBuildMillis(final String output) {
+        final Matcher matcher = BUILD_TIME_REGEX.matcher(output);
+        if (!matcher.find()) {
+            return null;
+        }
+
+        long millis = 0;
+        final Matcher durationMatcher = DURATION_REGEX.matcher(matcher.group(1));
+        while (durationMatcher.find()) {
+            final long value = Long.parseLong(durationMatcher.group(1));
+            millis += switch (durationMatcher.group(2)) {
+                case "h" -> value * 3_600_000;
+                case "m" -> value * 60_000;
+                case "s" -> value * 1000;
+                default -> value;
+            };
+        }
+        return millis;
+    }
+
+    private void record(final int numProjects, final String run, final Measurement measurement) {
+        RESULTS.add(String.format(Locale.ROOT, "%d,%s,%d,%s,%s,%s", numProjects, run, measurement.wallMillis,
+                                  format(measurement.buildMillis), format(measurement.configMillis),
+                                  format(measurement.heapBytes)));
+    }
+
+    private static String format(@Nullable final Long value) {
+        return (value == null) ? "" : value.toString();
+    }
+
+    /**
+     * Timing and memory for a single build invocation. Configuration time and heap usage are {@code null} when the
+     * configuration was reused from the configuration cache and no build scripts were run.
+     */
+    private record Measurement(long wallMillis, @Nullable Long buildMillis, @Nullable Long configMillis,
+                               @Nullable Long heapBytes, String output) {
+    }
+}
@@ -11,9 +11,22 @@ import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
 
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BaseIntVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowFileReader;
+import org.apache.arrow.vector.types.pojo.DictionaryEncoding;
+import org.apache.arrow.vector.types.pojo.Field;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.file.PathUtils;
 import org.gradle.testkit.runner.BuildResult;
@@ -42,6 +55,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.fail;
 import static org.gradle.testkit.runner.TaskOutcome.NO_SOURCE;
 import static org.gradle.testkit.runner.TaskOutcome.SUCCESS;
+import static org.gradle.testkit.runner.TaskOutcome.UP_TO_DATE;
 import static org.junit.jupiter.params.provider.Arguments.arguments;
 
 import static net.javacrumbs.jsonunit.assertj.JsonAssertions.assertThatJson;
@@ -55,6 +69,22 @@ public class PluginIntegTest {
     private static final URL XML_SCHEMA;
     private static final Path BASE_DIR = Path.of(System.getProperty("buildDir"), "integTest");
     private static final Path WORKING_DIR = Path.of(System.getProperty("projectDir"), "testkit");
+    private static final String SUMMARY_TASK = """
+
+            abstract class ShowCodeLines extends DefaultTask {
+                @Input
+                abstract Property<Integer> getCodeLines()
+
+                @TaskAction
+                void show() {
+                    println "Code lines: ${codeLines.get()}"
+                }
+            }
+
+            tasks.register('showCodeLines', ShowCodeLines) {
+                codeLines = tasks.named('countCodeLines').flatMap { it.summary }.map { it.total().counts().codeLines }
+            }
+            """;
 
     static {
         try {
@@ -243,6 +273,61 @@ public class PluginIntegTest {
         verifyFileReports("/reports/extensions-project");
     }
 
+    @ParameterizedTest
+    @MethodSource("gradleVersionProvider")
+    public void testSummaryProvider(final String gradleVersion) throws IOException {
+        copyProject("simple-project");
+        Files.writeString(this.projectDir.resolve("build.gradle"), SUMMARY_TASK, StandardOpenOption.APPEND);
+
+        BuildResult result = createGradleRunner(gradleVersion).withArguments("showCodeLines").build();
+        verifyBuild(result, SUCCESS);
+        assertThat(result.getOutput()).contains("Code lines: 40");
+
+        for (int i = 0; i < 2; i++) {
+            result = createGradleRunner(gradleVersion).withArguments("showCodeLines", "--configuration-cache")
+                                                      .build();
+            verifyBuild(result, UP_TO_DATE);
+            assertThat(result.getOutput()).contains("Code lines: 40");
+        }
+        assertThat(result.getOutput()).contains("Reusing configuration cache");
+    }
+
+    @ParameterizedTest
+    @MethodSource("gradleVersionProvider")
+    public void testSummaryProviderNoSource(final String gradleVersion) throws IOException {
+        Files.writeString(this.projectDir.resolve("settings.gradle"), "rootProject.name = 'test'");
+        Files.writeString(this.projectDir.resolve("build.gradle"), """
+                plugins {
+                    id 'java'
+                    id 'org.cthing.locc'
+                }
+                """ + SUMMARY_TASK);
+
+        final BuildResult result = createGradleRunner(gradleVersion).withArguments("showCodeLines").build();
+        verifyBuild(result, NO_SOURCE);
+        assertThat(result.getOutput()).contains("Code lines: 0");
+    }
+
+    @ParameterizedTest
+    @MethodSource("gradleVersionProvider")
+    public void testHardLinkedFile(final String gradleVersion) throws IOException {
+        copyProject("simple-project");
+        final Path packageDir = this.projectDir.resolve("src/main/java/com/cthing/testproject");
+        Files.createLink(packageDir.resolve("HelloWorldLink.java"), packageDir.resolve("HelloWorld.java"));
+        Files.writeString(this.projectDir.resolve("build.gradle"), """
+
+                locc {
+                    aliasAttribution = org.cthing.gradle.plugins.locc.AliasAttribution.FIRST
+                }
+                """ + SUMMARY_TASK, StandardOpenOption.APPEND);
+
+        final BuildResult result = createGradleRunner(gradleVersion).withArguments("showCodeLines", "--info")
+                                                                    .build();
+        verifyBuild(result, SUCCESS);
+        assertThat(result.getOutput()).contains("Found 1 files reachable through multiple paths")
+                                      .contains("Code lines: 40");
+    }
+
     private void copyProject(final String projectName) throws IOException {
         final URL projectUrl = getClass().getResource("/projects/" + projectName);
         assertThat(projectUrl).isNotNull();
@@ -267,9 +352,12 @@ public class PluginIntegTest {
     private void verifyFileReports(final String reportsDir) throws IOException, ProcessingException {
         verifyXmlReport(reportsDir);
         verifyJsonReport(reportsDir);
+        verifyNdjsonReport(reportsDir);
         verifyYamlReport(reportsDir);
         verifyTextReport(reportsDir);
         verifyCsvReport(reportsDir);
+        verifyFileCsvReport(reportsDir);
+        verifyArrowReport(reportsDir);
         verifyHtmlReport(reportsDir);
     }
 
@@ -308,6 +396,20 @@ public class PluginIntegTest {
         }
     }
 
+    private void verifyNdjsonReport(final String reportsDir) throws IOException {
+        final Path actualReport = this.projectDir.resolve("build/reports/locc/locc.ndjson");
+        assertThat(actualReport).isReadable();
+        showReport(actualReport);
+
+        final List<String> expectedLines =
+                IOUtils.resourceToString(reportsDir + "/locc.ndjson", StandardCharsets.UTF_8).lines().toList();
+        final List<String> actualLines = Files.readAllLines(actualReport, StandardCharsets.UTF_8);
+        assertThat(actualLines).hasSameSizeAs(expectedLines);
+        for (int i = 0; i < expectedLines.size(); i++) {
+            assertThatJson(actualLines.get(i)).isEqualTo(expectedLines.get(i));
+        }
+    }
+
     @SuppressWarnings("MismatchedQueryAndUpdateOfStringBuilder")
     private void verifyYamlReport(final String reportsDir)
             throws IOException, ProcessingException {
@@ -350,6 +452,68 @@ public class PluginIntegTest {
         assertThat(actualReport).hasContent(expectedText);
     }
 
+    private void verifyFileCsvReport(final String reportsDir) throws IOException {
+        final Path actualReport = this.projectDir.resolve("build/reports/locc/locc-files.csv");
+        showReport(actualReport);
+
+        final String expectedText = IOUtils.resourceToString(reportsDir + "/locc-files.csv", StandardCharsets.UTF_8);
+        assertThat(actualReport).hasContent(expectedText);
+    }
+
+    private void verifyArrowReport(final String reportsDir) throws IOException {
+        final Path actualReport = this.projectDir.resolve("build/reports/locc/locc.arrow");
+        assertThat(actualReport).isReadable();
+
+        // The per-file CSV report has the same rows, except that it has an additional row with the totals of each
+        // file, and that the Arrow report has a row with a null language for a file without any language.
+        final List<String> csvRows =
+                IOUtils.resourceToString(reportsDir + "/locc-files.csv", StandardCharsets.UTF_8).lines().toList();
+        final Set<String> pathnamesWithLanguages = new HashSet<>();
+        for (final String row : csvRows.subList(1, csvRows.size())) {
+            if (!row.contains(",ALL,")) {
+                pathnamesWithLanguages.add(row.substring(0, row.indexOf(',')));
+            }
+        }
+        final List<String> expectedRows = new ArrayList<>();
+        for (final String row : csvRows.subList(1, csvRows.size())) {
+            final String pathname = row.substring(0, row.indexOf(','));
+            if (!row.contains(",ALL,")) {
+                expectedRows.add(row);
+            } else if (!pathnamesWithLanguages.contains(pathname)) {
+                expectedRows.add(row.replace(",ALL,", ",null,"));
+            }
+        }
+
+        final List<String> actualRows = new ArrayList<>();
+        try (BufferAllocator allocator = new RootAllocator();
+             ArrowFileReader reader = new ArrowFileReader(Files.newByteChannel(actualReport), allocator)) {
+            final VectorSchemaRoot root = reader.getVectorSchemaRoot();
+            assertThat(root.getSchema().getFields()).extracting(Field::getName)
+                                                    .containsExactly("path", "language", "total", "code", "comment",
+                                                                     "blank");
+            final DictionaryEncoding encoding = root.getSchema().findField("language").getDictionary();
+            assertThat(encoding).isNotNull();
+
+            while (reader.loadNextBatch()) {
+                final FieldVector dictionary = reader.getDictionaryVectors().get(encoding.getId()).getVector();
+                final BaseIntVector languages = (BaseIntVector)root.getVector("language");
+                for (int i = 0; i < root.getRowCount(); i++) {
+                    final StringBuilder row = new StringBuilder();
+                    row.append(root.getVector("path").getObject(i)).append(',');
+                    row.append(languages.isNull(i)
+                               ? "null"
+                               : dictionary.getObject((int)languages.getValueAsLong(i)));
+                    for (final String column : List.of("total", "code", "comment", "blank")) {
+                        row.append(',').append(root.getVector(column).getObject(i));
+                    }
+                    actualRows.add(row.toString());
+                }
+            }
+        }
+
+        assertThat(actualRows).containsExactlyInAnyOrderElementsOf(expectedRows);
+    }
+
     private void verifyHtmlReport(final String reportsDir) throws IOException {
         final Path actualReport = this.projectDir.resolve("build/reports/locc/locc.html");
         showReport(actualReport);
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.cthing.gradle.plugins.locc;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+
+public class ShardTest {
+
+    @Test
+    public void testHash() {
+        assertThat(Shard.hash("")).isEqualTo(0xCBF29CE484222325L);
+        assertThat(Shard.hash("a")).isEqualTo(0xAF63DC4C8601EC8CL);
+        assertThat(Shard.hash("foobar")).isEqualTo(0x85944171F73967E8L);
+    }
+
+    @Test
+    public void testPartition() {
+        final int shardCount = 4;
+        final int[] shardSizes = new int[shardCount];
+        for (int i = 0; i < 1000; i++) {
+            final String pathname = "src/main/java/File" + i + ".java";
+            int numShards = 0;
+            for (int index = 0; index < shardCount; index++) {
+                if (new Shard(index, shardCount).accepts(pathname)) {
+                    numShards++;
+                    shardSizes[index]++;
+                }
+            }
+            assertThat(numShards).isEqualTo(1);
+            assertThat(Shard.ALL.accepts(pathname)).isTrue();
+        }
+        for (final int shardSize : shardSizes) {
+            assertThat(shardSize).isBetween(150, 350);
+        }
+    }
+
+    @Test
+    public void testInvalid() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new Shard(0, 0));
+        assertThatIllegalArgumentException().isThrownBy(() -> new Shard(2, 2));
+        assertThatIllegalArgumentException().isThrownBy(() -> new Shard(-1, 2));
+    }
+}
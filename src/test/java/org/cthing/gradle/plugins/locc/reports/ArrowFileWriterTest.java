@@ -0,0 +1,223 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.cthing.gradle.plugins.locc.reports;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BaseIntVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowFileReader;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.DictionaryEncoding;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.apache.arrow.vector.util.ByteArrayReadableSeekableByteChannel;
+import org.cthing.gradle.plugins.locc.reports.ArrowFileWriter.Column;
+import org.cthing.gradle.plugins.locc.reports.ArrowFileWriter.ColumnType;
+import org.cthing.gradle.plugins.locc.reports.ArrowFileWriter.IntVector;
+import org.cthing.gradle.plugins.locc.reports.ArrowFileWriter.Utf8Vector;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+public class ArrowFileWriterTest {
+
+    private static final List<Column> COLUMNS = List.of(new Column("path", ColumnType.UTF8, false),
+                                                        new Column("language", ColumnType.DICTIONARY, true),
+                                                        new Column("code", ColumnType.INT32, false));
+
+    @Test
+    public void testEmptyTable() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ArrowFileWriter writer = new ArrowFileWriter(out, COLUMNS);
+        writer.start();
+        writer.writeDictionary(1, new Utf8Vector(0));
+        writer.finish();
+
+        verifyFraming(out.toByteArray());
+    }
+
+    @Test
+    public void testRecordBatches() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ArrowFileWriter writer = new ArrowFileWriter(out, COLUMNS);
+        writer.start();
+
+        final Utf8Vector dictionary = new Utf8Vector(2);
+        dictionary.add("Css");
+        dictionary.add("Html");
+        writer.writeDictionary(1, dictionary);
+
+        final Utf8Vector paths = new Utf8Vector(1);
+        final IntVector languages = new IntVector(1);
+        final IntVector code = new IntVector(1);
+        final List<ArrowFileWriter.Vector> vectors = List.of(paths, languages, code);
+
+        paths.add("index.html");
+        languages.add(0);
+        code.add(12);
+        paths.add("index.html");
+        languages.add(1);
+        code.add(23);
+        paths.add("notes.foo");
+        languages.addNull();
+        code.add(0);
+        writer.writeRecordBatch(vectors);
+        assertThat(languages.nullCount()).isEqualTo(1);
+
+        vectors.forEach(ArrowFileWriter.Vector::clear);
+        assertThat(paths.length()).isZero();
+        assertThat(languages.nullCount()).isZero();
+        paths.add("über.txt");
+        languages.add(1);
+        code.add(70000);
+        writer.writeRecordBatch(vectors);
+        writer.finish();
+
+        final byte[] file = out.toByteArray();
+        verifyFraming(file);
+        assertThat(indexOf(file, "CssHtml".getBytes(StandardCharsets.UTF_8))).isPositive();
+        assertThat(indexOf(file, "index.htmlindex.htmlnotes.foo".getBytes(StandardCharsets.UTF_8))).isPositive();
+        assertThat(indexOf(file, "über.txt".getBytes(StandardCharsets.UTF_8))).isPositive();
+        assertThat(indexOf(file, littleEndian(12, 23, 0))).isPositive();
+        assertThat(indexOf(file, littleEndian(0, 10, 20, 29))).isPositive();
+        assertThat(indexOf(file, littleEndian(70000))).isPositive();
+    }
+
+    @Test
+    public void testReadWithArrow() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ArrowFileWriter writer = new ArrowFileWriter(out, COLUMNS);
+        writer.start();
+
+        final Utf8Vector dictionary = new Utf8Vector(2);
+        dictionary.add("Css");
+        dictionary.add("Html");
+        writer.writeDictionary(1, dictionary);
+
+        final Utf8Vector paths = new Utf8Vector(1);
+        final IntVector languages = new IntVector(1);
+        final IntVector code = new IntVector(1);
+        final List<ArrowFileWriter.Vector> vectors = List.of(paths, languages, code);
+
+        paths.add("index.html");
+        languages.add(1);
+        code.add(23);
+        paths.add("notes.foo");
+        languages.addNull();
+        code.add(0);
+        writer.writeRecordBatch(vectors);
+
+        vectors.forEach(ArrowFileWriter.Vector::clear);
+        paths.add("style.css");
+        languages.add(0);
+        code.add(70000);
+        writer.writeRecordBatch(vectors);
+        writer.finish();
+
+        final List<String> rows = new ArrayList<>();
+        try (BufferAllocator allocator = new RootAllocator();
+             ArrowFileReader reader =
+                     new ArrowFileReader(new ByteArrayReadableSeekableByteChannel(out.toByteArray()), allocator)) {
+            final Schema schema = reader.getVectorSchemaRoot().getSchema();
+            assertThat(schema.getFields()).extracting(Field::getName).containsExactly("path", "language", "code");
+            assertThat(schema.findField("path").getType()).isEqualTo(ArrowType.Utf8.INSTANCE);
+            assertThat(schema.findField("path").isNullable()).isFalse();
+            assertThat(schema.findField("code").getType()).isEqualTo(new ArrowType.Int(32, true));
+            assertThat(schema.findField("code").isNullable()).isFalse();
+
+            // In memory, a dictionary encoded column holds the indices, and the dictionary holds the strings.
+            final Field language = schema.findField("language");
+            assertThat(language.isNullable()).isTrue();
+            final DictionaryEncoding encoding = language.getDictionary();
+            assertThat(encoding).isNotNull();
+            assertThat(encoding.getIndexType()).isEqualTo(new ArrowType.Int(32, true));
+            assertThat(reader.getDictionaryVectors().get(encoding.getId()).getVectorType())
+                    .isEqualTo(ArrowType.Utf8.INSTANCE);
+
+            assertThat(reader.getRecordBlocks()).hasSize(2);
+            while (reader.loadNextBatch()) {
+                readRows(reader, encoding.getId(), rows);
+            }
+        }
+
+        assertThat(rows).containsExactly("index.html,Html,23", "notes.foo,null,0", "style.css,Css,70000");
+    }
+
+    /**
+     * Reads the rows of the current batch using the Arrow library, as an Arrow based tool would.
+     *
+     * @param reader Reader positioned at a batch
+     * @param dictionaryId Identifier of the dictionary of the language column
+     * @param rows Receives each row with its columns separated by commas
+     * @throws IOException if there was a problem reading the file
+     */
+    private static void readRows(final ArrowFileReader reader, final long dictionaryId, final List<String> rows)
+            throws IOException {
+        final VectorSchemaRoot root = reader.getVectorSchemaRoot();
+        final VarCharVector dictionary = (VarCharVector)reader.getDictionaryVectors().get(dictionaryId).getVector();
+        final VarCharVector paths = (VarCharVector)root.getVector("path");
+        final BaseIntVector languages = (BaseIntVector)root.getVector("language");
+        final BaseIntVector code = (BaseIntVector)root.getVector("code");
+
+        for (int i = 0; i < root.getRowCount(); i++) {
+            final String language = languages.isNull(i)
+                                    ? "null"
+                                    : dictionary.getObject((int)languages.getValueAsLong(i)).toString();
+            rows.add(paths.getObject(i) + "," + language + "," + code.getValueAsLong(i));
+        }
+    }
+
+    private static void verifyFraming(final byte[] file) {
+        final ByteBuffer buffer = ByteBuffer.wrap(file).order(ByteOrder.LITTLE_ENDIAN);
+        final byte[] magic = "ARROW1".getBytes(StandardCharsets.US_ASCII);
+
+        assertThat(file).startsWith(magic[0], magic[1], magic[2], magic[3], magic[4], magic[5], (byte)0, (byte)0);
+        assertThat(file).endsWith(magic);
+
+        // The schema message immediately follows the padded magic.
+        assertThat(buffer.getInt(8)).isEqualTo(0xFFFFFFFF);
+        assertThat(buffer.getInt(12) % 8).isZero();
+
+        // The footer is aligned and is preceded by the end of stream marker.
+        final int footerLength = buffer.getInt(file.length - magic.length - Integer.BYTES);
+        final int footerStart = file.length - magic.length - Integer.BYTES - footerLength;
+        assertThat(footerStart % 8).isZero();
+        assertThat(buffer.getInt(footerStart - 8)).isEqualTo(0xFFFFFFFF);
+        assertThat(buffer.getInt(footerStart - 4)).isZero();
+    }
+
+    private static byte[] littleEndian(final int... values) {
+        final ByteBuffer buffer = ByteBuffer.allocate(values.length * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (final int value : values) {
+            buffer.putInt(value);
+        }
+        return buffer.array();
+    }
+
+    private static int indexOf(final byte[] data, final byte[] sequence) {
+        for (int i = 0; i <= data.length - sequence.length; i++) {
+            int j = 0;
+            while (j < sequence.length && data[i + j] == sequence[j]) {
+                j++;
+            }
+            if (j == sequence.length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.cthing.gradle.plugins.locc.reports;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+public class FileCsvReportTest {
+
+    @ParameterizedTest
+    @ValueSource(ints = { 0, 7, 10, 99, 12345, 1_000_000, Integer.MAX_VALUE, -1, Integer.MIN_VALUE })
+    public void testWriteCount(final int value) throws IOException {
+        final StringWriter writer = new StringWriter();
+        final char[] digits = new char[10];
+        FileCsvReport.writeCount(writer, digits, value);
+        writer.write(',');
+        FileCsvReport.writeCount(writer, digits, value);
+
+        assertThat(writer).hasToString(value + "," + value);
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.cthing.gradle.plugins.locc.reports;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+public class YamlReportTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "",
+            "  ",
+            "src/main/java/App.java",
+            "a, b: c # d",
+            "[a] {b} & *c !d |e >f 'g' %h @i `j`",
+            "Say \"hello\" \\ goodbye",
+            "tab\tnewline\ncarriage return\r",
+            "\u0000\u0001\u001F\u007F\u0085\u009F",
+            "line\u2028paragraph\u2029",
+            "über ✓ 😀",
+            "\uFFFE\uFFFF"
+    })
+    public void testWriteDoubleQuoted(final String value) throws IOException {
+        final StringWriter writer = new StringWriter();
+        writer.write("{value: ");
+        YamlReport.writeDoubleQuoted(writer, value);
+        writer.write(", next: 1}");
+
+        assertThat(writer.toString()).doesNotContain("\\/");
+
+        final JsonNode node = new ObjectMapper(new YAMLFactory()).readTree(writer.toString());
+        assertThat(node.get("value").asText()).isEqualTo(value);
+        assertThat(node.get("next").asInt()).isEqualTo(1);
+    }
+}
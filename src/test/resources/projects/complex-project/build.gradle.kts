@@ -9,7 +9,10 @@ tasks {
             html.required = true
             yaml.required = true
             json.required = true
+            ndjson.required = true
             csv.required = true
+            fileCsv.required = true
+            arrow.required = true
             text.required = true
             console.required = true
         }